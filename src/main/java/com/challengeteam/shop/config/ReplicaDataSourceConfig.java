@@ -0,0 +1,72 @@
+package com.challengeteam.shop.config;
+
+import com.challengeteam.shop.persistence.datasource.ReplicaRoutingDataSource;
+import com.challengeteam.shop.properties.ReplicaDataSourceProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+
+/**
+ * Replaces the single auto-configured pool with pools of the primary and the replica when
+ * {@code spring.datasource.replica.url} is set. Read-only transactions use the replica,
+ * see {@link ReplicaRoutingDataSource}.
+ */
+@Configuration
+@ConditionalOnExpression("!'${spring.datasource.replica.url:}'.isBlank()")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties
+                .initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties dataSourceProperties,
+                                              ReplicaDataSourceProperties replicaDataSourceProperties) {
+        return DataSourceBuilder
+                .create()
+                .type(HikariDataSource.class)
+                .driverClassName(dataSourceProperties.determineDriverClassName())
+                .url(replicaDataSourceProperties.getUrl())
+                .username(orElse(replicaDataSourceProperties.getUsername(), dataSourceProperties.determineUsername()))
+                .password(orElse(replicaDataSourceProperties.getPassword(), dataSourceProperties.determinePassword()))
+                .build();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                             HikariDataSource replicaDataSource,
+                                                             ReplicaDataSourceProperties replicaDataSourceProperties) {
+        return new ReplicaRoutingDataSource(
+                primaryDataSource,
+                replicaDataSource,
+                replicaDataSourceProperties.getReadYourWritesWindow()
+        );
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    // credentials of the primary are used unless the replica has its own
+    private static String orElse(String value, String defaultValue) {
+        return StringUtils.hasText(value) ? value : defaultValue;
+    }
+
+}
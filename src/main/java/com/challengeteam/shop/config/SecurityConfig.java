@@ -2,6 +2,7 @@ package com.challengeteam.shop.config;
 
 import com.challengeteam.shop.properties.CorsProperties;
 import com.challengeteam.shop.security.filter.JwtTokenFilter;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -66,6 +67,7 @@ public class SecurityConfig {
                 .cors(corsConfigurer -> corsConfigurer.configurationSource(corsConfig))
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()             // critical for CORS
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()          // streamed responses, the request was authorized
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/docs/**", "/swagger-ui/**").permitAll()
                         .requestMatchers("/api/v1/test-data/**").permitAll()
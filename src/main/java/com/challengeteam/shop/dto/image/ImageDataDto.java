@@ -1,9 +1,37 @@
 package com.challengeteam.shop.dto.image;
 
+import java.io.InputStream;
+
+/**
+ * Image opened for download. The stream reads the image from the storage as it is consumed
+ * and has to be closed by the one who consumes it. When a range of the image is opened,
+ * the stream reads only this range and the size is still the size of the whole image.
+ */
 public record ImageDataDto(
         String filename,
-        byte[] imageBytes,
+        InputStream imageStream,
         String mimeType,
-        long size
+        long size,
+        Range range
 ) {
+
+    public ImageDataDto(String filename, InputStream imageStream, String mimeType, long size) {
+        this(filename, imageStream, mimeType, size, null);
+    }
+
+    public boolean isPartial() {
+        return range != null;
+    }
+
+    /**
+     * Positions of the first and the last byte of the range, both inclusive.
+     */
+    public record Range(long first, long last) {
+
+        public long length() {
+            return last - first + 1;
+        }
+
+    }
+
 }
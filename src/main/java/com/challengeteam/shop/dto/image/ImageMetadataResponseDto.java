@@ -1,10 +1,13 @@
     package com.challengeteam.shop.dto.image;
 
+    import java.util.List;
+
     public record ImageMetadataResponseDto(
             long id,
             String name,
             String url,
             long size,
-            String mimeType
+            String mimeType,
+            List<ImageVariantResponseDto> variants
     ) {
     }
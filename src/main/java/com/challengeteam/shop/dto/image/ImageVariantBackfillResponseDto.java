@@ -0,0 +1,7 @@
+package com.challengeteam.shop.dto.image;
+
+public record ImageVariantBackfillResponseDto(
+        long processed,
+        long failed
+) {
+}
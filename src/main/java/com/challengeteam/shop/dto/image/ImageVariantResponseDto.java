@@ -0,0 +1,7 @@
+package com.challengeteam.shop.dto.image;
+
+public record ImageVariantResponseDto(
+        int width,
+        String url
+) {
+}
@@ -0,0 +1,23 @@
+package com.challengeteam.shop.dto.pagination;
+
+import java.util.List;
+import java.util.function.Function;
+
+public record CursorPage<T>(
+        List<T> content,
+        String next
+) {
+
+    public boolean isLast() {
+        return next == null;
+    }
+
+    public <R> CursorPage<R> map(Function<? super T, ? extends R> mapper) {
+        List<R> mapped = content.stream()
+                .<R>map(mapper)
+                .toList();
+
+        return new CursorPage<>(mapped, next);
+    }
+
+}
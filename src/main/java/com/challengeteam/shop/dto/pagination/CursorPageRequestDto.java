@@ -0,0 +1,21 @@
+package com.challengeteam.shop.dto.pagination;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
+
+public record CursorPageRequestDto(
+        @Size(max = 1024, message = "Maximum length for cursor parameter is {max}")
+        String cursor,
+        @Min(value = 1, message = "Minimum value for size parameter is {value}")
+        @Max(value = 100, message = "Maximum value for size parameter is {value}")
+        Integer size
+) {
+
+    // empty cursor means the first page
+    public CursorPageRequestDto {
+        cursor = (cursor == null || cursor.isBlank()) ? null : cursor;
+        size = (size == null) ? 10 : size;
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.challengeteam.shop.dto.pagination;
+
+import java.util.List;
+
+public record CursorPageResponseDto<T>(
+        List<T> content,
+        int size,
+        String next,
+        boolean last
+) {
+    public static <T> CursorPageResponseDto<T> of(CursorPage<T> page, int size) {
+        return new CursorPageResponseDto<>(
+                page.content(),
+                size,
+                page.next(),
+                page.isLast()
+        );
+    }
+}
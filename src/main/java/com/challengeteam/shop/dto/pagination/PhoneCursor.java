@@ -0,0 +1,8 @@
+package com.challengeteam.shop.dto.pagination;
+
+public record PhoneCursor(
+        String sort,
+        String key,
+        long id
+) {
+}
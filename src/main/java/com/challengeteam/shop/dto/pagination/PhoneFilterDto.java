@@ -1,10 +1,15 @@
 package com.challengeteam.shop.dto.pagination;
 
 import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.Builder;
 
 import java.math.BigDecimal;
+import java.util.List;
 
+@Builder
 public record PhoneFilterDto(
         String brand,
 
@@ -15,12 +20,117 @@ public record PhoneFilterDto(
         BigDecimal maxPrice,
 
         @Pattern(
-                regexp = "name_asc|name_desc|price_asc|price_desc",
-                message = "Sort must be one of: name_asc, name_desc, price_asc, price_desc"
+                regexp = "name_asc|name_desc|price_asc|price_desc|release_year_asc|release_year_desc|newest|popularity"
+                         + "|relevance",
+                message = "Sort must be one of: name_asc, name_desc, price_asc, price_desc, release_year_asc,"
+                          + " release_year_desc, newest, popularity, relevance"
         )
-        String sort
+        String sort,
+
+        @Size(max = 200, message = "Search query must be at most 200 characters")
+        String q,
+
+        @DecimalMin(value = "0.0", message = "Minimum screen size cannot be negative")
+        BigDecimal minScreenInches,
+
+        @DecimalMin(value = "0.0", message = "Maximum screen size cannot be negative")
+        BigDecimal maxScreenInches,
+
+        @Min(value = 0, message = "Minimum battery capacity cannot be negative")
+        Integer minBatteryMah,
+
+        @Min(value = 0, message = "Maximum battery capacity cannot be negative")
+        Integer maxBatteryMah,
+
+        @Min(value = 0, message = "Minimum main camera resolution cannot be negative")
+        Integer minMainCameraMp,
+
+        @Min(value = 0, message = "Maximum main camera resolution cannot be negative")
+        Integer maxMainCameraMp,
+
+        @Min(value = 0, message = "Minimum front camera resolution cannot be negative")
+        Integer minFrontCameraMp,
+
+        @Min(value = 0, message = "Maximum front camera resolution cannot be negative")
+        Integer maxFrontCameraMp,
+
+        @Min(value = 0, message = "Minimum cores number cannot be negative")
+        Integer minCoresNumber,
+
+        @Min(value = 0, message = "Maximum cores number cannot be negative")
+        Integer maxCoresNumber,
+
+        @Size(max = 50, message = "At most {max} brands can be selected")
+        List<String> brands,
+
+        @Size(max = 50, message = "At most {max} cores numbers can be selected")
+        List<Integer> coresNumbers,
+
+        @Size(max = 50, message = "At most {max} release years can be selected")
+        List<Integer> releaseYears,
+
+        @Size(max = 50, message = "At most {max} cpus can be selected")
+        List<String> cpus
 ) {
     public PhoneFilterDto {
-        sort = (sort == null || sort.isBlank()) ? "name_asc" : sort;
+        q = (q == null || q.isBlank()) ? null : q.strip();
+        // a multi-value filter matches a phone having any of the values, no values means no filter
+        brands = normalizeValues(brands);
+        coresNumbers = normalizeValues(coresNumbers);
+        releaseYears = normalizeValues(releaseYears);
+        cpus = normalizeValues(cpus);
+        // no sort means the default one, which depends on the pagination mode
+        sort = (sort == null || sort.isBlank()) ? null : sort;
+    }
+
+    /**
+     * The requested sort or the default one of a page: search results are ordered by relevance,
+     * other phones by name.
+     */
+    public String sortOrDefault() {
+        if (sort != null) {
+            return sort;
+        }
+
+        return q == null ? "name_asc" : "relevance";
+    }
+
+    /**
+     * The requested sort or the default one of a cursor page. Relevance has no key to continue from,
+     * so search results are ordered by name unless a sort is requested explicitly.
+     */
+    public String keysetSortOrDefault() {
+        return sort == null ? "name_asc" : sort;
+    }
+
+    /**
+     * Whether any range of phone characteristics is requested.
+     */
+    public boolean hasCharacteristicFilters() {
+        return minScreenInches != null || maxScreenInches != null
+               || minBatteryMah != null || maxBatteryMah != null
+               || minMainCameraMp != null || maxMainCameraMp != null
+               || minFrontCameraMp != null || maxFrontCameraMp != null
+               || minCoresNumber != null || maxCoresNumber != null;
+    }
+
+    /**
+     * Whether any multi-value filter is requested.
+     */
+    public boolean hasMultiValueFilters() {
+        return brands != null || coresNumbers != null || releaseYears != null || cpus != null;
+    }
+
+    // blank and repeated values are dropped
+    private static <T> List<T> normalizeValues(List<T> values) {
+        if (values == null) {
+            return null;
+        }
+
+        List<T> result = values.stream()
+                .filter(value -> value != null && !(value instanceof String text && text.isBlank()))
+                .distinct()
+                .toList();
+        return result.isEmpty() ? null : result;
     }
 }
@@ -15,6 +15,7 @@ public record PhoneCreateRequestDto(
 
         @NotNull(message = "Price must not be null")
         @DecimalMin(value = "0.00", message = "Price must be greater than {value}")
+        @Digits(integer = 8, fraction = 2, message = "Price must have at most {integer} integer and {fraction} fraction digits")
         BigDecimal price,
 
         @NotBlank(message = "Brand must not be empty")
@@ -0,0 +1,14 @@
+package com.challengeteam.shop.dto.phone;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record PhoneIdsRequestDto(
+        @NotEmpty(message = "At least one id is required")
+        @Size(max = 100, message = "Maximum number of ids is {max}")
+        List<@NotNull(message = "Id must not be empty") Long> ids
+) {
+}
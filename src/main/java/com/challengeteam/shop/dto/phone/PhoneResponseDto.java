@@ -18,6 +18,7 @@ public record PhoneResponseDto(
         String frontCamera,
         String mainCamera,
         String batteryCapacity,
+        Long version,
         List<ImageMetadataResponseDto> images
 ) {
 }
@@ -13,6 +13,7 @@ public record PhoneUpdateRequestDto(
         String description,
 
         @DecimalMin(value = "0.00", message = "Price must be greater than {value}")
+        @Digits(integer = 8, fraction = 2, message = "Price must have at most {integer} integer and {fraction} fraction digits")
         BigDecimal price,
 
         @Size(min = 3, max = 255, message = "Brand must be between {min} and {max} characters")
@@ -40,6 +41,10 @@ public record PhoneUpdateRequestDto(
         String mainCamera,
 
         @Pattern(regexp = "^\\d+\\s*mAh$", message = "Battery capacity must be in format: number followed by mAh (e.g., 4323 mAh)")
-        String batteryCapacity
+        String batteryCapacity,
+
+        @NotNull(message = "Version is required")
+        @PositiveOrZero(message = "Version must be zero or greater")
+        Long version
 ) {
 }
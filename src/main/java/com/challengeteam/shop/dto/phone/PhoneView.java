@@ -0,0 +1,15 @@
+package com.challengeteam.shop.dto.phone;
+
+import com.challengeteam.shop.persistence.repository.projection.ImageMetadataRow;
+import com.challengeteam.shop.persistence.repository.projection.PhoneDetailsRow;
+
+import java.util.List;
+
+/**
+ * Read-only phone with metadata of its images, as selected by projection queries.
+ */
+public record PhoneView(
+        PhoneDetailsRow phone,
+        List<ImageMetadataRow> images
+) {
+}
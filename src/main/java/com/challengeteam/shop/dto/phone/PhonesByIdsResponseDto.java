@@ -0,0 +1,9 @@
+package com.challengeteam.shop.dto.phone;
+
+import java.util.List;
+
+public record PhonesByIdsResponseDto(
+        List<PhoneResponseDto> phones,
+        List<Long> missingIds
+) {
+}
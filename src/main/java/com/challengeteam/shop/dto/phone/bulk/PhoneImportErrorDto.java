@@ -0,0 +1,13 @@
+package com.challengeteam.shop.dto.phone.bulk;
+
+import java.util.List;
+
+/**
+ * Why a row of the import was skipped. Rows are numbered from 1 in the order of the input,
+ * the CSV header and blank lines aren't counted.
+ */
+public record PhoneImportErrorDto(
+        long row,
+        List<String> messages
+) {
+}
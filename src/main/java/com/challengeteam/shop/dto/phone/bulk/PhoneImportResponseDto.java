@@ -0,0 +1,10 @@
+package com.challengeteam.shop.dto.phone.bulk;
+
+import java.util.List;
+
+public record PhoneImportResponseDto(
+        long imported,
+        long failed,
+        List<PhoneImportErrorDto> errors
+) {
+}
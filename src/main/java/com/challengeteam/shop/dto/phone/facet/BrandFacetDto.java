@@ -0,0 +1,7 @@
+package com.challengeteam.shop.dto.phone.facet;
+
+public record BrandFacetDto(
+        String brand,
+        long count
+) {
+}
@@ -0,0 +1,11 @@
+package com.challengeteam.shop.dto.phone.facet;
+
+import java.util.List;
+
+public record PhoneFacetsResponseDto(
+        long total,
+        List<BrandFacetDto> brands,
+        List<PriceBucketFacetDto> priceBuckets,
+        List<ReleaseYearFacetDto> releaseYears
+) {
+}
@@ -0,0 +1,13 @@
+package com.challengeteam.shop.dto.phone.facet;
+
+import java.math.BigDecimal;
+
+/**
+ * Phones priced from {@code from} (inclusive) to {@code to} (exclusive). A missing bound means the bucket is open.
+ */
+public record PriceBucketFacetDto(
+        BigDecimal from,
+        BigDecimal to,
+        long count
+) {
+}
@@ -0,0 +1,7 @@
+package com.challengeteam.shop.dto.phone.facet;
+
+public record ReleaseYearFacetDto(
+        int releaseYear,
+        long count
+) {
+}
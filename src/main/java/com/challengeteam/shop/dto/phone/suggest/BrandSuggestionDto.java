@@ -0,0 +1,7 @@
+package com.challengeteam.shop.dto.phone.suggest;
+
+public record BrandSuggestionDto(
+        String brand,
+        long phonesCount
+) {
+}
@@ -0,0 +1,8 @@
+package com.challengeteam.shop.dto.phone.suggest;
+
+public record PhoneNameSuggestionDto(
+        Long id,
+        String name,
+        String brand
+) {
+}
@@ -0,0 +1,21 @@
+package com.challengeteam.shop.dto.phone.suggest;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+public record PhoneSuggestRequestDto(
+        @NotBlank(message = "Prefix is required")
+        @Size(max = 100, message = "Maximum length for prefix parameter is {max}")
+        String prefix,
+        @Min(value = 1, message = "Minimum value for limit parameter is {value}")
+        @Max(value = 20, message = "Maximum value for limit parameter is {value}")
+        Integer limit
+) {
+
+    public PhoneSuggestRequestDto {
+        limit = (limit == null) ? 10 : limit;
+    }
+
+}
@@ -0,0 +1,9 @@
+package com.challengeteam.shop.dto.phone.suggest;
+
+import java.util.List;
+
+public record PhoneSuggestResponseDto(
+        List<BrandSuggestionDto> brands,
+        List<PhoneNameSuggestionDto> phones
+) {
+}
@@ -5,6 +5,12 @@ import com.challengeteam.shop.entity.phone.Phone;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.util.List;
 
 @Getter
 @Setter
@@ -13,6 +19,8 @@ import lombok.experimental.SuperBuilder;
 @SuperBuilder
 @Entity
 @Table(name = "images")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "images")
 public class Image extends BaseEntity {
     @Column(nullable = false)
     private String name;
@@ -31,6 +39,11 @@ public class Image extends BaseEntity {
     @JoinColumn(name = "fk_phone_id", nullable = true)
     private Phone phone;
 
+    // widths of the stored resized variants, null until they are generated
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "variant_widths")
+    private List<Integer> variantWidths;
+
     @Override
     public String toString() {
         return "Image{" +
@@ -38,6 +51,7 @@ public class Image extends BaseEntity {
                ", storageKey='" + storageKey + '\'' +
                ", size=" + size +
                ", mimeType=" + mimeType +
+               ", variantWidths=" + variantWidths +
                "} " + super.toString();
     }
 
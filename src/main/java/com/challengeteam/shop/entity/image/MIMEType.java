@@ -3,6 +3,8 @@ package com.challengeteam.shop.entity.image;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.List;
 import java.util.Objects;
@@ -14,6 +16,8 @@ import java.util.Objects;
 @SuperBuilder
 @Entity
 @Table(name = "mime_types")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "mime-types")
 public class MIMEType {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -5,6 +5,9 @@ import com.challengeteam.shop.entity.image.Image;
 import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -16,6 +19,9 @@ import java.util.List;
 @SuperBuilder
 @Entity
 @Table(name = "phones")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "phones")
+@DynamicUpdate
 public class Phone extends BaseEntity {
 
     @Column(nullable = false)
@@ -24,7 +30,7 @@ public class Phone extends BaseEntity {
     @Column(nullable = true)
     private String description;
 
-    @Column(nullable = false)
+    @Column(nullable = false, precision = 10, scale = 2)
     private BigDecimal price;
 
     @Column(nullable = false)
@@ -39,6 +45,16 @@ public class Phone extends BaseEntity {
     @OneToMany(mappedBy = "phone")
     private List<Image> images;
 
+    // times the phone was put into a cart, counted by PhonePopularityCounter and never written by updates
+    @Builder.Default
+    @Column(nullable = false, updatable = false)
+    private Long popularity = 0L;
+
+    // incremented by every update, an update of a stale phone fails instead of overwriting a newer one
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @Override
     public String toString() {
         return "Phone{" +
@@ -48,6 +64,7 @@ public class Phone extends BaseEntity {
                 ", brand='" + brand + '\'' +
                 ", releaseYear='" + releaseYear + '\'' +
                 ", phoneCharacteristics='" + phoneCharacteristics + '\'' +
+                ", version='" + version + '\'' +
                 "} " + super.toString();
     }
 }
@@ -4,6 +4,7 @@ import jakarta.persistence.Column;
 import jakarta.persistence.Embeddable;
 import lombok.*;
 
+import java.math.BigDecimal;
 import java.util.Objects;
 
 @Getter
@@ -32,6 +33,20 @@ public class PhoneCharacteristics {
     @Column(name = "battery_capacity", nullable = false, length = 20)
     private String batteryCapacity;
 
+    // numeric values parsed from the text ones, see PhoneCharacteristicsUtility; null when not parsed
+
+    @Column(name = "screen_inches", precision = 4, scale = 2)
+    private BigDecimal screenInches;
+
+    @Column(name = "battery_mah")
+    private Integer batteryMah;
+
+    @Column(name = "main_camera_mp")
+    private Integer mainCameraMp;
+
+    @Column(name = "front_camera_mp")
+    private Integer frontCameraMp;
+
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) return false;
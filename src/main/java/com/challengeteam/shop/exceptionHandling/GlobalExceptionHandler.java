@@ -4,6 +4,8 @@ import com.challengeteam.shop.dto.validation.ValidationDetailsDto;
 import com.challengeteam.shop.exceptionHandling.exception.*;
 import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ProblemDetail;
@@ -270,6 +272,51 @@ public class GlobalExceptionHandler {
                 .body(problem);
     }
 
+    @ExceptionHandler(VersionConflictException.class)
+    public ResponseEntity<ProblemDetail> handleVersionConflictException(VersionConflictException e) {
+        log.warn("409  {}", e.getMessage());
+
+        var problem = ProblemDetail.forStatus(HttpStatus.CONFLICT.value());
+        problem.setTitle("Version Conflict");
+        problem.setDetail(e.getMessage());
+
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(problem);
+    }
+
+    // an entity was changed by a concurrent transaction after it was read
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ProblemDetail> handleOptimisticLockingFailureException(OptimisticLockingFailureException e) {
+        log.warn("409  Concurrent modification: {}", e.getMessage());
+
+        var problem = ProblemDetail.forStatus(HttpStatus.CONFLICT.value());
+        problem.setTitle("Version Conflict");
+        problem.setDetail("The resource was changed concurrently, retry the request");
+
+        return ResponseEntity
+                .status(HttpStatus.CONFLICT)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(problem);
+    }
+
+    // the range of the request starts after the end of the resource, the response tells the size of it
+    @ExceptionHandler(RangeNotSatisfiableException.class)
+    public ResponseEntity<ProblemDetail> handleRangeNotSatisfiableException(RangeNotSatisfiableException e) {
+        log.warn("416  {}", e.getMessage());
+
+        var problem = ProblemDetail.forStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+        problem.setTitle("Range Not Satisfiable");
+        problem.setDetail(e.getMessage());
+
+        return ResponseEntity
+                .status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + e.getSize())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(problem);
+    }
+
     @ExceptionHandler(TestDataGeneratorOutOfLimitException.class)
     public ResponseEntity<ProblemDetail> handleTestDataGeneratorOutOfLimitException(TestDataGeneratorOutOfLimitException e) {
         log.warn("400  Test Data Generator exception: {}", e.getMessage());
@@ -0,0 +1,22 @@
+package com.challengeteam.shop.exceptionHandling.exception;
+
+public class CursorUtilityException extends Exception {
+    public CursorUtilityException() {
+    }
+
+    public CursorUtilityException(String message) {
+        super(message);
+    }
+
+    public CursorUtilityException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public CursorUtilityException(Throwable cause) {
+        super(cause);
+    }
+
+    public CursorUtilityException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+}
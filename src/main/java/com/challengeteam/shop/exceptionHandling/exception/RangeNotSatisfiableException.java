@@ -0,0 +1,33 @@
+package com.challengeteam.shop.exceptionHandling.exception;
+
+import lombok.Getter;
+
+@Getter
+public class RangeNotSatisfiableException extends RuntimeException {
+    private long size;
+
+    public RangeNotSatisfiableException(long size) {
+        super();
+        this.size = size;
+    }
+
+    public RangeNotSatisfiableException(long size, String message) {
+        super(message);
+        this.size = size;
+    }
+
+    public RangeNotSatisfiableException(long size, String message, Throwable cause) {
+        super(message, cause);
+        this.size = size;
+    }
+
+    public RangeNotSatisfiableException(long size, Throwable cause) {
+        super(cause);
+        this.size = size;
+    }
+
+    public RangeNotSatisfiableException(long size, String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+        this.size = size;
+    }
+}
@@ -0,0 +1,22 @@
+package com.challengeteam.shop.exceptionHandling.exception;
+
+public class VersionConflictException extends RuntimeException {
+    public VersionConflictException() {
+    }
+
+    public VersionConflictException(String message) {
+        super(message);
+    }
+
+    public VersionConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public VersionConflictException(Throwable cause) {
+        super(cause);
+    }
+
+    public VersionConflictException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+}
@@ -1,11 +1,10 @@
 package com.challengeteam.shop.mapper;
 
-import com.challengeteam.shop.dto.image.ImageDataDto;
 import com.challengeteam.shop.dto.image.ImageMetadataResponseDto;
+import com.challengeteam.shop.dto.image.ImageVariantResponseDto;
 import com.challengeteam.shop.entity.image.Image;
+import com.challengeteam.shop.persistence.repository.projection.ImageMetadataRow;
 import org.mapstruct.Mapper;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
@@ -14,26 +13,60 @@ import java.util.List;
 @Mapper(componentModel = "spring")
 public interface ImageMapper {
 
-    default Resource toResource(ImageDataDto dto) {
-        return new ByteArrayResource(dto.imageBytes());
-    }
-
     default ImageMetadataResponseDto toMetadata(Image image) {
-        URI uri = ServletUriComponentsBuilder
-                .fromCurrentContextPath()
-                .path("/api/v1/images/{id}")
-                .buildAndExpand(image.getId())
-                .toUri();
+        return new ImageMetadataResponseDto(
+                image.getId(),
+                image.getName(),
+                toUrl(image.getId()),
+                image.getSize(),
+                image.getMimeType().getType(),
+                toVariants(image.getId(), image.getVariantWidths())
+        );
+    }
 
+    default ImageMetadataResponseDto toMetadata(ImageMetadataRow image) {
         return new ImageMetadataResponseDto(
                 image.getId(),
                 image.getName(),
-                uri.toString(),
+                toUrl(image.getId()),
                 image.getSize(),
-                image.getMimeType().getType()
+                image.getMimeType(),
+                toVariants(image.getId(), image.getVariantWidths())
         );
     }
 
+    private static String toUrl(Long id) {
+        URI uri = ServletUriComponentsBuilder
+                .fromCurrentContextPath()
+                .path("/api/v1/images/{id}")
+                .buildAndExpand(id)
+                .toUri();
+
+        return uri.toString();
+    }
+
+    // no variants while they aren't generated, the original is served instead
+    private static List<ImageVariantResponseDto> toVariants(Long id, List<Integer> widths) {
+        if (widths == null) {
+            return List.of();
+        }
+
+        return widths.stream()
+                .map(width -> new ImageVariantResponseDto(width, toUrl(id, width)))
+                .toList();
+    }
+
+    private static String toUrl(Long id, int width) {
+        URI uri = ServletUriComponentsBuilder
+                .fromCurrentContextPath()
+                .path("/api/v1/images/{id}")
+                .queryParam("w", width)
+                .buildAndExpand(id)
+                .toUri();
+
+        return uri.toString();
+    }
+
     List<ImageMetadataResponseDto> toListOfMetadata(List<Image> images);
 
 }
@@ -1,6 +1,7 @@
 package com.challengeteam.shop.mapper;
 
 import com.challengeteam.shop.dto.phone.PhoneResponseDto;
+import com.challengeteam.shop.dto.phone.PhoneView;
 import com.challengeteam.shop.entity.phone.Phone;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -17,4 +18,8 @@ public interface PhoneMapper {
     @Mapping(source = "images", target = "images")
     PhoneResponseDto toResponse(Phone phone);
 
+    @Mapping(source = "phone", target = ".")
+    @Mapping(source = "images", target = "images")
+    PhoneResponseDto toResponse(PhoneView phoneView);
+
 }
@@ -0,0 +1,132 @@
+package com.challengeteam.shop.persistence.datasource;
+
+import com.challengeteam.shop.service.event.PhoneChangedEvent;
+import com.challengeteam.shop.service.event.PhonePopularityChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Routes connections of read-only transactions to the replica and all other connections to the primary.
+ * It has to be wrapped into a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy},
+ * so the connection is taken at the first statement, when the transaction is already marked read-only.
+ * <p>
+ * The replica lags behind the primary, so for the read-your-writes window after a write commits, reads
+ * of the same thread (e.g. listeners updating caches after the commit) and of the same user still go
+ * to the primary. A change of the phones catalog sends all reads to the primary for the window, so the
+ * catalog caches and indexes filled meanwhile don't keep the state before the change.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    private final long windowNanos;
+    private final Cache<String, Boolean> recentWriters;
+    private final ThreadLocal<Long> threadPinnedUntil = new ThreadLocal<>();
+    private volatile long allPinnedUntil = System.nanoTime();
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, Duration readYourWritesWindow) {
+        this.windowNanos = readYourWritesWindow.toNanos();
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(readYourWritesWindow)
+                .build();
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+
+    /**
+     * Sends all reads to the primary for the read-your-writes window. Runs before other listeners of
+     * the change, so caches invalidated by them are filled from the primary.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPhoneChanged(PhoneChangedEvent event) {
+        allPinnedUntil = System.nanoTime() + windowNanos;
+    }
+
+    // pages sorted by popularity are loaded again, the replica may not have it yet
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPhonePopularityChanged(PhonePopularityChangedEvent event) {
+        allPinnedUntil = System.nanoTime() + windowNanos;
+    }
+
+    @Override
+    protected Target determineCurrentLookupKey() {
+        // connections outside of transactions, e.g. of migrations, stay on the primary
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return Target.PRIMARY;
+        }
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            pinAfterCommit();
+            return Target.PRIMARY;
+        }
+
+        return isPinned() ? Target.PRIMARY : Target.REPLICA;
+    }
+
+    private void pinAfterCommit() {
+        if (windowNanos <= 0 || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+
+        String user = currentUser();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                threadPinnedUntil.set(System.nanoTime() + windowNanos);
+                if (user != null) {
+                    recentWriters.put(user, Boolean.TRUE);
+                }
+            }
+        });
+    }
+
+    private boolean isPinned() {
+        long now = System.nanoTime();
+        if (allPinnedUntil - now > 0) {
+            return true;
+        }
+
+        Long pinnedUntil = threadPinnedUntil.get();
+        if (pinnedUntil != null && pinnedUntil - now > 0) {
+            return true;
+        }
+
+        String user = currentUser();
+        if (user != null && recentWriters.getIfPresent(user) != null) {
+            log.debug("Read of user: {} goes to the primary after a recent write", user);
+            return true;
+        }
+        return false;
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null
+            || !authentication.isAuthenticated()
+            || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    public enum Target {
+        PRIMARY,
+        REPLICA
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.challengeteam.shop.persistence.function;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.query.ReturnableType;
+import org.hibernate.query.sqm.function.AbstractSqmSelfRenderingFunctionDescriptor;
+import org.hibernate.query.sqm.produce.function.StandardArgumentsValidators;
+import org.hibernate.query.sqm.produce.function.StandardFunctionReturnTypeResolvers;
+import org.hibernate.sql.ast.SqlAstTranslator;
+import org.hibernate.sql.ast.spi.SqlAppender;
+import org.hibernate.sql.ast.tree.SqlAstNode;
+import org.hibernate.sql.ast.tree.expression.ColumnReference;
+import org.hibernate.sql.ast.tree.expression.Expression;
+import org.hibernate.type.BasicType;
+import org.hibernate.type.BasicTypeRegistry;
+import org.hibernate.type.StandardBasicTypes;
+
+import java.util.List;
+
+/**
+ * Registers PostgreSQL full-text search operators as functions usable from JPQL and criteria queries.
+ * The text search configuration must be the same one the {@code search_vector} column is generated with,
+ * otherwise query terms are normalized differently from the indexed ones.
+ * <p>
+ * The first argument is the id of the phone and the functions render the {@code search_vector} column
+ * of the same table instead. The column isn't mapped by {@link com.challengeteam.shop.entity.phone.Phone},
+ * so it is never fetched with a phone nor kept in the second-level cache.
+ */
+public class FullTextSearchFunctionContributor implements FunctionContributor {
+    public static final String MATCHES = "fts_matches";
+    public static final String RANK = "fts_rank";
+
+    private static final String SEARCH_VECTOR = "search_vector";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        BasicTypeRegistry typeRegistry = functionContributions.getTypeConfiguration().getBasicTypeRegistry();
+
+        functionContributions.getFunctionRegistry().register(
+                MATCHES,
+                new SearchVectorFunction(MATCHES, "(", " @@ ", ")", typeRegistry.resolve(StandardBasicTypes.BOOLEAN))
+        );
+        functionContributions.getFunctionRegistry().register(
+                RANK,
+                new SearchVectorFunction(RANK, "ts_rank(", ", ", ")", typeRegistry.resolve(StandardBasicTypes.DOUBLE))
+        );
+    }
+
+    // renders <prefix><alias>.search_vector<operator>websearch_to_tsquery('english', ?2)<suffix>
+    private static class SearchVectorFunction extends AbstractSqmSelfRenderingFunctionDescriptor {
+        private final String prefix;
+        private final String operator;
+        private final String suffix;
+
+        SearchVectorFunction(String name, String prefix, String operator, String suffix, BasicType<?> type) {
+            super(
+                    name,
+                    StandardArgumentsValidators.exactly(2),
+                    StandardFunctionReturnTypeResolvers.invariant(type),
+                    null
+            );
+            this.prefix = prefix;
+            this.operator = operator;
+            this.suffix = suffix;
+        }
+
+        @Override
+        public void render(SqlAppender sqlAppender,
+                           List<? extends SqlAstNode> arguments,
+                           ReturnableType<?> returnType,
+                           SqlAstTranslator<?> walker) {
+            ColumnReference id = ((Expression) arguments.get(0)).getColumnReference();
+            if (id == null) {
+                throw new IllegalStateException(getName() + " expects the id of the phone as first argument");
+            }
+
+            sqlAppender.append(prefix);
+            if (id.getQualifier() != null) {
+                sqlAppender.append(id.getQualifier());
+                sqlAppender.append('.');
+            }
+            sqlAppender.append(SEARCH_VECTOR);
+            sqlAppender.append(operator);
+            sqlAppender.append("websearch_to_tsquery('english', ");
+            arguments.get(1).accept(walker);
+            sqlAppender.append(')');
+            sqlAppender.append(suffix);
+        }
+    }
+
+}
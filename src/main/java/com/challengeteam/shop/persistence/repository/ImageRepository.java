@@ -1,9 +1,14 @@
 package com.challengeteam.shop.persistence.repository;
 
 import com.challengeteam.shop.entity.image.Image;
+import com.challengeteam.shop.persistence.repository.projection.ImageMetadataRow;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -11,4 +16,21 @@ public interface ImageRepository extends JpaRepository<Image, Long> {
 
     List<Image> getImagesByPhone_Id(Long phoneId);
 
+    @Query("""
+            SELECT i.id AS id, i.phone.id AS phoneId, i.name AS name, i.size AS size, m.type AS mimeType,
+                   i.variantWidths AS variantWidths
+            FROM Image i JOIN i.mimeType m
+            WHERE i.phone.id IN :phoneIds
+            ORDER BY i.id
+            """)
+    List<ImageMetadataRow> findMetadataRowsByPhoneIdIn(@Param("phoneIds") Collection<Long> phoneIds);
+
+    // images whose variants aren't generated yet, in pages after the last id of the previous page
+    @Query("""
+            SELECT i.id FROM Image i
+            WHERE i.variantWidths IS NULL AND i.id > :afterId
+            ORDER BY i.id
+            """)
+    List<Long> findIdsWithoutVariants(@Param("afterId") Long afterId, Limit limit);
+
 }
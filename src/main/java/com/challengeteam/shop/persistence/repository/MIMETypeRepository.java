@@ -1,7 +1,10 @@
 package com.challengeteam.shop.persistence.repository;
 
 import com.challengeteam.shop.entity.image.MIMEType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -9,6 +12,8 @@ import java.util.Optional;
 @Repository
 public interface MIMETypeRepository extends JpaRepository<MIMEType, Long> {
 
+    // reference data, the result is kept in the query cache
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<MIMEType> findByExtension(String extension);
 
 }
@@ -0,0 +1,62 @@
+package com.challengeteam.shop.persistence.repository;
+
+import com.challengeteam.shop.entity.phone.Phone;
+import com.challengeteam.shop.entity.phone.PhoneCharacteristics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Inserts phones with JDBC batches. Hibernate doesn't batch inserts of entities with identity ids,
+ * so phones saved through the entity manager take a round trip each. Inserted rows bypass the
+ * persistence context and the second-level cache, which keep no entries of new phones anyway.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PhoneBatchRepository {
+    private static final String INSERT_PHONE = """
+            INSERT INTO phones (created_at, name, description, price, brand, release_year,
+                                cpu, cores_number, screen_size, front_camera, main_camera, battery_capacity,
+                                screen_inches, battery_mah, main_camera_mp, front_camera_mp)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts the phones in one batch, ids of the phones aren't read back.
+     */
+    public void insertAll(List<Phone> phones) {
+        Objects.requireNonNull(phones, "phones");
+
+        // bound like Hibernate binds an Instant, so the session time zone converts it the same way
+        OffsetDateTime createdAt = Instant.now().atOffset(ZoneOffset.UTC);
+        jdbcTemplate.batchUpdate(INSERT_PHONE, phones, phones.size(), (statement, phone) -> {
+            PhoneCharacteristics characteristics = phone.getPhoneCharacteristics();
+            statement.setObject(1, createdAt, Types.TIMESTAMP_WITH_TIMEZONE);
+            statement.setString(2, phone.getName());
+            statement.setString(3, phone.getDescription());
+            statement.setBigDecimal(4, phone.getPrice());
+            statement.setString(5, phone.getBrand());
+            statement.setInt(6, phone.getReleaseYear());
+            statement.setString(7, characteristics.getCpu());
+            statement.setInt(8, characteristics.getCoresNumber());
+            statement.setString(9, characteristics.getScreenSize());
+            statement.setString(10, characteristics.getFrontCamera());
+            statement.setString(11, characteristics.getMainCamera());
+            statement.setString(12, characteristics.getBatteryCapacity());
+            statement.setObject(13, characteristics.getScreenInches(), Types.NUMERIC);
+            statement.setObject(14, characteristics.getBatteryMah(), Types.INTEGER);
+            statement.setObject(15, characteristics.getMainCameraMp(), Types.INTEGER);
+            statement.setObject(16, characteristics.getFrontCameraMp(), Types.INTEGER);
+        });
+    }
+
+}
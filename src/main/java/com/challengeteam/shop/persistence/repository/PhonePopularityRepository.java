@@ -0,0 +1,45 @@
+package com.challengeteam.shop.persistence.repository;
+
+import com.challengeteam.shop.entity.phone.Phone;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Adds up popularity of phones with plain JDBC. A bulk statement of Hibernate would drop all phones
+ * from the second-level cache and an entity update would increment the version, so counting carts
+ * would evict cached phones and fail concurrent edits of the catalog. Only the updated phones are
+ * evicted, their cached popularity would be stale.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PhonePopularityRepository {
+    private static final String ADD_POPULARITY = "UPDATE phones SET popularity = popularity + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Adds the counts to popularity of the phones, keyed by phone id, in one batch. Rows are locked
+     * in the order of ids, so concurrent batches don't deadlock.
+     */
+    public void addPopularity(Map<Long, Long> counts) {
+        Objects.requireNonNull(counts, "counts");
+
+        List<Map.Entry<Long, Long>> rows = counts.entrySet()
+                .stream()
+                .sorted(Map.Entry.comparingByKey())
+                .toList();
+        jdbcTemplate.batchUpdate(ADD_POPULARITY, rows, rows.size(), (statement, row) -> {
+            statement.setLong(1, row.getValue());
+            statement.setLong(2, row.getKey());
+        });
+        rows.forEach(row -> entityManagerFactory.getCache().evict(Phone.class, row.getKey()));
+    }
+
+}
@@ -1,20 +1,33 @@
 package com.challengeteam.shop.persistence.repository;
 
 import com.challengeteam.shop.entity.phone.Phone;
+import com.challengeteam.shop.persistence.repository.projection.PhoneDetailsRow;
+import com.challengeteam.shop.persistence.repository.projection.PhoneFacetRow;
+import com.challengeteam.shop.persistence.repository.projection.PhoneFilterRow;
+import com.challengeteam.shop.persistence.repository.projection.PhoneIndexRow;
+import com.challengeteam.shop.persistence.repository.projection.PhoneSuggestRow;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface PhoneRepository extends JpaRepository<Phone, Long>, JpaSpecificationExecutor<Phone> {
+public interface PhoneRepository extends JpaRepository<Phone, Long>, JpaSpecificationExecutor<Phone>, PhoneRepositoryCustom {
+    int EXPORT_FETCH_SIZE = 500;
 
     @Query(value = """
             SELECT EXISTS(
@@ -28,4 +41,94 @@ public interface PhoneRepository extends JpaRepository<Phone, Long>, JpaSpecific
     @Query("SELECT p FROM Phone p LEFT JOIN FETCH p.images WHERE p.id = :id")
     Optional<Phone> findByIdWithImages(@Param("id") Long id);
 
+    @Query("SELECT p FROM Phone p LEFT JOIN FETCH p.images WHERE p.id IN :ids")
+    List<Phone> findAllByIdInWithImages(@Param("ids") Collection<Long> ids);
+
+    @Query("""
+            SELECT p.id AS id, p.name AS name, p.description AS description, p.price AS price, p.brand AS brand,
+                   p.releaseYear AS releaseYear, p.phoneCharacteristics.cpu AS cpu,
+                   p.phoneCharacteristics.coresNumber AS coresNumber, p.phoneCharacteristics.screenSize AS screenSize,
+                   p.phoneCharacteristics.frontCamera AS frontCamera, p.phoneCharacteristics.mainCamera AS mainCamera,
+                   p.phoneCharacteristics.batteryCapacity AS batteryCapacity, p.version AS version
+            FROM Phone p
+            WHERE p.id IN :ids
+            """)
+    List<PhoneDetailsRow> findDetailsRowsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // read through a server-side cursor, the driver holds one fetch of rows at a time;
+    // must be consumed within a transaction and closed
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE))
+    @Query("""
+            SELECT p.id AS id, p.name AS name, p.description AS description, p.price AS price, p.brand AS brand,
+                   p.releaseYear AS releaseYear, p.phoneCharacteristics.cpu AS cpu,
+                   p.phoneCharacteristics.coresNumber AS coresNumber, p.phoneCharacteristics.screenSize AS screenSize,
+                   p.phoneCharacteristics.frontCamera AS frontCamera, p.phoneCharacteristics.mainCamera AS mainCamera,
+                   p.phoneCharacteristics.batteryCapacity AS batteryCapacity, p.version AS version
+            FROM Phone p
+            ORDER BY p.id
+            """)
+    Stream<PhoneDetailsRow> streamDetailsRows();
+
+    @Query("SELECT p.version FROM Phone p WHERE p.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    // a phone that was never updated was last modified when created
+    @Query("SELECT coalesce(p.updatedAt, p.createdAt) FROM Phone p WHERE p.id = :id")
+    Optional<Instant> findLastModifiedById(@Param("id") Long id);
+
+    // ordered by the database so that name order follows its collation, like the sorted queries do
+    @Query("SELECT p.id AS id, p.price AS price, lower(p.brand) AS brand FROM Phone p ORDER BY p.name, p.id")
+    List<PhoneIndexRow> findIndexRowsOrderByName();
+
+    @Query("SELECT p.id AS id, p.price AS price, lower(p.brand) AS brand FROM Phone p WHERE p.id = :id")
+    Optional<PhoneIndexRow> findIndexRowById(@Param("id") Long id);
+
+    // the phones right before the given one in (name, id) order, read backwards along IX_phones_name_id
+    @Query("""
+            SELECT p.id
+            FROM Phone p, Phone changed
+            WHERE changed.id = :id
+              AND p.name <= changed.name
+              AND (p.name < changed.name OR p.id < changed.id)
+            ORDER BY p.name DESC, p.id DESC
+            """)
+    List<Long> findIdsBeforeInNameOrder(@Param("id") Long id, Limit limit);
+
+    @Query("SELECT p.id AS id, p.brand AS brand, p.price AS price, p.releaseYear AS releaseYear FROM Phone p")
+    List<PhoneFacetRow> findFacetRows();
+
+    @Query("SELECT p.id AS id, p.brand AS brand, p.price AS price, p.releaseYear AS releaseYear FROM Phone p WHERE p.id = :id")
+    Optional<PhoneFacetRow> findFacetRowById(@Param("id") Long id);
+
+    @Query("""
+            SELECT p.id AS id, lower(p.brand) AS brand, p.price AS price,
+                   p.phoneCharacteristics.coresNumber AS coresNumber, p.releaseYear AS releaseYear,
+                   lower(p.phoneCharacteristics.cpu) AS cpu
+            FROM Phone p
+            """)
+    List<PhoneFilterRow> findFilterRows();
+
+    @Query("""
+            SELECT p.id AS id, lower(p.brand) AS brand, p.price AS price,
+                   p.phoneCharacteristics.coresNumber AS coresNumber, p.releaseYear AS releaseYear,
+                   lower(p.phoneCharacteristics.cpu) AS cpu
+            FROM Phone p
+            WHERE p.id = :id
+            """)
+    Optional<PhoneFilterRow> findFilterRowById(@Param("id") Long id);
+
+    @Query("SELECT p.id AS id, p.name AS name, p.brand AS brand FROM Phone p")
+    List<PhoneSuggestRow> findSuggestRows();
+
+    @Query("SELECT p.id AS id, p.name AS name, p.brand AS brand FROM Phone p WHERE p.id = :id")
+    Optional<PhoneSuggestRow> findSuggestRowById(@Param("id") Long id);
+
+    // planner statistics refreshed by (auto)analyze, -1 when the table was never analyzed
+    @Query(value = """
+            SELECT CAST(c.reltuples AS BIGINT)
+            FROM pg_class AS c
+            WHERE c.oid = to_regclass('phones');
+            """, nativeQuery = true)
+    Long estimateCount();
+
 }
@@ -0,0 +1,15 @@
+package com.challengeteam.shop.persistence.repository;
+
+import com.challengeteam.shop.entity.phone.Phone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface PhoneRepositoryCustom {
+
+    List<Long> findIds(Specification<Phone> spec, Sort sort, int limit);
+    List<Long> findIds(Specification<Phone> spec, Pageable pageable);
+
+}
@@ -0,0 +1,70 @@
+package com.challengeteam.shop.persistence.repository;
+
+import com.challengeteam.shop.entity.phone.Phone;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Queries that select only phone ids. Selecting ids (instead of entities with fetched images)
+ * lets the database apply LIMIT itself, the entities are loaded afterwards for the selected ids only.
+ */
+public class PhoneRepositoryCustomImpl implements PhoneRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+
+    @Override
+    public List<Long> findIds(Specification<Phone> spec, Sort sort, int limit) {
+        Objects.requireNonNull(spec, "spec");
+        Objects.requireNonNull(sort, "sort");
+
+        return buildIdsQuery(spec, sort)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<Long> findIds(Specification<Phone> spec, Pageable pageable) {
+        Objects.requireNonNull(spec, "spec");
+        Objects.requireNonNull(pageable, "pageable");
+
+        return buildIdsQuery(spec, pageable.getSort())
+                .setFirstResult(Math.toIntExact(pageable.getOffset()))
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+    }
+
+    private TypedQuery<Long> buildIdsQuery(Specification<Phone> spec, Sort sort) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+        Root<Phone> root = query.from(Phone.class);
+
+        query.select(root.get("id"));
+        Predicate predicate = spec.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        // a specification may order by an expression (e.g. search rank), the requested sort goes after it
+        List<Order> orders = new ArrayList<>(query.getOrderList());
+        orders.addAll(QueryUtils.toOrders(sort, root, criteriaBuilder));
+        query.orderBy(orders);
+
+        return entityManager.createQuery(query);
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.challengeteam.shop.persistence.repository;
+
+import com.challengeteam.shop.entity.phone.Phone;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Types;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.StringJoiner;
+
+/**
+ * Updates phones with one conditional JDBC statement that doesn't read the phone first. A bulk statement
+ * of Hibernate would drop all phones (and the cached queries) from the second-level cache, so only the
+ * entry of the updated phone is evicted from it.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PhoneUpdateRepository {
+    private static final Map<String, String> COLUMNS = Map.ofEntries(
+            Map.entry("name", "name"),
+            Map.entry("description", "description"),
+            Map.entry("price", "price"),
+            Map.entry("brand", "brand"),
+            Map.entry("releaseYear", "release_year"),
+            Map.entry("phoneCharacteristics.cpu", "cpu"),
+            Map.entry("phoneCharacteristics.coresNumber", "cores_number"),
+            Map.entry("phoneCharacteristics.screenSize", "screen_size"),
+            Map.entry("phoneCharacteristics.screenInches", "screen_inches"),
+            Map.entry("phoneCharacteristics.frontCamera", "front_camera"),
+            Map.entry("phoneCharacteristics.frontCameraMp", "front_camera_mp"),
+            Map.entry("phoneCharacteristics.mainCamera", "main_camera"),
+            Map.entry("phoneCharacteristics.mainCameraMp", "main_camera_mp"),
+            Map.entry("phoneCharacteristics.batteryCapacity", "battery_capacity"),
+            Map.entry("phoneCharacteristics.batteryMah", "battery_mah")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Sets the attributes of the phone, keyed by their paths (e.g. {@code phoneCharacteristics.cpu}),
+     * if the phone has the given version, and increments the version. Returns the number of updated
+     * phones, 0 or 1.
+     */
+    public int updateIfVersionMatches(Long id, Long version, Map<String, Object> attributes) {
+        Objects.requireNonNull(id, "id");
+        Objects.requireNonNull(version, "version");
+        Objects.requireNonNull(attributes, "attributes");
+
+        // the entity callbacks don't run for a plain statement
+        StringJoiner columns = new StringJoiner(", ", "UPDATE phones SET ", ", version = version + 1, updated_at = ?");
+        List<Object> args = new ArrayList<>(attributes.size() + 3);
+        attributes.forEach((attribute, value) -> {
+            String column = COLUMNS.get(attribute);
+            if (column == null) {
+                throw new IllegalArgumentException("Unknown attribute of phone: " + attribute);
+            }
+            columns.add(column + " = ?");
+            args.add(value);
+        });
+        // bound like Hibernate binds an Instant, so the session time zone converts it the same way
+        args.add(new SqlParameterValue(Types.TIMESTAMP_WITH_TIMEZONE, Instant.now().atOffset(ZoneOffset.UTC)));
+        args.add(id);
+        args.add(version);
+
+        int updated = jdbcTemplate.update(columns + " WHERE id = ? AND version = ?", args.toArray());
+        if (updated > 0) {
+            evict(id);
+        }
+        return updated;
+    }
+
+    // evicted again after the commit, a concurrent transaction may cache the old row until then
+    private void evict(Long id) {
+        entityManagerFactory.getCache().evict(Phone.class, id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    entityManagerFactory.getCache().evict(Phone.class, id);
+                }
+            });
+        }
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.challengeteam.shop.persistence.repository.projection;
+
+import java.util.List;
+
+/**
+ * Image metadata returned by the API together with the id of its phone, read without loading
+ * the image, its MIME type and phone entities.
+ */
+public interface ImageMetadataRow {
+
+    Long getId();
+    Long getPhoneId();
+    String getName();
+    Long getSize();
+    String getMimeType();
+    List<Integer> getVariantWidths();
+
+}
@@ -0,0 +1,24 @@
+package com.challengeteam.shop.persistence.repository.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Phone columns returned by the API, read without loading the phone entity.
+ */
+public interface PhoneDetailsRow {
+
+    Long getId();
+    String getName();
+    String getDescription();
+    BigDecimal getPrice();
+    String getBrand();
+    Integer getReleaseYear();
+    String getCpu();
+    Integer getCoresNumber();
+    String getScreenSize();
+    String getFrontCamera();
+    String getMainCamera();
+    String getBatteryCapacity();
+    Long getVersion();
+
+}
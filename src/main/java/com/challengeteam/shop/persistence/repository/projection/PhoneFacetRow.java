@@ -0,0 +1,15 @@
+package com.challengeteam.shop.persistence.repository.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Phone attributes counted by facets.
+ */
+public interface PhoneFacetRow {
+
+    Long getId();
+    String getBrand();
+    BigDecimal getPrice();
+    Integer getReleaseYear();
+
+}
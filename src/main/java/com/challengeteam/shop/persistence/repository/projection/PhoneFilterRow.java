@@ -0,0 +1,18 @@
+package com.challengeteam.shop.persistence.repository.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Phone attributes kept by the in-memory filter index. Brand and cpu are lower-cased by the database,
+ * the same way their filters compare them.
+ */
+public interface PhoneFilterRow {
+
+    Long getId();
+    String getBrand();
+    BigDecimal getPrice();
+    Integer getCoresNumber();
+    Integer getReleaseYear();
+    String getCpu();
+
+}
@@ -0,0 +1,15 @@
+package com.challengeteam.shop.persistence.repository.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Phone attributes kept by the in-memory catalog index. Brand is lower-cased by the database,
+ * the same way brand filter compares it.
+ */
+public interface PhoneIndexRow {
+
+    Long getId();
+    BigDecimal getPrice();
+    String getBrand();
+
+}
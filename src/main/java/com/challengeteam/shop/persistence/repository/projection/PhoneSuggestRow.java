@@ -0,0 +1,12 @@
+package com.challengeteam.shop.persistence.repository.projection;
+
+/**
+ * Phone attributes suggested by autocomplete.
+ */
+public interface PhoneSuggestRow {
+
+    Long getId();
+    String getName();
+    String getBrand();
+
+}
@@ -0,0 +1,96 @@
+package com.challengeteam.shop.persistence.specification;
+
+import com.challengeteam.shop.entity.phone.Phone;
+import lombok.Getter;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Objects;
+
+@Getter
+public enum PhoneSort {
+    NAME_ASC("name_asc", "name", Sort.Direction.ASC),
+    NAME_DESC("name_desc", "name", Sort.Direction.DESC),
+    PRICE_ASC("price_asc", "price", Sort.Direction.ASC),
+    PRICE_DESC("price_desc", "price", Sort.Direction.DESC),
+    RELEASE_YEAR_ASC("release_year_asc", "releaseYear", Sort.Direction.ASC),
+    RELEASE_YEAR_DESC("release_year_desc", "releaseYear", Sort.Direction.DESC),
+    NEWEST("newest", "createdAt", Sort.Direction.DESC),
+    POPULARITY("popularity", "popularity", Sort.Direction.DESC),
+    // ordered by search rank first, see PhoneSpecification.orderByRank, id only breaks ties
+    RELEVANCE("relevance", "id", Sort.Direction.ASC);
+
+    public static final String TIE_BREAKER_PROPERTY = "id";
+
+    private final String param;
+    private final String property;
+    private final Sort.Direction direction;
+
+    PhoneSort(String param, String property, Sort.Direction direction) {
+        this.param = param;
+        this.property = property;
+        this.direction = direction;
+    }
+
+    /**
+     * Resolves sort by its request parameter value. Unknown or missing values fall back to {@link #NAME_ASC}.
+     */
+    public static PhoneSort fromParam(String param) {
+        for (PhoneSort sort : values()) {
+            if (sort.param.equals(param)) {
+                return sort;
+            }
+        }
+
+        return NAME_ASC;
+    }
+
+    /**
+     * Whether rows can be continued from a cursor. Relevance is a computed rank that isn't stored
+     * anywhere, so it has no key to seek from.
+     */
+    public boolean supportsKeyset() {
+        return this != RELEVANCE;
+    }
+
+    /**
+     * The order extended with id as a unique tie-breaker, so every row has a stable position: offset pages
+     * neither repeat nor skip rows of equal keys, and keyset pagination has a position to continue from.
+     * Every such order is served by a (key, id) index of phones.
+     */
+    public Sort toSort() {
+        if (property.equals(TIE_BREAKER_PROPERTY)) {
+            return Sort.by(direction, property);
+        }
+
+        return Sort.by(direction, property, TIE_BREAKER_PROPERTY);
+    }
+
+    public String extractKey(Phone phone) {
+        Objects.requireNonNull(phone, "phone");
+
+        return switch (this) {
+            case NAME_ASC, NAME_DESC -> phone.getName();
+            case PRICE_ASC, PRICE_DESC -> phone.getPrice().toPlainString();
+            case RELEASE_YEAR_ASC, RELEASE_YEAR_DESC -> phone.getReleaseYear().toString();
+            case NEWEST -> phone.getCreatedAt().toString();
+            case POPULARITY -> phone.getPopularity().toString();
+            case RELEVANCE -> throw new IllegalStateException("Keyset is not supported by sort: " + param);
+        };
+    }
+
+    public Comparable<?> parseKey(String key) {
+        Objects.requireNonNull(key, "key");
+
+        return switch (this) {
+            case NAME_ASC, NAME_DESC -> key;
+            case PRICE_ASC, PRICE_DESC -> new BigDecimal(key);
+            case RELEASE_YEAR_ASC, RELEASE_YEAR_DESC -> Integer.valueOf(key);
+            case NEWEST -> Instant.parse(key);
+            case POPULARITY -> Long.valueOf(key);
+            case RELEVANCE -> throw new IllegalStateException("Keyset is not supported by sort: " + param);
+        };
+    }
+
+}
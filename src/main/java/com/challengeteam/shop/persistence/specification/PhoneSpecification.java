@@ -2,33 +2,48 @@ package com.challengeteam.shop.persistence.specification;
 
 import com.challengeteam.shop.dto.pagination.PhoneFilterDto;
 import com.challengeteam.shop.entity.phone.Phone;
-import jakarta.persistence.criteria.JoinType;
+import com.challengeteam.shop.persistence.function.FullTextSearchFunctionContributor;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.math.BigDecimal;
-import java.util.Objects;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
 
 public class PhoneSpecification {
 
-    public static Specification<Phone> fetchImages() {
-        return (root, query, cb) -> {
-            Objects.requireNonNull(query);
-            if (query.getResultType() != Long.class && query.getResultType() != long.class) {
-                root.fetch("images", JoinType.LEFT);
-                query.distinct(true);
-            }
-            return cb.conjunction();
-        };
-    }
-
     public static Specification<Phone> hasBrand(String brand) {
         return (root, query, criteriaBuilder) ->
                 criteriaBuilder.equal(
                         criteriaBuilder.lower(root.get("brand")),
-                        brand.toLowerCase()
+                        brand.toLowerCase(Locale.ROOT)
                 );
     }
 
+    public static Specification<Phone> brandIn(Collection<String> brands) {
+        return (root, query, criteriaBuilder) ->
+                criteriaBuilder.lower(root.get("brand")).in(toLowerCase(brands));
+    }
+
+    public static Specification<Phone> cpuIn(Collection<String> cpus) {
+        return (root, query, criteriaBuilder) ->
+                criteriaBuilder.lower(root.get("phoneCharacteristics").get("cpu")).in(toLowerCase(cpus));
+    }
+
+    public static Specification<Phone> coresNumberIn(Collection<Integer> coresNumbers) {
+        return (root, query, criteriaBuilder) ->
+                root.get("phoneCharacteristics").get("coresNumber").in(coresNumbers);
+    }
+
+    public static Specification<Phone> releaseYearIn(Collection<Integer> releaseYears) {
+        return (root, query, criteriaBuilder) ->
+                root.get("releaseYear").in(releaseYears);
+    }
+
     public static Specification<Phone> priceGreaterThanOrEqual(BigDecimal minPrice) {
         return (root, query, criteriaBuilder) ->
                 criteriaBuilder.greaterThanOrEqualTo(root.get("price"), minPrice);
@@ -39,8 +54,95 @@ public class PhoneSpecification {
                 criteriaBuilder.lessThanOrEqualTo(root.get("price"), maxPrice);
     }
 
+    /**
+     * Selects phones whose numeric characteristic, e.g. {@code batteryMah}, is not less than the given value.
+     * Phones whose characteristic wasn't parsed don't match.
+     */
+    public static <T extends Comparable<? super T>> Specification<Phone> characteristicGreaterThanOrEqual(String characteristic, T min) {
+        return (root, query, criteriaBuilder) ->
+                criteriaBuilder.greaterThanOrEqualTo(root.get("phoneCharacteristics").<T>get(characteristic), min);
+    }
+
+    /**
+     * Selects phones whose numeric characteristic is not greater than the given value.
+     * Phones whose characteristic wasn't parsed don't match.
+     */
+    public static <T extends Comparable<? super T>> Specification<Phone> characteristicLessThanOrEqual(String characteristic, T max) {
+        return (root, query, criteriaBuilder) ->
+                criteriaBuilder.lessThanOrEqualTo(root.get("phoneCharacteristics").<T>get(characteristic), max);
+    }
+
+    public static Specification<Phone> matchesSearch(String q) {
+        return (root, query, criteriaBuilder) ->
+                criteriaBuilder.isTrue(criteriaBuilder.function(
+                        FullTextSearchFunctionContributor.MATCHES,
+                        Boolean.class,
+                        root.get("id"),
+                        bind(criteriaBuilder, q)
+                ));
+    }
+
+    /**
+     * Orders the query by full-text rank of the given search query, best matches first.
+     * Adds no condition, so it is combined with {@link #matchesSearch(String)}. Orders of the requested
+     * {@link org.springframework.data.domain.Sort} are appended after the rank.
+     */
+    public static Specification<Phone> orderByRank(String q) {
+        return (root, query, criteriaBuilder) -> {
+            query.orderBy(criteriaBuilder.desc(criteriaBuilder.function(
+                    FullTextSearchFunctionContributor.RANK,
+                    Double.class,
+                    root.get("id"),
+                    bind(criteriaBuilder, q)
+            )));
+            return null;
+        };
+    }
+
+    /**
+     * Keyset condition: selects rows placed strictly after the given position in the given sort order.
+     * The redundant {@code key >= value} (or {@code <=}) bound lets the database start an index range scan
+     * right at the cursor instead of filtering everything before it.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Specification<Phone> seekAfter(PhoneSort sort, Comparable key, long id) {
+        return (root, query, criteriaBuilder) -> {
+            Expression<Comparable> keyPath = root.get(sort.getProperty());
+            Path<Long> idPath = root.get(PhoneSort.TIE_BREAKER_PROPERTY);
+
+            if (sort.getDirection().isAscending()) {
+                return criteriaBuilder.and(
+                        criteriaBuilder.greaterThanOrEqualTo(keyPath, key),
+                        criteriaBuilder.or(
+                                criteriaBuilder.greaterThan(keyPath, key),
+                                criteriaBuilder.greaterThan(idPath, id)
+                        )
+                );
+            } else {
+                return criteriaBuilder.and(
+                        criteriaBuilder.lessThanOrEqualTo(keyPath, key),
+                        criteriaBuilder.or(
+                                criteriaBuilder.lessThan(keyPath, key),
+                                criteriaBuilder.lessThan(idPath, id)
+                        )
+                );
+            }
+        };
+    }
+
+    // lower-cased the same way as hasBrand does
+    private static List<String> toLowerCase(Collection<String> values) {
+        return values.stream().map(value -> value.toLowerCase(Locale.ROOT)).distinct().toList();
+    }
+
+    // JPA literal() inlines the value into SQL, as a bind parameter the statement stays the same for any query
+    private static Expression<String> bind(CriteriaBuilder criteriaBuilder, String value) {
+        return ((HibernateCriteriaBuilder) criteriaBuilder).value(value);
+    }
+
     public static Specification<Phone> build(PhoneFilterDto requestDto) {
-        Specification<Phone> spec = fetchImages();
+        // images are never fetched here: a collection fetch combined with LIMIT makes Hibernate paginate in memory
+        Specification<Phone> spec = (root, query, criteriaBuilder) -> criteriaBuilder.conjunction();
 
         if (requestDto.brand() != null && !requestDto.brand().isBlank()) {
             spec = spec.and(PhoneSpecification.hasBrand(requestDto.brand()));
@@ -54,6 +156,47 @@ public class PhoneSpecification {
             spec = spec.and(PhoneSpecification.priceLessThanOrEqual(requestDto.maxPrice()));
         }
 
+        if (requestDto.brands() != null) {
+            spec = spec.and(PhoneSpecification.brandIn(requestDto.brands()));
+        }
+
+        if (requestDto.coresNumbers() != null) {
+            spec = spec.and(PhoneSpecification.coresNumberIn(requestDto.coresNumbers()));
+        }
+
+        if (requestDto.releaseYears() != null) {
+            spec = spec.and(PhoneSpecification.releaseYearIn(requestDto.releaseYears()));
+        }
+
+        if (requestDto.cpus() != null) {
+            spec = spec.and(PhoneSpecification.cpuIn(requestDto.cpus()));
+        }
+
+        spec = inRange(spec, "screenInches", requestDto.minScreenInches(), requestDto.maxScreenInches());
+        spec = inRange(spec, "batteryMah", requestDto.minBatteryMah(), requestDto.maxBatteryMah());
+        spec = inRange(spec, "mainCameraMp", requestDto.minMainCameraMp(), requestDto.maxMainCameraMp());
+        spec = inRange(spec, "frontCameraMp", requestDto.minFrontCameraMp(), requestDto.maxFrontCameraMp());
+        spec = inRange(spec, "coresNumber", requestDto.minCoresNumber(), requestDto.maxCoresNumber());
+
+        if (requestDto.q() != null) {
+            spec = spec.and(PhoneSpecification.matchesSearch(requestDto.q()));
+        }
+
+        return spec;
+    }
+
+    private static <T extends Comparable<? super T>> Specification<Phone> inRange(Specification<Phone> spec,
+                                                                                 String characteristic,
+                                                                                 T min,
+                                                                                 T max) {
+        if (min != null) {
+            spec = spec.and(PhoneSpecification.characteristicGreaterThanOrEqual(characteristic, min));
+        }
+
+        if (max != null) {
+            spec = spec.and(PhoneSpecification.characteristicLessThanOrEqual(characteristic, max));
+        }
+
         return spec;
     }
 }
@@ -0,0 +1,409 @@
+package com.challengeteam.shop.persistence.storage;
+
+import com.challengeteam.shop.exceptionHandling.exception.ImageStorageException;
+import com.challengeteam.shop.properties.ImageDiskCacheProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps images read from the storage in files of a local directory, so the images viewed most are
+ * served without a round trip to MinIO. Files are keyed by the storage key, whose content never
+ * changes, and bounded by their total bytes; Caffeine (W-TinyLFU) decides which of them to evict.
+ * Hits, misses and evictions are reported as the {@code images.disk} cache metrics.
+ * <p>
+ * A miss downloads the whole image into a file and then serves the file; concurrent misses of the same
+ * image wait for one download. A range of an image which isn't cached is read from the storage directly.
+ * <p>
+ * The file names carry the keys, so files left by the previous run of the instance are cached again
+ * on startup and the cache doesn't start cold; files of unfinished downloads are deleted. The directory
+ * is locked by the instance, another instance finding it locked doesn't cache images on disk.
+ */
+@Slf4j
+@Primary
+@Component
+public class DiskCachingImageStorage implements ImageStorage {
+    static final String CACHE_NAME = "images.disk";
+    private static final String LOCK_FILE = ".lock";
+    private static final String IMAGE_SUFFIX = ".image";
+    private static final String PART_SUFFIX = ".part";
+
+    private final ImageStorage imageStorage;
+    private final ImageDiskCacheProperties imageDiskCacheProperties;
+    private final Cache<String, CachedImage> images;
+    private final ConcurrentMap<String, CompletableFuture<Optional<CachedImage>>> downloads = new ConcurrentHashMap<>();
+
+    private Path directory;
+    private FileChannel lockChannel;
+    private FileLock lock;
+
+    public DiskCachingImageStorage(@Qualifier("minioImageStorage") ImageStorage imageStorage,
+                                   ImageDiskCacheProperties imageDiskCacheProperties,
+                                   MeterRegistry meterRegistry) {
+        this.imageStorage = imageStorage;
+        this.imageDiskCacheProperties = imageDiskCacheProperties;
+        this.images = Caffeine.newBuilder()
+                .maximumWeight(imageDiskCacheProperties.getMaxSize().toBytes())
+                .weigher((String key, CachedImage image) -> (int) Math.min(image.size(), Integer.MAX_VALUE))
+                .removalListener(this::onRemoval)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, images, CACHE_NAME);
+        Gauge.builder("cache.hit.ratio", images, cache -> cache.stats().hitRate())
+                .tag("cache", CACHE_NAME)
+                .description("The ratio of cache requests which were hits")
+                .register(meterRegistry);
+    }
+
+
+    @PostConstruct
+    public void init() throws ImageStorageException {
+        if (!imageDiskCacheProperties.isEnabled()) {
+            log.info("Disk cache of images is disabled");
+            return;
+        }
+
+        Path path = imageDiskCacheProperties.getDirectory();
+        try {
+            Files.createDirectories(path);
+            lockChannel = FileChannel.open(path.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            lock = tryLock(lockChannel);
+            if (lock == null) {
+                lockChannel.close();
+                log.warn("Directory of cached images {} is used by another instance, images aren't cached on disk", path);
+                return;
+            }
+
+            directory = path;
+            loadFiles();
+        } catch (IOException e) {
+            throw new ImageStorageException("Failed to open directory of cached images: " + path, e);
+        }
+        log.info("Disk cache of images is in directory {} with {} images", directory, images.estimatedSize());
+    }
+
+    // the files are kept for the next run
+    @PreDestroy
+    public void cleanUp() {
+        if (directory == null) {
+            return;
+        }
+
+        directory = null;
+        try {
+            lock.release();
+            lockChannel.close();
+        } catch (IOException e) {
+            log.error("Failed to unlock directory of cached images", e);
+        }
+    }
+
+    @Override
+    public Optional<InputStream> openImageByKey(String key) throws ImageStorageException {
+        Objects.requireNonNull(key, "key");
+        if (directory == null) {
+            return imageStorage.openImageByKey(key);
+        }
+
+        CachedImage image = images.getIfPresent(key);
+        if (image == null) {
+            Optional<CachedImage> downloaded = downloadOnce(key);
+            if (downloaded.isEmpty()) {
+                return imageStorage.openImageByKey(key);
+            }
+            image = downloaded.get();
+        }
+
+        return open(key, image, 0, image.size());
+    }
+
+    @Override
+    public Optional<InputStream> openImageByKey(String key, long offset, long length) throws ImageStorageException {
+        Objects.requireNonNull(key, "key");
+        if (offset < 0 || length <= 0) {
+            throw new IllegalArgumentException("Invalid range of image with offset: " + offset + " and length: " + length);
+        }
+
+        CachedImage image = directory == null ? null : images.getIfPresent(key);
+        if (image == null || offset >= image.size()) {
+            return imageStorage.openImageByKey(key, offset, length);
+        }
+
+        return open(key, image, offset, Math.min(length, image.size() - offset));
+    }
+
+    @Override
+    public void putImage(String key, MultipartFile image) throws ImageStorageException {
+        // images are cached when they are read, most uploaded images are never viewed right away
+        imageStorage.putImage(key, image);
+    }
+
+    @Override
+    public void putImage(String key, byte[] image, String contentType) throws ImageStorageException {
+        imageStorage.putImage(key, image, contentType);
+    }
+
+    @Override
+    public void deleteImage(String key) throws ImageStorageException {
+        Objects.requireNonNull(key, "key");
+
+        try {
+            imageStorage.deleteImage(key);
+        } finally {
+            images.invalidate(key);
+        }
+    }
+
+    // one download per key at a time, the others wait for it instead of downloading the same image
+    private Optional<CachedImage> downloadOnce(String key) throws ImageStorageException {
+        CompletableFuture<Optional<CachedImage>> download = new CompletableFuture<>();
+        CompletableFuture<Optional<CachedImage>> running = downloads.putIfAbsent(key, download);
+        if (running != null) {
+            // a failed download is retried by reading the storage directly
+            return running.exceptionally(e -> Optional.empty()).join();
+        }
+
+        try {
+            // may have been cached right before the download was registered, it's still a miss
+            CachedImage cached = images.policy().getIfPresentQuietly(key);
+            Optional<CachedImage> downloaded = cached != null ? Optional.of(cached) : download(key);
+            download.complete(downloaded);
+            return downloaded;
+        } catch (ImageStorageException | RuntimeException e) {
+            download.completeExceptionally(e);
+            throw e;
+        } finally {
+            downloads.remove(key, download);
+        }
+    }
+
+    // empty when the image isn't in the storage or can't be written to the disk, then it's read from the storage
+    private Optional<CachedImage> download(String key) throws ImageStorageException {
+        Optional<InputStream> stream = imageStorage.openImageByKey(key);
+        if (stream.isEmpty()) {
+            return Optional.empty();
+        }
+
+        // written under a temporary name, a download interrupted by a crash is never taken for an image;
+        // a unique name, so a file of the same key being deleted after an eviction is never this one
+        String name = UUID.randomUUID().toString();
+        Path part = directory.resolve(name + PART_SUFFIX);
+        Path file = directory.resolve(encodeKey(key) + "." + name + IMAGE_SUFFIX);
+        try (InputStream in = stream.get()) {
+            long size = Files.copy(in, part);
+            Files.move(part, file, StandardCopyOption.ATOMIC_MOVE);
+            CachedImage image = new CachedImage(file, size);
+
+            CachedImage cached = images.asMap().putIfAbsent(key, image);
+            if (cached != null) {
+                deleteFile(file);
+                return Optional.of(cached);
+            }
+
+            log.debug("Cached image with key {} in file {}", key, file);
+            return Optional.of(image);
+        } catch (IOException e) {
+            log.warn("Failed to cache image with key {}", key, e);
+            deleteFile(part);
+            deleteFile(file);
+            return Optional.empty();
+        }
+    }
+
+    // images of the previous run are cached again, anything else in the directory is left from a crash
+    private void loadFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.equals(LOCK_FILE)) {
+                    continue;
+                }
+
+                Optional<String> key = decodeKey(name);
+                if (key.isEmpty() || !Files.isRegularFile(file)) {
+                    FileSystemUtils.deleteRecursively(file);
+                    continue;
+                }
+
+                CachedImage image = new CachedImage(file, Files.size(file));
+                if (images.asMap().putIfAbsent(key.get(), image) != null) {
+                    deleteFile(file);
+                }
+            }
+        }
+    }
+
+    private Optional<InputStream> open(String key, CachedImage image, long offset, long length) throws ImageStorageException {
+        try {
+            FileChannel channel = FileChannel.open(image.file(), StandardOpenOption.READ);
+            return Optional.of(new FileRangeInputStream(channel, offset, length));
+        } catch (NoSuchFileException e) {
+            // evicted between the lookup and the opening, or deleted around the cache
+            log.debug("Cached image with key {} was evicted before it was read", key);
+            images.asMap().remove(key, image);
+            return offset == 0 && length == image.size()
+                    ? imageStorage.openImageByKey(key)
+                    : imageStorage.openImageByKey(key, offset, length);
+        } catch (IOException e) {
+            throw new ImageStorageException("Failed to read cached image with key: " + key, e);
+        }
+    }
+
+    private void onRemoval(String key, CachedImage image, RemovalCause cause) {
+        if (image != null) {
+            deleteFile(image.file());
+            log.debug("Removed cached image with key {}, cause {}", key, cause);
+        }
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // locked by another instance in this JVM
+            return null;
+        }
+    }
+
+    private static String encodeKey(String key) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // the name of a cached image is the encoded key and a unique part, separated by dots
+    private static Optional<String> decodeKey(String name) {
+        int separator = name.indexOf('.');
+        if (separator <= 0 || !name.endsWith(IMAGE_SUFFIX)) {
+            return Optional.empty();
+        }
+
+        try {
+            byte[] key = Base64.getUrlDecoder().decode(name.substring(0, separator));
+            return Optional.of(new String(key, StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static void deleteFile(Path file) {
+        try {
+            // streams opened before keep reading the deleted file
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.error("Failed to delete cached image file {}", file, e);
+        }
+    }
+
+    private record CachedImage(Path file, long size) {
+    }
+
+    /**
+     * Reads a range of a file. {@link #transferTo(OutputStream)} copies the range with
+     * {@link FileChannel#transferTo}, but into a stream, which is neither a file nor a socket channel,
+     * so the JDK still copies the bytes through a small buffer; it isn't a zero-copy transfer.
+     */
+    static class FileRangeInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        FileRangeInputStream(FileChannel channel, long offset, long length) {
+            this.channel = channel;
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= end) {
+                return -1;
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(b, off, (int) Math.min(len, end - position));
+            int read = channel.read(buffer, position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long transferTo(OutputStream out) throws IOException {
+            Objects.requireNonNull(out, "out");
+
+            WritableByteChannel target = Channels.newChannel(out);
+            long transferred = 0;
+            while (position < end) {
+                long count = channel.transferTo(position, end - position, target);
+                if (count <= 0) {
+                    break;
+                }
+                position += count;
+                transferred += count;
+            }
+            return transferred;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, end - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(end - position, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+}
@@ -3,12 +3,41 @@ package com.challengeteam.shop.persistence.storage;
 import com.challengeteam.shop.exceptionHandling.exception.ImageStorageException;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Optional;
 
 public interface ImageStorage {
 
-    Optional<byte[]> readImageByKey(String key) throws ImageStorageException;
+    /**
+     * Opens the image for reading without loading it into memory. The returned stream holds
+     * a connection to the storage, so the caller has to close it.
+     */
+    Optional<InputStream> openImageByKey(String key) throws ImageStorageException;
+
+    /**
+     * Opens {@code length} bytes of the image starting at {@code offset}, see {@link #openImageByKey(String)}.
+     */
+    Optional<InputStream> openImageByKey(String key, long offset, long length) throws ImageStorageException;
+
     void putImage(String key, MultipartFile image) throws ImageStorageException;
+    void putImage(String key, byte[] image, String contentType) throws ImageStorageException;
     void deleteImage(String key) throws ImageStorageException;
 
+    /**
+     * Reads the whole image into memory, prefer {@link #openImageByKey(String)} for serving images.
+     */
+    default Optional<byte[]> readImageByKey(String key) throws ImageStorageException {
+        Optional<InputStream> stream = openImageByKey(key);
+        if (stream.isEmpty()) {
+            return Optional.empty();
+        }
+
+        try (InputStream in = stream.get()) {
+            return Optional.of(in.readAllBytes());
+        } catch (IOException e) {
+            throw new ImageStorageException("Failed to read image with key: " + key, e);
+        }
+    }
+
 }
@@ -22,6 +22,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.security.InvalidKeyException;
@@ -95,19 +96,44 @@ public class MinioImageStorage implements ImageStorage {
     }
 
     @Override
-    public Optional<byte[]> readImageByKey(String key) throws ImageStorageException {
+    public Optional<InputStream> openImageByKey(String key) throws ImageStorageException {
         Objects.requireNonNull(key, "key");
-        try {
-            var args = GetObjectArgs
-                    .builder()
-                    .object(key)
-                    .bucket(IMAGE_BUCKET_NAME)
-                    .build();
 
+        var args = GetObjectArgs
+                .builder()
+                .object(key)
+                .bucket(IMAGE_BUCKET_NAME)
+                .build();
+
+        return openObject(key, args);
+    }
+
+    @Override
+    public Optional<InputStream> openImageByKey(String key, long offset, long length) throws ImageStorageException {
+        Objects.requireNonNull(key, "key");
+        if (offset < 0 || length <= 0) {
+            throw new IllegalArgumentException("Invalid range of image with offset: " + offset + " and length: " + length);
+        }
+
+        // sent as the Range header of the request, so only the range is transferred from the storage
+        var args = GetObjectArgs
+                .builder()
+                .object(key)
+                .bucket(IMAGE_BUCKET_NAME)
+                .offset(offset)
+                .length(length)
+                .build();
+
+        return openObject(key, args);
+    }
+
+    private Optional<InputStream> openObject(String key, GetObjectArgs args) throws ImageStorageException {
+        try {
+            // the response reads the object from the connection as it is consumed, closing it releases the connection
             GetObjectResponse result = minioClient.getObject(args);
             log.debug("Found image with key {}", key);
 
-            return Optional.of(result.readAllBytes());
+            return Optional.of(result);
         } catch (ErrorResponseException e) {
             log.debug("Not found image with key: {}", key);
             return Optional.empty();
@@ -141,6 +167,29 @@ public class MinioImageStorage implements ImageStorage {
         }
     }
 
+    @Override
+    public void putImage(String key, byte[] image, String contentType) throws ImageStorageException {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(image, "image");
+        Objects.requireNonNull(contentType, "contentType");
+
+        try (InputStream stream = new ByteArrayInputStream(image)) {
+            var args = PutObjectArgs
+                    .builder()
+                    .bucket(IMAGE_BUCKET_NAME)
+                    .object(key)
+                    .stream(stream, image.length, -1)
+                    .contentType(contentType)
+                    .build();
+
+            minioClient.putObject(args);
+            log.debug("Successfully putted image with key {} into bucket {}", key, IMAGE_BUCKET_NAME);
+        } catch (Exception e) {
+            log.error("Failed to put image", e);
+            throw new ImageStorageException("Failed to put image into storage with key: " + key, e);
+        }
+    }
+
     @Override
     public void deleteImage(String key) throws ImageStorageException {
         Objects.requireNonNull(key, "key");
@@ -0,0 +1,19 @@
+package com.challengeteam.shop.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "image.disk-cache")
+public class ImageDiskCacheProperties {
+    private boolean enabled = true;
+    private Path directory = Path.of(System.getProperty("java.io.tmpdir"), "phone-shop", "images");
+    private DataSize maxSize = DataSize.ofGigabytes(1);
+}
@@ -0,0 +1,18 @@
+package com.challengeteam.shop.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "image.memory-cache")
+public class ImageMemoryCacheProperties {
+    private boolean enabled = true;
+    private DataSize maxSize = DataSize.ofMegabytes(64);
+    private DataSize maxImageSize = DataSize.ofKilobytes(512);
+    private boolean offHeap = false;
+}
@@ -0,0 +1,21 @@
+package com.challengeteam.shop.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "image.variants")
+public class ImageVariantProperties {
+    private boolean enabled = true;
+    private List<Integer> widths = List.of(160, 480, 1080);
+    private float jpegQuality = 0.85f;
+    private long maxSourcePixels = 24_000_000;
+    private int backfillThreads = 4;
+    private int backfillBatchSize = 100;
+}
@@ -0,0 +1,15 @@
+package com.challengeteam.shop.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "phone.catalog-index")
+public class PhoneCatalogIndexProperties {
+    private boolean enabled = true;
+    private int maxPriceScale = 6;
+}
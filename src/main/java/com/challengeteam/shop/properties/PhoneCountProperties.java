@@ -0,0 +1,18 @@
+package com.challengeteam.shop.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "phone.count")
+public class PhoneCountProperties {
+    private Duration cacheTtl = Duration.ofMinutes(5);
+    private long cacheMaxSize = 1000;
+    private boolean estimateUnfiltered = false;
+}
@@ -0,0 +1,23 @@
+package com.challengeteam.shop.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "phone.facets")
+public class PhoneFacetProperties {
+    private List<BigDecimal> priceBucketBounds = List.of(
+            new BigDecimal("200"),
+            new BigDecimal("400"),
+            new BigDecimal("600"),
+            new BigDecimal("800"),
+            new BigDecimal("1000")
+    );
+}
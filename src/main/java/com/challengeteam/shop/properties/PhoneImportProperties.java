@@ -0,0 +1,15 @@
+package com.challengeteam.shop.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "phone.import")
+public class PhoneImportProperties {
+    private int batchSize = 1000;
+    private int maxReportedErrors = 1000;
+}
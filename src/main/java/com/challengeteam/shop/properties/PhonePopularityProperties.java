@@ -0,0 +1,16 @@
+package com.challengeteam.shop.properties;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "phone.popularity")
+public class PhonePopularityProperties {
+    private Duration flushInterval = Duration.ofSeconds(30);
+}
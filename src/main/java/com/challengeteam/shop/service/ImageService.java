@@ -2,14 +2,53 @@ package com.challengeteam.shop.service;
 
 import com.challengeteam.shop.dto.image.ImageDataDto;
 import com.challengeteam.shop.entity.image.Image;
+import org.springframework.http.HttpRange;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.Optional;
 
 public interface ImageService {
 
+    /**
+     * Opens the image for streaming, the stream of the returned image has to be closed by the caller.
+     */
     Optional<ImageDataDto> downloadImageById(Long id);
+
+    /**
+     * Opens only the given range of the image, see {@link #downloadImageById(Long)}.
+     * Throws {@link com.challengeteam.shop.exceptionHandling.exception.RangeNotSatisfiableException}
+     * when the range is out of the image.
+     */
+    Optional<ImageDataDto> downloadImageById(Long id, HttpRange range);
+
+    /**
+     * Opens the smallest variant of the image at least as wide as the given width, see {@link #downloadImageById(Long)}.
+     * The original is opened when the image has no such variant, e.g. when it's narrower.
+     */
+    Optional<ImageDataDto> downloadImageById(Long id, int width);
+
+    /**
+     * Opens only the given range of the variant, see {@link #downloadImageById(Long, int)}
+     * and {@link #downloadImageById(Long, HttpRange)}.
+     */
+    Optional<ImageDataDto> downloadImageById(Long id, int width, HttpRange range);
+
+    /**
+     * Returns a version of the image content, e.g. for its ETag, without downloading the image.
+     */
+    Optional<String> getImageVersion(Long id);
+
+    /**
+     * Returns a version of the variant opened for the width, see {@link #getImageVersion(Long)}.
+     */
+    Optional<String> getImageVersion(Long id, int width);
     Optional<Image> getImageById(Long id);
     Image uploadImage(MultipartFile image);
     void deleteImage(Long imageId);
+
+    /**
+     * Deletes the images of the phone. Their originals and variants are removed from the storage
+     * once the transaction commits.
+     */
+    void deleteImagesOfPhone(Long phoneId);
 }
@@ -0,0 +1,16 @@
+package com.challengeteam.shop.service;
+
+import com.challengeteam.shop.dto.image.ImageVariantBackfillResponseDto;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface ImageVariantBackfillService {
+
+    /**
+     * Starts generating the variants of images uploaded before they were generated, or whose generation
+     * failed, and completes with the number of processed and failed images. Every image is saved as soon
+     * as its variants are stored, so an interrupted backfill resumes where it stopped.
+     */
+    CompletableFuture<ImageVariantBackfillResponseDto> backfill();
+
+}
@@ -0,0 +1,11 @@
+package com.challengeteam.shop.service;
+
+import com.challengeteam.shop.dto.pagination.PhoneFilterDto;
+
+public interface PhoneCountService {
+
+    long countPhones(PhoneFilterDto filterDto);
+
+    void invalidate();
+
+}
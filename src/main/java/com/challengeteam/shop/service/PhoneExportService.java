@@ -0,0 +1,11 @@
+package com.challengeteam.shop.service;
+
+import com.challengeteam.shop.dto.phone.PhoneView;
+
+import java.util.function.Consumer;
+
+public interface PhoneExportService {
+
+    long exportPhones(Consumer<PhoneView> consumer);
+
+}
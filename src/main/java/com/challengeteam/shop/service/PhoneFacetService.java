@@ -0,0 +1,10 @@
+package com.challengeteam.shop.service;
+
+import com.challengeteam.shop.dto.pagination.PhoneFilterDto;
+import com.challengeteam.shop.dto.phone.facet.PhoneFacetsResponseDto;
+
+public interface PhoneFacetService {
+
+    PhoneFacetsResponseDto getFacets(PhoneFilterDto filterDto);
+
+}
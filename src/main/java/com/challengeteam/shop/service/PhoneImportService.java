@@ -0,0 +1,17 @@
+package com.challengeteam.shop.service;
+
+import com.challengeteam.shop.dto.phone.bulk.PhoneImportResponseDto;
+
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+public interface PhoneImportService {
+
+    PhoneImportResponseDto importPhones(InputStream input, Charset charset, Format format);
+
+    enum Format {
+        CSV,
+        NDJSON
+    }
+
+}
@@ -1,8 +1,10 @@
 package com.challengeteam.shop.service;
 
+import com.challengeteam.shop.dto.pagination.CursorPage;
 import com.challengeteam.shop.dto.pagination.PhoneFilterDto;
 import com.challengeteam.shop.dto.phone.PhoneCreateRequestDto;
 import com.challengeteam.shop.dto.phone.PhoneUpdateRequestDto;
+import com.challengeteam.shop.dto.phone.PhoneView;
 import com.challengeteam.shop.entity.image.Image;
 import com.challengeteam.shop.entity.phone.Phone;
 import org.springframework.data.domain.Page;
@@ -14,7 +16,12 @@ import java.util.Optional;
 public interface PhoneService {
 
     Optional<Phone> getById(Long id);
+    Optional<Phone> getByIdWithoutImages(Long id);
+    Optional<PhoneView> getViewById(Long id);
+    List<PhoneView> getViewsByIds(List<Long> ids);
     Page<Phone> getPhones(int page, int size, PhoneFilterDto filterDto);
+    Page<PhoneView> getPhoneViews(int page, int size, PhoneFilterDto filterDto);
+    CursorPage<Phone> getPhonesByCursor(String cursor, int size, PhoneFilterDto filterDto);
     Long create(PhoneCreateRequestDto phoneCreateRequestDto, List<MultipartFile> images);
     void update(Long id, PhoneUpdateRequestDto phoneUpdateRequestDto);
     void delete(Long id);
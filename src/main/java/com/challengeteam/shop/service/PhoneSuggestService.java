@@ -0,0 +1,9 @@
+package com.challengeteam.shop.service;
+
+import com.challengeteam.shop.dto.phone.suggest.PhoneSuggestResponseDto;
+
+public interface PhoneSuggestService {
+
+    PhoneSuggestResponseDto suggest(String prefix, int limit);
+
+}
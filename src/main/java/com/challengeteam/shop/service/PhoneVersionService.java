@@ -0,0 +1,11 @@
+package com.challengeteam.shop.service;
+
+import java.util.Optional;
+
+public interface PhoneVersionService {
+
+    Optional<String> getPhoneVersion(Long id);
+
+    String getCatalogVersion();
+
+}
@@ -0,0 +1,23 @@
+package com.challengeteam.shop.service.event;
+
+/**
+ * Published by the phone service when the phones catalog changes. Listeners keeping derived data
+ * (counts, caches, indexes) receive it after the transaction commits. The phone id is null when many
+ * phones changed at once, see {@link ChangeType#IMPORTED}.
+ */
+public record PhoneChangedEvent(
+        Long phoneId,
+        ChangeType type
+) {
+
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        DELETED,
+        // images of the phone were added or deleted, its other fields stay the same
+        IMAGES_CHANGED,
+        // many phones were created by an import, without the phone id; derived data is reloaded
+        IMPORTED
+    }
+
+}
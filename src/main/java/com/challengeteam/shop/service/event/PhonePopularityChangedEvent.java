@@ -0,0 +1,12 @@
+package com.challengeteam.shop.service.event;
+
+import java.util.Set;
+
+/**
+ * Published when counted popularity of phones is written to the database. Only the order of phones
+ * sorted by popularity changes, the phones themselves stay the same.
+ */
+public record PhonePopularityChangedEvent(
+        Set<Long> phoneIds
+) {
+}
@@ -10,6 +10,7 @@ import com.challengeteam.shop.persistence.repository.CartItemRepository;
 import com.challengeteam.shop.persistence.repository.CartRepository;
 import com.challengeteam.shop.service.CartService;
 import com.challengeteam.shop.service.PhoneService;
+import com.challengeteam.shop.service.impl.popularity.PhonePopularityCounter;
 import com.challengeteam.shop.service.impl.validator.CartValidator;
 import com.challengeteam.shop.utility.CartUtility;
 import lombok.RequiredArgsConstructor;
@@ -34,6 +35,8 @@ public class CartServiceImpl implements CartService {
 
     private final CartValidator cartValidator;
 
+    private final PhonePopularityCounter phonePopularityCounter;
+
     @Transactional(readOnly = true)
     @Override
     public Optional<Cart> getCart(Long id) {
@@ -54,7 +57,7 @@ public class CartServiceImpl implements CartService {
 
         cartValidator.validateItemAmount(cartItemAddRequestDto.amount());
 
-        Phone phone = phoneService.getById(phoneId)
+        Phone phone = phoneService.getByIdWithoutImages(phoneId)
                 .orElseThrow(() -> new ResourceNotFoundException("Phone with id " + phoneId + " not found"));
 
         boolean isCartHasPhone = CartUtility.isCartHasPhone(cart, phoneId);
@@ -72,6 +75,7 @@ public class CartServiceImpl implements CartService {
 
             cartValidator.validateTotalAmount(cart);
             cartItemRepository.save(cartItem);
+            phonePopularityCounter.count(phoneId);
             log.debug("Added new phone {} to cart {}", phoneId, cart.getId());
         }
 
@@ -6,19 +6,34 @@ import com.challengeteam.shop.entity.image.MIMEType;
 import com.challengeteam.shop.exceptionHandling.exception.*;
 import com.challengeteam.shop.persistence.repository.ImageRepository;
 import com.challengeteam.shop.persistence.storage.ImageStorage;
+import com.challengeteam.shop.properties.ImageVariantProperties;
 import com.challengeteam.shop.service.ImageService;
 import com.challengeteam.shop.service.MIMETypeService;
+import com.challengeteam.shop.service.impl.cache.ImageMemoryCache;
+import com.challengeteam.shop.service.impl.cache.ImageMemoryCache.CachedImage;
 import com.challengeteam.shop.service.impl.validator.ImageValidator;
+import com.challengeteam.shop.service.impl.variant.ImageVariantGenerator;
 import com.challengeteam.shop.utility.FileUtility;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpRange;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 
+import static com.challengeteam.shop.service.impl.cache.ImageMemoryCache.ORIGINAL_WIDTH;
+
 @Slf4j
 @RequiredArgsConstructor
 @Service
@@ -27,42 +42,205 @@ public class ImageServiceImpl implements ImageService {
     private final ImageStorage imageStorage;
     private final MIMETypeService mimeTypeService;
     private final ImageValidator imageValidator;
+    private final ImageMemoryCache imageMemoryCache;
+    private final ImageVariantGenerator imageVariantGenerator;
+    private final ImageVariantProperties imageVariantProperties;
 
 
-    @Transactional(readOnly = true)
+    // not in a transaction, so a hot image is served without a connection
+    // and the connection isn't held while the image is read from the storage
     @Override
     public Optional<ImageDataDto> downloadImageById(Long id) {
         Objects.requireNonNull(id, "id");
 
+        return downloadImage(id, ORIGINAL_WIDTH, null);
+    }
+
+    @Override
+    public Optional<ImageDataDto> downloadImageById(Long id, HttpRange range) {
+        Objects.requireNonNull(id, "id");
+        Objects.requireNonNull(range, "range");
+
+        return downloadImage(id, ORIGINAL_WIDTH, range);
+    }
+
+    @Override
+    public Optional<ImageDataDto> downloadImageById(Long id, int width) {
+        Objects.requireNonNull(id, "id");
+
+        return downloadImage(id, resolveWidth(width), null);
+    }
+
+    @Override
+    public Optional<ImageDataDto> downloadImageById(Long id, int width, HttpRange range) {
+        Objects.requireNonNull(id, "id");
+        Objects.requireNonNull(range, "range");
+
+        return downloadImage(id, resolveWidth(width), range);
+    }
+
+    @Override
+    public Optional<String> getImageVersion(Long id) {
+        Objects.requireNonNull(id, "id");
+
+        return getVersion(id, ORIGINAL_WIDTH);
+    }
+
+    @Override
+    public Optional<String> getImageVersion(Long id, int width) {
+        Objects.requireNonNull(id, "id");
+
+        return getVersion(id, resolveWidth(width));
+    }
+
+    // an uploaded image is never changed, the storage key of the served variant identifies the content;
+    // a variant generated later has its own key, so the version changes from the original to the variant
+    private Optional<String> getVersion(Long id, int width) {
+        Optional<String> storageKey = imageMemoryCache
+                .peek(id, width)
+                .map(CachedImage::storageKey)
+                .or(() -> imageRepository.findById(id).map(image -> storageKey(image, width)));
+
+        return storageKey.map(key -> DigestUtils.md5DigestAsHex(key.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // the smallest configured width covering the requested one, so e.g. w=200 and w=480 share the variant
+    private int resolveWidth(int width) {
+        if (width <= 0) {
+            throw new IllegalArgumentException("Width of image has to be positive, but was: " + width);
+        }
+
+        return imageVariantProperties.getWidths()
+                .stream()
+                .filter(variantWidth -> variantWidth >= width)
+                .min(Integer::compare)
+                .orElse(ORIGINAL_WIDTH);
+    }
+
+    private static boolean hasVariant(Image image, int width) {
+        return width != ORIGINAL_WIDTH
+               && image.getVariantWidths() != null
+               && image.getVariantWidths().contains(width);
+    }
+
+    private static String storageKey(Image image, int width) {
+        return hasVariant(image, width)
+                ? ImageVariantGenerator.variantKey(image.getStorageKey(), width)
+                : image.getStorageKey();
+    }
+
+    private Optional<ImageDataDto> downloadImage(Long id, int width, HttpRange range) {
+        Optional<CachedImage> cachedImage = imageMemoryCache.get(id, width);
+        if (cachedImage.isPresent()) {
+            log.debug("Found image by id {} of width {} in memory", id, width);
+            return Optional.of(toImageData(id, cachedImage.get(), range));
+        }
+
         try {
             Optional<Image> optionalImage = imageRepository.findById(id);
-            if (optionalImage.isPresent()) {
-                Image image = optionalImage.get();
-                MIMEType mimeType = image.getMimeType();
-                String key = image.getStorageKey();
+            if (optionalImage.isEmpty()) {
+                log.debug("Not found image by id {}", id);
+                return Optional.empty();
+            }
+
+            Image image = optionalImage.get();
+            if (hasVariant(image, width)) {
+                // variants are small, they are always read whole
+                String key = ImageVariantGenerator.variantKey(image.getStorageKey(), width);
                 byte[] bytes = imageStorage
                         .readImageByKey(key)
                         .orElseThrow(() -> new CriticalSystemException("Image doesnt exist in storage with key: " + key));
 
-                var result = new ImageDataDto(
-                        image.getName(),
-                        bytes,
-                        mimeType.getType(),
-                        image.getSize()
-                );
+                log.debug("Successfully read image by id {} of width {}", id, width);
+                return Optional.of(toImageData(id, imageMemoryCache.put(image, width, key, bytes), range));
+            }
 
-                log.debug("Successfully found image by id {}", id);
-                return Optional.of(result);
-            } else {
-                log.debug("Not found image by id {}", id);
-                return Optional.empty();
+            // no variant of the width, the original may be in memory already
+            if (width != ORIGINAL_WIDTH) {
+                cachedImage = imageMemoryCache.get(id, ORIGINAL_WIDTH);
+                if (cachedImage.isPresent()) {
+                    return Optional.of(toImageData(id, cachedImage.get(), range));
+                }
             }
+
+            return Optional.of(readOriginal(image, range));
         } catch (ImageStorageException e) {
             log.error("Failed to read image by id {}", id, e);
             throw new CriticalSystemException(e.getMessage(), e);
         }
     }
 
+    private ImageDataDto readOriginal(Image image, HttpRange range) throws ImageStorageException {
+        Long id = image.getId();
+        MIMEType mimeType = image.getMimeType();
+        String key = image.getStorageKey();
+        long size = image.getSize();
+
+        // small images are read whole and offered to the memory cache, large ones are always streamed
+        if (imageMemoryCache.accepts(size)) {
+            byte[] bytes = imageStorage
+                    .readImageByKey(key)
+                    .orElseThrow(() -> new CriticalSystemException("Image doesnt exist in storage with key: " + key));
+
+            log.debug("Successfully read image by id {}", id);
+            return toImageData(id, imageMemoryCache.put(image, bytes), range);
+        }
+
+        ImageDataDto.Range byteRange = null;
+        Optional<InputStream> optionalStream;
+        if (range == null) {
+            optionalStream = imageStorage.openImageByKey(key);
+        } else {
+            byteRange = resolveRange(id, range, size);
+            optionalStream = imageStorage.openImageByKey(key, byteRange.first(), byteRange.length());
+        }
+        InputStream imageStream = optionalStream
+                .orElseThrow(() -> new CriticalSystemException("Image doesnt exist in storage with key: " + key));
+
+        log.debug("Successfully found image by id {}", id);
+        return new ImageDataDto(
+                image.getName(),
+                imageStream,
+                mimeType.getType(),
+                size,
+                byteRange
+        );
+    }
+
+    private ImageDataDto toImageData(Long id, CachedImage image, HttpRange range) {
+        long size = image.size();
+        ImageDataDto.Range byteRange = range == null
+                ? null
+                : resolveRange(id, range, size);
+        InputStream imageStream = byteRange == null
+                ? image.open(0, size)
+                : image.open(byteRange.first(), byteRange.length());
+
+        return new ImageDataDto(
+                image.name(),
+                imageStream,
+                image.mimeType(),
+                size,
+                byteRange
+        );
+    }
+
+    private ImageDataDto.Range resolveRange(Long id, HttpRange range, long size) {
+        try {
+            long first = range.getRangeStart(size);
+            long last = range.getRangeEnd(size);
+            // e.g. a suffix range of an empty image
+            if (first <= last) {
+                return new ImageDataDto.Range(first, last);
+            }
+        } catch (IllegalArgumentException ignore) {
+            // the range starts after the end of the image
+        }
+
+        throw new RangeNotSatisfiableException(size, "Range %s is not satisfiable for image with id: %d of size: %d"
+                .formatted(range, id, size));
+    }
+
     @Transactional(readOnly = true)
     @Override
     public Optional<Image> getImageById(Long id) {
@@ -82,6 +260,7 @@ public class ImageServiceImpl implements ImageService {
         try {
             Image image = createImage(file);
             imageStorage.putImage(image.getStorageKey(), file);
+            image.setVariantWidths(generateVariants(image, file));
 
             log.debug("Successfully uploaded image with id {}", image.getId());
             return image;
@@ -102,14 +281,92 @@ public class ImageServiceImpl implements ImageService {
                 .orElseThrow(() -> new ResourceNotFoundException("Not found image with id: " + imageId));
 
         try {
-            imageStorage.deleteImage(image.getStorageKey());
+            for (String key : storageKeys(image)) {
+                imageStorage.deleteImage(key);
+            }
             imageRepository.deleteById(imageId);
+            imageMemoryCache.invalidate(imageId);
             log.debug("Successfully deleted image with id: {}", imageId);
         } catch (ImageStorageException e) {
             throw new CriticalSystemException("Failed to delete image with id: {} from storage", e);
         }
     }
 
+    @Transactional
+    @Override
+    public void deleteImagesOfPhone(Long phoneId) {
+        Objects.requireNonNull(phoneId, "phoneId");
+
+        List<Image> images = imageRepository.getImagesByPhone_Id(phoneId);
+        if (images.isEmpty()) {
+            return;
+        }
+
+        // removed as entities, only the entries of these images are evicted from the second-level cache
+        imageRepository.deleteAll(images);
+        List<Long> ids = images.stream().map(Image::getId).toList();
+        List<String> keys = images.stream().flatMap(image -> storageKeys(image).stream()).toList();
+        afterCommit(() -> {
+            ids.forEach(imageMemoryCache::invalidate);
+            deleteFromStorage(keys);
+        });
+        log.debug("Deleted {} images of phone with id: {}", images.size(), phoneId);
+    }
+
+    // the original and its variants
+    private static List<String> storageKeys(Image image) {
+        List<String> keys = new ArrayList<>();
+        keys.add(image.getStorageKey());
+        if (image.getVariantWidths() != null) {
+            for (int width : image.getVariantWidths()) {
+                keys.add(ImageVariantGenerator.variantKey(image.getStorageKey(), width));
+            }
+        }
+        return keys;
+    }
+
+    // the rows are gone already, an object which fails to be deleted is only left behind in the storage
+    private void deleteFromStorage(List<String> keys) {
+        for (String key : keys) {
+            try {
+                imageStorage.deleteImage(key);
+            } catch (ImageStorageException | RuntimeException e) {
+                log.warn("Failed to delete image with key {} from storage", key, e);
+            }
+        }
+    }
+
+    // a rolled back deletion keeps the objects
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // widths stay null when the variants fail, the backfill generates them later
+    private List<Integer> generateVariants(Image image, MultipartFile file) {
+        if (!imageVariantGenerator.isEnabled()) {
+            return null;
+        }
+
+        try {
+            return imageVariantGenerator.generate(image.getStorageKey(), image.getMimeType().getType(), file.getBytes());
+        } catch (IOException | ImageStorageException e) {
+            log.warn("Failed to generate variants of image with id {}", image.getId(), e);
+            return null;
+        } catch (RuntimeException e) {
+            log.error("Failed to generate variants of image with id {}", image.getId(), e);
+            return null;
+        }
+    }
+
     private Image createImage(MultipartFile file) throws FileUtilityException {
         MIMEType mimeType = mimeTypeService.createIfDoesntExist(file);
         String filename = FileUtility.getFilename(file);
@@ -0,0 +1,172 @@
+package com.challengeteam.shop.service.impl;
+
+import com.challengeteam.shop.dto.image.ImageVariantBackfillResponseDto;
+import com.challengeteam.shop.entity.image.Image;
+import com.challengeteam.shop.exceptionHandling.exception.CriticalSystemException;
+import com.challengeteam.shop.exceptionHandling.exception.ImageStorageException;
+import com.challengeteam.shop.exceptionHandling.exception.InvalidAPIRequestException;
+import com.challengeteam.shop.persistence.repository.ImageRepository;
+import com.challengeteam.shop.persistence.storage.ImageStorage;
+import com.challengeteam.shop.properties.ImageVariantProperties;
+import com.challengeteam.shop.service.ImageVariantBackfillService;
+import com.challengeteam.shop.service.impl.variant.ImageVariantGenerator;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Generates the missing variants page by page: ids of images without variants are read after the last
+ * id of the previous page, and the images of a page are resized in parallel. The widths of an image are
+ * saved in its own transaction as soon as its variants are stored, so the progress survives a restart and
+ * the next backfill continues with the remaining images. An image which fails, for whatever reason, is
+ * skipped for the rest of the run and retried by the next one.
+ * <p>
+ * Originals are read from MinIO directly, passing through the disk cache they would push out the images
+ * actually viewed. A backfill runs in the background, only one at a time.
+ */
+@Slf4j
+@Service
+public class ImageVariantBackfillServiceImpl implements ImageVariantBackfillService {
+    private final ImageRepository imageRepository;
+    private final ImageStorage imageStorage;
+    private final ImageVariantGenerator imageVariantGenerator;
+    private final TransactionTemplate transactionTemplate;
+    private final int threads;
+    private final int batchSize;
+    private final ExecutorService backfillExecutor;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public ImageVariantBackfillServiceImpl(ImageRepository imageRepository,
+                                           @Qualifier("minioImageStorage") ImageStorage imageStorage,
+                                           ImageVariantGenerator imageVariantGenerator,
+                                           PlatformTransactionManager transactionManager,
+                                           ImageVariantProperties imageVariantProperties) {
+        this.imageRepository = imageRepository;
+        this.imageStorage = imageStorage;
+        this.imageVariantGenerator = imageVariantGenerator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.threads = imageVariantProperties.getBackfillThreads();
+        this.batchSize = imageVariantProperties.getBackfillBatchSize();
+        this.backfillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "image-variant-backfill");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public CompletableFuture<ImageVariantBackfillResponseDto> backfill() {
+        if (!imageVariantGenerator.isEnabled()) {
+            throw new InvalidAPIRequestException("Variants of images are disabled");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new InvalidAPIRequestException("Backfill of image variants is already running");
+        }
+
+        try {
+            return CompletableFuture.supplyAsync(this::run, backfillExecutor);
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        backfillExecutor.shutdownNow();
+    }
+
+    private ImageVariantBackfillResponseDto run() {
+        log.info("Backfill of image variants started");
+        long processed = 0;
+        long failed = 0;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long afterId = 0;
+            List<Long> ids;
+            while (!(ids = imageRepository.findIdsWithoutVariants(afterId, Limit.of(batchSize))).isEmpty()) {
+                List<Callable<Boolean>> tasks = ids.stream()
+                        .map(id -> (Callable<Boolean>) () -> backfill(id))
+                        .toList();
+                List<Future<Boolean>> results = executor.invokeAll(tasks);
+                for (int i = 0; i < results.size(); i++) {
+                    if (succeeded(ids.get(i), results.get(i))) {
+                        processed++;
+                    } else {
+                        failed++;
+                    }
+                }
+                afterId = ids.get(ids.size() - 1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CriticalSystemException("Backfill of image variants was interrupted", e);
+        } catch (RuntimeException e) {
+            log.error("Backfill of image variants failed", e);
+            throw e;
+        } finally {
+            executor.shutdownNow();
+            running.set(false);
+            log.info("Backfill of image variants finished, processed: {}, failed: {}", processed, failed);
+        }
+
+        return new ImageVariantBackfillResponseDto(processed, failed);
+    }
+
+    // an error, e.g. OutOfMemoryError, fails only its image
+    private static boolean succeeded(Long id, Future<Boolean> result) throws InterruptedException {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            log.error("Failed to generate variants of image with id {}", id, e.getCause());
+            return false;
+        }
+    }
+
+    // false when the image failed and stays without variants
+    private boolean backfill(Long id) {
+        Optional<Image> optionalImage = imageRepository.findById(id);
+        if (optionalImage.isEmpty()) {
+            // deleted in between
+            return true;
+        }
+
+        Image image = optionalImage.get();
+        String key = image.getStorageKey();
+        try {
+            Optional<byte[]> original = imageStorage.readImageByKey(key);
+            if (original.isEmpty()) {
+                log.warn("Image with id {} doesnt exist in storage with key: {}", id, key);
+                return false;
+            }
+
+            List<Integer> widths = imageVariantGenerator.generate(key, image.getMimeType().getType(), original.get());
+            transactionTemplate.executeWithoutResult(status -> imageRepository
+                    .findById(id)
+                    .ifPresent(saved -> saved.setVariantWidths(widths)));
+            return true;
+        } catch (ImageStorageException | DataAccessException e) {
+            log.warn("Failed to generate variants of image with id {}", id, e);
+            return false;
+        } catch (RuntimeException e) {
+            log.error("Failed to generate variants of image with id {}", id, e);
+            return false;
+        }
+    }
+
+}
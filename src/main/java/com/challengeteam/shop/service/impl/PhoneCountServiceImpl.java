@@ -0,0 +1,170 @@
+package com.challengeteam.shop.service.impl;
+
+import com.challengeteam.shop.dto.pagination.PhoneFilterDto;
+import com.challengeteam.shop.persistence.repository.PhoneRepository;
+import com.challengeteam.shop.persistence.specification.PhoneSpecification;
+import com.challengeteam.shop.properties.PhoneCountProperties;
+import com.challengeteam.shop.service.PhoneCountService;
+import com.challengeteam.shop.service.event.PhoneChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Counts of phones matching a filter, cached by the normalized filter. Any change of the catalog
+ * drops the whole cache: a created or updated phone can move between any of the cached filters.
+ * A count computed concurrently with a change may miss it and isn't kept.
+ */
+@Slf4j
+@Service
+public class PhoneCountServiceImpl implements PhoneCountService {
+    private final PhoneRepository phoneRepository;
+    private final PhoneCountProperties phoneCountProperties;
+    private final Cache<CountKey, Long> counts;
+    // changed before counts are dropped, so a count that overlapped a change can tell
+    private final AtomicLong generation = new AtomicLong();
+
+    public PhoneCountServiceImpl(PhoneRepository phoneRepository, PhoneCountProperties phoneCountProperties) {
+        this.phoneRepository = phoneRepository;
+        this.phoneCountProperties = phoneCountProperties;
+        this.counts = Caffeine.newBuilder()
+                .maximumSize(phoneCountProperties.getCacheMaxSize())
+                .expireAfterWrite(phoneCountProperties.getCacheTtl())
+                .build();
+    }
+
+
+    @Override
+    public long countPhones(PhoneFilterDto filterDto) {
+        Objects.requireNonNull(filterDto, "filterDto");
+
+        CountKey key = CountKey.of(filterDto);
+        if (key.isUnfiltered() && phoneCountProperties.isEstimateUnfiltered()) {
+            Long estimate = phoneRepository.estimateCount();
+            if (estimate != null && estimate >= 0) {
+                log.debug("Estimated count of all phones: {}", estimate);
+                return estimate;
+            }
+        }
+
+        Long cached = counts.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        long countedAt = generation.get();
+        log.debug("Count phones by filter: {}", key);
+        Long count = phoneRepository.count(PhoneSpecification.build(filterDto));
+        counts.put(key, count);
+        if (generation.get() != countedAt) {
+            // may have been counted before the change committed
+            counts.asMap().remove(key, count);
+        }
+        return count;
+    }
+
+    @Override
+    public void invalidate() {
+        generation.incrementAndGet();
+        counts.invalidateAll();
+        log.debug("Invalidated cached phone counts");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPhoneChanged(PhoneChangedEvent event) {
+        invalidate();
+    }
+
+    /**
+     * Filter fields that affect the count, normalized the same way the specification applies them:
+     * brand is compared case-insensitively, prices and screen sizes by numeric value. Search queries
+     * differing only in case or whitespace parse to the same text search query.
+     */
+    private record CountKey(String brand,
+                            BigDecimal minPrice,
+                            BigDecimal maxPrice,
+                            String q,
+                            BigDecimal minScreenInches,
+                            BigDecimal maxScreenInches,
+                            Integer minBatteryMah,
+                            Integer maxBatteryMah,
+                            Integer minMainCameraMp,
+                            Integer maxMainCameraMp,
+                            Integer minFrontCameraMp,
+                            Integer maxFrontCameraMp,
+                            Integer minCoresNumber,
+                            Integer maxCoresNumber,
+                            Set<String> brands,
+                            Set<Integer> coresNumbers,
+                            Set<Integer> releaseYears,
+                            Set<String> cpus) {
+
+        static CountKey of(PhoneFilterDto filterDto) {
+            String brand = filterDto.brand() == null || filterDto.brand().isBlank()
+                    ? null
+                    : filterDto.brand().toLowerCase(Locale.ROOT);
+
+            String q = filterDto.q() == null
+                    ? null
+                    : filterDto.q().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+
+            return new CountKey(
+                    brand,
+                    normalize(filterDto.minPrice()),
+                    normalize(filterDto.maxPrice()),
+                    q,
+                    normalize(filterDto.minScreenInches()),
+                    normalize(filterDto.maxScreenInches()),
+                    filterDto.minBatteryMah(),
+                    filterDto.maxBatteryMah(),
+                    filterDto.minMainCameraMp(),
+                    filterDto.maxMainCameraMp(),
+                    filterDto.minFrontCameraMp(),
+                    filterDto.maxFrontCameraMp(),
+                    filterDto.minCoresNumber(),
+                    filterDto.maxCoresNumber(),
+                    normalizeText(filterDto.brands()),
+                    normalizeValues(filterDto.coresNumbers()),
+                    normalizeValues(filterDto.releaseYears()),
+                    normalizeText(filterDto.cpus())
+            );
+        }
+
+        private static BigDecimal normalize(BigDecimal value) {
+            return value == null ? null : value.stripTrailingZeros();
+        }
+
+        // the order of selected values doesn't change the count
+        private static Set<Integer> normalizeValues(List<Integer> values) {
+            return values == null ? null : new TreeSet<>(values);
+        }
+
+        private static Set<String> normalizeText(List<String> values) {
+            return values == null
+                    ? null
+                    : values.stream().map(value -> value.toLowerCase(Locale.ROOT)).collect(Collectors.toCollection(TreeSet::new));
+        }
+
+        boolean isUnfiltered() {
+            return brand == null && minPrice == null && maxPrice == null && q == null
+                   && minScreenInches == null && maxScreenInches == null
+                   && minBatteryMah == null && maxBatteryMah == null
+                   && minMainCameraMp == null && maxMainCameraMp == null
+                   && minFrontCameraMp == null && maxFrontCameraMp == null
+                   && minCoresNumber == null && maxCoresNumber == null
+                   && brands == null && coresNumbers == null && releaseYears == null && cpus == null;
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.challengeteam.shop.service.impl;
+
+import com.challengeteam.shop.dto.phone.PhoneView;
+import com.challengeteam.shop.persistence.repository.ImageRepository;
+import com.challengeteam.shop.persistence.repository.PhoneRepository;
+import com.challengeteam.shop.persistence.repository.projection.ImageMetadataRow;
+import com.challengeteam.shop.persistence.repository.projection.PhoneDetailsRow;
+import com.challengeteam.shop.service.PhoneExportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Passes the whole catalog ordered by id to a consumer, reading phones through a database cursor.
+ * Phones are read as projections, so nothing is kept in the persistence context, and images are read
+ * per batch of phones. Memory use doesn't depend on the size of the catalog.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PhoneExportServiceImpl implements PhoneExportService {
+    private static final int BATCH_SIZE = PhoneRepository.EXPORT_FETCH_SIZE;
+
+    private final PhoneRepository phoneRepository;
+    private final ImageRepository imageRepository;
+
+    @Transactional(readOnly = true)
+    @Override
+    public long exportPhones(Consumer<PhoneView> consumer) {
+        Objects.requireNonNull(consumer, "consumer");
+
+        log.info("Export of phones started");
+        long exported = 0;
+        try (Stream<PhoneDetailsRow> rows = phoneRepository.streamDetailsRows()) {
+            Iterator<PhoneDetailsRow> iterator = rows.iterator();
+            List<PhoneDetailsRow> batch = new ArrayList<>(BATCH_SIZE);
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() == BATCH_SIZE || !iterator.hasNext()) {
+                    exported += exportBatch(batch, consumer);
+                    batch.clear();
+                }
+            }
+        }
+
+        log.info("Export of phones finished, exported: {}", exported);
+        return exported;
+    }
+
+    private int exportBatch(List<PhoneDetailsRow> batch, Consumer<PhoneView> consumer) {
+        List<Long> ids = batch.stream().map(PhoneDetailsRow::getId).toList();
+        Map<Long, List<ImageMetadataRow>> imagesByPhoneId = imageRepository
+                .findMetadataRowsByPhoneIdIn(ids)
+                .stream()
+                .collect(Collectors.groupingBy(ImageMetadataRow::getPhoneId));
+
+        for (PhoneDetailsRow phone : batch) {
+            consumer.accept(new PhoneView(phone, imagesByPhoneId.getOrDefault(phone.getId(), List.of())));
+        }
+        return batch.size();
+    }
+
+}
@@ -0,0 +1,321 @@
+package com.challengeteam.shop.service.impl;
+
+import com.challengeteam.shop.dto.pagination.PhoneFilterDto;
+import com.challengeteam.shop.dto.phone.facet.BrandFacetDto;
+import com.challengeteam.shop.dto.phone.facet.PhoneFacetsResponseDto;
+import com.challengeteam.shop.dto.phone.facet.PriceBucketFacetDto;
+import com.challengeteam.shop.dto.phone.facet.ReleaseYearFacetDto;
+import com.challengeteam.shop.persistence.repository.PhoneRepository;
+import com.challengeteam.shop.persistence.repository.projection.PhoneFacetRow;
+import com.challengeteam.shop.persistence.specification.PhoneSpecification;
+import com.challengeteam.shop.properties.PhoneFacetProperties;
+import com.challengeteam.shop.service.PhoneFacetService;
+import com.challengeteam.shop.service.event.PhoneChangedEvent;
+import com.challengeteam.shop.service.impl.brand.BrandSpellings;
+import com.challengeteam.shop.service.impl.filter.PhoneFilterIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Counts of phones per brand, price bucket and release year kept in memory. The catalog is loaded once,
+ * afterwards every committed change moves only the changed phone between the counts.
+ * <p>
+ * Counts are aggregated per brand, so facets without a price filter are summed from a few aggregates.
+ * A price range is counted over the phones kept in memory. Multi-value filters take ids of matching phones
+ * from the filter index, while search and characteristic ranges ask the database for them.
+ * Phones must be changed through the phone service, changes made around it aren't noticed.
+ */
+@Slf4j
+@Service
+public class PhoneFacetServiceImpl implements PhoneFacetService {
+    private final PhoneRepository phoneRepository;
+    private final PhoneFilterIndex phoneFilterIndex;
+    private final BigDecimal[] priceBucketBounds;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // guarded by lock
+    private final Map<Long, FacetRow> rows = new HashMap<>();
+    // keyed by lower-cased brand, the way brand filters compare it
+    private final Map<String, FacetCounts> countsByBrand = new HashMap<>();
+    private boolean loaded;
+
+    public PhoneFacetServiceImpl(PhoneRepository phoneRepository,
+                                 PhoneFilterIndex phoneFilterIndex,
+                                 PhoneFacetProperties phoneFacetProperties) {
+        this.phoneRepository = phoneRepository;
+        this.phoneFilterIndex = phoneFilterIndex;
+        // sorted and without duplicates, whatever order the bounds are configured in
+        this.priceBucketBounds = new TreeSet<>(phoneFacetProperties.getPriceBucketBounds()).toArray(BigDecimal[]::new);
+    }
+
+
+    @Override
+    public PhoneFacetsResponseDto getFacets(PhoneFilterDto filterDto) {
+        Objects.requireNonNull(filterDto, "filterDto");
+
+        log.debug("Get phone facets by filter: {}", filterDto);
+        ensureLoaded();
+        if (filterDto.q() != null || filterDto.hasCharacteristicFilters()) {
+            return countIds(findIdsInDatabase(filterDto));
+        }
+        if (filterDto.hasMultiValueFilters()) {
+            List<Long> ids = phoneFilterIndex.findIds(filterDto)
+                    .map(found -> Arrays.stream(found.toArray()).boxed().toList())
+                    .orElseGet(() -> findIdsInDatabase(filterDto));
+            return countIds(ids);
+        }
+
+        lock.readLock().lock();
+        try {
+            if (filterDto.minPrice() == null && filterDto.maxPrice() == null) {
+                return sumBrandCounts(filterDto.brand());
+            }
+            return countRows(filterDto);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Long> findIdsInDatabase(PhoneFilterDto filterDto) {
+        return phoneRepository.findIds(PhoneSpecification.build(filterDto), Sort.unsorted(), Integer.MAX_VALUE);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            log.warn("Failed to load phone facets, they are loaded by the first request", e);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPhoneChanged(PhoneChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            if (event.type() == PhoneChangedEvent.ChangeType.IMPORTED) {
+                // many phones at once, read together by the next request
+                loaded = false;
+                return;
+            }
+
+            // the phone is read while the lock is held, so changes applied in any order end with its last state
+            removeRow(event.phoneId());
+            if (event.type() != PhoneChangedEvent.ChangeType.DELETED) {
+                phoneRepository.findFacetRowById(event.phoneId()).ifPresent(this::addRow);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to update phone facets, they are reloaded by the next request", e);
+            loaded = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the counts with the counts of the whole catalog.
+     */
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            rows.clear();
+            countsByBrand.clear();
+            loaded = false;
+            phoneRepository.findFacetRows().forEach(this::addRow);
+            loaded = true;
+            log.debug("Phone facets loaded for {} phones", rows.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        lock.readLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                reload();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addRow(PhoneFacetRow phone) {
+        FacetRow row = new FacetRow(
+                BrandSpellings.key(phone.getBrand()),
+                phone.getBrand(),
+                phone.getPrice(),
+                phone.getReleaseYear(),
+                bucketOf(phone.getPrice())
+        );
+        rows.put(phone.getId(), row);
+        countsByBrand.computeIfAbsent(row.brandKey(), brand -> new FacetCounts(priceBucketBounds.length + 1))
+                .add(row, 1);
+    }
+
+    private void removeRow(Long id) {
+        FacetRow row = rows.remove(id);
+        if (row == null) {
+            return;
+        }
+
+        FacetCounts counts = countsByBrand.get(row.brandKey());
+        counts.add(row, -1);
+        if (counts.total == 0) {
+            countsByBrand.remove(row.brandKey());
+        }
+    }
+
+    // number of bounds not greater than the price, bucket i spans [bounds[i - 1], bounds[i])
+    private int bucketOf(BigDecimal price) {
+        int position = Arrays.binarySearch(priceBucketBounds, price);
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+
+    private PhoneFacetsResponseDto sumBrandCounts(String brand) {
+        FacetCounts result = new FacetCounts(priceBucketBounds.length + 1);
+        Map<String, Long> brands = new HashMap<>();
+        countsByBrand.forEach((brandKey, counts) -> {
+            if (matchesBrand(brandKey, brand)) {
+                result.addAll(counts);
+                brands.put(counts.brandName(), counts.total);
+            }
+        });
+
+        return toResponse(result, brands);
+    }
+
+    private PhoneFacetsResponseDto countRows(PhoneFilterDto filterDto) {
+        FacetCounts result = new FacetCounts(priceBucketBounds.length + 1);
+        Map<String, Long> brands = new HashMap<>();
+        for (FacetRow row : rows.values()) {
+            if (matchesBrand(row.brandKey(), filterDto.brand())
+                && (filterDto.minPrice() == null || row.price().compareTo(filterDto.minPrice()) >= 0)
+                && (filterDto.maxPrice() == null || row.price().compareTo(filterDto.maxPrice()) <= 0)) {
+                result.add(row, 1);
+                brands.merge(brandName(row), 1L, Long::sum);
+            }
+        }
+
+        return toResponse(result, brands);
+    }
+
+    private PhoneFacetsResponseDto countIds(List<Long> ids) {
+        FacetCounts result = new FacetCounts(priceBucketBounds.length + 1);
+        Map<String, Long> brands = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (Long id : ids) {
+                // a phone created after the search isn't known yet, it will be counted by the next request
+                FacetRow row = rows.get(id);
+                if (row != null) {
+                    result.add(row, 1);
+                    brands.merge(brandName(row), 1L, Long::sum);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return toResponse(result, brands);
+    }
+
+    private static boolean matchesBrand(String brandKey, String brand) {
+        return brand == null || brand.isBlank() || brandKey.equals(BrandSpellings.key(brand));
+    }
+
+    // phones of one brand spelled in different cases are one facet, named the way most of them spell it
+    private String brandName(FacetRow row) {
+        return countsByBrand.get(row.brandKey()).brandName();
+    }
+
+    private PhoneFacetsResponseDto toResponse(FacetCounts counts, Map<String, Long> brands) {
+        List<BrandFacetDto> brandFacets = brands.entrySet().stream()
+                .map(entry -> new BrandFacetDto(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparingLong(BrandFacetDto::count).reversed().thenComparing(BrandFacetDto::brand))
+                .toList();
+
+        List<PriceBucketFacetDto> priceFacets = new ArrayList<>(counts.buckets.length);
+        for (int bucket = 0; bucket < counts.buckets.length; bucket++) {
+            BigDecimal from = bucket == 0 ? null : priceBucketBounds[bucket - 1];
+            BigDecimal to = bucket == priceBucketBounds.length ? null : priceBucketBounds[bucket];
+            priceFacets.add(new PriceBucketFacetDto(from, to, counts.buckets[bucket]));
+        }
+
+        List<ReleaseYearFacetDto> yearFacets = counts.releaseYears.entrySet().stream()
+                .map(entry -> new ReleaseYearFacetDto(entry.getKey(), entry.getValue()))
+                .toList();
+
+        return new PhoneFacetsResponseDto(counts.total, brandFacets, priceFacets, yearFacets);
+    }
+
+    private record FacetRow(
+            String brandKey,
+            String brand,
+            BigDecimal price,
+            int releaseYear,
+            int bucket
+    ) {
+    }
+
+    private static final class FacetCounts {
+        private final long[] buckets;
+        private final TreeMap<Integer, Long> releaseYears = new TreeMap<>();
+        private BrandSpellings brandSpellings = BrandSpellings.NONE;
+        private long total;
+
+        private FacetCounts(int bucketCount) {
+            this.buckets = new long[bucketCount];
+        }
+
+        private void add(FacetRow row, int delta) {
+            total += delta;
+            buckets[row.bucket()] += delta;
+            // a year without phones is removed
+            releaseYears.merge(row.releaseYear(), (long) delta, (a, b) -> a + b == 0 ? null : a + b);
+            brandSpellings = brandSpellings.with(row.brand(), delta);
+        }
+
+        private String brandName() {
+            return brandSpellings.name();
+        }
+
+        private void addAll(FacetCounts other) {
+            total += other.total;
+            for (int bucket = 0; bucket < buckets.length; bucket++) {
+                buckets[bucket] += other.buckets[bucket];
+            }
+            other.releaseYears.forEach((year, count) -> releaseYears.merge(year, count, Long::sum));
+        }
+    }
+
+}
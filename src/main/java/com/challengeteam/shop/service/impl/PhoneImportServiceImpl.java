@@ -0,0 +1,176 @@
+package com.challengeteam.shop.service.impl;
+
+import com.challengeteam.shop.dto.phone.bulk.PhoneImportErrorDto;
+import com.challengeteam.shop.dto.phone.bulk.PhoneImportResponseDto;
+import com.challengeteam.shop.entity.phone.Phone;
+import com.challengeteam.shop.exceptionHandling.exception.InvalidAPIRequestException;
+import com.challengeteam.shop.persistence.repository.PhoneBatchRepository;
+import com.challengeteam.shop.properties.PhoneImportProperties;
+import com.challengeteam.shop.service.PhoneImportService;
+import com.challengeteam.shop.service.event.PhoneChangedEvent;
+import com.challengeteam.shop.service.event.PhoneChangedEvent.ChangeType;
+import com.challengeteam.shop.service.impl.bulk.PhoneImportReader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Imports phones row by row: a row is read, validated like a created phone and collected into a batch.
+ * Each batch is inserted with a JDBC batch in its own transaction, so memory use doesn't depend on the
+ * size of the input and rows imported before a failure stay imported. When a batch fails, its rows are
+ * inserted one by one to find the failing ones.
+ * <p>
+ * Derived data of the catalog is notified once, after the import, instead of once per phone.
+ */
+@Slf4j
+@Service
+public class PhoneImportServiceImpl implements PhoneImportService {
+    private final PhoneBatchRepository phoneBatchRepository;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxReportedErrors;
+
+    public PhoneImportServiceImpl(PhoneBatchRepository phoneBatchRepository,
+                                  Validator validator,
+                                  ObjectMapper objectMapper,
+                                  ApplicationEventPublisher eventPublisher,
+                                  PlatformTransactionManager transactionManager,
+                                  PhoneImportProperties phoneImportProperties) {
+        this.phoneBatchRepository = phoneBatchRepository;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = phoneImportProperties.getBatchSize();
+        this.maxReportedErrors = phoneImportProperties.getMaxReportedErrors();
+    }
+
+    @Override
+    public PhoneImportResponseDto importPhones(InputStream input, Charset charset, Format format) {
+        Objects.requireNonNull(input, "input");
+        Objects.requireNonNull(charset, "charset");
+        Objects.requireNonNull(format, "format");
+
+        log.info("Import of phones from {} started", format);
+        Report report = new Report();
+        List<PhoneImportReader.Row> batch = new ArrayList<>(batchSize);
+        try (PhoneImportReader reader = open(input, charset, format)) {
+            while (reader.hasNext()) {
+                PhoneImportReader.Row row = reader.next();
+                List<String> errors = validate(row);
+                if (!errors.isEmpty()) {
+                    report.failed(row.number(), errors);
+                    continue;
+                }
+
+                batch.add(row);
+                if (batch.size() == batchSize) {
+                    insert(batch, report);
+                    batch.clear();
+                }
+            }
+            insert(batch, report);
+        } catch (IOException | UncheckedIOException e) {
+            throw new InvalidAPIRequestException("Failed to read the import", e);
+        } finally {
+            // also when reading failed midway, phones of the inserted batches stay imported
+            if (report.imported > 0) {
+                eventPublisher.publishEvent(new PhoneChangedEvent(null, ChangeType.IMPORTED));
+            }
+            log.info("Import of phones finished, imported: {}, failed: {}", report.imported, report.failed);
+        }
+
+        return report.toResponse();
+    }
+
+    private PhoneImportReader open(InputStream input, Charset charset, Format format) {
+        return switch (format) {
+            case CSV -> PhoneImportReader.csv(input, charset, objectMapper);
+            case NDJSON -> PhoneImportReader.ndjson(input, charset, objectMapper);
+        };
+    }
+
+    private List<String> validate(PhoneImportReader.Row row) {
+        if (row.error() != null) {
+            return List.of(row.error());
+        }
+        if (row.phone() == null) {
+            return List.of("Row is empty");
+        }
+
+        return validator.validate(row.phone())
+                .stream()
+                .map(PhoneImportServiceImpl::describe)
+                .sorted()
+                .toList();
+    }
+
+    private void insert(List<PhoneImportReader.Row> batch, Report report) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<Phone> phones = batch.stream().map(row -> PhoneServiceImpl.buildPhone(row.phone())).toList();
+            transactionTemplate.executeWithoutResult(status -> phoneBatchRepository.insertAll(phones));
+            report.imported += batch.size();
+        } catch (DataAccessException e) {
+            log.debug("Batch of {} phones failed, inserting them one by one", batch.size(), e);
+            batch.forEach(row -> insertOne(row, report));
+        }
+    }
+
+    private void insertOne(PhoneImportReader.Row row, Report report) {
+        try {
+            Phone phone = PhoneServiceImpl.buildPhone(row.phone());
+            transactionTemplate.executeWithoutResult(status -> phoneBatchRepository.insertAll(List.of(phone)));
+            report.imported++;
+        } catch (DataAccessException e) {
+            // the first line of the database message, e.g. of a value too long for its column
+            Throwable cause = NestedExceptionUtils.getMostSpecificCause(e);
+            String message = Objects.toString(cause.getMessage(), cause.getClass().getSimpleName());
+            report.failed(row.number(), List.of("Row couldn't be saved: " + message.lines().findFirst().orElse("")));
+        }
+    }
+
+    private static String describe(ConstraintViolation<?> violation) {
+        return violation.getPropertyPath() + ": " + violation.getMessage();
+    }
+
+    // errors above the limit are counted, but not listed
+    private class Report {
+        private final List<PhoneImportErrorDto> errors = new ArrayList<>();
+        private long imported;
+        private long failed;
+
+        void failed(long row, List<String> messages) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new PhoneImportErrorDto(row, messages));
+            }
+        }
+
+        PhoneImportResponseDto toResponse() {
+            return new PhoneImportResponseDto(imported, failed, List.copyOf(errors));
+        }
+    }
+
+}
@@ -1,39 +1,66 @@
 package com.challengeteam.shop.service.impl;
 
+import com.challengeteam.shop.dto.pagination.CursorPage;
+import com.challengeteam.shop.dto.pagination.PhoneCursor;
 import com.challengeteam.shop.dto.pagination.PhoneFilterDto;
 import com.challengeteam.shop.dto.phone.PhoneCreateRequestDto;
 import com.challengeteam.shop.dto.phone.PhoneUpdateRequestDto;
+import com.challengeteam.shop.dto.phone.PhoneView;
 import com.challengeteam.shop.entity.image.Image;
 import com.challengeteam.shop.entity.phone.Phone;
 import com.challengeteam.shop.entity.phone.PhoneCharacteristics;
 import com.challengeteam.shop.exceptionHandling.exception.CriticalSystemException;
+import com.challengeteam.shop.exceptionHandling.exception.CursorUtilityException;
+import com.challengeteam.shop.exceptionHandling.exception.InvalidAPIRequestException;
 import com.challengeteam.shop.exceptionHandling.exception.ResourceNotFoundException;
+import com.challengeteam.shop.exceptionHandling.exception.VersionConflictException;
 import com.challengeteam.shop.persistence.repository.ImageRepository;
 import com.challengeteam.shop.persistence.repository.PhoneRepository;
+import com.challengeteam.shop.persistence.repository.PhoneUpdateRepository;
+import com.challengeteam.shop.persistence.repository.projection.ImageMetadataRow;
+import com.challengeteam.shop.persistence.repository.projection.PhoneDetailsRow;
+import com.challengeteam.shop.persistence.specification.PhoneSort;
 import com.challengeteam.shop.persistence.specification.PhoneSpecification;
 import com.challengeteam.shop.service.ImageService;
+import com.challengeteam.shop.service.PhoneCountService;
 import com.challengeteam.shop.service.PhoneService;
+import com.challengeteam.shop.service.event.PhoneChangedEvent;
+import com.challengeteam.shop.service.event.PhoneChangedEvent.ChangeType;
+import com.challengeteam.shop.service.impl.index.PhoneCatalogIndex;
+import com.challengeteam.shop.service.impl.index.PhoneIdPage;
 import com.challengeteam.shop.service.impl.merger.PhoneMerger;
+import com.challengeteam.shop.utility.CursorUtility;
+import com.challengeteam.shop.utility.PhoneCharacteristicsUtility;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.*;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class PhoneServiceImpl implements PhoneService {
     private final PhoneRepository phoneRepository;
+    private final PhoneUpdateRepository phoneUpdateRepository;
     private final PhoneMerger phoneMerger;
     private final ImageService imageService;
     private final ImageRepository imageRepository;
+    private final PhoneCountService phoneCountService;
+    private final PhoneCatalogIndex phoneCatalogIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
 
     @Transactional(readOnly = true)
@@ -45,32 +72,146 @@ public class PhoneServiceImpl implements PhoneService {
         return phoneRepository.findByIdWithImages(id);
     }
 
+    // read by id, so a phone in the second-level cache doesn't go to the database
+    @Transactional(readOnly = true)
+    @Override
+    public Optional<Phone> getByIdWithoutImages(Long id) {
+        Objects.requireNonNull(id, "id");
+
+        log.debug("Get phone without images by id: {}", id);
+        return phoneRepository.findById(id);
+    }
+
+    // only the selected columns are read, no entity is loaded into the persistence context
+    @Transactional(readOnly = true)
+    @Override
+    public Optional<PhoneView> getViewById(Long id) {
+        Objects.requireNonNull(id, "id");
+
+        log.debug("Get phone view by id: {}", id);
+        return loadViews(List.of(id)).stream().findFirst();
+    }
+
+    // one query for the phones and one for their images, whatever the number of ids
+    @Transactional(readOnly = true)
+    @Override
+    public List<PhoneView> getViewsByIds(List<Long> ids) {
+        Objects.requireNonNull(ids, "ids");
+
+        log.debug("Get phone views by ids: {}", ids);
+        return loadViews(ids.stream().distinct().toList());
+    }
+
     @Transactional(readOnly = true)
     @Override
     public Page<Phone> getPhones(int page, int size, PhoneFilterDto filterDto) {
         log.debug("Get phones page={}, size={}, filters={}", page, size, filterDto);
 
-        Pageable pageable = PageRequest.of(page, size, buildSort(filterDto.sort()));
-        Specification<Phone> spec = PhoneSpecification.build(filterDto);
-        return phoneRepository.findAll(spec, pageable);
+        Page<Long> ids = findPageOfIds(page, size, filterDto);
+        return new PageImpl<>(loadWithImages(ids.getContent()), ids.getPageable(), ids.getTotalElements());
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public Page<PhoneView> getPhoneViews(int page, int size, PhoneFilterDto filterDto) {
+        log.debug("Get phone views page={}, size={}, filters={}", page, size, filterDto);
+
+        Page<Long> ids = findPageOfIds(page, size, filterDto);
+        return new PageImpl<>(loadViews(ids.getContent()), ids.getPageable(), ids.getTotalElements());
     }
 
-    private Sort buildSort(String sortParam) {
-        return switch (sortParam) {
-            case "name_desc" -> Sort.by("name").descending();
-            case "price_asc" -> Sort.by("price").ascending();
-            case "price_desc" -> Sort.by("price").descending();
-            default -> Sort.by("name").ascending();
-        };
+    private Page<Long> findPageOfIds(int page, int size, PhoneFilterDto filterDto) {
+        PhoneSort sort = PhoneSort.fromParam(filterDto.sortOrDefault());
+        Pageable pageable = PageRequest.of(page, size, sort.toSort());
+
+        // the in-memory index answers ids and total, only phones of the page are loaded
+        Optional<PhoneIdPage> indexed = phoneCatalogIndex.findPage(filterDto, sort, page, size);
+        if (indexed.isPresent()) {
+            return new PageImpl<>(indexed.get().ids(), pageable, indexed.get().total());
+        }
+
+        Specification<Phone> spec = PhoneSpecification.build(filterDto);
+        if (sort == PhoneSort.RELEVANCE) {
+            if (filterDto.q() == null) {
+                throw new InvalidAPIRequestException("Sort relevance requires search query 'q'");
+            }
+            spec = spec.and(PhoneSpecification.orderByRank(filterDto.q()));
+        }
+
+        // first the page of ids with LIMIT/OFFSET in SQL, then phones with images for these ids only
+        List<Long> ids = phoneRepository.findIds(spec, pageable);
+        return PageableExecutionUtils.getPage(ids, pageable, () -> phoneCountService.countPhones(filterDto));
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     @Override
-    public Long create(PhoneCreateRequestDto phoneCreateRequestDto, List<MultipartFile> images) {
-        Objects.requireNonNull(phoneCreateRequestDto, "phoneCreateRequestDto");
-        Objects.requireNonNull(images, "images");
+    public CursorPage<Phone> getPhonesByCursor(String cursor, int size, PhoneFilterDto filterDto) {
+        Objects.requireNonNull(filterDto, "filterDto");
+
+        log.debug("Get phones by cursor={}, size={}, filters={}", cursor, size, filterDto);
+        PhoneSort sort = PhoneSort.fromParam(filterDto.keysetSortOrDefault());
+        if (!sort.supportsKeyset()) {
+            throw new InvalidAPIRequestException("Sort " + sort.getParam() + " isn't supported by cursor pagination");
+        }
+
+        Specification<Phone> spec = PhoneSpecification.build(filterDto);
+        if (cursor != null) {
+            PhoneCursor position = decodeCursor(cursor, sort);
+            spec = spec.and(PhoneSpecification.seekAfter(sort, sort.parseKey(position.key()), position.id()));
+        }
+
+        // one extra id shows whether the next page exists, so no count query is needed
+        List<Long> ids = phoneRepository.findIds(spec, sort.toSort(), size + 1);
+        boolean hasNext = ids.size() > size;
+        if (hasNext) {
+            ids = ids.subList(0, size);
+        }
+
+        List<Phone> phones = loadWithImages(ids);
+        String next = null;
+        if (hasNext && !phones.isEmpty()) {
+            Phone last = phones.get(phones.size() - 1);
+            next = CursorUtility.encode(new PhoneCursor(sort.getParam(), sort.extractKey(last), last.getId()));
+        }
+
+        return new CursorPage<>(phones, next);
+    }
+
+    private PhoneCursor decodeCursor(String cursor, PhoneSort sort) {
+        PhoneCursor position;
+        try {
+            position = CursorUtility.decode(cursor);
+            sort.parseKey(position.key());
+        } catch (CursorUtilityException | NumberFormatException e) {
+            throw new InvalidAPIRequestException("Invalid cursor", e);
+        }
+
+        if (!sort.getParam().equals(position.sort())) {
+            throw new InvalidAPIRequestException("Cursor was issued for another sort: " + position.sort());
+        }
 
-        // create phone characteristics
+        return position;
+    }
+
+    private List<Phone> loadWithImages(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Phone> phonesById = phoneRepository
+                .findAllByIdInWithImages(ids)
+                .stream()
+                .collect(Collectors.toMap(Phone::getId, Function.identity()));
+
+        // keep the order of ids, a phone deleted in between is skipped
+        return ids.stream()
+                .map(phonesById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    // also used by the import, so imported phones are stored the same way as created ones
+    static Phone buildPhone(PhoneCreateRequestDto phoneCreateRequestDto) {
         PhoneCharacteristics phoneCharacteristics = PhoneCharacteristics.builder()
                 .cpu(phoneCreateRequestDto.cpu())
                 .coresNumber(phoneCreateRequestDto.coresNumber())
@@ -79,9 +220,9 @@ public class PhoneServiceImpl implements PhoneService {
                 .mainCamera(phoneCreateRequestDto.mainCamera())
                 .batteryCapacity(phoneCreateRequestDto.batteryCapacity())
                 .build();
+        PhoneCharacteristicsUtility.updateNumericValues(phoneCharacteristics);
 
-        // create phone
-        var phone = Phone.builder()
+        return Phone.builder()
                 .name(phoneCreateRequestDto.name().trim())
                 .description(phoneCreateRequestDto.description())
                 .price(phoneCreateRequestDto.price())
@@ -89,8 +230,39 @@ public class PhoneServiceImpl implements PhoneService {
                 .releaseYear(phoneCreateRequestDto.releaseYear())
                 .phoneCharacteristics(phoneCharacteristics)
                 .build();
+    }
+
+    // one query for phones and one for metadata of all their images
+    private List<PhoneView> loadViews(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, PhoneDetailsRow> phonesById = phoneRepository
+                .findDetailsRowsByIdIn(ids)
+                .stream()
+                .collect(Collectors.toMap(PhoneDetailsRow::getId, Function.identity()));
+        Map<Long, List<ImageMetadataRow>> imagesByPhoneId = imageRepository
+                .findMetadataRowsByPhoneIdIn(phonesById.keySet())
+                .stream()
+                .collect(Collectors.groupingBy(ImageMetadataRow::getPhoneId));
+
+        // keep the order of ids, a phone deleted in between is skipped
+        return ids.stream()
+                .map(phonesById::get)
+                .filter(Objects::nonNull)
+                .map(phone -> new PhoneView(phone, imagesByPhoneId.getOrDefault(phone.getId(), List.of())))
+                .toList();
+    }
+
+    @Transactional
+    @Override
+    public Long create(PhoneCreateRequestDto phoneCreateRequestDto, List<MultipartFile> images) {
+        Objects.requireNonNull(phoneCreateRequestDto, "phoneCreateRequestDto");
+        Objects.requireNonNull(images, "images");
 
-        phone = phoneRepository.save(phone);
+        // create phone
+        var phone = phoneRepository.save(buildPhone(phoneCreateRequestDto));
 
         // add images
         for (MultipartFile file : images) {
@@ -99,6 +271,7 @@ public class PhoneServiceImpl implements PhoneService {
             imageRepository.save(image);
         }
 
+        eventPublisher.publishEvent(new PhoneChangedEvent(phone.getId(), ChangeType.CREATED));
         log.debug("Created new phone with id: {} with images: {}", phone, images.size());
         return phone.getId();
     }
@@ -109,12 +282,17 @@ public class PhoneServiceImpl implements PhoneService {
         Objects.requireNonNull(id, "id");
         Objects.requireNonNull(phoneUpdateRequestDto, "phoneUpdateRequestDto");
 
-        Phone phone = phoneRepository
-                .findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Not found phone with id: " + id));
-        phoneMerger.mergePhone(phone, phoneUpdateRequestDto);
-        phoneRepository.save(phone);
-        log.debug("Updated phone: {}", phone);
+        // the phone isn't read: one conditional statement writes only the changed columns,
+        // a stale version fails it instead of overwriting a newer update
+        Long version = Objects.requireNonNull(phoneUpdateRequestDto.version(), "version");
+        Map<String, Object> attributes = phoneMerger.getChangedAttributes(phoneUpdateRequestDto);
+        if (attributes.isEmpty() || phoneUpdateRepository.updateIfVersionMatches(id, version, attributes) == 0) {
+            checkVersion(id, version);
+            return;
+        }
+
+        eventPublisher.publishEvent(new PhoneChangedEvent(id, ChangeType.UPDATED));
+        log.debug("Updated phone with id: {}, attributes: {}", id, attributes.keySet());
     }
 
     @Transactional
@@ -126,7 +304,10 @@ public class PhoneServiceImpl implements PhoneService {
             throw new ResourceNotFoundException("Not found phone with id: " + id);
         }
 
+        // the database would cascade it too, but around the second-level cache and the storage
+        imageService.deleteImagesOfPhone(id);
         phoneRepository.deleteById(id);
+        eventPublisher.publishEvent(new PhoneChangedEvent(id, ChangeType.DELETED));
         log.debug("Deleted phone with id: {}", id);
     }
 
@@ -147,6 +328,9 @@ public class PhoneServiceImpl implements PhoneService {
         // save
         image.setPhone(phone);
         imageRepository.save(image);
+        // images are part of the phone response, so the phone counts as modified
+        phone.setUpdatedAt(Instant.now());
+        eventPublisher.publishEvent(new PhoneChangedEvent(phoneId, ChangeType.IMAGES_CHANGED));
         log.debug("Successfully added image with id: {} to phone with id: {}", image.getId(), phoneId);
     }
 
@@ -183,6 +367,20 @@ public class PhoneServiceImpl implements PhoneService {
             String message = "Not found image by id: %s after verifying".formatted(imageId);
             throw new CriticalSystemException(message);
         }
+
+        // updated as an entity, so only this phone is refreshed in the second-level cache
+        phoneRepository.findById(phoneId).ifPresent(phone -> phone.setUpdatedAt(Instant.now()));
+        eventPublisher.publishEvent(new PhoneChangedEvent(phoneId, ChangeType.IMAGES_CHANGED));
+    }
+
+    private void checkVersion(Long id, Long expectedVersion) {
+        Long version = phoneRepository
+                .findVersionById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Not found phone with id: " + id));
+        if (!expectedVersion.equals(version)) {
+            throw new VersionConflictException("Phone with id: " + id + " has version: " + version
+                                               + ", but expected version: " + expectedVersion);
+        }
     }
 
 }
@@ -0,0 +1,27 @@
+package com.challengeteam.shop.service.impl;
+
+import com.challengeteam.shop.dto.phone.suggest.PhoneSuggestResponseDto;
+import com.challengeteam.shop.service.PhoneSuggestService;
+import com.challengeteam.shop.service.impl.suggest.PhoneSuggestIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Objects;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PhoneSuggestServiceImpl implements PhoneSuggestService {
+    private final PhoneSuggestIndex phoneSuggestIndex;
+
+
+    @Override
+    public PhoneSuggestResponseDto suggest(String prefix, int limit) {
+        Objects.requireNonNull(prefix, "prefix");
+
+        log.debug("Suggest phones by prefix: {}, limit={}", prefix, limit);
+        return phoneSuggestIndex.suggest(prefix, limit);
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.challengeteam.shop.service.impl;
+
+import com.challengeteam.shop.persistence.repository.PhoneRepository;
+import com.challengeteam.shop.service.PhoneVersionService;
+import com.challengeteam.shop.service.event.PhoneChangedEvent;
+import com.challengeteam.shop.service.event.PhonePopularityChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versions used as ETags of phone responses. A response is checked against its version before anything
+ * is loaded, so the version is read first and the response is built afterwards: a change committed
+ * in between gives newer data under the older version, which only costs the client one more full response.
+ * <p>
+ * The version of a phone is its last modification time, images of the phone count as its part.
+ * The catalog version changes with every committed change of any phone and with written popularity,
+ * which orders pages sorted by it. It is counted in memory and starts from a random epoch, so that
+ * versions of different instances or of a restarted instance never match each other.
+ */
+@Slf4j
+@Service
+public class PhoneVersionServiceImpl implements PhoneVersionService {
+    private final PhoneRepository phoneRepository;
+    private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private final AtomicLong catalogChanges = new AtomicLong();
+
+    public PhoneVersionServiceImpl(PhoneRepository phoneRepository) {
+        this.phoneRepository = phoneRepository;
+    }
+
+
+    @Override
+    public Optional<String> getPhoneVersion(Long id) {
+        Objects.requireNonNull(id, "id");
+
+        return phoneRepository
+                .findLastModifiedById(id)
+                .map(lastModified -> id + "-" + Long.toHexString(ChronoUnit.MICROS.between(Instant.EPOCH, lastModified)));
+    }
+
+    @Override
+    public String getCatalogVersion() {
+        return epoch + "-" + catalogChanges.get();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPhoneChanged(PhoneChangedEvent event) {
+        long version = catalogChanges.incrementAndGet();
+        log.debug("Phone catalog version changed to {} by {}", version, event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPhonePopularityChanged(PhonePopularityChangedEvent event) {
+        long version = catalogChanges.incrementAndGet();
+        log.debug("Phone catalog version changed to {} by popularity of {} phones", version, event.phoneIds().size());
+    }
+
+}
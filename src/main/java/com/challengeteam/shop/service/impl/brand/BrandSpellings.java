@@ -0,0 +1,66 @@
+package com.challengeteam.shop.service.impl.brand;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Spellings of one brand with the number of phones spelling it each way. Brands differing only in case
+ * are one brand, the way brand filters compare them, and it is named the way most of its phones spell it.
+ * Facets and suggestions both name brands by it, so they show a brand alike. Immutable, a change returns
+ * a copy; a brand has few spellings.
+ */
+public final class BrandSpellings {
+    public static final BrandSpellings NONE = new BrandSpellings(new TreeMap<>(), 0);
+
+    // in natural order
+    private final TreeMap<String, Long> phonesBySpelling;
+    private final long phonesCount;
+
+    private BrandSpellings(TreeMap<String, Long> phonesBySpelling, long phonesCount) {
+        this.phonesBySpelling = phonesBySpelling;
+        this.phonesCount = phonesCount;
+    }
+
+    // compared the same way as PhoneSpecification.hasBrand does
+    public static String key(String brand) {
+        Objects.requireNonNull(brand, "brand");
+
+        return brand.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the spellings with the number of phones of the given spelling changed by delta.
+     * A spelling without phones is removed.
+     */
+    public BrandSpellings with(String spelling, long delta) {
+        Objects.requireNonNull(spelling, "spelling");
+
+        TreeMap<String, Long> changed = new TreeMap<>(phonesBySpelling);
+        changed.merge(spelling, delta, (a, b) -> a + b <= 0 ? null : a + b);
+        return new BrandSpellings(changed, changed.values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    public boolean isEmpty() {
+        return phonesBySpelling.isEmpty();
+    }
+
+    public long phonesCount() {
+        return phonesCount;
+    }
+
+    // the most common spelling, the first one in natural order of equally common ones
+    public String name() {
+        String name = null;
+        long count = 0;
+        for (Map.Entry<String, Long> spelling : phonesBySpelling.entrySet()) {
+            if (spelling.getValue() > count) {
+                name = spelling.getKey();
+                count = spelling.getValue();
+            }
+        }
+        return name;
+    }
+
+}
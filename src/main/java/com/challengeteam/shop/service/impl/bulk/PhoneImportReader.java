@@ -0,0 +1,197 @@
+package com.challengeteam.shop.service.impl.bulk;
+
+import com.challengeteam.shop.dto.phone.PhoneCreateRequestDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+/**
+ * Reads phones of an import one row at a time. A row that can't be read as a phone is returned with
+ * an error instead, so the following rows are still read. Broken CSV quoting ends the input, as the
+ * following rows can't be told apart.
+ * <p>
+ * CSV has a header row with names of the phone fields in any order, unknown columns are ignored and
+ * empty cells are missing values. NDJSON has a phone object per line, blank lines are skipped.
+ */
+public abstract class PhoneImportReader implements Iterator<PhoneImportReader.Row>, Closeable {
+    private static final CsvMapper CSV_MAPPER = CsvMapper.builder()
+            .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+            .enable(CsvParser.Feature.TRIM_SPACES)
+            .build();
+
+    protected final ObjectMapper objectMapper;
+    private long rowNumber;
+    private Row next;
+    private boolean finished;
+
+    protected PhoneImportReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public static PhoneImportReader csv(InputStream input, Charset charset, ObjectMapper objectMapper) {
+        return new CsvReader(new InputStreamReader(input, charset), objectMapper);
+    }
+
+    public static PhoneImportReader ndjson(InputStream input, Charset charset, ObjectMapper objectMapper) {
+        return new NdjsonReader(new BufferedReader(new InputStreamReader(input, charset)), objectMapper);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            next = readRow(rowNumber + 1);
+            if (next == null) {
+                finished = true;
+            } else {
+                rowNumber++;
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public Row next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        Row row = next;
+        next = null;
+        return row;
+    }
+
+    /**
+     * Reads the row with the given number, null at the end of the input.
+     */
+    protected abstract Row readRow(long number);
+
+    protected void finish() {
+        finished = true;
+    }
+
+    protected Row toRow(long number, Object value) {
+        try {
+            return Row.of(number, objectMapper.convertValue(value, PhoneCreateRequestDto.class));
+        } catch (IllegalArgumentException e) {
+            return Row.failed(number, describe(e.getCause()));
+        }
+    }
+
+    // the field of a value of a wrong type, without details of the parser
+    protected static String describe(Throwable e) {
+        if (e instanceof JsonMappingException mappingException && !mappingException.getPath().isEmpty()) {
+            String field = mappingException.getPath()
+                    .stream()
+                    .map(JsonMappingException.Reference::getFieldName)
+                    .collect(Collectors.joining("."));
+            return field + ": Invalid value";
+        }
+        if (e instanceof JsonProcessingException processingException) {
+            return "Malformed row: " + processingException.getOriginalMessage();
+        }
+        return "Malformed row";
+    }
+
+    public record Row(
+            long number,
+            PhoneCreateRequestDto phone,
+            String error
+    ) {
+
+        static Row of(long number, PhoneCreateRequestDto phone) {
+            return new Row(number, phone, null);
+        }
+
+        static Row failed(long number, String error) {
+            return new Row(number, null, error);
+        }
+
+    }
+
+    private static class CsvReader extends PhoneImportReader {
+        private final Reader reader;
+        private MappingIterator<Map<String, String>> rows;
+
+        CsvReader(Reader reader, ObjectMapper objectMapper) {
+            super(objectMapper);
+            this.reader = reader;
+        }
+
+        @Override
+        protected Row readRow(long number) {
+            try {
+                if (rows == null) {
+                    rows = CSV_MAPPER
+                            .readerForMapOf(String.class)
+                            .with(CsvSchema.emptySchema().withHeader())
+                            .readValues(reader);
+                }
+                return rows.hasNextValue() ? toRow(number, rows.nextValue()) : null;
+            } catch (JsonProcessingException e) {
+                finish();
+                return Row.failed(number, "Malformed CSV, the rest of the input is skipped: " + e.getOriginalMessage());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (rows != null) {
+                rows.close();
+            }
+            reader.close();
+        }
+    }
+
+    private static class NdjsonReader extends PhoneImportReader {
+        private final BufferedReader reader;
+
+        NdjsonReader(BufferedReader reader, ObjectMapper objectMapper) {
+            super(objectMapper);
+            this.reader = reader;
+        }
+
+        @Override
+        protected Row readRow(long number) {
+            try {
+                String line;
+                do {
+                    line = reader.readLine();
+                } while (line != null && line.isBlank());
+
+                if (line == null) {
+                    return null;
+                }
+                return toRow(number, objectMapper.readTree(line));
+            } catch (JsonProcessingException e) {
+                return Row.failed(number, describe(e));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+}
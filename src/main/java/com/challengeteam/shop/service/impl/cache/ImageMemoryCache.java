@@ -0,0 +1,214 @@
+package com.challengeteam.shop.service.impl.cache;
+
+import com.challengeteam.shop.entity.image.Image;
+import com.challengeteam.shop.properties.ImageMemoryCacheProperties;
+import com.challengeteam.shop.service.event.PhoneChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Metadata and bytes of the images requested most, so they are served without reading the database
+ * and the storage. Only images up to the configured size are cached and the cache is bounded by their
+ * bytes. Caffeine admits a new image only if it's requested more often than the one it would evict,
+ * so a crawler going once through all images doesn't push out the hot product shots. Hits, misses and
+ * evictions are reported as the {@code images.memory} cache metrics.
+ * <p>
+ * The bytes are kept in direct buffers outside of the heap when {@code off-heap} is set. Resized variants
+ * of an image are cached by their width next to the original, see {@link #ORIGINAL_WIDTH}.
+ * An image is never changed after the upload, so it's only dropped when it's deleted.
+ */
+@Slf4j
+@Component
+public class ImageMemoryCache {
+    public static final int ORIGINAL_WIDTH = 0;
+    static final String CACHE_NAME = "images.memory";
+
+    private final ImageMemoryCacheProperties imageMemoryCacheProperties;
+    private final Cache<Key, CachedImage> images;
+
+    public ImageMemoryCache(ImageMemoryCacheProperties imageMemoryCacheProperties, MeterRegistry meterRegistry) {
+        this.imageMemoryCacheProperties = imageMemoryCacheProperties;
+        this.images = Caffeine.newBuilder()
+                .maximumWeight(imageMemoryCacheProperties.getMaxSize().toBytes())
+                .weigher((Key key, CachedImage image) -> image.bytes().capacity())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, images, CACHE_NAME);
+        Gauge.builder("cache.hit.ratio", images, cache -> cache.stats().hitRate())
+                .tag("cache", CACHE_NAME)
+                .description("The ratio of cache requests which were hits")
+                .register(meterRegistry);
+    }
+
+
+    public Optional<CachedImage> get(Long id) {
+        return get(id, ORIGINAL_WIDTH);
+    }
+
+    public Optional<CachedImage> get(Long id, int width) {
+        Objects.requireNonNull(id, "id");
+
+        if (!imageMemoryCacheProperties.isEnabled()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(images.getIfPresent(new Key(id, width)));
+    }
+
+    /**
+     * Looks the image up without counting it as a request, e.g. for its version before it's downloaded.
+     */
+    public Optional<CachedImage> peek(Long id) {
+        return peek(id, ORIGINAL_WIDTH);
+    }
+
+    public Optional<CachedImage> peek(Long id, int width) {
+        Objects.requireNonNull(id, "id");
+
+        if (!imageMemoryCacheProperties.isEnabled()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(images.policy().getIfPresentQuietly(new Key(id, width)));
+    }
+
+    public boolean accepts(long size) {
+        return imageMemoryCacheProperties.isEnabled()
+               && size <= imageMemoryCacheProperties.getMaxImageSize().toBytes();
+    }
+
+    /**
+     * Offers the image to the cache, which may not keep it. The returned image can be served either way.
+     */
+    public CachedImage put(Image image, byte[] bytes) {
+        Objects.requireNonNull(image, "image");
+
+        return put(image, ORIGINAL_WIDTH, image.getStorageKey(), bytes);
+    }
+
+    /**
+     * Offers the variant of the image stored under the key, see {@link #put(Image, byte[])}.
+     */
+    public CachedImage put(Image image, int width, String storageKey, byte[] bytes) {
+        Objects.requireNonNull(image, "image");
+        Objects.requireNonNull(storageKey, "storageKey");
+        Objects.requireNonNull(bytes, "bytes");
+
+        ByteBuffer buffer;
+        if (imageMemoryCacheProperties.isOffHeap()) {
+            buffer = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        } else {
+            buffer = ByteBuffer.wrap(bytes);
+        }
+
+        Long phoneId = image.getPhone() == null ? null : image.getPhone().getId();
+        var cachedImage = new CachedImage(
+                image.getName(),
+                image.getMimeType().getType(),
+                storageKey,
+                phoneId,
+                buffer.asReadOnlyBuffer()
+        );
+
+        if (accepts(bytes.length)) {
+            images.put(new Key(image.getId(), width), cachedImage);
+        }
+        return cachedImage;
+    }
+
+    // together with its variants
+    public void invalidate(Long id) {
+        Objects.requireNonNull(id, "id");
+
+        images.asMap().keySet().removeIf(key -> id.equals(key.id()));
+    }
+
+    // images of a deleted phone are deleted by a query, so they are found by the phone
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPhoneChanged(PhoneChangedEvent event) {
+        Long phoneId = event.phoneId();
+        if (phoneId == null || event.type() != PhoneChangedEvent.ChangeType.DELETED) {
+            return;
+        }
+
+        images.asMap().values().removeIf(image -> phoneId.equals(image.phoneId()));
+        log.debug("Invalidated cached images of deleted phone with id: {}", phoneId);
+    }
+
+    private record Key(Long id, int width) {
+    }
+
+    public record CachedImage(
+            String name,
+            String mimeType,
+            String storageKey,
+            Long phoneId,
+            ByteBuffer bytes
+    ) {
+
+        public long size() {
+            return bytes.capacity();
+        }
+
+        /**
+         * Opens {@code length} bytes starting at {@code offset}, streams of the image share its cached bytes.
+         */
+        public InputStream open(long offset, long length) {
+            ByteBuffer range = bytes.duplicate()
+                    .position((int) offset)
+                    .limit((int) (offset + length));
+            return new ByteBufferInputStream(range);
+        }
+
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+
+            int read = Math.min(len, buffer.remaining());
+            buffer.get(b, off, read);
+            return read;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+}
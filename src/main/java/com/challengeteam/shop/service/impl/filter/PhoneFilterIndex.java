@@ -0,0 +1,367 @@
+package com.challengeteam.shop.service.impl.filter;
+
+import com.challengeteam.shop.dto.pagination.PhoneFilterDto;
+import com.challengeteam.shop.persistence.repository.PhoneRepository;
+import com.challengeteam.shop.persistence.repository.projection.PhoneFilterRow;
+import com.challengeteam.shop.service.event.PhoneChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory filter engine for multi-select catalog filters. Every distinct brand, cores number, release year
+ * and cpu has a compressed bitmap of ids of its phones, and prices are kept sorted together with phone ids.
+ * Values of one filter are united, different filters are intersected, and a price range is a contiguous run
+ * of the sorted prices, so a filter is evaluated without looking at single phones.
+ * <p>
+ * The catalog is loaded once, afterwards every committed change moves only the changed phone between
+ * the bitmaps. Phones must be changed through the phone service, changes made around it aren't noticed.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PhoneFilterIndex {
+    private final PhoneRepository phoneRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // guarded by lock
+    private final Map<Long, FilterRow> rows = new HashMap<>();
+    private final Roaring64Bitmap allIds = new Roaring64Bitmap();
+    private final Map<String, Roaring64Bitmap> idsByBrand = new HashMap<>();
+    private final Map<Integer, Roaring64Bitmap> idsByCoresNumber = new HashMap<>();
+    private final Map<Integer, Roaring64Bitmap> idsByReleaseYear = new HashMap<>();
+    private final Map<String, Roaring64Bitmap> idsByCpu = new HashMap<>();
+    private final SortedPrices prices = new SortedPrices();
+    private boolean loaded;
+
+
+    /**
+     * Whether the filter can be evaluated by the index. Full-text search and characteristic ranges
+     * need the database; the sort doesn't matter.
+     */
+    public static boolean supports(PhoneFilterDto filterDto) {
+        return filterDto.q() == null && !filterDto.hasCharacteristicFilters();
+    }
+
+    /**
+     * Returns ids of phones matching the filter, or empty when the index can't answer: the filter
+     * isn't supported or the catalog can't be loaded. The returned bitmap belongs to the caller.
+     */
+    public Optional<Roaring64Bitmap> findIds(PhoneFilterDto filterDto) {
+        Objects.requireNonNull(filterDto, "filterDto");
+
+        if (!supports(filterDto)) {
+            return Optional.empty();
+        }
+
+        try {
+            ensureLoaded();
+        } catch (RuntimeException e) {
+            log.warn("Failed to load phone filter index, phones are filtered by the database", e);
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            return Optional.of(evaluate(filterDto));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            log.warn("Failed to load phone filter index, it is loaded by the first request", e);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPhoneChanged(PhoneChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            if (event.type() == PhoneChangedEvent.ChangeType.IMPORTED) {
+                // many phones at once, read together by the next request
+                loaded = false;
+                return;
+            }
+
+            // the phone is read while the lock is held, so changes applied in any order end with its last state
+            removeRow(event.phoneId());
+            if (event.type() != PhoneChangedEvent.ChangeType.DELETED) {
+                phoneRepository.findFilterRowById(event.phoneId()).ifPresent(this::addRow);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to update phone filter index, it is reloaded by the next request", e);
+            loaded = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the bitmaps with the bitmaps of the whole catalog.
+     */
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            rows.clear();
+            allIds.clear();
+            idsByBrand.clear();
+            idsByCoresNumber.clear();
+            idsByReleaseYear.clear();
+            idsByCpu.clear();
+            loaded = false;
+
+            for (PhoneFilterRow phone : phoneRepository.findFilterRows()) {
+                FilterRow row = FilterRow.of(phone);
+                rows.put(phone.getId(), row);
+                addToBitmaps(phone.getId(), row);
+            }
+            prices.replaceAll(rows);
+            loaded = true;
+            log.debug("Phone filter index loaded for {} phones", rows.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        lock.readLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                reload();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Roaring64Bitmap evaluate(PhoneFilterDto filterDto) {
+        List<Roaring64Bitmap> conditions = new ArrayList<>();
+        if (filterDto.brand() != null && !filterDto.brand().isBlank()) {
+            conditions.add(anyOf(idsByBrand, toLowerCase(List.of(filterDto.brand()))));
+        }
+        if (filterDto.brands() != null) {
+            conditions.add(anyOf(idsByBrand, toLowerCase(filterDto.brands())));
+        }
+        if (filterDto.coresNumbers() != null) {
+            conditions.add(anyOf(idsByCoresNumber, filterDto.coresNumbers()));
+        }
+        if (filterDto.releaseYears() != null) {
+            conditions.add(anyOf(idsByReleaseYear, filterDto.releaseYears()));
+        }
+        if (filterDto.cpus() != null) {
+            conditions.add(anyOf(idsByCpu, toLowerCase(filterDto.cpus())));
+        }
+        if (filterDto.minPrice() != null || filterDto.maxPrice() != null) {
+            conditions.add(prices.between(filterDto.minPrice(), filterDto.maxPrice()));
+        }
+
+        if (conditions.isEmpty()) {
+            return allIds.clone();
+        }
+
+        // starting from the smallest bitmap keeps every intermediate result small
+        conditions.sort(Comparator.comparingLong(Roaring64Bitmap::getLongCardinality));
+        Roaring64Bitmap result = conditions.get(0);
+        for (int i = 1; i < conditions.size() && !result.isEmpty(); i++) {
+            result.and(conditions.get(i));
+        }
+        return result;
+    }
+
+    // a new bitmap of phones having any of the values
+    private static <T> Roaring64Bitmap anyOf(Map<T, Roaring64Bitmap> idsByValue, Collection<T> values) {
+        Roaring64Bitmap result = new Roaring64Bitmap();
+        for (T value : values) {
+            Roaring64Bitmap ids = idsByValue.get(value);
+            if (ids != null) {
+                result.or(ids);
+            }
+        }
+        return result;
+    }
+
+    // lower-cased the same way as PhoneSpecification does
+    private static List<String> toLowerCase(Collection<String> values) {
+        return values.stream().map(value -> value.toLowerCase(Locale.ROOT)).distinct().toList();
+    }
+
+    private void addRow(PhoneFilterRow phone) {
+        FilterRow row = FilterRow.of(phone);
+        rows.put(phone.getId(), row);
+        addToBitmaps(phone.getId(), row);
+        prices.insert(phone.getId(), row.price());
+    }
+
+    private void removeRow(Long id) {
+        FilterRow row = rows.remove(id);
+        if (row == null) {
+            return;
+        }
+
+        allIds.removeLong(id);
+        removeFromBitmap(idsByBrand, row.brand(), id);
+        removeFromBitmap(idsByCoresNumber, row.coresNumber(), id);
+        removeFromBitmap(idsByReleaseYear, row.releaseYear(), id);
+        removeFromBitmap(idsByCpu, row.cpu(), id);
+        prices.remove(id, row.price());
+    }
+
+    private void addToBitmaps(long id, FilterRow row) {
+        allIds.addLong(id);
+        idsByBrand.computeIfAbsent(row.brand(), brand -> new Roaring64Bitmap()).addLong(id);
+        idsByCoresNumber.computeIfAbsent(row.coresNumber(), coresNumber -> new Roaring64Bitmap()).addLong(id);
+        idsByReleaseYear.computeIfAbsent(row.releaseYear(), releaseYear -> new Roaring64Bitmap()).addLong(id);
+        idsByCpu.computeIfAbsent(row.cpu(), cpu -> new Roaring64Bitmap()).addLong(id);
+    }
+
+    // a value without phones is removed
+    private static <T> void removeFromBitmap(Map<T, Roaring64Bitmap> idsByValue, T value, long id) {
+        Roaring64Bitmap ids = idsByValue.get(value);
+        if (ids != null) {
+            ids.removeLong(id);
+            if (ids.isEmpty()) {
+                idsByValue.remove(value);
+            }
+        }
+    }
+
+    private record FilterRow(
+            String brand,
+            BigDecimal price,
+            Integer coresNumber,
+            Integer releaseYear,
+            String cpu
+    ) {
+        static FilterRow of(PhoneFilterRow phone) {
+            return new FilterRow(phone.getBrand(), phone.getPrice(), phone.getCoresNumber(), phone.getReleaseYear(), phone.getCpu());
+        }
+    }
+
+    /**
+     * Prices with ids of their phones ordered by price and id, so that a price range is a contiguous run
+     * found by binary search. A change shifts the tail of the arrays by one position.
+     */
+    private static final class SortedPrices {
+        private BigDecimal[] prices = new BigDecimal[0];
+        private long[] ids = new long[0];
+        private int size;
+
+        private void replaceAll(Map<Long, FilterRow> rows) {
+            Long[] sortedIds = rows.keySet().toArray(Long[]::new);
+            Arrays.sort(sortedIds, Comparator.comparing((Long id) -> rows.get(id).price()).thenComparing(id -> id));
+
+            size = sortedIds.length;
+            prices = new BigDecimal[size];
+            ids = new long[size];
+            for (int i = 0; i < size; i++) {
+                ids[i] = sortedIds[i];
+                prices[i] = rows.get(sortedIds[i]).price();
+            }
+        }
+
+        private void insert(long id, BigDecimal price) {
+            if (size == ids.length) {
+                int capacity = Math.max(16, size * 2);
+                prices = Arrays.copyOf(prices, capacity);
+                ids = Arrays.copyOf(ids, capacity);
+            }
+
+            int position = position(id, price);
+            System.arraycopy(prices, position, prices, position + 1, size - position);
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            prices[position] = price;
+            ids[position] = id;
+            size++;
+        }
+
+        private void remove(long id, BigDecimal price) {
+            int position = position(id, price);
+            if (position < size && ids[position] == id) {
+                System.arraycopy(prices, position + 1, prices, position, size - position - 1);
+                System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+                size--;
+                prices[size] = null;
+            }
+        }
+
+        // ids of phones priced within the inclusive bounds, a null bound is open
+        private Roaring64Bitmap between(BigDecimal min, BigDecimal max) {
+            int from = min == null ? 0 : firstIndex(min, false);
+            int to = max == null ? size : firstIndex(max, true);
+
+            Roaring64Bitmap result = new Roaring64Bitmap();
+            if (from < to) {
+                result.add(Arrays.copyOfRange(ids, from, to));
+            }
+            return result;
+        }
+
+        // index of the first entry not less than (price, id)
+        private int position(long id, BigDecimal price) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                int byPrice = prices[middle].compareTo(price);
+                if (byPrice < 0 || byPrice == 0 && ids[middle] < id) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        // index of the first price not less than the given one, or greater than it when equal prices are skipped
+        private int firstIndex(BigDecimal price, boolean skipEqual) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                int compared = prices[middle].compareTo(price);
+                if (compared < 0 || skipEqual && compared == 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+}
@@ -0,0 +1,234 @@
+package com.challengeteam.shop.service.impl.index;
+
+import com.challengeteam.shop.dto.pagination.PhoneFilterDto;
+import com.challengeteam.shop.persistence.repository.PhoneRepository;
+import com.challengeteam.shop.persistence.repository.projection.PhoneIndexRow;
+import com.challengeteam.shop.persistence.specification.PhoneSort;
+import com.challengeteam.shop.properties.PhoneCatalogIndexProperties;
+import com.challengeteam.shop.service.event.PhoneChangedEvent;
+import com.challengeteam.shop.service.event.PhoneChangedEvent.ChangeType;
+import com.challengeteam.shop.service.impl.filter.PhoneFilterIndex;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.data.domain.Limit;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory index answering catalog pages (filters, sort and total) with phone ids, so that the database
+ * is only asked to load the phones of the page. The catalog is loaded in background at startup; afterwards
+ * every committed change of a phone is applied in background to a copy of the snapshot, which replaces the
+ * current one once complete. While a change is pending the index reports nothing and callers query the
+ * database, so pages never reflect a catalog older than the last committed change and writers don't wait
+ * for the index. An import, or a change that can't be applied, makes the index rebuild in background;
+ * until the rebuild completes it reports nothing either.
+ * Phones must be changed through the phone service, changes made around it aren't noticed.
+ */
+@Slf4j
+@Component
+public class PhoneCatalogIndex {
+    private final PhoneRepository phoneRepository;
+    private final PhoneCatalogIndexProperties properties;
+    private final PhoneFilterIndex phoneFilterIndex;
+    private final ExecutorService rebuildExecutor;
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private final AtomicInteger pendingChanges = new AtomicInteger();
+
+    // guarded by this
+    private long generation;
+    private volatile PhoneCatalogSnapshot snapshot;
+
+    public PhoneCatalogIndex(PhoneRepository phoneRepository,
+                             PhoneCatalogIndexProperties properties,
+                             PhoneFilterIndex phoneFilterIndex) {
+        this.phoneRepository = phoneRepository;
+        this.properties = properties;
+        this.phoneFilterIndex = phoneFilterIndex;
+        this.rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "phone-catalog-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+
+    /**
+     * Returns ids of the requested page and total of matching phones, or empty when the index
+     * can't answer: it is disabled, not built yet, outdated or the request needs the database.
+     */
+    public Optional<PhoneIdPage> findPage(PhoneFilterDto filterDto, PhoneSort sort, int page, int size) {
+        Objects.requireNonNull(filterDto, "filterDto");
+        Objects.requireNonNull(sort, "sort");
+
+        // read before the snapshot, a change applied meanwhile is then seen in it
+        boolean changesPending = pendingChanges.get() > 0;
+        PhoneCatalogSnapshot current = snapshot;
+        if (changesPending || current == null || !PhoneCatalogSnapshot.supports(filterDto, sort)) {
+            return Optional.empty();
+        }
+
+        // multi-value filters are evaluated by the filter index, the snapshot keeps only phones they match
+        Roaring64Bitmap matchingIds = null;
+        if (filterDto.hasMultiValueFilters()) {
+            Optional<Roaring64Bitmap> found = phoneFilterIndex.findIds(filterDto);
+            if (found.isEmpty()) {
+                return Optional.empty();
+            }
+            matchingIds = found.get();
+        }
+
+        return Optional.of(current.findPage(filterDto, sort, page, size, matchingIds));
+    }
+
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        scheduleRebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPhoneChanged(PhoneChangedEvent event) {
+        if (event.type() == ChangeType.IMAGES_CHANGED) {
+            // none of the indexed attributes changed
+            return;
+        }
+
+        boolean rebuild;
+        synchronized (this) {
+            generation++;
+            rebuild = snapshot == null || event.type() == ChangeType.IMPORTED;
+            if (rebuild) {
+                snapshot = null;
+            } else {
+                // pages are served by the database until the change is applied
+                pendingChanges.incrementAndGet();
+            }
+        }
+        if (rebuild) {
+            scheduleRebuild();
+            return;
+        }
+
+        try {
+            rebuildExecutor.execute(() -> applyChange(event));
+        } catch (RejectedExecutionException e) {
+            // shut down
+            pendingChanges.decrementAndGet();
+        }
+    }
+
+    // runs on the rebuild thread, so changes are applied one by one and each reads the last state of its phone
+    private void applyChange(PhoneChangedEvent event) {
+        try {
+            PhoneCatalogSnapshot current = snapshot;
+            if (current == null) {
+                // the scheduled rebuild reads the change
+                return;
+            }
+
+            Optional<PhoneCatalogSnapshot> updated;
+            try {
+                updated = apply(current, event);
+                if (updated.isEmpty()) {
+                    log.debug("Phone {} can't be applied to phone catalog index, it is rebuilt", event.phoneId());
+                }
+            } catch (RuntimeException e) {
+                log.warn("Failed to update phone catalog index, it is rebuilt", e);
+                updated = Optional.empty();
+            }
+
+            synchronized (this) {
+                if (snapshot != current) {
+                    // dropped by an import meanwhile
+                    return;
+                }
+                snapshot = updated.orElse(null);
+            }
+            if (updated.isEmpty()) {
+                scheduleRebuild();
+            }
+        } finally {
+            pendingChanges.decrementAndGet();
+        }
+    }
+
+    private Optional<PhoneCatalogSnapshot> apply(PhoneCatalogSnapshot current, PhoneChangedEvent event) {
+        PhoneCatalogSnapshot withoutPhone = current.without(event.phoneId());
+        if (event.type() == ChangeType.DELETED) {
+            return Optional.of(withoutPhone);
+        }
+
+        Optional<PhoneIndexRow> phone = phoneRepository.findIndexRowById(event.phoneId());
+        if (phone.isEmpty()) {
+            // deleted meanwhile, its own event comes next
+            return Optional.of(withoutPhone);
+        }
+
+        Long previousId = phoneRepository.findIdsBeforeInNameOrder(event.phoneId(), Limit.of(1))
+                .stream()
+                .findFirst()
+                .orElse(null);
+        return withoutPhone.with(phone.get(), previousId);
+    }
+
+    private void scheduleRebuild() {
+        if (properties.isEnabled() && rebuildScheduled.compareAndSet(false, true)) {
+            rebuildExecutor.execute(this::rebuild);
+        }
+    }
+
+    /**
+     * Loads the catalog and installs a new snapshot unless phones changed meanwhile, in which case
+     * the change has been applied to the current snapshot or the rebuild scheduled by it installs one.
+     */
+    public void rebuild() {
+        rebuildScheduled.set(false);
+        long startedAt;
+        synchronized (this) {
+            startedAt = generation;
+        }
+
+        PhoneCatalogSnapshot built;
+        try {
+            List<PhoneIndexRow> rows = phoneRepository.findIndexRowsOrderByName();
+            built = PhoneCatalogSnapshot.build(rows, properties.getMaxPriceScale()).orElse(null);
+        } catch (RuntimeException e) {
+            log.warn("Failed to build phone catalog index, pages are served by the database", e);
+            return;
+        }
+
+        if (built == null) {
+            log.warn("Phone catalog index isn't built: prices have more than {} fraction digits",
+                    properties.getMaxPriceScale());
+            return;
+        }
+
+        synchronized (this) {
+            if (generation == startedAt) {
+                snapshot = built;
+                log.debug("Phone catalog index rebuilt with {} phones", built.size());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+}
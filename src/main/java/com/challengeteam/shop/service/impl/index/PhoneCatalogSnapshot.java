@@ -0,0 +1,298 @@
+package com.challengeteam.shop.service.impl.index;
+
+import com.challengeteam.shop.dto.pagination.PhoneFilterDto;
+import com.challengeteam.shop.persistence.repository.projection.PhoneIndexRow;
+import com.challengeteam.shop.persistence.specification.PhoneSort;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Immutable column-oriented copy of the phone attributes used by filters and sorts.
+ * Row {@code i} is the i-th phone in (name, id) order, so name sorts walk the rows directly
+ * and price sorts walk a presorted permutation of rows. Prices are exact scaled longs and brands
+ * are codes of a dictionary, so a page is answered by comparing primitives only.
+ * A changed phone is applied to a copy, see {@link #without(long)} and {@link #with(PhoneIndexRow, Long)}.
+ */
+final class PhoneCatalogSnapshot {
+    private static final int ANY_BRAND = -1;
+    private static final int UNKNOWN_BRAND = -2;
+    private static final int NOT_FOUND = -1;
+    private static final Set<PhoneSort> SORTS =
+            EnumSet.of(PhoneSort.NAME_ASC, PhoneSort.NAME_DESC, PhoneSort.PRICE_ASC, PhoneSort.PRICE_DESC);
+
+    private final long[] ids;
+    private final long[] prices;
+    private final int[] brands;
+    private final int[] rowsByPrice;
+    private final Map<String, Integer> brandCodes;
+    private final int priceScale;
+
+    private PhoneCatalogSnapshot(long[] ids,
+                                 long[] prices,
+                                 int[] brands,
+                                 int[] rowsByPrice,
+                                 Map<String, Integer> brandCodes,
+                                 int priceScale) {
+        this.ids = ids;
+        this.prices = prices;
+        this.brands = brands;
+        this.rowsByPrice = rowsByPrice;
+        this.brandCodes = brandCodes;
+        this.priceScale = priceScale;
+    }
+
+    /**
+     * Builds a snapshot from rows ordered by name and id. Returns empty when some price can't be kept
+     * as a long with at most {@code maxPriceScale} fraction digits, such a catalog is served by the database.
+     */
+    static Optional<PhoneCatalogSnapshot> build(List<? extends PhoneIndexRow> rowsByName, int maxPriceScale) {
+        Objects.requireNonNull(rowsByName, "rowsByName");
+
+        int scale = 0;
+        for (PhoneIndexRow row : rowsByName) {
+            scale = Math.max(scale, row.getPrice().stripTrailingZeros().scale());
+        }
+        if (scale > maxPriceScale) {
+            return Optional.empty();
+        }
+
+        int size = rowsByName.size();
+        long[] ids = new long[size];
+        long[] prices = new long[size];
+        int[] brands = new int[size];
+        Map<String, Integer> brandCodes = new HashMap<>();
+        try {
+            for (int row = 0; row < size; row++) {
+                PhoneIndexRow phone = rowsByName.get(row);
+                ids[row] = phone.getId();
+                prices[row] = phone.getPrice().movePointRight(scale).longValueExact();
+                brands[row] = brandCodes.computeIfAbsent(phone.getBrand(), brand -> brandCodes.size());
+            }
+        } catch (ArithmeticException e) {
+            return Optional.empty();
+        }
+
+        int[] rowsByPrice = sortRowsByPrice(ids, prices);
+        return Optional.of(new PhoneCatalogSnapshot(ids, prices, brands, rowsByPrice, Map.copyOf(brandCodes), scale));
+    }
+
+    private static int[] sortRowsByPrice(long[] ids, long[] prices) {
+        Integer[] rows = new Integer[ids.length];
+        Arrays.setAll(rows, row -> row);
+        Arrays.sort(rows, (a, b) -> {
+            int byPrice = Long.compare(prices[a], prices[b]);
+            return byPrice != 0 ? byPrice : Long.compare(ids[a], ids[b]);
+        });
+
+        return Arrays.stream(rows).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Returns a copy without the phone, or this snapshot when it doesn't have the phone.
+     */
+    PhoneCatalogSnapshot without(long id) {
+        int removed = rowOf(id);
+        if (removed == NOT_FOUND) {
+            return this;
+        }
+
+        int size = ids.length - 1;
+        long[] newIds = new long[size];
+        long[] newPrices = new long[size];
+        int[] newBrands = new int[size];
+        copyWithout(ids, newIds, ids.length, removed);
+        copyWithout(prices, newPrices, ids.length, removed);
+        copyWithout(brands, newBrands, ids.length, removed);
+
+        // the price order stays the same, rows after the removed one move one position up
+        int[] newRowsByPrice = new int[size];
+        int position = 0;
+        for (int row : rowsByPrice) {
+            if (row != removed) {
+                newRowsByPrice[position++] = row > removed ? row - 1 : row;
+            }
+        }
+
+        return new PhoneCatalogSnapshot(newIds, newPrices, newBrands, newRowsByPrice, brandCodes, priceScale);
+    }
+
+    /**
+     * Returns a copy with the phone placed right after the phone preceding it in name order, or first when
+     * no phone precedes it. Returns empty when the preceding phone isn't in the snapshot or the price doesn't
+     * fit the scale of the snapshot, then the snapshot has to be built again.
+     */
+    Optional<PhoneCatalogSnapshot> with(PhoneIndexRow phone, Long previousId) {
+        Objects.requireNonNull(phone, "phone");
+
+        int added = 0;
+        if (previousId != null) {
+            int previous = rowOf(previousId);
+            if (previous == NOT_FOUND) {
+                return Optional.empty();
+            }
+            added = previous + 1;
+        }
+
+        long price;
+        try {
+            price = phone.getPrice().movePointRight(priceScale).longValueExact();
+        } catch (ArithmeticException e) {
+            return Optional.empty();
+        }
+
+        Map<String, Integer> newBrandCodes = brandCodes;
+        Integer brand = brandCodes.get(phone.getBrand());
+        if (brand == null) {
+            // codes of brands without phones are kept, they just match nothing
+            Map<String, Integer> codes = new HashMap<>(brandCodes);
+            brand = codes.size();
+            codes.put(phone.getBrand(), brand);
+            newBrandCodes = Map.copyOf(codes);
+        }
+
+        int size = ids.length + 1;
+        long[] newIds = new long[size];
+        long[] newPrices = new long[size];
+        int[] newBrands = new int[size];
+        copyWith(ids, newIds, ids.length, added);
+        copyWith(prices, newPrices, ids.length, added);
+        copyWith(brands, newBrands, ids.length, added);
+        newIds[added] = phone.getId();
+        newPrices[added] = price;
+        newBrands[added] = brand;
+
+        // rows from the added one on move one position down, the added row is put at its place in price order
+        int pricePosition = pricePosition(price, phone.getId());
+        int[] newRowsByPrice = new int[size];
+        for (int position = 0; position < rowsByPrice.length; position++) {
+            int row = rowsByPrice[position];
+            newRowsByPrice[position < pricePosition ? position : position + 1] = row >= added ? row + 1 : row;
+        }
+        newRowsByPrice[pricePosition] = added;
+
+        return Optional.of(new PhoneCatalogSnapshot(newIds, newPrices, newBrands, newRowsByPrice, newBrandCodes, priceScale));
+    }
+
+    private int rowOf(long id) {
+        for (int row = 0; row < ids.length; row++) {
+            if (ids[row] == id) {
+                return row;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    // position of the first row by price ordered after (price, id)
+    private int pricePosition(long price, long id) {
+        int low = 0;
+        int high = rowsByPrice.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int row = rowsByPrice[middle];
+            if (prices[row] < price || prices[row] == price && ids[row] < id) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // copies a column of the given length leaving out the row at the index
+    private static void copyWithout(Object source, Object target, int length, int index) {
+        System.arraycopy(source, 0, target, 0, index);
+        System.arraycopy(source, index + 1, target, index, length - index - 1);
+    }
+
+    // copies a column of the given length leaving the row at the index free
+    private static void copyWith(Object source, Object target, int length, int index) {
+        System.arraycopy(source, 0, target, 0, index);
+        System.arraycopy(source, index, target, index + 1, length - index);
+    }
+
+    /**
+     * Whether the request can be answered from a snapshot. Full-text search, characteristic ranges
+     * and sorts other than by name and price need the database.
+     */
+    static boolean supports(PhoneFilterDto filterDto, PhoneSort sort) {
+        return filterDto.q() == null && SORTS.contains(sort) && !filterDto.hasCharacteristicFilters();
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    /**
+     * Returns the requested page of phones matching the brand and price of the filter. Other filters are
+     * given as ids of matching phones, null when there are none.
+     */
+    PhoneIdPage findPage(PhoneFilterDto filterDto, PhoneSort sort, int page, int size, Roaring64Bitmap matchingIds) {
+        int brand = resolveBrand(filterDto.brand());
+        long minPrice = filterDto.minPrice() == null ? Long.MIN_VALUE : toScaled(filterDto.minPrice(), RoundingMode.CEILING);
+        long maxPrice = filterDto.maxPrice() == null ? Long.MAX_VALUE : toScaled(filterDto.maxPrice(), RoundingMode.FLOOR);
+        if (brand == UNKNOWN_BRAND || minPrice > maxPrice) {
+            return new PhoneIdPage(List.of(), 0);
+        }
+
+        long offset = (long) page * size;
+        List<Long> pageIds = new ArrayList<>(size);
+        long total = 0;
+        int rows = ids.length;
+        for (int position = 0; position < rows; position++) {
+            int row = rowAt(sort, position);
+            if ((brand == ANY_BRAND || brands[row] == brand) && prices[row] >= minPrice && prices[row] <= maxPrice
+                && (matchingIds == null || matchingIds.contains(ids[row]))) {
+                if (total >= offset && pageIds.size() < size) {
+                    pageIds.add(ids[row]);
+                }
+                total++;
+            }
+        }
+
+        return new PhoneIdPage(pageIds, total);
+    }
+
+    private int rowAt(PhoneSort sort, int position) {
+        return switch (sort) {
+            case NAME_ASC -> position;
+            case NAME_DESC -> ids.length - 1 - position;
+            case PRICE_ASC -> rowsByPrice[position];
+            case PRICE_DESC -> rowsByPrice[ids.length - 1 - position];
+            default -> throw new IllegalStateException("Sort isn't supported by catalog index: " + sort);
+        };
+    }
+
+    private int resolveBrand(String brand) {
+        if (brand == null || brand.isBlank()) {
+            return ANY_BRAND;
+        }
+
+        // lower-cased the same way as PhoneSpecification.hasBrand does
+        return brandCodes.getOrDefault(brand.toLowerCase(Locale.ROOT), UNKNOWN_BRAND);
+    }
+
+    private long toScaled(BigDecimal price, RoundingMode roundingMode) {
+        BigDecimal scaled = price.movePointRight(priceScale).setScale(0, roundingMode);
+        if (scaled.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) > 0) {
+            return Long.MAX_VALUE;
+        }
+        if (scaled.compareTo(BigDecimal.valueOf(Long.MIN_VALUE)) < 0) {
+            return Long.MIN_VALUE;
+        }
+
+        return scaled.longValue();
+    }
+
+}
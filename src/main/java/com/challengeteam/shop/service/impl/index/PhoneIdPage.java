@@ -0,0 +1,9 @@
+package com.challengeteam.shop.service.impl.index;
+
+import java.util.List;
+
+public record PhoneIdPage(
+        List<Long> ids,
+        long total
+) {
+}
@@ -3,8 +3,16 @@ package com.challengeteam.shop.service.impl.merger;
 import com.challengeteam.shop.dto.phone.PhoneUpdateRequestDto;
 import com.challengeteam.shop.entity.phone.Phone;
 
+import java.util.Map;
+
 public interface PhoneMerger {
 
     void mergePhone(Phone phone, PhoneUpdateRequestDto newPhone);
 
+    /**
+     * Returns new values of the phone attributes the update changes, keyed by their paths
+     * (e.g. {@code phoneCharacteristics.cpu}), with the numeric values of the changed characteristics.
+     */
+    Map<String, Object> getChangedAttributes(PhoneUpdateRequestDto newPhone);
+
 }
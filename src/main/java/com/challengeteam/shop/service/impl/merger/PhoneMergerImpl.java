@@ -2,9 +2,13 @@ package com.challengeteam.shop.service.impl.merger;
 
 import com.challengeteam.shop.dto.phone.PhoneUpdateRequestDto;
 import com.challengeteam.shop.entity.phone.Phone;
+import com.challengeteam.shop.entity.phone.PhoneCharacteristics;
+import com.challengeteam.shop.utility.PhoneCharacteristicsUtility;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
 
 @Component
@@ -69,6 +73,52 @@ public class PhoneMergerImpl implements PhoneMerger {
         if (batteryCapacity != null) {
             phone.getPhoneCharacteristics().setBatteryCapacity(batteryCapacity.trim());
         }
+
+        PhoneCharacteristicsUtility.updateNumericValues(phone.getPhoneCharacteristics());
+    }
+
+    @Override
+    public Map<String, Object> getChangedAttributes(PhoneUpdateRequestDto newPhone) {
+        Objects.requireNonNull(newPhone, "newPhone");
+
+        // merged into an empty phone, so only the present fields get values
+        Phone changed = new Phone();
+        changed.setPhoneCharacteristics(new PhoneCharacteristics());
+        mergePhone(changed, newPhone);
+
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        putIfPresent(attributes, "name", changed.getName());
+        putIfPresent(attributes, "description", changed.getDescription());
+        putIfPresent(attributes, "price", changed.getPrice());
+        putIfPresent(attributes, "brand", changed.getBrand());
+        putIfPresent(attributes, "releaseYear", changed.getReleaseYear());
+
+        // a numeric value is changed with its text value, even when it isn't parsed
+        PhoneCharacteristics characteristics = changed.getPhoneCharacteristics();
+        putIfPresent(attributes, "phoneCharacteristics.cpu", characteristics.getCpu());
+        putIfPresent(attributes, "phoneCharacteristics.coresNumber", characteristics.getCoresNumber());
+        if (putIfPresent(attributes, "phoneCharacteristics.screenSize", characteristics.getScreenSize())) {
+            attributes.put("phoneCharacteristics.screenInches", characteristics.getScreenInches());
+        }
+        if (putIfPresent(attributes, "phoneCharacteristics.frontCamera", characteristics.getFrontCamera())) {
+            attributes.put("phoneCharacteristics.frontCameraMp", characteristics.getFrontCameraMp());
+        }
+        if (putIfPresent(attributes, "phoneCharacteristics.mainCamera", characteristics.getMainCamera())) {
+            attributes.put("phoneCharacteristics.mainCameraMp", characteristics.getMainCameraMp());
+        }
+        if (putIfPresent(attributes, "phoneCharacteristics.batteryCapacity", characteristics.getBatteryCapacity())) {
+            attributes.put("phoneCharacteristics.batteryMah", characteristics.getBatteryMah());
+        }
+        return attributes;
+    }
+
+    private static boolean putIfPresent(Map<String, Object> attributes, String attribute, Object value) {
+        if (value == null) {
+            return false;
+        }
+
+        attributes.put(attribute, value);
+        return true;
     }
 
 }
@@ -0,0 +1,123 @@
+package com.challengeteam.shop.service.impl.popularity;
+
+import com.challengeteam.shop.persistence.repository.PhonePopularityRepository;
+import com.challengeteam.shop.properties.PhonePopularityProperties;
+import com.challengeteam.shop.service.event.PhonePopularityChangedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts how many times phones are put into carts and writes the counts to the database in batches.
+ * Updating the phone row within the cart transaction would lock it until the cart commits and rewrite
+ * the row with all its indexes and the search vector on every cart; flushed periodically, a phone is
+ * rewritten at most once per interval, in a short statement of its own.
+ * <p>
+ * A phone is counted once its cart commits. Counts not flushed yet are lost if the instance dies,
+ * popularity only orders phones, so it's an estimate anyway.
+ */
+@Slf4j
+@Component
+public class PhonePopularityCounter {
+    private final PhonePopularityRepository phonePopularityRepository;
+    private final PhonePopularityProperties properties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ScheduledExecutorService flushExecutor;
+    private final Map<Long, Long> pending = new ConcurrentHashMap<>();
+
+    public PhonePopularityCounter(PhonePopularityRepository phonePopularityRepository,
+                                  PhonePopularityProperties properties,
+                                  ApplicationEventPublisher eventPublisher) {
+        this.phonePopularityRepository = phonePopularityRepository;
+        this.properties = properties;
+        this.eventPublisher = eventPublisher;
+        this.flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "phone-popularity");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+
+    @PostConstruct
+    public void start() {
+        long interval = properties.getFlushInterval().toMillis();
+        flushExecutor.scheduleWithFixedDelay(this::flushScheduled, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Counts the phone put into a cart, after the current transaction commits.
+     */
+    public void count(Long phoneId) {
+        Objects.requireNonNull(phoneId, "phoneId");
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            pending.merge(phoneId, 1L, Long::sum);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                pending.merge(phoneId, 1L, Long::sum);
+            }
+        });
+    }
+
+    /**
+     * Writes the counted popularity to the database. Counts that fail to be written are kept for the next flush.
+     */
+    public void flush() {
+        // a phone counted meanwhile gets a new entry, it's flushed the next time
+        Map<Long, Long> counts = new HashMap<>();
+        for (Long phoneId : pending.keySet()) {
+            Long count = pending.remove(phoneId);
+            if (count != null) {
+                counts.put(phoneId, count);
+            }
+        }
+        if (counts.isEmpty()) {
+            return;
+        }
+
+        try {
+            phonePopularityRepository.addPopularity(counts);
+        } catch (RuntimeException e) {
+            counts.forEach((phoneId, count) -> pending.merge(phoneId, count, Long::sum));
+            log.warn("Failed to write popularity of {} phones, retrying with the next flush", counts.size(), e);
+            return;
+        }
+
+        eventPublisher.publishEvent(new PhonePopularityChangedEvent(Set.copyOf(counts.keySet())));
+        log.debug("Written popularity of {} phones", counts.size());
+    }
+
+    // an exception thrown out of the task would cancel the next flushes
+    private void flushScheduled() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Failed to flush popularity of phones", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdownNow();
+        flush();
+    }
+
+}
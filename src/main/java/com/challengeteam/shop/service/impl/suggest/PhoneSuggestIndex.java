@@ -0,0 +1,88 @@
+package com.challengeteam.shop.service.impl.suggest;
+
+import com.challengeteam.shop.dto.phone.suggest.PhoneSuggestResponseDto;
+import com.challengeteam.shop.persistence.repository.PhoneRepository;
+import com.challengeteam.shop.persistence.repository.projection.PhoneSuggestRow;
+import com.challengeteam.shop.service.event.PhoneChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Objects;
+
+/**
+ * In-memory autocomplete of phone names and brands. The catalog is loaded once, afterwards every
+ * committed change replaces only the changed phone in a new snapshot, so readers never wait for writers.
+ * Phones must be changed through the phone service, changes made around it aren't noticed.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PhoneSuggestIndex {
+    private final PhoneRepository phoneRepository;
+
+    // replaced under this lock, read without it
+    private volatile PhoneSuggestSnapshot snapshot;
+
+
+    public PhoneSuggestResponseDto suggest(String prefix, int limit) {
+        Objects.requireNonNull(prefix, "prefix");
+
+        PhoneSuggestSnapshot current = snapshot;
+        if (current == null) {
+            current = load();
+        }
+        return current.suggest(prefix, limit);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            log.warn("Failed to load phone suggestions, they are loaded by the first request", e);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onPhoneChanged(PhoneChangedEvent event) {
+        if (snapshot == null) {
+            return;
+        }
+        if (event.type() == PhoneChangedEvent.ChangeType.IMPORTED) {
+            // many phones at once, read together by the next request
+            snapshot = null;
+            return;
+        }
+
+        try {
+            // the phone is read while the lock is held, so changes applied in any order end with its last state
+            PhoneSuggestRow row = event.type() == PhoneChangedEvent.ChangeType.DELETED
+                    ? null
+                    : phoneRepository.findSuggestRowById(event.phoneId()).orElse(null);
+            snapshot = snapshot.withPhone(event.phoneId(), row);
+        } catch (RuntimeException e) {
+            log.warn("Failed to update phone suggestions, they are reloaded by the next request", e);
+            snapshot = null;
+        }
+    }
+
+    /**
+     * Replaces suggestions with the suggestions of the whole catalog.
+     */
+    public synchronized void reload() {
+        snapshot = PhoneSuggestSnapshot.build(phoneRepository.findSuggestRows());
+        log.debug("Phone suggestions loaded for {} phones", snapshot.size());
+    }
+
+    private synchronized PhoneSuggestSnapshot load() {
+        if (snapshot == null) {
+            reload();
+        }
+        return snapshot;
+    }
+
+}
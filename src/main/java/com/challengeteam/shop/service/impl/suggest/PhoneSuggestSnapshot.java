@@ -0,0 +1,299 @@
+package com.challengeteam.shop.service.impl.suggest;
+
+import com.challengeteam.shop.dto.phone.suggest.BrandSuggestionDto;
+import com.challengeteam.shop.dto.phone.suggest.PhoneNameSuggestionDto;
+import com.challengeteam.shop.dto.phone.suggest.PhoneSuggestResponseDto;
+import com.challengeteam.shop.persistence.repository.projection.PhoneSuggestRow;
+import com.challengeteam.shop.service.impl.brand.BrandSpellings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable prefix index of phone names and brands. Every name is indexed by each of its word suffixes
+ * ("samsung galaxy s24", "galaxy s24", "s24"), case-folded and kept in a sorted array, so the terms
+ * starting with a prefix are one contiguous range found by binary search. Phones of the range are
+ * suggested newest first: a segment tree over the term array finds the newest phone of any range, so the
+ * newest phones are found without scanning the range, however short the prefix is. Brands are suggested
+ * by number of phones and named the way facets name them.
+ * <p>
+ * A change produces a new snapshot by merging the changed phone into a copy of the arrays,
+ * without loading the catalog again.
+ */
+final class PhoneSuggestSnapshot {
+    private static final Pattern WHITESPACES = Pattern.compile("\\s+");
+    private static final String[] NO_TERMS = new String[0];
+
+    // sorted by term, termPhones[i] is the phone of terms[i]
+    private final String[] terms;
+    private final long[] termPhones;
+    // segment tree, node i holds the index of the term of the newest phone within its range
+    private final int[] newestTerms;
+    private final Map<Long, PhoneEntry> phones;
+    // sorted keys of brands, see BrandSpellings.key
+    private final String[] brandKeys;
+    private final Map<String, BrandSpellings> brands;
+
+    private PhoneSuggestSnapshot(String[] terms,
+                                 long[] termPhones,
+                                 Map<Long, PhoneEntry> phones,
+                                 String[] brandKeys,
+                                 Map<String, BrandSpellings> brands) {
+        this.terms = terms;
+        this.termPhones = termPhones;
+        this.newestTerms = buildNewestTerms(termPhones);
+        this.phones = phones;
+        this.brandKeys = brandKeys;
+        this.brands = brands;
+    }
+
+    static PhoneSuggestSnapshot build(List<? extends PhoneSuggestRow> rows) {
+        Objects.requireNonNull(rows, "rows");
+
+        List<TermEntry> entries = new ArrayList<>();
+        Map<Long, PhoneEntry> phones = new HashMap<>();
+        Map<String, BrandSpellings> brands = new HashMap<>();
+        for (PhoneSuggestRow row : rows) {
+            PhoneEntry phone = new PhoneEntry(row.getName(), row.getBrand());
+            phones.put(row.getId(), phone);
+            for (String term : termsOf(phone.name())) {
+                entries.add(new TermEntry(term, row.getId()));
+            }
+            addBrand(brands, phone.brand(), 1);
+        }
+        entries.sort(TermEntry.ORDER);
+
+        String[] terms = new String[entries.size()];
+        long[] termPhones = new long[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            terms[i] = entries.get(i).term();
+            termPhones[i] = entries.get(i).phoneId();
+        }
+
+        return new PhoneSuggestSnapshot(terms, termPhones, phones, sortedKeys(brands), brands);
+    }
+
+    /**
+     * Returns a snapshot where the phone with the given id is replaced by the given row,
+     * or removed when the row is null.
+     */
+    PhoneSuggestSnapshot withPhone(Long id, PhoneSuggestRow row) {
+        Objects.requireNonNull(id, "id");
+
+        Map<Long, PhoneEntry> newPhones = new HashMap<>(phones);
+        Map<String, BrandSpellings> newBrands = new HashMap<>(brands);
+        PhoneEntry removed = newPhones.remove(id);
+        if (removed != null) {
+            addBrand(newBrands, removed.brand(), -1);
+        }
+
+        List<TermEntry> added = new ArrayList<>();
+        if (row != null) {
+            PhoneEntry phone = new PhoneEntry(row.getName(), row.getBrand());
+            newPhones.put(id, phone);
+            addBrand(newBrands, phone.brand(), 1);
+            for (String term : termsOf(phone.name())) {
+                added.add(new TermEntry(term, id));
+            }
+            added.sort(TermEntry.ORDER);
+        }
+
+        // merge the remaining terms, already sorted, with the sorted terms of the phone
+        String[] newTerms = new String[terms.length + added.size()];
+        long[] newTermPhones = new long[terms.length + added.size()];
+        int next = 0;
+        int addedNext = 0;
+        for (int i = 0; i < terms.length; i++) {
+            if (termPhones[i] == id) {
+                continue;
+            }
+            while (addedNext < added.size() && added.get(addedNext).compareTo(terms[i], termPhones[i]) < 0) {
+                newTerms[next] = added.get(addedNext).term();
+                newTermPhones[next++] = id;
+                addedNext++;
+            }
+            newTerms[next] = terms[i];
+            newTermPhones[next++] = termPhones[i];
+        }
+        while (addedNext < added.size()) {
+            newTerms[next] = added.get(addedNext++).term();
+            newTermPhones[next++] = id;
+        }
+
+        return new PhoneSuggestSnapshot(
+                Arrays.copyOf(newTerms, next),
+                Arrays.copyOf(newTermPhones, next),
+                newPhones,
+                sortedKeys(newBrands),
+                newBrands
+        );
+    }
+
+    int size() {
+        return phones.size();
+    }
+
+    PhoneSuggestResponseDto suggest(String prefix, int limit) {
+        String key = fold(prefix);
+        if (key.isEmpty()) {
+            return new PhoneSuggestResponseDto(List.of(), List.of());
+        }
+
+        return new PhoneSuggestResponseDto(suggestBrands(key, limit), suggestPhones(key, limit));
+    }
+
+    private List<PhoneNameSuggestionDto> suggestPhones(String key, int limit) {
+        // the newest phones have the greatest ids; ranges are split around their newest term until enough
+        // distinct phones are found, a phone matching by several terms is kept once
+        PriorityQueue<TermRange> ranges = new PriorityQueue<>(
+                Comparator.comparingLong((TermRange range) -> termPhones[range.newest()]).reversed()
+        );
+        addRange(ranges, lowerBound(terms, key), lowerBound(terms, key + Character.MAX_VALUE));
+
+        Set<Long> newest = new LinkedHashSet<>();
+        while (newest.size() < limit && !ranges.isEmpty()) {
+            TermRange range = ranges.poll();
+            newest.add(termPhones[range.newest()]);
+            addRange(ranges, range.from(), range.newest());
+            addRange(ranges, range.newest() + 1, range.to());
+        }
+
+        List<PhoneNameSuggestionDto> result = new ArrayList<>(newest.size());
+        for (Long phoneId : newest) {
+            PhoneEntry phone = phones.get(phoneId);
+            result.add(new PhoneNameSuggestionDto(phoneId, phone.name(), phone.brand()));
+        }
+        return result;
+    }
+
+    private void addRange(PriorityQueue<TermRange> ranges, int from, int to) {
+        if (from < to) {
+            ranges.add(new TermRange(from, to, findNewest(from, to)));
+        }
+    }
+
+    private static int[] buildNewestTerms(long[] termPhones) {
+        int size = termPhones.length;
+        int[] tree = new int[2 * size];
+        for (int i = 0; i < size; i++) {
+            tree[size + i] = i;
+        }
+        for (int node = size - 1; node > 0; node--) {
+            tree[node] = newer(termPhones, tree[2 * node], tree[2 * node + 1]);
+        }
+        return tree;
+    }
+
+    // index of the term of the newest phone among terms [from, to)
+    private int findNewest(int from, int to) {
+        int size = termPhones.length;
+        int result = from;
+        for (int left = from + size, right = to + size; left < right; left >>= 1, right >>= 1) {
+            if ((left & 1) == 1) {
+                result = newer(termPhones, result, newestTerms[left++]);
+            }
+            if ((right & 1) == 1) {
+                result = newer(termPhones, result, newestTerms[--right]);
+            }
+        }
+        return result;
+    }
+
+    private static int newer(long[] termPhones, int a, int b) {
+        return termPhones[a] >= termPhones[b] ? a : b;
+    }
+
+    private List<BrandSuggestionDto> suggestBrands(String key, int limit) {
+        int end = lowerBound(brandKeys, key + Character.MAX_VALUE);
+        return Arrays.stream(brandKeys, lowerBound(brandKeys, key), end)
+                .map(brands::get)
+                .map(brand -> new BrandSuggestionDto(brand.name(), brand.phonesCount()))
+                .sorted(Comparator.comparingLong(BrandSuggestionDto::phonesCount).reversed()
+                        .thenComparing(BrandSuggestionDto::brand))
+                .limit(limit)
+                .toList();
+    }
+
+    // index of the first element not less than the key
+    private static int lowerBound(String[] sorted, String key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle].compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    static String fold(String text) {
+        return WHITESPACES.matcher(text.strip()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    static String[] termsOf(String name) {
+        String folded = fold(name);
+        if (folded.isEmpty()) {
+            return NO_TERMS;
+        }
+
+        List<String> result = new ArrayList<>();
+        result.add(folded);
+        for (int i = folded.indexOf(' '); i >= 0; i = folded.indexOf(' ', i + 1)) {
+            result.add(folded.substring(i + 1));
+        }
+        return result.toArray(NO_TERMS);
+    }
+
+    private static void addBrand(Map<String, BrandSpellings> brands, String brand, int delta) {
+        brands.compute(BrandSpellings.key(brand), (key, spellings) -> {
+            BrandSpellings changed = (spellings == null ? BrandSpellings.NONE : spellings).with(brand, delta);
+            return changed.isEmpty() ? null : changed;
+        });
+    }
+
+    private static String[] sortedKeys(Map<String, BrandSpellings> brands) {
+        String[] keys = brands.keySet().toArray(NO_TERMS);
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    private record PhoneEntry(
+            String name,
+            String brand
+    ) {
+    }
+
+    private record TermRange(
+            int from,
+            int to,
+            int newest
+    ) {
+    }
+
+    private record TermEntry(
+            String term,
+            long phoneId
+    ) {
+        private static final Comparator<TermEntry> ORDER = Comparator.comparing(TermEntry::term)
+                .thenComparingLong(TermEntry::phoneId);
+
+        private int compareTo(String otherTerm, long otherPhoneId) {
+            int byTerm = term.compareTo(otherTerm);
+            return byTerm != 0 ? byTerm : Long.compare(phoneId, otherPhoneId);
+        }
+    }
+
+}
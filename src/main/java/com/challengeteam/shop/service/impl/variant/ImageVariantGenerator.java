@@ -0,0 +1,221 @@
+package com.challengeteam.shop.service.impl.variant;
+
+import com.challengeteam.shop.exceptionHandling.exception.ImageStorageException;
+import com.challengeteam.shop.persistence.storage.ImageStorage;
+import com.challengeteam.shop.properties.ImageVariantProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Resizes an image to the configured widths and puts the variants into the storage under keys derived
+ * from the key of the original, see {@link #variantKey(String, int)}. The aspect ratio is kept and an image
+ * is never enlarged, so a narrower image gets only the narrower variants. JPEG images are resized to JPEG
+ * and PNG images to PNG, keeping their transparency.
+ * <p>
+ * The widest variant is resized from the original and every next one from the previous variant, halving
+ * the size at most per step, which keeps the thumbnails sharp and avoids decoding the original again.
+ * <p>
+ * A decoded image takes 4 bytes per pixel, so only as many images are decoded at once as fit into half
+ * of the heap when all of them have the largest allowed size.
+ */
+@Slf4j
+@Component
+public class ImageVariantGenerator {
+    private static final String VARIANT_KEY_PREFIX = "variants/";
+    // the decoded original and the first step of the resize, a quarter of it
+    private static final long BYTES_PER_SOURCE_PIXEL = 5;
+
+    private final ImageStorage imageStorage;
+    private final ImageVariantProperties imageVariantProperties;
+    private final Semaphore decodes;
+
+    public ImageVariantGenerator(ImageStorage imageStorage, ImageVariantProperties imageVariantProperties) {
+        this.imageStorage = imageStorage;
+        this.imageVariantProperties = imageVariantProperties;
+        long bytesPerDecode = Math.max(1, imageVariantProperties.getMaxSourcePixels() * BYTES_PER_SOURCE_PIXEL);
+        this.decodes = new Semaphore((int) Math.max(1, Math.min(Integer.MAX_VALUE,
+                Runtime.getRuntime().maxMemory() / 2 / bytesPerDecode)));
+    }
+
+    public static String variantKey(String storageKey, int width) {
+        Objects.requireNonNull(storageKey, "storageKey");
+
+        return VARIANT_KEY_PREFIX + width + "/" + storageKey;
+    }
+
+    public boolean isEnabled() {
+        return imageVariantProperties.isEnabled();
+    }
+
+    /**
+     * Puts the variants of the image into the storage and returns their widths, in ascending order.
+     * An image which can't be decoded, or is too large to be decoded, has no variants.
+     */
+    public List<Integer> generate(String storageKey, String mimeType, byte[] image) throws ImageStorageException {
+        Objects.requireNonNull(storageKey, "storageKey");
+        Objects.requireNonNull(mimeType, "mimeType");
+        Objects.requireNonNull(image, "image");
+
+        Optional<Format> format = Format.of(mimeType);
+        if (format.isEmpty()) {
+            log.debug("No variants of image with key {} of type {}", storageKey, mimeType);
+            return List.of();
+        }
+
+        decodes.acquireUninterruptibly();
+        try {
+            return generate(storageKey, format.get(), image);
+        } finally {
+            decodes.release();
+        }
+    }
+
+    private List<Integer> generate(String storageKey, Format format, byte[] image) throws ImageStorageException {
+        Optional<BufferedImage> original;
+        try {
+            original = decode(image);
+        } catch (IOException | RuntimeException e) {
+            // decoders throw runtime exceptions on some malformed images too
+            log.warn("Failed to decode image with key {}, it has no variants", storageKey, e);
+            return List.of();
+        }
+        if (original.isEmpty()) {
+            log.warn("Image with key {} can't be decoded, it has no variants", storageKey);
+            return List.of();
+        }
+
+        List<Integer> widths = imageVariantProperties.getWidths()
+                .stream()
+                .filter(width -> width > 0 && width < original.get().getWidth())
+                .distinct()
+                .sorted(Comparator.reverseOrder())
+                .toList();
+
+        List<Integer> generated = new ArrayList<>(widths.size());
+        BufferedImage source = original.get();
+        for (int width : widths) {
+            source = resize(source, width, format);
+            byte[] variant;
+            try {
+                variant = encode(source, format);
+            } catch (IOException e) {
+                throw new ImageStorageException("Failed to encode variant of image with key: " + storageKey, e);
+            }
+
+            imageStorage.putImage(variantKey(storageKey, width), variant, format.mimeType);
+            generated.add(0, width);
+        }
+
+        log.debug("Generated variants {} of image with key {}", generated, storageKey);
+        return List.copyOf(generated);
+    }
+
+    // the size is read from the header first, an image of a few MB may need GBs when decoded
+    private Optional<BufferedImage> decode(byte[] image) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(image))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return Optional.empty();
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > imageVariantProperties.getMaxSourcePixels()) {
+                    log.debug("Image of {} pixels is too large to be decoded", pixels);
+                    return Optional.empty();
+                }
+                return Optional.of(reader.read(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    static BufferedImage resize(BufferedImage source, int width, Format format) {
+        int height = (int) Math.max(1, Math.round((double) source.getHeight() * width / source.getWidth()));
+
+        BufferedImage current = source;
+        do {
+            int stepWidth = Math.max(width, current.getWidth() / 2);
+            int stepHeight = Math.max(height, current.getHeight() / 2);
+
+            BufferedImage next = new BufferedImage(stepWidth, stepHeight, format.imageType);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, stepWidth, stepHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (current.getWidth() != width || current.getHeight() != height);
+
+        return current;
+    }
+
+    private byte[] encode(BufferedImage image, Format format) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format.name).next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if (format == Format.JPEG) {
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(imageVariantProperties.getJpegQuality());
+        }
+
+        var out = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(imageOut);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    enum Format {
+        JPEG("jpeg", "image/jpeg", BufferedImage.TYPE_INT_RGB),
+        PNG("png", "image/png", BufferedImage.TYPE_INT_ARGB);
+
+        private final String name;
+        private final String mimeType;
+        private final int imageType;
+
+        Format(String name, String mimeType, int imageType) {
+            this.name = name;
+            this.mimeType = mimeType;
+            this.imageType = imageType;
+        }
+
+        static Optional<Format> of(String mimeType) {
+            return switch (mimeType) {
+                case "image/jpeg", "image/jpg" -> Optional.of(JPEG);
+                case "image/png" -> Optional.of(PNG);
+                default -> Optional.empty();
+            };
+        }
+    }
+
+}
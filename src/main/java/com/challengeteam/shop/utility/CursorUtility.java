@@ -0,0 +1,48 @@
+package com.challengeteam.shop.utility;
+
+import com.challengeteam.shop.dto.pagination.PhoneCursor;
+import com.challengeteam.shop.exceptionHandling.exception.CursorUtilityException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Encodes keyset positions into opaque url-safe cursors and back.
+ * Format before encoding: {@code sort \n id \n key}. The key goes last, so it may contain any characters.
+ */
+public class CursorUtility {
+    public static final String CURSOR_SEPARATOR = "\n";
+
+    public static String encode(PhoneCursor cursor) {
+        Objects.requireNonNull(cursor, "cursor");
+
+        String raw = cursor.sort() + CURSOR_SEPARATOR + cursor.id() + CURSOR_SEPARATOR + cursor.key();
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PhoneCursor decode(String cursor) throws CursorUtilityException {
+        Objects.requireNonNull(cursor, "cursor");
+
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new CursorUtilityException("Cursor is not a valid base64 string", e);
+        }
+
+        String[] parts = raw.split(CURSOR_SEPARATOR, 3);
+        if (parts.length != 3) {
+            throw new CursorUtilityException("Cursor has wrong format");
+        }
+
+        try {
+            return new PhoneCursor(parts[0], parts[2], Long.parseLong(parts[1]));
+        } catch (NumberFormatException e) {
+            throw new CursorUtilityException("Cursor contains invalid id", e);
+        }
+    }
+
+}
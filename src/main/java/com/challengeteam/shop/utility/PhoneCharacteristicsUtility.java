@@ -0,0 +1,72 @@
+package com.challengeteam.shop.utility;
+
+import com.challengeteam.shop.entity.phone.PhoneCharacteristics;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses numeric values out of the text characteristics of a phone, e.g. 6.7 of {@code 6.7"} or 5000 of
+ * {@code 5000 mAh}. The first number of a value is taken, for cameras it is the main sensor
+ * ({@code 48-12-12 MP} gives 48). A value without a number, or one that doesn't fit its column, gives null.
+ * <p>
+ * The backfill migration V15 parses the stored values the same way.
+ */
+public class PhoneCharacteristicsUtility {
+    private static final Pattern NUMBER = Pattern.compile("\\d+(\\.\\d+)?");
+    private static final Pattern INTEGER = Pattern.compile("\\d+");
+    // screen_inches is DECIMAL(4, 2)
+    private static final BigDecimal MAX_SCREEN_INCHES = new BigDecimal("99.99");
+    private static final int MAX_INTEGER_DIGITS = 9;
+
+    /**
+     * Fills numeric values of the characteristics from their text values.
+     */
+    public static void updateNumericValues(PhoneCharacteristics characteristics) {
+        Objects.requireNonNull(characteristics, "characteristics");
+
+        characteristics.setScreenInches(parseScreenInches(characteristics.getScreenSize()));
+        characteristics.setBatteryMah(parseBatteryMah(characteristics.getBatteryCapacity()));
+        characteristics.setMainCameraMp(parseMegapixels(characteristics.getMainCamera()));
+        characteristics.setFrontCameraMp(parseMegapixels(characteristics.getFrontCamera()));
+    }
+
+    public static BigDecimal parseScreenInches(String screenSize) {
+        if (screenSize == null) {
+            return null;
+        }
+
+        Matcher matcher = NUMBER.matcher(screenSize);
+        if (!matcher.find()) {
+            return null;
+        }
+
+        BigDecimal inches = new BigDecimal(matcher.group()).setScale(2, RoundingMode.HALF_UP);
+        return inches.compareTo(MAX_SCREEN_INCHES) <= 0 ? inches : null;
+    }
+
+    public static Integer parseBatteryMah(String batteryCapacity) {
+        return parseFirstInteger(batteryCapacity);
+    }
+
+    public static Integer parseMegapixels(String camera) {
+        return parseFirstInteger(camera);
+    }
+
+    private static Integer parseFirstInteger(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        Matcher matcher = INTEGER.matcher(value);
+        if (!matcher.find() || matcher.group().length() > MAX_INTEGER_DIGITS) {
+            return null;
+        }
+
+        return Integer.valueOf(matcher.group());
+    }
+
+}
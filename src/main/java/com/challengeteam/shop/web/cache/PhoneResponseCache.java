@@ -0,0 +1,165 @@
+package com.challengeteam.shop.web.cache;
+
+import com.challengeteam.shop.dto.pagination.PhoneFilterDto;
+import com.challengeteam.shop.exceptionHandling.exception.CriticalSystemException;
+import com.challengeteam.shop.properties.PhoneResponseCacheProperties;
+import com.challengeteam.shop.persistence.specification.PhoneSort;
+import com.challengeteam.shop.service.event.PhoneChangedEvent;
+import com.challengeteam.shop.service.event.PhonePopularityChangedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Serialized JSON bodies of phone list pages and phones, so repeated requests are answered without
+ * reading the database and serializing the response again. The cache is bounded by the bytes of the
+ * bodies and reports hits, misses and evictions as the {@code phone.responses} cache metrics.
+ * <p>
+ * A created, updated or deleted phone can move between any of the filtered pages, so such a change
+ * drops all cached pages and the phone itself; a change of images only drops the phone and the pages
+ * showing it. Written popularity only drops the pages sorted by it. A body loaded concurrently with
+ * a change isn't kept, the TTL is only a safety bound.
+ */
+@Slf4j
+@Component
+public class PhoneResponseCache {
+    static final String CACHE_NAME = "phone.responses";
+
+    private final ObjectMapper objectMapper;
+    private final PhoneResponseCacheProperties phoneResponseCacheProperties;
+    private final Cache<Object, CachedResponse> responses;
+    // changed before entries are dropped, so a load that overlapped a change can tell
+    private final AtomicLong generation = new AtomicLong();
+
+    public PhoneResponseCache(ObjectMapper objectMapper,
+                              PhoneResponseCacheProperties phoneResponseCacheProperties,
+                              MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.phoneResponseCacheProperties = phoneResponseCacheProperties;
+        this.responses = Caffeine.newBuilder()
+                .maximumWeight(phoneResponseCacheProperties.getMaxSize().toBytes())
+                .weigher((Object key, CachedResponse response) -> response.body().length)
+                .expireAfterWrite(phoneResponseCacheProperties.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, CACHE_NAME);
+    }
+
+
+    /**
+     * Returns the serialized page of phones, loading it on a miss.
+     *
+     * @param phoneIds ids of the phones on the loaded page, so a change of their images drops it
+     */
+    public <T> byte[] getPage(int page,
+                              int size,
+                              PhoneFilterDto filterDto,
+                              Supplier<T> loader,
+                              Function<T, long[]> phoneIds) {
+        Objects.requireNonNull(filterDto, "filterDto");
+        Objects.requireNonNull(loader, "loader");
+        Objects.requireNonNull(phoneIds, "phoneIds");
+
+        PageKey key = new PageKey(baseUrl(), page, size, filterDto);
+        return get(key, () -> {
+            T response = loader.get();
+            return new CachedResponse(serialize(response), phoneIds.apply(response));
+        });
+    }
+
+    /**
+     * Returns the serialized phone, loading it on a miss. Exceptions of the loader, e.g. for a missing
+     * phone, are thrown as is and nothing is cached.
+     */
+    public byte[] getPhone(Long id, Supplier<?> loader) {
+        Objects.requireNonNull(id, "id");
+        Objects.requireNonNull(loader, "loader");
+
+        PhoneKey key = new PhoneKey(baseUrl(), id);
+        return get(key, () -> new CachedResponse(serialize(loader.get()), new long[]{id}));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPhoneChanged(PhoneChangedEvent event) {
+        // imported phones are new, so only pages show them
+        Long phoneId = event.phoneId();
+        boolean dropPages = event.type() != PhoneChangedEvent.ChangeType.IMAGES_CHANGED;
+
+        generation.incrementAndGet();
+        responses.asMap().entrySet().removeIf(entry ->
+                (dropPages && entry.getKey() instanceof PageKey)
+                || (phoneId != null && entry.getValue().contains(phoneId))
+        );
+        log.debug("Invalidated cached phone responses after {} of phone with id: {}", event.type(), phoneId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPhonePopularityChanged(PhonePopularityChangedEvent event) {
+        // the phones are the same, only pages sorted by popularity may order them differently
+        generation.incrementAndGet();
+        responses.asMap().keySet().removeIf(key ->
+                key instanceof PageKey pageKey && PhoneSort.fromParam(pageKey.filterDto().sortOrDefault()) == PhoneSort.POPULARITY
+        );
+        log.debug("Invalidated cached phone pages sorted by popularity of {} phones", event.phoneIds().size());
+    }
+
+    private byte[] get(Object key, Supplier<CachedResponse> loader) {
+        if (!phoneResponseCacheProperties.isEnabled()) {
+            return loader.get().body();
+        }
+
+        CachedResponse cached = responses.getIfPresent(key);
+        if (cached != null) {
+            return cached.body();
+        }
+
+        long loadedAt = generation.get();
+        CachedResponse loaded = loader.get();
+        responses.put(key, loaded);
+        if (generation.get() != loadedAt) {
+            // may have been read before the change committed
+            responses.asMap().remove(key, loaded);
+        }
+        return loaded.body();
+    }
+
+    private byte[] serialize(Object response) {
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new CriticalSystemException("Failed to serialize phone response", e);
+        }
+    }
+
+    // urls of images in the responses are built from the url of the request
+    private static String baseUrl() {
+        return ServletUriComponentsBuilder.fromCurrentContextPath().toUriString();
+    }
+
+    private record PageKey(String baseUrl, int page, int size, PhoneFilterDto filterDto) {
+    }
+
+    private record PhoneKey(String baseUrl, Long id) {
+    }
+
+    private record CachedResponse(byte[] body, long[] phoneIds) {
+
+        boolean contains(long phoneId) {
+            return Arrays.stream(phoneIds).anyMatch(id -> id == phoneId);
+        }
+    }
+
+}
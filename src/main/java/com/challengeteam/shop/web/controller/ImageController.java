@@ -6,39 +6,86 @@ import com.challengeteam.shop.entity.image.Image;
 import com.challengeteam.shop.exceptionHandling.exception.ResourceNotFoundException;
 import com.challengeteam.shop.mapper.ImageMapper;
 import com.challengeteam.shop.service.ImageService;
+import com.challengeteam.shop.service.ImageVariantBackfillService;
 import com.challengeteam.shop.web.resolver.headerResolver.imageHeaderResolver.ImageHeadersResolver;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.Resource;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Optional;
+
+@Slf4j
 @RequiredArgsConstructor
+@Validated
 @RestController
 @RequestMapping("/api/v1/images")
 @SecurityRequirement(name = "bearer-jwt")
 public class ImageController {
     private final ImageHeadersResolver imageHeadersResolver;
     private final ImageService imageService;
+    private final ImageVariantBackfillService imageVariantBackfillService;
     private final ImageMapper imageMapper;
 
 
     @Operation(
             summary = "Endpoint for retrieving in-line image",
-            description = "Returns an image as a byte array by id. No additional information is returned."
+            description = "Returns an image as a byte array by id. No additional information is returned. " +
+                          "A single byte range can be requested with the 'Range' header, e.g. to resume " +
+                          "an interrupted download; the part is returned with 206 Partial Content. " +
+                          "With 'If-Range' the part is returned only if the ETag of the image still matches, " +
+                          "otherwise the whole image is returned. With 'w' the smallest resized variant at least " +
+                          "this wide is returned, e.g. w=160 for thumbnails, or the original when there is none."
     )
     @GetMapping("/{id}")
-    public ResponseEntity<Resource> getImage(@PathVariable Long id) {
-        ImageDataDto imageDataDto = imageService
-                .downloadImageById(id)
+    public ResponseEntity<StreamingResponseBody> getImage(
+            @PathVariable Long id,
+            @RequestParam(value = "w", required = false) @Positive Integer width,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange
+    ) {
+        // the range is decided before the image is opened
+        Optional<String> version = width == null
+                ? imageService.getImageVersion(id)
+                : imageService.getImageVersion(id, width);
+        String eTag = version
+                .map(v -> "\"" + v + "\"")
+                .orElseThrow(() -> new ResourceNotFoundException("Not found image with id: " + id));
+
+        Optional<HttpRange> httpRange = resolveRange(range, ifRange, eTag);
+        ImageDataDto imageDataDto = download(id, width, httpRange.orElse(null))
                 .orElseThrow(() -> new ResourceNotFoundException("Not found image with id: " + id));
 
-        HttpHeaders headers = imageHeadersResolver.resolveHeaders(imageDataDto);
-        Resource body = imageMapper.toResource(imageDataDto);
+        HttpHeaders headers;
+        try {
+            headers = imageHeadersResolver.resolveHeaders(imageDataDto);
+        } catch (RuntimeException e) {
+            closeQuietly(imageDataDto.imageStream());
+            throw e;
+        }
+        headers.setETag(eTag);
+
+        // the image goes to the client through a fixed-size buffer whatever its size,
+        // an image cached on the disk too, it is copied from its file chunk by chunk
+        StreamingResponseBody body = outputStream -> {
+            try (InputStream in = imageDataDto.imageStream()) {
+                in.transferTo(outputStream);
+            }
+        };
+        HttpStatus status = imageDataDto.isPartial() ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK;
         return ResponseEntity
-                .ok()
+                .status(status)
                 .headers(headers)
                 .body(body);
     }
@@ -58,4 +105,57 @@ public class ImageController {
         return ResponseEntity.ok(body);
     }
 
+    @Operation(
+            summary = "Endpoint for generating missing resized variants of images",
+            description = "Generates the resized variants of images uploaded before variants were generated, " +
+                          "or whose generation failed. Images are resized in parallel and saved one by one, " +
+                          "so an interrupted backfill continues with the remaining images when it's started again. " +
+                          "The backfill runs in the background, its progress is logged. Returns 400 when " +
+                          "a backfill is already running."
+    )
+    @PostMapping("/variants/backfill")
+    public ResponseEntity<Void> backfillVariants() {
+        imageVariantBackfillService.backfill();
+
+        return ResponseEntity.accepted().build();
+    }
+
+    private Optional<ImageDataDto> download(Long id, Integer width, HttpRange range) {
+        if (width == null) {
+            return range == null
+                    ? imageService.downloadImageById(id)
+                    : imageService.downloadImageById(id, range);
+        }
+        return range == null
+                ? imageService.downloadImageById(id, width)
+                : imageService.downloadImageById(id, width, range);
+    }
+
+    // a range that can't be parsed, as well as several ranges, is ignored and the whole image is returned
+    private static Optional<HttpRange> resolveRange(String range, String ifRange, String eTag) {
+        if (range == null) {
+            return Optional.empty();
+        }
+        // the part is only useful together with the parts the client already has of the same image
+        if (ifRange != null && !ifRange.equals(eTag)) {
+            return Optional.empty();
+        }
+
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(range);
+            return ranges.size() == 1 ? Optional.of(ranges.get(0)) : Optional.empty();
+        } catch (IllegalArgumentException e) {
+            log.debug("Ignored invalid range: {}", range);
+            return Optional.empty();
+        }
+    }
+
+    private static void closeQuietly(InputStream stream) {
+        try {
+            stream.close();
+        } catch (IOException e) {
+            log.warn("Failed to close image stream", e);
+        }
+    }
+
 }
@@ -1,33 +1,71 @@
 package com.challengeteam.shop.web.controller;
 
 import com.challengeteam.shop.dto.image.ImageMetadataResponseDto;
+import com.challengeteam.shop.dto.pagination.CursorPage;
+import com.challengeteam.shop.dto.pagination.CursorPageRequestDto;
+import com.challengeteam.shop.dto.pagination.CursorPageResponseDto;
 import com.challengeteam.shop.dto.pagination.PageRequestDto;
 import com.challengeteam.shop.dto.pagination.PageResponseDto;
 import com.challengeteam.shop.dto.pagination.PhoneFilterDto;
 import com.challengeteam.shop.dto.phone.PhoneCreateRequestDto;
+import com.challengeteam.shop.dto.phone.PhoneIdsRequestDto;
 import com.challengeteam.shop.dto.phone.PhoneResponseDto;
 import com.challengeteam.shop.dto.phone.PhoneUpdateRequestDto;
+import com.challengeteam.shop.dto.phone.PhoneView;
+import com.challengeteam.shop.dto.phone.PhonesByIdsResponseDto;
+import com.challengeteam.shop.dto.phone.bulk.PhoneImportResponseDto;
+import com.challengeteam.shop.dto.phone.facet.PhoneFacetsResponseDto;
+import com.challengeteam.shop.dto.phone.suggest.PhoneSuggestRequestDto;
+import com.challengeteam.shop.dto.phone.suggest.PhoneSuggestResponseDto;
 import com.challengeteam.shop.entity.image.Image;
 import com.challengeteam.shop.entity.phone.Phone;
 import com.challengeteam.shop.exceptionHandling.exception.ResourceNotFoundException;
 import com.challengeteam.shop.mapper.ImageMapper;
 import com.challengeteam.shop.mapper.PhoneMapper;
+import com.challengeteam.shop.service.PhoneExportService;
+import com.challengeteam.shop.service.PhoneFacetService;
+import com.challengeteam.shop.service.PhoneImportService;
 import com.challengeteam.shop.service.PhoneService;
+import com.challengeteam.shop.service.PhoneSuggestService;
+import com.challengeteam.shop.service.PhoneVersionService;
+import com.challengeteam.shop.web.cache.PhoneResponseCache;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
 import lombok.*;
 import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/v1/phones")
@@ -35,42 +73,219 @@ import java.util.List;
 @SecurityRequirement(name = "bearer-jwt")
 @Validated
 public class PhoneController {
+    private static final int EXPORT_BUFFER_SIZE = 8192;
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
+    // clients may keep responses, but revalidate them by ETag before use
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     private final PhoneService phoneService;
+    private final PhoneFacetService phoneFacetService;
+    private final PhoneSuggestService phoneSuggestService;
+    private final PhoneVersionService phoneVersionService;
+    private final PhoneExportService phoneExportService;
+    private final PhoneImportService phoneImportService;
+    private final PhoneResponseCache phoneResponseCache;
     private final PhoneMapper phoneMapper;
     private final ImageMapper imageMapper;
+    private final ObjectMapper objectMapper;
 
     @Operation(
             summary = "Get paginated list of phones",
             description = "Returns a paginated list of phones. " +
-                          "Use 'page' and 'size' query parameters to control pagination."
+                          "Use 'page' and 'size' query parameters to control pagination. " +
+                          "Use 'q' to search by name, brand, cpu and description; search results are sorted " +
+                          "by relevance unless another sort is requested. " +
+                          "Ranges of screen size, battery capacity, main and front camera resolution and number " +
+                          "of cores are inclusive, e.g. 'minBatteryMah=5000' or 'minScreenInches=6.1&maxScreenInches=6.7'. " +
+                          "'brands', 'coresNumbers', 'releaseYears' and 'cpus' select phones having any of the given " +
+                          "values, e.g. 'brands=Apple,Google&releaseYears=2024'; different filters are combined. " +
+                          "The response has a weak ETag that changes with any change of the catalog; " +
+                          "a request with a matching 'If-None-Match' gets 304 Not Modified. " +
+                          "Repeated pages are served from the server cache until the catalog changes."
+    )
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = PageResponseDto.class))
     )
     @GetMapping
-    public ResponseEntity<PageResponseDto<PhoneResponseDto>> getAllPhones(
+    public ResponseEntity<byte[]> getAllPhones(
             @Valid PageRequestDto pageRequestDto,
-            @Valid PhoneFilterDto filterDto
+            @Valid PhoneFilterDto filterDto,
+            WebRequest webRequest
     ) {
+        // decided before the page is loaded
+        if (webRequest.checkNotModified(catalogETag())) {
+            return null;
+        }
 
         int page = pageRequestDto.page() - 1;
         int size = pageRequestDto.size();
 
-        Page<Phone> phones = phoneService.getPhones(page, size, filterDto);
-        Page<PhoneResponseDto> response = phones.map(phoneMapper::toResponse);
+        byte[] response = phoneResponseCache.getPage(
+                page,
+                size,
+                filterDto,
+                () -> {
+                    Page<PhoneView> phones = phoneService.getPhoneViews(page, size, filterDto);
+                    return PageResponseDto.of(phones.map(phoneMapper::toResponse));
+                },
+                phones -> phones.content().stream().mapToLong(PhoneResponseDto::id).toArray()
+        );
+
+        return ResponseEntity.ok()
+                .cacheControl(REVALIDATE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(response);
+    }
+
+    @Operation(
+            summary = "Get list of phones by cursor",
+            description = "Returns phones placed after the given cursor. Pass an empty 'cursor' to get the first page " +
+                          "and then pass the returned 'next' value to get the following one. Supports the same filters " +
+                          "and sorts as the paginated list except relevance, so search results are sorted by name unless " +
+                          "another sort is requested, and it doesn't count total elements. " +
+                          "Response time doesn't depend on how deep the page is. " +
+                          "ETags work the same way as for the paginated list."
+    )
+    @GetMapping(params = "cursor")
+    public ResponseEntity<CursorPageResponseDto<PhoneResponseDto>> getPhonesByCursor(
+            @Valid CursorPageRequestDto cursorPageRequestDto,
+            @Valid PhoneFilterDto filterDto,
+            WebRequest webRequest
+    ) {
+        if (webRequest.checkNotModified(catalogETag())) {
+            return null;
+        }
+
+        int size = cursorPageRequestDto.size();
+
+        CursorPage<Phone> phones = phoneService.getPhonesByCursor(cursorPageRequestDto.cursor(), size, filterDto);
+        CursorPage<PhoneResponseDto> response = phones.map(phoneMapper::toResponse);
+
+        return ResponseEntity.ok()
+                .cacheControl(REVALIDATE)
+                .body(CursorPageResponseDto.of(response, size));
+    }
+
+    @Operation(
+            summary = "Get phones by ids",
+            description = "Returns phones with the given ids in the order of the ids, e.g. 'ids=3,1,2'. " +
+                          "A repeated id is returned once. Ids of phones that don't exist are returned in " +
+                          "'missingIds' instead of failing the request. Takes at most 100 ids."
+    )
+    @GetMapping(params = {"ids", "!cursor"})
+    public ResponseEntity<PhonesByIdsResponseDto> getPhonesByIds(@Valid PhoneIdsRequestDto idsRequestDto) {
+        List<Long> ids = idsRequestDto.ids();
+
+        List<PhoneResponseDto> phones = phoneService
+                .getViewsByIds(ids)
+                .stream()
+                .map(phoneMapper::toResponse)
+                .toList();
+        Set<Long> foundIds = phones.stream().map(PhoneResponseDto::id).collect(Collectors.toSet());
+        List<Long> missingIds = ids.stream()
+                .distinct()
+                .filter(id -> !foundIds.contains(id))
+                .toList();
+
+        return ResponseEntity.ok(new PhonesByIdsResponseDto(phones, missingIds));
+    }
+
+    @Operation(
+            summary = "Get facet counts of phones",
+            description = "Returns counts of phones matching the given filters per brand, per price bucket " +
+                          "and per release year. Accepts the same filters as the paginated list, " +
+                          "the sort is ignored. Price buckets are configured on the server."
+    )
+    @GetMapping("/facets")
+    public ResponseEntity<PhoneFacetsResponseDto> getPhoneFacets(@Valid PhoneFilterDto filterDto) {
+        PhoneFacetsResponseDto response = phoneFacetService.getFacets(filterDto);
 
-        return ResponseEntity.ok(PageResponseDto.of(response));
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(
+            summary = "Suggest phones and brands by prefix",
+            description = "Returns brands and phones whose name or any word of the name starts with the given prefix, " +
+                          "ignoring case. Brands are ordered by number of phones, phones from the newest. " +
+                          "Use 'limit' to control how many of each are returned."
+    )
+    @GetMapping("/suggest")
+    public ResponseEntity<PhoneSuggestResponseDto> suggestPhones(@Valid PhoneSuggestRequestDto suggestRequestDto) {
+        PhoneSuggestResponseDto response = phoneSuggestService.suggest(
+                suggestRequestDto.prefix(),
+                suggestRequestDto.limit()
+        );
+
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(
+            summary = "Export all phones",
+            description = "Streams the whole catalog ordered by id as newline-delimited JSON, one phone with " +
+                          "its images per line, in the same format as the phone by id. Meant for feeds and " +
+                          "analytics that need every phone instead of paging the list. " +
+                          "The response is compressed with gzip when the request accepts it."
+    )
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = PhoneResponseDto.class))
+    )
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportPhones(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        boolean gzip = acceptsGzip(acceptEncoding);
+        // lines are flushed by the buffers of gzip and the servlet, not one by one
+        ObjectWriter writer = objectMapper
+                .writerFor(PhoneResponseDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = outputStream -> {
+            try (OutputStream out = gzip ? new GZIPOutputStream(outputStream, EXPORT_BUFFER_SIZE) : outputStream;
+                 JsonGenerator generator = objectMapper.createGenerator(out)) {
+                phoneExportService.exportPhones(phone -> writeLine(writer, generator, phoneMapper.toResponse(phone)));
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
     }
 
     @Operation(
             summary = "Get phone by id",
-            description = "Returns a phone by id."
+            description = "Returns a phone by id. The response has a strong ETag that changes with any change " +
+                          "of the phone or its images; a request with a matching 'If-None-Match' gets 304 Not Modified. " +
+                          "The phone is served from the server cache until it changes."
+    )
+    @ApiResponse(
+            responseCode = "200",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = PhoneResponseDto.class))
     )
     @GetMapping("/{id:\\d+}")
-    public ResponseEntity<PhoneResponseDto> getPhoneById(@PathVariable Long id) {
-        Phone phone = phoneService
-                .getById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Not found phone with id: " + id));
-        PhoneResponseDto response = phoneMapper.toResponse(phone);
+    public ResponseEntity<byte[]> getPhoneById(@PathVariable Long id, WebRequest webRequest) {
+        // decided before the phone is loaded, a missing phone falls through to 404
+        Optional<String> version = phoneVersionService.getPhoneVersion(id);
+        if (version.isPresent() && webRequest.checkNotModified("\"" + version.get() + "\"")) {
+            return null;
+        }
 
-        return ResponseEntity.ok(response);
+        byte[] response = phoneResponseCache.getPhone(id, () -> {
+            PhoneView phone = phoneService
+                    .getViewById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Not found phone with id: " + id));
+            return phoneMapper.toResponse(phone);
+        });
+
+        return ResponseEntity.ok()
+                .cacheControl(REVALIDATE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(response);
     }
 
     @Operation(
@@ -93,10 +308,36 @@ public class PhoneController {
         return ResponseEntity.created(newPhoneLocation).build();
     }
 
+    @Operation(
+            summary = "Import phones",
+            description = "Creates phones from CSV or newline-delimited JSON, without images. " +
+                          "CSV has a header row with the field names of the created phone, e.g. " +
+                          "'name,price,brand,releaseYear,cpu,coresNumber,screenSize,frontCamera,mainCamera,batteryCapacity', " +
+                          "NDJSON has an object of the created phone per line. Rows are validated like a created " +
+                          "phone; invalid rows are skipped and reported by their number, the others are imported. " +
+                          "Rows are saved in batches as they are read, so the import isn't undone by a later failure."
+    )
+    @PostMapping(value = "/import", consumes = {TEXT_CSV_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<PhoneImportResponseDto> importPhones(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body
+    ) {
+        PhoneImportService.Format format = contentType.isCompatibleWith(MediaType.APPLICATION_NDJSON)
+                ? PhoneImportService.Format.NDJSON
+                : PhoneImportService.Format.CSV;
+        Charset charset = contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+
+        PhoneImportResponseDto response = phoneImportService.importPhones(body, charset, format);
+
+        return ResponseEntity.ok(response);
+    }
+
     @Operation(
             summary = "Update phone by id",
             description = "Updates phone by id, based on input data. Where field is empty," +
-                          " there will be no changes in this field."
+                          " there will be no changes in this field. The version of the phone it was read with" +
+                          " is required, the phone is updated only if it still has this version," +
+                          " otherwise responds with 409."
     )
     @PutMapping("/{id:\\d+}")
     public ResponseEntity<Void> updatePhone(@PathVariable Long id,
@@ -154,4 +395,41 @@ public class PhoneController {
         return ResponseEntity.noContent().build();
     }
 
+    private static void writeLine(ObjectWriter writer, JsonGenerator generator, PhoneResponseDto phone) {
+        try {
+            writer.writeValue(generator, phone);
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // "gzip" or "*" without "q=0"
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim();
+            if (!name.equalsIgnoreCase("gzip") && !name.equals("*")) {
+                continue;
+            }
+
+            boolean refused = Arrays.stream(parts)
+                    .skip(1)
+                    .map(parameter -> parameter.replace(" ", ""))
+                    .anyMatch(parameter -> parameter.matches("(?i)q=0(\\.0*)?"));
+            if (!refused) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String catalogETag() {
+        return "W/\"" + phoneVersionService.getCatalogVersion() + "\"";
+    }
+
 }
@@ -31,6 +31,7 @@ public class ImageHeadersResolverImpl implements ImageHeadersResolver {
         HttpHeaders headers = new HttpHeaders();
         resolveContentType(responseBody, headers);
         resolveContentLength(responseBody, headers);
+        resolveContentRange(responseBody, headers);
         resolveContentDisposition(responseBody, headers);
 
         return headers;
@@ -51,7 +52,18 @@ public class ImageHeadersResolverImpl implements ImageHeadersResolver {
     }
 
     private void resolveContentLength(ImageDataDto dto, HttpHeaders headers) {
-        headers.setContentLength(dto.size());
+        long length = dto.isPartial() ? dto.range().length() : dto.size();
+        headers.setContentLength(length);
+    }
+
+    private void resolveContentRange(ImageDataDto dto, HttpHeaders headers) {
+        // tells clients that they can resume the download or request a part of the image
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (dto.isPartial()) {
+            ImageDataDto.Range range = dto.range();
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + range.first() + "-" + range.last() + "/" + dto.size());
+        }
     }
 
     private void resolveContentDisposition(ImageDataDto dto, HttpHeaders headers) {
@@ -0,0 +1,10 @@
+-- phone images: fetch joins and image lookups by phone, cascade on phone delete
+CREATE INDEX IX_images_fk_phone_id ON images (fk_phone_id);
+
+-- cart items: cascade on phone delete (cart lookups use UQ_carts_items_cart_phone)
+CREATE INDEX IX_carts_items_fk_phone_id ON carts_items (fk_phone_id);
+
+-- phone filters and sorts, id completes every sort as the keyset tie-breaker
+CREATE INDEX IX_phones_name_id ON phones (name, id);
+CREATE INDEX IX_phones_price_id ON phones (price, id);
+CREATE INDEX IX_phones_lower_brand_price_id ON phones (lower(brand), price, id);
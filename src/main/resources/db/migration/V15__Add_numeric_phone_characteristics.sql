@@ -0,0 +1,27 @@
+-- numeric values of the text characteristics, parsed the same way as PhoneCharacteristicsUtility does
+ALTER TABLE phones
+    ADD COLUMN screen_inches DECIMAL(4, 2),
+    ADD COLUMN battery_mah INT,
+    ADD COLUMN main_camera_mp INT,
+    ADD COLUMN front_camera_mp INT;
+
+-- values that don't fit a column stay null
+UPDATE phones p
+SET screen_inches   = CASE WHEN parsed.screen_inches <= 99.99 THEN parsed.screen_inches END,
+    battery_mah     = CASE WHEN length(parsed.battery_mah) <= 9 THEN parsed.battery_mah::INT END,
+    main_camera_mp  = CASE WHEN length(parsed.main_camera_mp) <= 9 THEN parsed.main_camera_mp::INT END,
+    front_camera_mp = CASE WHEN length(parsed.front_camera_mp) <= 9 THEN parsed.front_camera_mp::INT END
+FROM (SELECT id,
+             round(substring(screen_size FROM '\d+(?:\.\d+)?')::NUMERIC, 2) AS screen_inches,
+             substring(battery_capacity FROM '\d+')                        AS battery_mah,
+             substring(main_camera FROM '\d+')                             AS main_camera_mp,
+             substring(front_camera FROM '\d+')                            AS front_camera_mp
+      FROM phones) parsed
+WHERE parsed.id = p.id;
+
+-- range filters
+CREATE INDEX IX_phones_screen_inches ON phones (screen_inches);
+CREATE INDEX IX_phones_battery_mah ON phones (battery_mah);
+CREATE INDEX IX_phones_main_camera_mp ON phones (main_camera_mp);
+CREATE INDEX IX_phones_front_camera_mp ON phones (front_camera_mp);
+CREATE INDEX IX_phones_cores_number ON phones (cores_number);
@@ -0,0 +1,3 @@
+-- optimistic locking: every update of a phone checks and increments its version
+ALTER TABLE phones
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,16 @@
+-- how many times the phone was put into a cart, phones are sorted by it
+ALTER TABLE phones
+    ADD COLUMN popularity BIGINT NOT NULL DEFAULT 0;
+
+-- phones already in carts start with the number of these carts
+UPDATE phones p
+SET popularity = counted.carts
+FROM (SELECT fk_phone_id, count(*) AS carts
+      FROM carts_items
+      GROUP BY fk_phone_id) counted
+WHERE counted.fk_phone_id = p.id;
+
+-- phone sorts, id completes every sort as the tie-breaker; descending sorts scan them backwards
+CREATE INDEX IX_phones_release_year_id ON phones (release_year, id);
+CREATE INDEX IX_phones_created_at_id ON phones (created_at, id);
+CREATE INDEX IX_phones_popularity_id ON phones (popularity, id);
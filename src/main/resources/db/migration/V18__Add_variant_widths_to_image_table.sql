@@ -0,0 +1,6 @@
+-- widths of the resized variants stored next to the original image, null until they are generated
+ALTER TABLE images
+    ADD COLUMN variant_widths INTEGER[];
+
+-- images waiting for the backfill of their variants, found in the order of ids
+CREATE INDEX IX_images_id_without_variants ON images (id) WHERE variant_widths IS NULL;
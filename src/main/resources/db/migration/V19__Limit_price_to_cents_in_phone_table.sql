@@ -0,0 +1,24 @@
+-- prices are stored with cents, the same way as cart total price;
+-- a price that doesn't fit is reported instead of being rounded or failing with a numeric overflow
+DO $$
+DECLARE
+    invalid_ids TEXT;
+BEGIN
+    SELECT string_agg(id::TEXT, ', ' ORDER BY id)
+    INTO invalid_ids
+    FROM phones
+    WHERE price <> round(price, 2) OR abs(price) >= 100000000;
+
+    IF invalid_ids IS NOT NULL THEN
+        RAISE EXCEPTION 'Prices of phones % have more than 2 fraction digits or 8 integer digits, fix them first',
+            invalid_ids;
+    END IF;
+END
+$$;
+
+-- the table and its price indexes are rewritten under an exclusive lock,
+-- fail fast instead of queueing every query of phones behind a long transaction
+SET LOCAL lock_timeout = '5s';
+
+ALTER TABLE phones
+    ALTER COLUMN price TYPE DECIMAL(10, 2);
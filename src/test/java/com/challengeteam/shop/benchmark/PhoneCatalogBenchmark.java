@@ -0,0 +1,106 @@
+package com.challengeteam.shop.benchmark;
+
+import com.challengeteam.shop.OnlineShopApplication;
+import com.challengeteam.shop.dto.pagination.PhoneFilterDto;
+import com.challengeteam.shop.entity.phone.Phone;
+import com.challengeteam.shop.persistence.repository.PhoneRepository;
+import com.challengeteam.shop.persistence.specification.PhoneSort;
+import com.challengeteam.shop.persistence.specification.PhoneSpecification;
+import com.challengeteam.shop.service.impl.index.PhoneCatalogIndex;
+import com.challengeteam.shop.service.impl.index.PhoneIdPage;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares answering a catalog page (ids and total) by the in-memory index with the JPA query
+ * that hydrates phone entities and counts them.
+ * <p>
+ * Runs against the database and MinIO configured for the application (.env in the working directory).
+ * Fill the catalog first, e.g. with POST /api/v1/test-data/generate-phones/10000, then run {@link #main}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PhoneCatalogBenchmark {
+
+    @Param({"all", "brand", "price_range"})
+    public String filter;
+
+    @Param({"name_asc", "price_desc"})
+    public String sort;
+
+    @Param({"0", "50"})
+    public int page;
+
+    private final int size = 20;
+    private ConfigurableApplicationContext context;
+    private PhoneCatalogIndex phoneCatalogIndex;
+    private PhoneRepository phoneRepository;
+    private TransactionTemplate readOnlyTransaction;
+    private PhoneFilterDto filterDto;
+    private PhoneSort phoneSort;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PhoneCatalogBenchmark.class.getSimpleName())
+                .build()
+        ).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(OnlineShopApplication.class)
+                .properties("server.port=0", "logging.level.root=WARN")
+                .run();
+        phoneCatalogIndex = context.getBean(PhoneCatalogIndex.class);
+        phoneRepository = context.getBean(PhoneRepository.class);
+        readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTransaction.setReadOnly(true);
+
+        phoneSort = PhoneSort.fromParam(sort);
+        filterDto = switch (filter) {
+            case "brand" -> PhoneFilterDto.builder().brand("Samsung").sort(sort).build();
+            case "price_range" -> PhoneFilterDto.builder().minPrice(new BigDecimal("300")).maxPrice(new BigDecimal("900")).sort(sort).build();
+            default -> PhoneFilterDto.builder().sort(sort).build();
+        };
+
+        phoneCatalogIndex.rebuild();
+        if (!phoneCatalogIndex.isReady()) {
+            throw new IllegalStateException("Phone catalog index wasn't built");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<PhoneIdPage> catalogIndex() {
+        return phoneCatalogIndex.findPage(filterDto, phoneSort, page, size);
+    }
+
+    @Benchmark
+    public Page<Phone> jpaEntities() {
+        return readOnlyTransaction.execute(status -> phoneRepository.findAll(
+                PhoneSpecification.build(filterDto),
+                PageRequest.of(page, size, phoneSort.toSort())
+        ));
+    }
+
+}
@@ -0,0 +1,164 @@
+package com.challengeteam.shop.benchmark;
+
+import com.challengeteam.shop.OnlineShopApplication;
+import com.challengeteam.shop.dto.pagination.PhoneFilterDto;
+import com.challengeteam.shop.dto.phone.PhoneResponseDto;
+import com.challengeteam.shop.mapper.PhoneMapper;
+import com.challengeteam.shop.service.PhoneService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading the phone list page and phone details as entities (fetch join of images, eagerly
+ * loaded MIME types, mapped to DTOs) with the projection read path that selects only the columns of the
+ * response and doesn't hydrate entities.
+ * <p>
+ * Besides time, the GC profiler reports allocated bytes per operation ({@code gc.alloc.rate.norm}), and
+ * the {@code statements}, {@code entities} and {@code operations} counters report SQL statements prepared
+ * and entities loaded by Hibernate during an iteration; divide them by {@code operations} to get the
+ * numbers per request.
+ * <p>
+ * Runs against the database and MinIO configured for the application (.env in the working directory).
+ * Fill the catalog first, e.g. with POST /api/v1/test-data/generate-phones/10000, then run {@link #main}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PhoneReadBenchmark {
+
+    @Param({"20", "100"})
+    public int size;
+
+    private ConfigurableApplicationContext context;
+    private PhoneService phoneService;
+    private PhoneMapper phoneMapper;
+    private Statistics statistics;
+    private PhoneFilterDto filterDto;
+    private Long phoneId;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PhoneReadBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()
+        ).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(OnlineShopApplication.class)
+                .properties(
+                        "server.port=0",
+                        "logging.level.root=WARN",
+                        "spring.jpa.properties.hibernate.generate_statistics=true"
+                )
+                .run();
+        phoneService = context.getBean(PhoneService.class);
+        phoneMapper = context.getBean(PhoneMapper.class);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        filterDto = PhoneFilterDto.builder().sort("price_desc").build();
+
+        // a phone with images, as shown by the details page
+        phoneId = context.getBean(JdbcTemplate.class).queryForObject(
+                "SELECT fk_phone_id FROM images WHERE fk_phone_id IS NOT NULL ORDER BY fk_phone_id LIMIT 1",
+                Long.class
+        );
+
+        // image urls are built from the current request
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        context.close();
+    }
+
+    @Benchmark
+    public List<PhoneResponseDto> entityPage(QueryCounters counters) {
+        long statements = statistics.getPrepareStatementCount();
+        long entities = statistics.getEntityLoadCount();
+
+        Page<PhoneResponseDto> page = phoneService.getPhones(0, size, filterDto).map(phoneMapper::toResponse);
+
+        counters.count(statistics, statements, entities);
+        return page.getContent();
+    }
+
+    @Benchmark
+    public List<PhoneResponseDto> projectionPage(QueryCounters counters) {
+        long statements = statistics.getPrepareStatementCount();
+        long entities = statistics.getEntityLoadCount();
+
+        Page<PhoneResponseDto> page = phoneService.getPhoneViews(0, size, filterDto).map(phoneMapper::toResponse);
+
+        counters.count(statistics, statements, entities);
+        return page.getContent();
+    }
+
+    @Benchmark
+    public PhoneResponseDto entityDetails(QueryCounters counters) {
+        long statements = statistics.getPrepareStatementCount();
+        long entities = statistics.getEntityLoadCount();
+
+        PhoneResponseDto phone = phoneMapper.toResponse(phoneService.getById(phoneId).orElseThrow());
+
+        counters.count(statistics, statements, entities);
+        return phone;
+    }
+
+    @Benchmark
+    public PhoneResponseDto projectionDetails(QueryCounters counters) {
+        long statements = statistics.getPrepareStatementCount();
+        long entities = statistics.getEntityLoadCount();
+
+        PhoneResponseDto phone = phoneMapper.toResponse(phoneService.getViewById(phoneId).orElseThrow());
+
+        counters.count(statistics, statements, entities);
+        return phone;
+    }
+
+    /**
+     * Work done by Hibernate during an iteration, reported next to the time of the benchmark.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class QueryCounters {
+        public long statements;
+        public long entities;
+        public long operations;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            statements = 0;
+            entities = 0;
+            operations = 0;
+        }
+
+        void count(Statistics statistics, long statementsBefore, long entitiesBefore) {
+            statements += statistics.getPrepareStatementCount() - statementsBefore;
+            entities += statistics.getEntityLoadCount() - entitiesBefore;
+            operations++;
+        }
+    }
+
+}
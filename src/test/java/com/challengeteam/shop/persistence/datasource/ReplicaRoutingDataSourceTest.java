@@ -0,0 +1,234 @@
+package com.challengeteam.shop.persistence.datasource;
+
+import com.challengeteam.shop.service.event.PhoneChangedEvent;
+import com.challengeteam.shop.service.event.PhoneChangedEvent.ChangeType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.challengeteam.shop.persistence.datasource.ReplicaRoutingDataSourceTest.TestResources.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ReplicaRoutingDataSourceTest {
+    @Mock
+    private DataSource primary;
+    @Mock
+    private DataSource replica;
+    @Mock
+    private Connection primaryConnection;
+    @Mock
+    private Connection replicaConnection;
+    private ReplicaRoutingDataSource routingDataSource;
+    private LazyConnectionDataSourceProxy dataSource;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Mockito.when(primary.getConnection()).thenReturn(primaryConnection);
+        Mockito.when(replica.getConnection()).thenReturn(replicaConnection);
+        useWindow(WINDOW);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Nested
+    class RoutingTest {
+
+        @Test
+        void whenReadOnlyTransaction_thenUseReplica() throws Exception {
+            // when
+            read();
+
+            // then
+            Mockito.verify(replica).getConnection();
+            Mockito.verify(primary, Mockito.never()).getConnection();
+        }
+
+        @Test
+        void whenReadWriteTransaction_thenUsePrimary() throws Exception {
+            // when
+            write();
+
+            // then
+            Mockito.verify(primary).getConnection();
+            Mockito.verify(replica, Mockito.never()).getConnection();
+        }
+
+        @Test
+        void whenNoTransaction_thenUsePrimary() throws Exception {
+            // when
+            dataSource.getConnection().createStatement();
+
+            // then
+            Mockito.verify(primary).getConnection();
+            Mockito.verify(replica, Mockito.never()).getConnection();
+        }
+
+    }
+
+    @Nested
+    class ReadYourWritesTest {
+
+        @Test
+        void whenReadAfterWriteOnSameThread_thenUsePrimary() throws Exception {
+            // when
+            write();
+            read();
+
+            // then
+            Mockito.verify(primary, Mockito.times(2)).getConnection();
+            Mockito.verify(replica, Mockito.never()).getConnection();
+        }
+
+        @Test
+        void whenSameUserReadsOnOtherThread_thenUsePrimary() throws Exception {
+            // given
+            authenticate(USER);
+            write();
+
+            // when
+            CompletableFuture.runAsync(() -> {
+                authenticate(USER);
+                read();
+            }).join();
+
+            // then
+            Mockito.verify(primary, Mockito.times(2)).getConnection();
+            Mockito.verify(replica, Mockito.never()).getConnection();
+        }
+
+        @Test
+        void whenOtherUserReadsOnOtherThread_thenUseReplica() throws Exception {
+            // given
+            authenticate(USER);
+            write();
+
+            // when
+            CompletableFuture.runAsync(() -> {
+                authenticate(OTHER_USER);
+                read();
+            }).join();
+
+            // then
+            Mockito.verify(replica).getConnection();
+        }
+
+        @Test
+        void whenWriteRolledBack_thenReadsUseReplica() throws Exception {
+            // when
+            new TransactionTemplate(new DataSourceTransactionManager(dataSource)).executeWithoutResult(status -> {
+                useConnection();
+                status.setRollbackOnly();
+            });
+            read();
+
+            // then
+            Mockito.verify(replica).getConnection();
+        }
+
+        @Test
+        void whenWindowPassed_thenReadsUseReplica() throws Exception {
+            // given
+            useWindow(Duration.ofMillis(1));
+
+            // when
+            write();
+            Thread.sleep(10);
+            read();
+
+            // then
+            Mockito.verify(replica).getConnection();
+        }
+
+        @Test
+        void whenWindowIsZero_thenReadsUseReplica() throws Exception {
+            // given
+            useWindow(Duration.ZERO);
+
+            // when
+            write();
+            read();
+
+            // then
+            Mockito.verify(replica).getConnection();
+        }
+
+        @Test
+        void whenPhoneChanged_thenAllReadsUsePrimary() throws Exception {
+            // when
+            routingDataSource.onPhoneChanged(new PhoneChangedEvent(1L, ChangeType.UPDATED));
+            CompletableFuture.runAsync(() -> {
+                authenticate(OTHER_USER);
+                read();
+            }).join();
+
+            // then
+            Mockito.verify(primary).getConnection();
+            Mockito.verify(replica, Mockito.never()).getConnection();
+        }
+
+    }
+
+    private void useWindow(Duration window) {
+        routingDataSource = new ReplicaRoutingDataSource(primary, replica, window);
+        routingDataSource.afterPropertiesSet();
+        dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        dataSource.setDefaultAutoCommit(true);
+        dataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+    }
+
+    private void read() {
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transaction.setReadOnly(true);
+        transaction.executeWithoutResult(status -> useConnection());
+    }
+
+    private void write() {
+        new TransactionTemplate(new DataSourceTransactionManager(dataSource))
+                .executeWithoutResult(status -> useConnection());
+    }
+
+    // the target connection is taken by the first statement
+    private void useConnection() {
+        try {
+            DataSourceUtils.getConnection(dataSource).createStatement();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static class TestResources {
+        static final Duration WINDOW = Duration.ofMinutes(1);
+        static final String USER = "user@gmail.com";
+        static final String OTHER_USER = "other@gmail.com";
+
+        static void authenticate(String email) {
+            SecurityContextHolder.getContext().setAuthentication(
+                    UsernamePasswordAuthenticationToken.authenticated(email, null, List.of())
+            );
+        }
+    }
+
+}
@@ -0,0 +1,461 @@
+package com.challengeteam.shop.persistence.repository;
+
+import com.challengeteam.shop.dto.pagination.PhoneFilterDto;
+import com.challengeteam.shop.persistence.specification.PhoneSort;
+import com.challengeteam.shop.persistence.specification.PhoneSpecification;
+import com.challengeteam.shop.testContainer.ContainerExtension;
+import com.challengeteam.shop.testContainer.TestContextConfigurator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static com.challengeteam.shop.persistence.repository.QueryPlanTest.TestResources.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks plans of the queries on large tables against a seeded catalog: none of them may read
+ * phones, images or cart items by a sequential scan. The SQL is the one Hibernate generates,
+ * captured while the repository method runs, explained with the bound values inlined.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                             + "com.challengeteam.shop.persistence.repository.QueryPlanTest$CapturingStatementInspector")
+@ExtendWith(ContainerExtension.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanTest {
+    @Autowired
+    private PhoneRepository phoneRepository;
+    @Autowired
+    private ImageRepository imageRepository;
+    @Autowired
+    private CartRepository cartRepository;
+    @Autowired
+    private CartItemRepository cartItemRepository;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ObjectMapper objectMapper;
+    private Long phoneId;
+    private Long cartId;
+    private Long userId;
+
+    @DynamicPropertySource
+    static void loadPropertiesForTest(DynamicPropertyRegistry propertyRegistry) {
+        TestContextConfigurator.initRequiredProperties(propertyRegistry);
+    }
+
+    @BeforeAll
+    void seed() {
+        new ResourceDatabasePopulator(new ClassPathResource(SEED_SCRIPT)).execute(dataSource);
+
+        phoneId = jdbcTemplate.queryForObject("SELECT id FROM phones WHERE name = 'Plan phone 50000'", Long.class);
+        userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = 'plan-250@plan.test'", Long.class);
+        cartId = jdbcTemplate.queryForObject("SELECT id FROM carts WHERE fk_user_id = ?", Long.class, userId);
+    }
+
+    @AfterAll
+    void cleanup() {
+        new ResourceDatabasePopulator(new ClassPathResource(CLEANUP_SCRIPT)).execute(dataSource);
+    }
+
+    @Nested
+    class PhoneRepositoryTest {
+
+        @Test
+        void whenFindByIdWithImages_thenUseIndexes() {
+            String sql = captureSql(() -> phoneRepository.findByIdWithImages(phoneId));
+
+            assertNoSequentialScans(sql, phoneId);
+        }
+
+        @Test
+        void whenFindAllByIdInWithImages_thenUseIndexes() {
+            List<Long> ids = List.of(phoneId, phoneId + 1, phoneId + 2, phoneId + 3, phoneId + 4);
+            String sql = captureSql(() -> phoneRepository.findAllByIdInWithImages(ids));
+
+            assertNoSequentialScans(sql, ids.toArray());
+        }
+
+        @Test
+        void whenFindDetailsRowsByIdIn_thenUseIndexes() {
+            List<Long> ids = List.of(phoneId, phoneId + 1, phoneId + 2, phoneId + 3, phoneId + 4);
+            String sql = captureSql(() -> phoneRepository.findDetailsRowsByIdIn(ids));
+
+            assertNoSequentialScans(sql, ids.toArray());
+        }
+
+        @Test
+        void whenExistsPhoneByIdWithImage_thenUseIndexes() {
+            String sql = captureSql(() -> phoneRepository.existsPhoneByIdWithImage(phoneId, 1L));
+
+            assertNoSequentialScans(sql, phoneId, 1L);
+        }
+
+        @Test
+        void whenFindIdsBeforeInNameOrder_thenUseIndexes() {
+            String sql = captureSql(() -> phoneRepository.findIdsBeforeInNameOrder(phoneId, Limit.of(1)));
+
+            assertNoSequentialScans(sql, phoneId, 1);
+        }
+
+    }
+
+    @Nested
+    class PhoneSpecificationTest {
+
+        @Test
+        void whenPageSortedByName_thenUseIndexes() {
+            PhoneFilterDto filterDto = filter(null, null, null, "name_asc", null);
+            String sql = captureSql(() -> phoneRepository.findIds(
+                    PhoneSpecification.build(filterDto),
+                    PageRequest.of(10, 20, PhoneSort.NAME_ASC.toSort())
+            ));
+
+            assertNoSequentialScans(sql, 200, 20);
+        }
+
+        @Test
+        void whenPageFilteredByBrandAndSortedByPrice_thenUseIndexes() {
+            PhoneFilterDto filterDto = filter("BRAND 7", null, null, "price_desc", null);
+            String sql = captureSql(() -> phoneRepository.findIds(
+                    PhoneSpecification.build(filterDto),
+                    PageRequest.of(0, 20, PhoneSort.PRICE_DESC.toSort())
+            ));
+
+            assertNoSequentialScans(sql, "brand 7", 0, 20);
+        }
+
+        @Test
+        void whenPageFilteredByBrandAndSortedByName_thenUseIndexes() {
+            PhoneFilterDto filterDto = filter("brand 7", null, null, "name_asc", null);
+            String sql = captureSql(() -> phoneRepository.findIds(
+                    PhoneSpecification.build(filterDto),
+                    PageRequest.of(0, 20, PhoneSort.NAME_ASC.toSort())
+            ));
+
+            assertNoSequentialScans(sql, "brand 7", 0, 20);
+        }
+
+        @Test
+        void whenPageFilteredByPriceRange_thenUseIndexes() {
+            PhoneFilterDto filterDto = filter(null, "300", "350", "price_asc", null);
+            String sql = captureSql(() -> phoneRepository.findIds(
+                    PhoneSpecification.build(filterDto),
+                    PageRequest.of(0, 20, PhoneSort.PRICE_ASC.toSort())
+            ));
+
+            assertNoSequentialScans(sql, new BigDecimal("300"), new BigDecimal("350"), 0, 20);
+        }
+
+        @Test
+        void whenPageFilteredByBatteryRange_thenUseIndexes() {
+            PhoneFilterDto filterDto = PhoneFilterDto.builder()
+                    .minBatteryMah(5990)
+                    .maxBatteryMah(5999)
+                    .build();
+            String sql = captureSql(() -> phoneRepository.findIds(
+                    PhoneSpecification.build(filterDto),
+                    PageRequest.of(0, 20, PhoneSort.NAME_ASC.toSort())
+            ));
+
+            assertNoSequentialScans(sql, 5990, 5999, 0, 20);
+        }
+
+        @Test
+        void whenPageContinuedByCursor_thenUseIndexes() {
+            PhoneFilterDto filterDto = filter(null, null, null, "price_asc", null);
+            String sql = captureSql(() -> phoneRepository.findIds(
+                    PhoneSpecification.build(filterDto)
+                            .and(PhoneSpecification.seekAfter(PhoneSort.PRICE_ASC, new BigDecimal("2500.99"), phoneId)),
+                    PhoneSort.PRICE_ASC.toSort(),
+                    21
+            ));
+
+            BigDecimal price = new BigDecimal("2500.99");
+            assertNoSequentialScans(sql, price, price, phoneId, 21);
+        }
+
+        @Test
+        void whenPageSortedByReleaseYear_thenReadIndexInOrder() {
+            PhoneFilterDto filterDto = filter(null, null, null, "release_year_desc", null);
+            String sql = captureSql(() -> phoneRepository.findIds(
+                    PhoneSpecification.build(filterDto),
+                    PageRequest.of(10, 20, PhoneSort.RELEASE_YEAR_DESC.toSort())
+            ));
+
+            assertNoSequentialScansOrSorts(sql, 200, 20);
+        }
+
+        @Test
+        void whenPageSortedByNewest_thenReadIndexInOrder() {
+            PhoneFilterDto filterDto = filter(null, null, null, "newest", null);
+            String sql = captureSql(() -> phoneRepository.findIds(
+                    PhoneSpecification.build(filterDto),
+                    PageRequest.of(10, 20, PhoneSort.NEWEST.toSort())
+            ));
+
+            assertNoSequentialScansOrSorts(sql, 200, 20);
+        }
+
+        @Test
+        void whenPageSortedByPopularity_thenReadIndexInOrder() {
+            PhoneFilterDto filterDto = filter(null, null, null, "popularity", null);
+            String sql = captureSql(() -> phoneRepository.findIds(
+                    PhoneSpecification.build(filterDto),
+                    PageRequest.of(10, 20, PhoneSort.POPULARITY.toSort())
+            ));
+
+            assertNoSequentialScansOrSorts(sql, 200, 20);
+        }
+
+        @Test
+        void whenPageSortedByNameAndPrice_thenReadIndexInOrder() {
+            for (PhoneSort sort : List.of(PhoneSort.NAME_ASC, PhoneSort.NAME_DESC, PhoneSort.PRICE_ASC, PhoneSort.PRICE_DESC)) {
+                PhoneFilterDto filterDto = filter(null, null, null, sort.getParam(), null);
+                String sql = captureSql(() -> phoneRepository.findIds(
+                        PhoneSpecification.build(filterDto),
+                        PageRequest.of(10, 20, sort.toSort())
+                ));
+
+                assertNoSequentialScansOrSorts(sql, 200, 20);
+            }
+        }
+
+        @Test
+        void whenPopularityPageContinuedByCursor_thenReadIndexInOrder() {
+            PhoneFilterDto filterDto = filter(null, null, null, "popularity", null);
+            String sql = captureSql(() -> phoneRepository.findIds(
+                    PhoneSpecification.build(filterDto)
+                            .and(PhoneSpecification.seekAfter(PhoneSort.POPULARITY, 500L, phoneId)),
+                    PhoneSort.POPULARITY.toSort(),
+                    21
+            ));
+
+            assertNoSequentialScansOrSorts(sql, 500L, 500L, phoneId, 21);
+        }
+
+        @Test
+        void whenSearchByKeyword_thenUseIndexes() {
+            PhoneFilterDto filterDto = filter(null, null, null, null, "12345");
+            String sql = captureSql(() -> phoneRepository.findIds(
+                    PhoneSpecification.build(filterDto).and(PhoneSpecification.orderByRank(filterDto.q())),
+                    PageRequest.of(0, 20, PhoneSort.RELEVANCE.toSort())
+            ));
+
+            assertNoSequentialScans(sql, "12345", "12345", 0, 20);
+        }
+
+        @Test
+        void whenCountFilteredByBrand_thenUseIndexes() {
+            PhoneFilterDto filterDto = filter("brand 7", null, null, null, null);
+            String sql = captureSql(() -> phoneRepository.count(PhoneSpecification.build(filterDto)));
+
+            assertNoSequentialScans(sql, "brand 7");
+        }
+
+    }
+
+    @Nested
+    class ImageRepositoryTest {
+
+        @Test
+        void whenGetImagesByPhoneId_thenUseIndexes() {
+            String sql = captureSql(() -> imageRepository.getImagesByPhone_Id(phoneId));
+
+            assertNoSequentialScans(sql, phoneId);
+        }
+
+        @Test
+        void whenFindMetadataRowsByPhoneIdIn_thenUseIndexes() {
+            List<Long> ids = List.of(phoneId, phoneId + 1, phoneId + 2, phoneId + 3, phoneId + 4);
+            String sql = captureSql(() -> imageRepository.findMetadataRowsByPhoneIdIn(ids));
+
+            assertNoSequentialScans(sql, ids.toArray());
+        }
+
+        @Test
+        void whenPhoneDeleted_thenCascadeUsesIndex() {
+            // the statement run by the foreign key cascade
+            assertNoSequentialScans("DELETE FROM images WHERE fk_phone_id = ?", phoneId);
+        }
+
+    }
+
+    @Nested
+    class CartRepositoryTest {
+
+        @Test
+        void whenFindByUserId_thenUseIndexes() {
+            String sql = captureSql(() -> cartRepository.findByUserId(userId));
+
+            assertNoSequentialScans(sql, userId);
+        }
+
+        @Test
+        void whenFindCartItemByCartIdAndPhoneId_thenUseIndexes() {
+            String sql = captureSql(() -> cartItemRepository.findByCartIdAndPhoneId(cartId, phoneId));
+
+            assertNoSequentialScans(sql, cartId, phoneId);
+        }
+
+        @Test
+        void whenPhoneDeleted_thenCascadeUsesIndex() {
+            // the statement run by the foreign key cascade
+            assertNoSequentialScans("DELETE FROM carts_items WHERE fk_phone_id = ?", phoneId);
+        }
+
+    }
+
+    private String captureSql(Runnable query) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+
+        List<String> statements = CapturingStatementInspector.capture(() -> transaction.executeWithoutResult(status -> query.run()));
+        // the query of the method goes first, eager associations are loaded afterwards by primary key
+        assertThat(statements).isNotEmpty();
+        return statements.get(0);
+    }
+
+    private void assertNoSequentialScans(String sql, Object... parameters) {
+        String statement = inlineParameters(sql, parameters);
+        String plan = explain(statement);
+
+        List<String> scannedTables = new ArrayList<>();
+        try {
+            collectSequentialScans(objectMapper.readTree(plan).get(0).get("Plan"), scannedTables);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to read plan: " + plan, e);
+        }
+
+        assertThat(scannedTables)
+                .as("Sequential scans in plan of:%n%s%n%s", statement, plan)
+                .doesNotContainAnyElementsOf(LARGE_TABLES);
+    }
+
+    // rows are read from an index in the requested order, so LIMIT stops the scan early
+    private void assertNoSequentialScansOrSorts(String sql, Object... parameters) {
+        assertNoSequentialScans(sql, parameters);
+
+        String statement = inlineParameters(sql, parameters);
+        String plan = explain(statement);
+        List<String> nodeTypes = new ArrayList<>();
+        try {
+            collectNodeTypes(objectMapper.readTree(plan).get(0).get("Plan"), nodeTypes);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to read plan: " + plan, e);
+        }
+
+        assertThat(nodeTypes)
+                .as("Sort nodes in plan of:%n%s%n%s", statement, plan)
+                .doesNotContain("Sort", "Incremental Sort");
+    }
+
+    private String explain(String statement) {
+        return jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + statement, String.class);
+    }
+
+    private static void collectNodeTypes(JsonNode node, List<String> nodeTypes) {
+        nodeTypes.add(node.path("Node Type").asText());
+        for (JsonNode child : node.path("Plans")) {
+            collectNodeTypes(child, nodeTypes);
+        }
+    }
+
+    private static void collectSequentialScans(JsonNode node, List<String> scannedTables) {
+        if ("Seq Scan".equals(node.path("Node Type").asText())) {
+            scannedTables.add(node.path("Relation Name").asText());
+        }
+        for (JsonNode child : node.path("Plans")) {
+            collectSequentialScans(child, scannedTables);
+        }
+    }
+
+    // custom plan for the given values, as the database plans them for a single execution
+    private static String inlineParameters(String sql, Object... parameters) {
+        StringBuilder result = new StringBuilder();
+        int parameter = 0;
+        for (char symbol : sql.toCharArray()) {
+            if (symbol != '?') {
+                result.append(symbol);
+                continue;
+            }
+            assertThat(parameter).as("Not enough parameters for: %s", sql).isLessThan(parameters.length);
+
+            Object value = parameters[parameter++];
+            result.append(value instanceof String text ? "'" + text.replace("'", "''") + "'" : value);
+        }
+        assertThat(parameter).as("Too many parameters for: %s", sql).isEqualTo(parameters.length);
+
+        return result.toString();
+    }
+
+    /**
+     * Records SQL prepared by Hibernate in the current thread while {@link #capture(Runnable)} runs.
+     */
+    public static class CapturingStatementInspector implements StatementInspector {
+        private static final ThreadLocal<List<String>> CAPTURED = new ThreadLocal<>();
+
+        static List<String> capture(Runnable action) {
+            List<String> statements = new ArrayList<>();
+            CAPTURED.set(statements);
+            try {
+                action.run();
+            } finally {
+                CAPTURED.remove();
+            }
+            return statements;
+        }
+
+        @Override
+        public String inspect(String sql) {
+            List<String> statements = CAPTURED.get();
+            if (statements != null) {
+                statements.add(sql);
+            }
+            return sql;
+        }
+    }
+
+    static class TestResources {
+        static final String SEED_SCRIPT = "persistence/repository/queryPlan/seed.sql";
+        static final String CLEANUP_SCRIPT = "persistence/repository/queryPlan/cleanup.sql";
+        static final Set<String> LARGE_TABLES = Set.of("phones", "images", "carts_items");
+
+        static PhoneFilterDto filter(String brand, String minPrice, String maxPrice, String sort, String q) {
+            return PhoneFilterDto.builder()
+                    .brand(brand)
+                    .minPrice(minPrice == null ? null : new BigDecimal(minPrice))
+                    .maxPrice(maxPrice == null ? null : new BigDecimal(maxPrice))
+                    .sort(sort)
+                    .q(q)
+                    .build();
+        }
+    }
+
+}
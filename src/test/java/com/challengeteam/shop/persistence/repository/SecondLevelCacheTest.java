@@ -0,0 +1,311 @@
+package com.challengeteam.shop.persistence.repository;
+
+import com.challengeteam.shop.dto.phone.PhoneUpdateRequestDto;
+import com.challengeteam.shop.entity.image.Image;
+import com.challengeteam.shop.entity.image.MIMEType;
+import com.challengeteam.shop.entity.phone.Phone;
+import com.challengeteam.shop.entity.phone.PhoneCharacteristics;
+import com.challengeteam.shop.entity.user.Role;
+import com.challengeteam.shop.service.PhoneService;
+import com.challengeteam.shop.testContainer.ContainerExtension;
+import com.challengeteam.shop.testContainer.TestContextConfigurator;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.entry.CacheEntry;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static com.challengeteam.shop.persistence.repository.SecondLevelCacheTest.TestResources.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that reference data and catalog entities read again come from the second-level cache
+ * without a statement, and that changes made through Hibernate keep the cache in line with the database.
+ */
+@SpringBootTest
+@ExtendWith(ContainerExtension.class)
+class SecondLevelCacheTest {
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private MIMETypeRepository mimeTypeRepository;
+    @Autowired
+    private PhoneRepository phoneRepository;
+    @Autowired
+    private ImageRepository imageRepository;
+    @Autowired
+    private PhoneService phoneService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    private Statistics statistics;
+    private MIMEType mimeType;
+    private Long phoneId;
+    private Long imageId;
+
+    @DynamicPropertySource
+    static void loadPropertiesForTest(DynamicPropertyRegistry propertyRegistry) {
+        TestContextConfigurator.initRequiredProperties(propertyRegistry);
+        // the index reads changed phones in background, its statements would be counted by the tests
+        propertyRegistry.add("phone.catalog-index.enabled", () -> false);
+    }
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        mimeType = mimeTypeRepository.save(MIMEType.builder().extension(EXTENSION).type(CONTENT_TYPE).build());
+        Phone phone = phoneRepository.save(buildPhone());
+        phoneId = phone.getId();
+        imageId = imageRepository.save(buildImage(phone, mimeType)).getId();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        imageRepository.findById(imageId).ifPresent(imageRepository::delete);
+        phoneRepository.findById(phoneId).ifPresent(phoneRepository::delete);
+        mimeTypeRepository.findByExtension(NEW_EXTENSION).ifPresent(mimeTypeRepository::delete);
+        mimeTypeRepository.delete(mimeType);
+    }
+
+    @Nested
+    class ReferenceDataTest {
+
+        @Test
+        void whenRoleFoundByNameAgain_thenNoStatement() {
+            // given
+            roleRepository.findByName(ROLE);
+            statistics.clear();
+
+            // when
+            Optional<Role> result = roleRepository.findByName(ROLE);
+
+            // then
+            assertThat(result).map(Role::getName).contains(ROLE);
+            assertThat(statistics.getPrepareStatementCount()).isZero();
+            assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+        }
+
+        @Test
+        void whenMimeTypeFoundByExtensionAgain_thenNoStatement() {
+            // given
+            mimeTypeRepository.findByExtension(EXTENSION);
+            statistics.clear();
+
+            // when
+            Optional<MIMEType> result = mimeTypeRepository.findByExtension(EXTENSION);
+
+            // then
+            assertThat(result).contains(mimeType);
+            assertThat(statistics.getPrepareStatementCount()).isZero();
+            assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+        }
+
+        @Test
+        void whenMimeTypeCreatedAfterMissedLookup_thenLookupFindsIt() {
+            // given
+            assertThat(mimeTypeRepository.findByExtension(NEW_EXTENSION)).isEmpty();
+
+            // when
+            mimeTypeRepository.save(MIMEType.builder().extension(NEW_EXTENSION).type(CONTENT_TYPE).build());
+            Optional<MIMEType> result = mimeTypeRepository.findByExtension(NEW_EXTENSION);
+
+            // then
+            assertThat(result).isPresent();
+        }
+
+    }
+
+    @Nested
+    class CatalogTest {
+
+        @Test
+        void whenPhoneReadByIdAgain_thenNoStatement() {
+            // given
+            phoneService.getByIdWithoutImages(phoneId);
+            statistics.clear();
+
+            // when
+            Optional<Phone> result = phoneService.getByIdWithoutImages(phoneId);
+
+            // then
+            assertThat(result).map(Phone::getName).contains(PHONE_NAME);
+            assertThat(statistics.getPrepareStatementCount()).isZero();
+            assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1);
+        }
+
+        @Test
+        void whenPhoneCached_thenEntryDoesntHoldSearchVector() {
+            // given
+            SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+            EntityPersister persister = sessionFactory.getMappingMetamodel().getEntityDescriptor(Phone.class);
+            EntityDataAccess cacheAccess = persister.getCacheAccessStrategy();
+
+            // when
+            phoneService.getByIdWithoutImages(phoneId);
+
+            // then
+            try (Session session = sessionFactory.openSession()) {
+                Object key = cacheAccess.generateCacheKey(phoneId, persister, sessionFactory, null);
+                CacheEntry entry = (CacheEntry) cacheAccess.get((SharedSessionContractImplementor) session, key);
+                assertThat(entry).isNotNull();
+                assertThat(entry.getDisassembledState())
+                        .noneMatch(value -> value instanceof String text && text.contains(SEARCH_VECTOR_LEXEME));
+            }
+            assertThat(persister.getPropertyNames()).doesNotContain("searchVector");
+        }
+
+        @Test
+        void whenImageReadByIdAgain_thenNoStatementForImageAndItsMimeType() {
+            // given
+            imageRepository.findById(imageId);
+            statistics.clear();
+
+            // when
+            Optional<Image> result = imageRepository.findById(imageId);
+
+            // then
+            assertThat(result).map(Image::getMimeType).contains(mimeType);
+            assertThat(statistics.getPrepareStatementCount()).isZero();
+        }
+
+        @Test
+        void whenPhoneUpdated_thenCachedPhoneIsUpdatedToo() {
+            // given
+            phoneRepository.findById(phoneId);
+
+            // when
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                    phoneRepository.findById(phoneId).orElseThrow().setName(NEW_PHONE_NAME)
+            );
+            statistics.clear();
+            Optional<Phone> result = phoneRepository.findById(phoneId);
+
+            // then
+            assertThat(result).map(Phone::getName).contains(NEW_PHONE_NAME);
+            assertThat(statistics.getPrepareStatementCount()).isZero();
+        }
+
+        @Test
+        void whenPhoneUpdatedByService_thenItIsReadAgainAndOtherPhonesStayCached() {
+            // given
+            Phone otherPhone = phoneRepository.save(buildPhone());
+            try {
+                phoneService.getByIdWithoutImages(phoneId);
+                phoneService.getByIdWithoutImages(otherPhone.getId());
+
+                // when
+                phoneService.update(phoneId, buildPhoneUpdateRequestDto(NEW_PHONE_NAME, 0L));
+                statistics.clear();
+                Optional<Phone> other = phoneService.getByIdWithoutImages(otherPhone.getId());
+                Optional<Phone> result = phoneService.getByIdWithoutImages(phoneId);
+
+                // then
+                assertThat(other).map(Phone::getName).contains(PHONE_NAME);
+                assertThat(result).map(Phone::getName).contains(NEW_PHONE_NAME);
+                assertThat(result).map(Phone::getVersion).contains(1L);
+                assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1);
+                assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+            } finally {
+                phoneRepository.deleteById(otherPhone.getId());
+            }
+        }
+
+        @Test
+        void whenPhoneDeleted_thenItsImagesAreNotFound() {
+            // given
+            imageRepository.findById(imageId);
+
+            // when
+            phoneService.delete(phoneId);
+
+            // then
+            assertThat(imageRepository.findById(imageId)).isEmpty();
+        }
+
+        @Test
+        void whenPhoneDeleted_thenImagesOfOtherPhonesStayCached() {
+            // given
+            Phone otherPhone = phoneRepository.save(buildPhone());
+            Long otherImageId = imageRepository.save(buildImage(otherPhone, mimeType)).getId();
+            try {
+                imageRepository.findById(otherImageId);
+
+                // when
+                phoneService.delete(phoneId);
+                statistics.clear();
+                Optional<Image> result = imageRepository.findById(otherImageId);
+
+                // then
+                assertThat(result).isPresent();
+                assertThat(statistics.getPrepareStatementCount()).isZero();
+            } finally {
+                imageRepository.deleteById(otherImageId);
+                phoneRepository.deleteById(otherPhone.getId());
+            }
+        }
+
+    }
+
+    static class TestResources {
+        static final String ROLE = "USER";
+        static final String EXTENSION = "l2c";
+        static final String NEW_EXTENSION = "l2n";
+        static final String CONTENT_TYPE = "image/l2c";
+        static final String PHONE_NAME = "Cached phone";
+        static final String NEW_PHONE_NAME = "Renamed cached phone";
+        // "Cached" as stemmed into the search vector
+        static final String SEARCH_VECTOR_LEXEME = "'cach'";
+
+        static Phone buildPhone() {
+            return Phone.builder()
+                    .name(PHONE_NAME)
+                    .price(new BigDecimal("499.99"))
+                    .brand("CacheBrand")
+                    .releaseYear(2024)
+                    .phoneCharacteristics(PhoneCharacteristics.builder()
+                            .cpu("Cache CPU")
+                            .coresNumber(8)
+                            .screenSize("6.1\"")
+                            .frontCamera("12 MP")
+                            .mainCamera("48 MP")
+                            .batteryCapacity("4000 mAh")
+                            .build())
+                    .build();
+        }
+
+        static PhoneUpdateRequestDto buildPhoneUpdateRequestDto(String name, Long version) {
+            return new PhoneUpdateRequestDto(name, null, null, null, null, null, null, null, null, null, null, version);
+        }
+
+        static Image buildImage(Phone phone, MIMEType mimeType) {
+            return Image.builder()
+                    .name("cached.l2c")
+                    .storageKey("cached-storage-key.l2c")
+                    .size(100L)
+                    .mimeType(mimeType)
+                    .phone(phone)
+                    .build();
+        }
+    }
+
+}
@@ -0,0 +1,402 @@
+package com.challengeteam.shop.persistence.storage;
+
+import com.challengeteam.shop.properties.ImageDiskCacheProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static com.challengeteam.shop.persistence.storage.DiskCachingImageStorageTest.TestResources.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+@ExtendWith(MockitoExtension.class)
+class DiskCachingImageStorageTest {
+    @Mock
+    private ImageStorage minioImageStorage;
+    @TempDir
+    private Path directory;
+    private ImageDiskCacheProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private DiskCachingImageStorage imageStorage;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        properties = new ImageDiskCacheProperties();
+        properties.setDirectory(directory);
+        createStorage();
+    }
+
+    @AfterEach
+    void tearDown() {
+        imageStorage.cleanUp();
+    }
+
+    @Nested
+    class OpenImageByKeyTest {
+
+        @Test
+        void whenOpenedTwice_thenReadStorageOnceAndReturnSameBytes() throws Exception {
+            // mockito
+            Mockito.when(minioImageStorage.openImageByKey(KEY))
+                    .thenReturn(Optional.of(new ByteArrayInputStream(BYTES)));
+
+            // when
+            byte[] first = read(imageStorage.openImageByKey(KEY));
+            byte[] second = read(imageStorage.openImageByKey(KEY));
+
+            // then
+            assertThat(first).isEqualTo(BYTES);
+            assertThat(second).isEqualTo(BYTES);
+            Mockito.verify(minioImageStorage, Mockito.times(1)).openImageByKey(KEY);
+        }
+
+        @Test
+        void whenOpenedTwice_thenReportMissAndHit() throws Exception {
+            // mockito
+            Mockito.when(minioImageStorage.openImageByKey(KEY))
+                    .thenReturn(Optional.of(new ByteArrayInputStream(BYTES)));
+
+            // when
+            read(imageStorage.openImageByKey(KEY));
+            read(imageStorage.openImageByKey(KEY));
+
+            // then
+            assertThat(gets("miss")).isEqualTo(1);
+            assertThat(gets("hit")).isEqualTo(1);
+            assertThat(meterRegistry.get("cache.hit.ratio").tag("cache", CACHE_NAME).gauge().value()).isEqualTo(0.5);
+        }
+
+        @Test
+        void whenImageNotInStorage_thenReturnEmptyOptionalAndCacheNothing() throws Exception {
+            // mockito
+            Mockito.when(minioImageStorage.openImageByKey(KEY))
+                    .thenReturn(Optional.empty());
+
+            // when
+            Optional<InputStream> result = imageStorage.openImageByKey(KEY);
+
+            // then
+            assertThat(result).isNotPresent();
+            assertThat(cachedFiles()).isZero();
+        }
+
+        @Test
+        void whenCachedFileIsGone_thenReadStorageAndCacheImageAgain() throws Exception {
+            // given
+            Mockito.when(minioImageStorage.openImageByKey(KEY))
+                    .thenAnswer(invocation -> Optional.of(new ByteArrayInputStream(BYTES)));
+            read(imageStorage.openImageByKey(KEY));
+            deleteCachedFiles();
+
+            // when
+            byte[] result = read(imageStorage.openImageByKey(KEY));
+            read(imageStorage.openImageByKey(KEY));
+            read(imageStorage.openImageByKey(KEY));
+
+            // then
+            assertThat(result).isEqualTo(BYTES);
+            Mockito.verify(minioImageStorage, Mockito.times(3)).openImageByKey(KEY);
+            assertThat(cachedFiles()).isEqualTo(1);
+        }
+
+        @Test
+        void whenOpenedConcurrently_thenReadStorageOnce() throws Exception {
+            // given
+            CountDownLatch downloadStarted = new CountDownLatch(1);
+            CountDownLatch storageAnswers = new CountDownLatch(1);
+
+            // mockito
+            Mockito.when(minioImageStorage.openImageByKey(KEY))
+                    .thenAnswer(invocation -> {
+                        downloadStarted.countDown();
+                        storageAnswers.await();
+                        return Optional.of(new ByteArrayInputStream(BYTES));
+                    });
+
+            // when
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+            try {
+                Future<byte[]> first = executor.submit(() -> read(imageStorage.openImageByKey(KEY)));
+                downloadStarted.await();
+                AtomicReference<Thread> secondThread = new AtomicReference<>();
+                Future<byte[]> second = executor.submit(() -> {
+                    secondThread.set(Thread.currentThread());
+                    return read(imageStorage.openImageByKey(KEY));
+                });
+                await().until(() -> secondThread.get() != null && secondThread.get().getState() == Thread.State.WAITING);
+                storageAnswers.countDown();
+
+                // then
+                assertThat(first.get()).isEqualTo(BYTES);
+                assertThat(second.get()).isEqualTo(BYTES);
+            } finally {
+                executor.shutdownNow();
+            }
+            Mockito.verify(minioImageStorage, Mockito.times(1)).openImageByKey(KEY);
+        }
+
+        @Test
+        void whenRestarted_thenServeImagesCachedBefore() throws Exception {
+            // given
+            Mockito.when(minioImageStorage.openImageByKey(KEY))
+                    .thenReturn(Optional.of(new ByteArrayInputStream(BYTES)));
+            read(imageStorage.openImageByKey(KEY));
+
+            // when
+            createStorage();
+            byte[] result = read(imageStorage.openImageByKey(KEY));
+
+            // then
+            assertThat(result).isEqualTo(BYTES);
+            assertThat(gets("hit")).isEqualTo(1);
+            Mockito.verify(minioImageStorage, Mockito.times(1)).openImageByKey(KEY);
+        }
+
+        @Test
+        void whenFilesLeftByCrash_thenDeleteThemOnStartup() throws Exception {
+            // given
+            imageStorage.cleanUp();
+            Files.write(directory.resolve("unfinished.part"), BYTES);
+            Files.createDirectories(directory.resolve("images-123"));
+
+            // when
+            createStorage();
+
+            // then
+            try (Stream<Path> files = Files.list(directory)) {
+                assertThat(files.map(file -> file.getFileName().toString())).containsExactly(".lock");
+            }
+        }
+
+        @Test
+        void whenDirectoryIsUsedByOtherInstance_thenReadStorageEveryTime() throws Exception {
+            // given
+            var otherInstance = new DiskCachingImageStorage(minioImageStorage, properties, new SimpleMeterRegistry());
+            otherInstance.init();
+
+            // mockito
+            Mockito.when(minioImageStorage.openImageByKey(KEY))
+                    .thenAnswer(invocation -> Optional.of(new ByteArrayInputStream(BYTES)));
+
+            // when
+            try {
+                read(otherInstance.openImageByKey(KEY));
+                read(otherInstance.openImageByKey(KEY));
+            } finally {
+                otherInstance.cleanUp();
+            }
+
+            // then
+            Mockito.verify(minioImageStorage, Mockito.times(2)).openImageByKey(KEY);
+            assertThat(cachedFiles()).isZero();
+        }
+
+        @Test
+        void whenMaxSizeExceeded_thenEvictAndDeleteFiles() throws Exception {
+            // given
+            properties.setMaxSize(DataSize.ofBytes(BYTES.length * 2L));
+            createStorage();
+
+            // mockito
+            Mockito.when(minioImageStorage.openImageByKey(Mockito.anyString()))
+                    .thenAnswer(invocation -> Optional.of(new ByteArrayInputStream(BYTES)));
+
+            // when
+            for (int i = 0; i < 5; i++) {
+                read(imageStorage.openImageByKey(KEY + i));
+            }
+
+            // then (evictions are done in the background)
+            await().untilAsserted(() -> {
+                assertThat(meterRegistry.get("cache.evictions").tag("cache", CACHE_NAME).functionCounter().count())
+                        .isPositive();
+                assertThat(cachedFiles()).isLessThanOrEqualTo(2);
+            });
+        }
+
+        @Test
+        void whenDisabled_thenReadStorageEveryTime() throws Exception {
+            // given
+            properties.setEnabled(false);
+            createStorage();
+
+            // mockito
+            Mockito.when(minioImageStorage.openImageByKey(KEY))
+                    .thenAnswer(invocation -> Optional.of(new ByteArrayInputStream(BYTES)));
+
+            // when
+            read(imageStorage.openImageByKey(KEY));
+            read(imageStorage.openImageByKey(KEY));
+
+            // then
+            Mockito.verify(minioImageStorage, Mockito.times(2)).openImageByKey(KEY);
+            assertThat(cachedFiles()).isZero();
+        }
+
+        @Test
+        void whenKeyIsNull_thenThrowException() {
+            // when + then
+            assertThatThrownBy(() -> imageStorage.openImageByKey(null)).isInstanceOf(NullPointerException.class);
+        }
+
+    }
+
+    @Nested
+    class OpenImageRangeByKeyTest {
+
+        @Test
+        void whenImageIsCached_thenReadRangeFromFile() throws Exception {
+            // given
+            Mockito.when(minioImageStorage.openImageByKey(KEY))
+                    .thenReturn(Optional.of(new ByteArrayInputStream(BYTES)));
+            read(imageStorage.openImageByKey(KEY));
+
+            // when
+            byte[] result = read(imageStorage.openImageByKey(KEY, 3, 4));
+
+            // then
+            assertThat(result).isEqualTo(Arrays.copyOfRange(BYTES, 3, 7));
+            Mockito.verify(minioImageStorage, Mockito.never()).openImageByKey(KEY, 3, 4);
+        }
+
+        @Test
+        void whenImageIsCached_thenTransferRangeFromFile() throws Exception {
+            // given
+            Mockito.when(minioImageStorage.openImageByKey(KEY))
+                    .thenReturn(Optional.of(new ByteArrayInputStream(BYTES)));
+            read(imageStorage.openImageByKey(KEY));
+            var out = new ByteArrayOutputStream();
+
+            // when
+            long transferred;
+            try (InputStream stream = imageStorage.openImageByKey(KEY, 5, 1000).orElseThrow()) {
+                transferred = stream.transferTo(out);
+            }
+
+            // then
+            assertThat(transferred).isEqualTo(BYTES.length - 5);
+            assertThat(out.toByteArray()).isEqualTo(Arrays.copyOfRange(BYTES, 5, BYTES.length));
+        }
+
+        @Test
+        void whenImageIsNotCached_thenReadRangeFromStorage() throws Exception {
+            // mockito
+            Mockito.when(minioImageStorage.openImageByKey(KEY, 3, 4))
+                    .thenReturn(Optional.of(new ByteArrayInputStream(BYTES, 3, 4)));
+
+            // when
+            byte[] result = read(imageStorage.openImageByKey(KEY, 3, 4));
+
+            // then
+            assertThat(result).isEqualTo(Arrays.copyOfRange(BYTES, 3, 7));
+            assertThat(cachedFiles()).isZero();
+        }
+
+        @Test
+        void whenRangeIsInvalid_thenThrowException() {
+            // when + then
+            assertThatThrownBy(() -> imageStorage.openImageByKey(KEY, -1, 4))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+
+    }
+
+    @Nested
+    class DeleteImageTest {
+
+        @Test
+        void whenImageIsCached_thenDeleteFromStorageAndCache() throws Exception {
+            // given
+            Mockito.when(minioImageStorage.openImageByKey(KEY))
+                    .thenReturn(Optional.of(new ByteArrayInputStream(BYTES)))
+                    .thenReturn(Optional.empty());
+            read(imageStorage.openImageByKey(KEY));
+
+            // when
+            imageStorage.deleteImage(KEY);
+
+            // then
+            Mockito.verify(minioImageStorage).deleteImage(KEY);
+            assertThat(imageStorage.openImageByKey(KEY)).isNotPresent();
+            await().untilAsserted(() -> assertThat(cachedFiles()).isZero());
+        }
+
+        @Test
+        void whenKeyIsNull_thenThrowException() {
+            // when + then
+            assertThatThrownBy(() -> imageStorage.deleteImage(null)).isInstanceOf(NullPointerException.class);
+        }
+
+    }
+
+    private void createStorage() throws Exception {
+        if (imageStorage != null) {
+            imageStorage.cleanUp();
+        }
+        meterRegistry = new SimpleMeterRegistry();
+        imageStorage = new DiskCachingImageStorage(minioImageStorage, properties, meterRegistry);
+        imageStorage.init();
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets")
+                .tag("cache", CACHE_NAME)
+                .tag("result", result)
+                .functionCounter()
+                .count();
+    }
+
+    private long cachedFiles() throws Exception {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(TestResources::isCachedImage).count();
+        }
+    }
+
+    private void deleteCachedFiles() throws Exception {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.filter(TestResources::isCachedImage).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    static class TestResources {
+        static final String CACHE_NAME = DiskCachingImageStorage.CACHE_NAME;
+        static final String KEY = "image.jpg";
+        static final byte[] BYTES = "bytes of the cached image".getBytes();
+
+        static boolean isCachedImage(Path file) {
+            return Files.isRegularFile(file) && file.getFileName().toString().endsWith(".image");
+        }
+
+        static byte[] read(Optional<InputStream> stream) throws Exception {
+            try (InputStream in = stream.orElseThrow()) {
+                return in.readAllBytes();
+            }
+        }
+    }
+
+}
@@ -39,8 +39,9 @@ class ImageStorageTest {
 
     @Autowired
     private MinioProperties minioProperties;
+    // the storage itself, without the disk cache in front of it
     @Autowired
-    private ImageStorage imageStorage;
+    private MinioImageStorage imageStorage;
 
     @DynamicPropertySource
     private static void setContextProperties(DynamicPropertyRegistry propertyRegistry) {
@@ -59,6 +60,66 @@ class ImageStorageTest {
         cleanStorage();
     }
 
+    @Nested
+    class OpenImageByKeyTest {
+
+        @Test
+        void whenImageExists_thenReturnStreamOfImage() throws Exception {
+            // given
+            var file = TestFile.FILE_1;
+            loadImageToBucket(file);
+
+            // when
+            Optional<InputStream> result = imageStorage.openImageByKey(file.name);
+
+            // then
+            assertThat(result).isPresent();
+            try (InputStream stream = result.get()) {
+                assertThat(stream.readAllBytes()).isEqualTo(buildMultipartFile(file).getBytes());
+            }
+        }
+
+        @Test
+        void whenRangeOfImageRequested_thenReturnStreamOfRange() throws Exception {
+            // given
+            var file = TestFile.FILE_1;
+            loadImageToBucket(file);
+            byte[] bytes = buildMultipartFile(file).getBytes();
+
+            // when
+            Optional<InputStream> result = imageStorage.openImageByKey(file.name, 10, 100);
+
+            // then
+            assertThat(result).isPresent();
+            try (InputStream stream = result.get()) {
+                assertThat(stream.readAllBytes()).isEqualTo(Arrays.copyOfRange(bytes, 10, 110));
+            }
+        }
+
+        @Test
+        void whenRangeIsInvalid_thenThrowException() {
+            // when + then
+            assertThatThrownBy(() -> imageStorage.openImageByKey(TestFile.FILE_1.name, 0, 0))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+
+        @Test
+        void whenImageNotExists_thenReturnEmptyOptional() throws Exception {
+            // when
+            Optional<InputStream> result = imageStorage.openImageByKey(TestFile.FILE_1.name);
+
+            // then
+            assertThat(result).isNotPresent();
+        }
+
+        @Test
+        void whenParameterKeyIsNull_thenThrowException() {
+            // when + then
+            assertThatThrownBy(() -> imageStorage.openImageByKey(null)).isInstanceOf(NullPointerException.class);
+        }
+
+    }
+
     @Nested
     class ReadImageByKeyTest {
 
@@ -144,6 +205,29 @@ class ImageStorageTest {
                     .isInstanceOf(NullPointerException.class);
         }
 
+        @Test
+        void whenBytesPut_thenPutImage() throws Exception {
+            // given
+            var file = TestFile.FILE_1;
+            MultipartFile multipartFile = buildMultipartFile(file);
+
+            // when
+            imageStorage.putImage(file.name, multipartFile.getBytes(), file.mimeType);
+
+            // then
+            assertThat(compareImages(file, file)).isTrue();
+        }
+
+        @Test
+        void whenParameterBytesIsNull_thenThrowException() {
+            // given
+            var file = TestFile.FILE_1;
+
+            // when + then
+            assertThatThrownBy(() -> imageStorage.putImage(file.name, null, file.mimeType))
+                    .isInstanceOf(NullPointerException.class);
+        }
+
     }
 
     @Nested
@@ -9,6 +9,7 @@ import com.challengeteam.shop.exceptionHandling.exception.ResourceNotFoundExcept
 import com.challengeteam.shop.persistence.repository.CartItemRepository;
 import com.challengeteam.shop.persistence.repository.CartRepository;
 import com.challengeteam.shop.service.PhoneService;
+import com.challengeteam.shop.service.impl.popularity.PhonePopularityCounter;
 import com.challengeteam.shop.service.impl.validator.CartValidator;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -42,6 +43,9 @@ class CartServiceImplTest {
     @Mock
     private CartValidator cartValidator;
 
+    @Mock
+    private PhonePopularityCounter phonePopularityCounter;
+
     @InjectMocks
     private CartServiceImpl cartService;
 
@@ -95,7 +99,7 @@ class CartServiceImplTest {
             CartItemAddRequestDto dto = buildCartItemAddRequestDto();
 
             // mockito
-            Mockito.when(phoneService.getById(PHONE_ID))
+            Mockito.when(phoneService.getByIdWithoutImages(PHONE_ID))
                     .thenReturn(Optional.of(buildPhone()));
             Mockito.when(cartRepository.save(cart))
                     .thenReturn(cart);
@@ -107,9 +111,10 @@ class CartServiceImplTest {
             assertThat(result.getCartItems()).hasSize(1);
             assertThat(result.getTotalPrice()).isEqualTo(BigDecimal.valueOf(100));
             Mockito.verify(cartValidator).validateItemAmount(dto.amount());
-            Mockito.verify(phoneService).getById(PHONE_ID);
+            Mockito.verify(phoneService).getByIdWithoutImages(PHONE_ID);
             Mockito.verify(cartValidator).validateTotalAmount(cart);
             Mockito.verify(cartItemRepository).save(any(CartItem.class));
+            Mockito.verify(phonePopularityCounter).count(PHONE_ID);
             Mockito.verify(cartRepository).save(cart);
         }
 
@@ -120,7 +125,7 @@ class CartServiceImplTest {
             CartItemAddRequestDto dto = buildCartItemAddRequestDto();
 
             // mockito
-            Mockito.when(phoneService.getById(PHONE_ID))
+            Mockito.when(phoneService.getByIdWithoutImages(PHONE_ID))
                     .thenReturn(Optional.of(buildPhone()));
 
             // when + then
@@ -128,8 +133,9 @@ class CartServiceImplTest {
                     .isInstanceOf(PhoneAlreadyInCartException.class);
 
             Mockito.verify(cartValidator).validateItemAmount(dto.amount());
-            Mockito.verify(phoneService).getById(PHONE_ID);
+            Mockito.verify(phoneService).getByIdWithoutImages(PHONE_ID);
             Mockito.verify(cartItemRepository, never()).save(any());
+            Mockito.verify(phonePopularityCounter, never()).count(any());
             Mockito.verify(cartRepository, never()).save(any());
         }
 
@@ -140,7 +146,7 @@ class CartServiceImplTest {
             CartItemAddRequestDto dto = buildCartItemAddRequestDto();
 
             // mockito
-            Mockito.when(phoneService.getById(PHONE_ID))
+            Mockito.when(phoneService.getByIdWithoutImages(PHONE_ID))
                     .thenReturn(Optional.empty());
 
             // when + then
@@ -148,8 +154,9 @@ class CartServiceImplTest {
                     .isInstanceOf(ResourceNotFoundException.class);
 
             Mockito.verify(cartValidator).validateItemAmount(dto.amount());
-            Mockito.verify(phoneService).getById(PHONE_ID);
+            Mockito.verify(phoneService).getByIdWithoutImages(PHONE_ID);
             Mockito.verify(cartItemRepository, never()).save(any());
+            Mockito.verify(phonePopularityCounter, never()).count(any());
             Mockito.verify(cartRepository, never()).save(any());
         }
 
@@ -5,29 +5,48 @@ import com.challengeteam.shop.entity.image.Image;
 import com.challengeteam.shop.entity.image.MIMEType;
 import com.challengeteam.shop.exceptionHandling.exception.CriticalSystemException;
 import com.challengeteam.shop.exceptionHandling.exception.ImageStorageException;
+import com.challengeteam.shop.exceptionHandling.exception.RangeNotSatisfiableException;
 import com.challengeteam.shop.exceptionHandling.exception.ResourceNotFoundException;
 import com.challengeteam.shop.exceptionHandling.exception.UnsupportedImageContentTypeException;
 import com.challengeteam.shop.persistence.repository.ImageRepository;
 import com.challengeteam.shop.persistence.storage.ImageStorage;
+import com.challengeteam.shop.properties.ImageVariantProperties;
 import com.challengeteam.shop.service.MIMETypeService;
+import com.challengeteam.shop.service.impl.cache.ImageMemoryCache;
+import com.challengeteam.shop.service.impl.cache.ImageMemoryCache.CachedImage;
 import com.challengeteam.shop.service.impl.validator.ImageValidator;
+import com.challengeteam.shop.service.impl.variant.ImageVariantGenerator;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpRange;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 
 import static com.challengeteam.shop.service.impl.ImageServiceImplTest.TestResources.*;
+import static com.challengeteam.shop.service.impl.cache.ImageMemoryCache.ORIGINAL_WIDTH;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 
 @ExtendWith(MockitoExtension.class)
 class ImageServiceImplTest {
@@ -39,6 +58,12 @@ class ImageServiceImplTest {
     private MIMETypeService mimeTypeService;
     @Mock
     private ImageValidator imageValidator;
+    @Mock
+    private ImageMemoryCache imageMemoryCache;
+    @Mock
+    private ImageVariantGenerator imageVariantGenerator;
+    @Spy
+    private ImageVariantProperties imageVariantProperties = new ImageVariantProperties();
     @InjectMocks
     private ImageServiceImpl imageService;
 
@@ -46,19 +71,22 @@ class ImageServiceImplTest {
     class DownloadImageByIdTest {
 
         @Test
-        void whenImageFoundById_thenReturnOptionalWithImageDataDto() throws Exception {
+        void whenImageFoundById_thenReturnOptionalWithOpenedImage() throws Exception {
+            // given
+            InputStream imageStream = new ByteArrayInputStream(BYTES);
+
             // mockito
             Mockito.when(imageRepository.findById(ID))
                     .thenReturn(Optional.of(buildImage()));
-            Mockito.when(imageStorage.readImageByKey(KEY))
-                    .thenReturn(Optional.of(BYTES));
+            Mockito.when(imageStorage.openImageByKey(KEY))
+                    .thenReturn(Optional.of(imageStream));
 
             // when
             Optional<ImageDataDto> result = imageService.downloadImageById(ID);
 
             // then
             assertThat(result).isPresent();
-            assertThat(result.get()).isEqualTo(buildImageDataDto());
+            assertThat(result.get()).isEqualTo(buildImageDataDto(imageStream));
         }
 
         @Test
@@ -79,7 +107,7 @@ class ImageServiceImplTest {
             // mockito
             Mockito.when(imageRepository.findById(ID))
                     .thenReturn(Optional.of(buildImage()));
-            Mockito.when(imageStorage.readImageByKey(KEY))
+            Mockito.when(imageStorage.openImageByKey(KEY))
                     .thenReturn(Optional.empty());
 
             // when + then
@@ -94,6 +122,351 @@ class ImageServiceImplTest {
 
     }
 
+    @Nested
+    class DownloadHotImageByIdTest {
+
+        @Test
+        void whenImageIsInMemory_thenReturnItWithoutRepositoryAndStorage() throws Exception {
+            // mockito
+            Mockito.when(imageMemoryCache.get(ID, ORIGINAL_WIDTH))
+                    .thenReturn(Optional.of(buildCachedImage()));
+
+            // when
+            Optional<ImageDataDto> result = imageService.downloadImageById(ID);
+
+            // then
+            assertThat(result).isPresent();
+            assertThat(result.get().imageStream().readAllBytes()).isEqualTo(BYTES);
+            assertThat(result.get().size()).isEqualTo(SIZE);
+            assertThat(result.get().mimeType()).isEqualTo(MIME_TYPE.getType());
+            Mockito.verifyNoInteractions(imageRepository, imageStorage);
+        }
+
+        @Test
+        void whenRangeOfImageInMemory_thenReturnRange() throws Exception {
+            // mockito
+            Mockito.when(imageMemoryCache.get(ID, ORIGINAL_WIDTH))
+                    .thenReturn(Optional.of(buildCachedImage()));
+
+            // when
+            Optional<ImageDataDto> result = imageService.downloadImageById(ID, HttpRange.createByteRange(2, 5));
+
+            // then
+            assertThat(result).isPresent();
+            assertThat(result.get().range()).isEqualTo(new ImageDataDto.Range(2, 5));
+            assertThat(result.get().imageStream().readAllBytes()).isEqualTo(Arrays.copyOfRange(BYTES, 2, 6));
+        }
+
+        @Test
+        void whenSmallImageIsNotInMemory_thenReadItWholeAndOfferToMemory() throws Exception {
+            // mockito
+            Mockito.when(imageRepository.findById(ID))
+                    .thenReturn(Optional.of(buildImage()));
+            Mockito.when(imageMemoryCache.accepts(SIZE))
+                    .thenReturn(true);
+            Mockito.when(imageStorage.readImageByKey(KEY))
+                    .thenReturn(Optional.of(BYTES));
+            Mockito.when(imageMemoryCache.put(any(Image.class), Mockito.eq(BYTES)))
+                    .thenReturn(buildCachedImage());
+
+            // when
+            Optional<ImageDataDto> result = imageService.downloadImageById(ID);
+
+            // then
+            assertThat(result).isPresent();
+            assertThat(result.get().imageStream().readAllBytes()).isEqualTo(BYTES);
+            Mockito.verify(imageStorage, Mockito.never()).openImageByKey(KEY);
+        }
+
+        @Test
+        void whenSmallImageDoesntExistInStorage_thenThrowCriticalException() throws Exception {
+            // mockito
+            Mockito.when(imageRepository.findById(ID))
+                    .thenReturn(Optional.of(buildImage()));
+            Mockito.when(imageMemoryCache.accepts(SIZE))
+                    .thenReturn(true);
+            Mockito.when(imageStorage.readImageByKey(KEY))
+                    .thenReturn(Optional.empty());
+
+            // when + then
+            assertThatThrownBy(() -> imageService.downloadImageById(ID)).isInstanceOf(CriticalSystemException.class);
+            Mockito.verify(imageMemoryCache, Mockito.never()).put(any(), any());
+        }
+
+    }
+
+    @Nested
+    class GetImageVersionTest {
+
+        @Test
+        void whenImageIsInMemory_thenReturnVersionWithoutRepository() {
+            // mockito
+            Mockito.when(imageMemoryCache.peek(ID, ORIGINAL_WIDTH))
+                    .thenReturn(Optional.of(buildCachedImage()));
+
+            // when
+            Optional<String> result = imageService.getImageVersion(ID);
+
+            // then
+            assertThat(result).contains(VERSION);
+            Mockito.verifyNoInteractions(imageRepository);
+        }
+
+        @Test
+        void whenImageIsNotInMemory_thenReturnVersionOfImageInRepository() {
+            // mockito
+            Mockito.when(imageRepository.findById(ID))
+                    .thenReturn(Optional.of(buildImage()));
+
+            // when
+            Optional<String> result = imageService.getImageVersion(ID);
+
+            // then
+            assertThat(result).contains(VERSION);
+        }
+
+        @Test
+        void whenImageDoesntExist_thenReturnEmptyOptional() {
+            // mockito
+            Mockito.when(imageRepository.findById(ID))
+                    .thenReturn(Optional.empty());
+
+            // when
+            Optional<String> result = imageService.getImageVersion(ID);
+
+            // then
+            assertThat(result).isNotPresent();
+        }
+
+        @Test
+        void whenIdIsNull_thenThrowException() {
+            // when + then
+            assertThatThrownBy(() -> imageService.getImageVersion(null)).isInstanceOf(NullPointerException.class);
+        }
+
+        @Test
+        void whenImageHasVariantOfWidth_thenReturnVersionOfVariant() {
+            // mockito
+            Mockito.when(imageRepository.findById(ID))
+                    .thenReturn(Optional.of(buildImageWithVariants()));
+
+            // when
+            Optional<String> result = imageService.getImageVersion(ID, 160);
+
+            // then
+            assertThat(result).contains(VARIANT_VERSION);
+        }
+
+        @Test
+        void whenImageHasNoVariantOfWidth_thenReturnVersionOfOriginal() {
+            // mockito
+            Mockito.when(imageRepository.findById(ID))
+                    .thenReturn(Optional.of(buildImage()));
+
+            // when
+            Optional<String> result = imageService.getImageVersion(ID, 160);
+
+            // then
+            assertThat(result).contains(VERSION);
+        }
+
+    }
+
+    @Nested
+    class DownloadImageVariantByIdTest {
+
+        @Test
+        void whenImageHasVariant_thenReadVariantAndOfferToMemory() throws Exception {
+            // mockito
+            Mockito.when(imageRepository.findById(ID))
+                    .thenReturn(Optional.of(buildImageWithVariants()));
+            Mockito.when(imageStorage.readImageByKey(VARIANT_KEY))
+                    .thenReturn(Optional.of(VARIANT_BYTES));
+            Mockito.when(imageMemoryCache.put(any(Image.class), Mockito.eq(160), Mockito.eq(VARIANT_KEY), Mockito.eq(VARIANT_BYTES)))
+                    .thenReturn(buildCachedVariant());
+
+            // when
+            Optional<ImageDataDto> result = imageService.downloadImageById(ID, 160);
+
+            // then
+            assertThat(result).isPresent();
+            assertThat(result.get().imageStream().readAllBytes()).isEqualTo(VARIANT_BYTES);
+            assertThat(result.get().size()).isEqualTo(VARIANT_BYTES.length);
+        }
+
+        @Test
+        void whenVariantIsInMemory_thenReturnItWithoutRepositoryAndStorage() throws Exception {
+            // mockito
+            Mockito.when(imageMemoryCache.get(ID, 160))
+                    .thenReturn(Optional.of(buildCachedVariant()));
+
+            // when
+            Optional<ImageDataDto> result = imageService.downloadImageById(ID, 160);
+
+            // then
+            assertThat(result).isPresent();
+            assertThat(result.get().imageStream().readAllBytes()).isEqualTo(VARIANT_BYTES);
+            Mockito.verifyNoInteractions(imageRepository, imageStorage);
+        }
+
+        @Test
+        void whenWidthIsBetweenVariants_thenReturnWiderVariant() {
+            // mockito
+            Mockito.when(imageMemoryCache.get(ID, 480))
+                    .thenReturn(Optional.of(buildCachedVariant()));
+
+            // when
+            Optional<ImageDataDto> result = imageService.downloadImageById(ID, 200);
+
+            // then
+            assertThat(result).isPresent();
+        }
+
+        @Test
+        void whenWidthIsWiderThanVariants_thenReturnOriginal() {
+            // mockito
+            Mockito.when(imageMemoryCache.get(ID, ORIGINAL_WIDTH))
+                    .thenReturn(Optional.of(buildCachedImage()));
+
+            // when
+            Optional<ImageDataDto> result = imageService.downloadImageById(ID, 5000);
+
+            // then
+            assertThat(result).map(ImageDataDto::size).contains(SIZE);
+        }
+
+        @Test
+        void whenImageHasNoVariants_thenReturnOriginal() throws Exception {
+            // given
+            InputStream imageStream = new ByteArrayInputStream(BYTES);
+
+            // mockito
+            Mockito.when(imageRepository.findById(ID))
+                    .thenReturn(Optional.of(buildImage()));
+            Mockito.when(imageStorage.openImageByKey(KEY))
+                    .thenReturn(Optional.of(imageStream));
+
+            // when
+            Optional<ImageDataDto> result = imageService.downloadImageById(ID, 160);
+
+            // then
+            assertThat(result).isPresent();
+            assertThat(result.get()).isEqualTo(buildImageDataDto(imageStream));
+            Mockito.verify(imageMemoryCache).get(ID, ORIGINAL_WIDTH);
+        }
+
+        @Test
+        void whenRangeOfVariant_thenReturnRange() throws Exception {
+            // mockito
+            Mockito.when(imageMemoryCache.get(ID, 160))
+                    .thenReturn(Optional.of(buildCachedVariant()));
+
+            // when
+            Optional<ImageDataDto> result = imageService.downloadImageById(ID, 160, HttpRange.createByteRange(1, 2));
+
+            // then
+            assertThat(result).isPresent();
+            assertThat(result.get().range()).isEqualTo(new ImageDataDto.Range(1, 2));
+            assertThat(result.get().imageStream().readAllBytes()).isEqualTo(Arrays.copyOfRange(VARIANT_BYTES, 1, 3));
+        }
+
+        @Test
+        void whenWidthIsNotPositive_thenThrowException() {
+            // when + then
+            assertThatThrownBy(() -> imageService.downloadImageById(ID, 0)).isInstanceOf(IllegalArgumentException.class);
+        }
+
+    }
+
+    @Nested
+    class DownloadImageRangeByIdTest {
+
+        @Test
+        void whenRangeIsInImage_thenReturnOptionalWithOpenedRange() throws Exception {
+            // given
+            InputStream imageStream = new ByteArrayInputStream(BYTES, 2, 4);
+
+            // mockito
+            Mockito.when(imageRepository.findById(ID))
+                    .thenReturn(Optional.of(buildImage()));
+            Mockito.when(imageStorage.openImageByKey(KEY, 2, 4))
+                    .thenReturn(Optional.of(imageStream));
+
+            // when
+            Optional<ImageDataDto> result = imageService.downloadImageById(ID, HttpRange.createByteRange(2, 5));
+
+            // then
+            assertThat(result).isPresent();
+            assertThat(result.get().imageStream()).isSameAs(imageStream);
+            assertThat(result.get().size()).isEqualTo(SIZE);
+            assertThat(result.get().range()).isEqualTo(new ImageDataDto.Range(2, 5));
+        }
+
+        @Test
+        void whenSuffixRange_thenOpenEndOfImage() throws Exception {
+            // mockito
+            Mockito.when(imageRepository.findById(ID))
+                    .thenReturn(Optional.of(buildImage()));
+            Mockito.when(imageStorage.openImageByKey(KEY, SIZE - 3, 3))
+                    .thenReturn(Optional.of(new ByteArrayInputStream(BYTES)));
+
+            // when
+            Optional<ImageDataDto> result = imageService.downloadImageById(ID, HttpRange.createSuffixRange(3));
+
+            // then
+            assertThat(result).map(ImageDataDto::range).contains(new ImageDataDto.Range(SIZE - 3, SIZE - 1));
+        }
+
+        @Test
+        void whenRangeEndsAfterImage_thenOpenUntilEndOfImage() throws Exception {
+            // mockito
+            Mockito.when(imageRepository.findById(ID))
+                    .thenReturn(Optional.of(buildImage()));
+            Mockito.when(imageStorage.openImageByKey(KEY, 4, SIZE - 4))
+                    .thenReturn(Optional.of(new ByteArrayInputStream(BYTES)));
+
+            // when
+            Optional<ImageDataDto> result = imageService.downloadImageById(ID, HttpRange.createByteRange(4, 1000));
+
+            // then
+            assertThat(result).map(ImageDataDto::range).contains(new ImageDataDto.Range(4, SIZE - 1));
+        }
+
+        @Test
+        void whenRangeStartsAfterImage_thenThrowRangeNotSatisfiableException() throws Exception {
+            // mockito
+            Mockito.when(imageRepository.findById(ID))
+                    .thenReturn(Optional.of(buildImage()));
+
+            // when + then
+            assertThatThrownBy(() -> imageService.downloadImageById(ID, HttpRange.createByteRange(SIZE)))
+                    .isInstanceOf(RangeNotSatisfiableException.class)
+                    .extracting("size")
+                    .isEqualTo(SIZE);
+            Mockito.verify(imageStorage, Mockito.never()).openImageByKey(any(), anyLong(), anyLong());
+        }
+
+        @Test
+        void whenImageNotFoundById_thenReturnEmptyOptional() {
+            // mockito
+            Mockito.when(imageRepository.findById(ID))
+                    .thenReturn(Optional.empty());
+
+            // when
+            Optional<ImageDataDto> result = imageService.downloadImageById(ID, HttpRange.createByteRange(0));
+
+            // then
+            assertThat(result).isNotPresent();
+        }
+
+        @Test
+        void whenRangeIsNull_thenThrowException() {
+            // when + then
+            assertThatThrownBy(() -> imageService.downloadImageById(ID, null)).isInstanceOf(NullPointerException.class);
+        }
+
+    }
+
     @Nested
     class GetImageByIdTest {
 
@@ -136,7 +509,7 @@ class ImageServiceImplTest {
     class UploadImageTest {
 
         @Test
-        void whenImageDoesntExist_thenCreateAndStoreImage() {
+        void whenImageDoesntExist_thenCreateAndStoreImage() throws Exception {
             // given
             MultipartFile multipartFile = buildMultipartFile();
 
@@ -145,12 +518,65 @@ class ImageServiceImplTest {
                     .thenReturn(MIME_TYPE);
             Mockito.when(imageRepository.save(buildImageWithoutId()))
                     .thenReturn(buildImage());
+            Mockito.when(imageVariantGenerator.isEnabled())
+                    .thenReturn(true);
+            Mockito.when(imageVariantGenerator.generate(any(), Mockito.eq(MIME_TYPE.getType()), Mockito.eq(BYTES)))
+                    .thenReturn(VARIANT_WIDTHS);
 
             // when
             Image result = imageService.uploadImage(multipartFile);
 
             // then
             assertThat(result.getId()).isEqualTo(ID);
+            assertThat(result.getVariantWidths()).isEqualTo(VARIANT_WIDTHS);
+        }
+
+        @Test
+        void whenVariantsFail_thenStoreImageWithoutVariants() throws Exception {
+            // given
+            MultipartFile multipartFile = buildMultipartFile();
+
+            // mockito
+            Mockito.when(mimeTypeService.createIfDoesntExist(multipartFile))
+                    .thenReturn(MIME_TYPE);
+            Mockito.when(imageRepository.save(buildImageWithoutId()))
+                    .thenReturn(buildImage());
+            Mockito.when(imageVariantGenerator.isEnabled())
+                    .thenReturn(true);
+            Mockito.when(imageVariantGenerator.generate(any(), any(), any()))
+                    .thenThrow(new ImageStorageException("Storage is unavailable"));
+
+            // when
+            Image result = imageService.uploadImage(multipartFile);
+
+            // then
+            assertThat(result.getId()).isEqualTo(ID);
+            assertThat(result.getVariantWidths()).isNull();
+            Mockito.verify(imageStorage).putImage(KEY, multipartFile);
+        }
+
+        @Test
+        void whenVariantsThrowRuntimeException_thenStoreImageWithoutVariants() throws Exception {
+            // given
+            MultipartFile multipartFile = buildMultipartFile();
+
+            // mockito
+            Mockito.when(mimeTypeService.createIfDoesntExist(multipartFile))
+                    .thenReturn(MIME_TYPE);
+            Mockito.when(imageRepository.save(buildImageWithoutId()))
+                    .thenReturn(buildImage());
+            Mockito.when(imageVariantGenerator.isEnabled())
+                    .thenReturn(true);
+            Mockito.when(imageVariantGenerator.generate(any(), any(), any()))
+                    .thenThrow(new IllegalArgumentException("Invalid ICC profile"));
+
+            // when
+            Image result = imageService.uploadImage(multipartFile);
+
+            // then
+            assertThat(result.getId()).isEqualTo(ID);
+            assertThat(result.getVariantWidths()).isNull();
+            Mockito.verify(imageStorage).putImage(KEY, multipartFile);
         }
 
         @Test
@@ -188,6 +614,23 @@ class ImageServiceImplTest {
             // then
             Mockito.verify(imageStorage).deleteImage(KEY);
             Mockito.verify(imageRepository).deleteById(ID);
+            Mockito.verify(imageMemoryCache).invalidate(ID);
+        }
+
+        @Test
+        void whenImageHasVariants_thenDeleteVariants() throws ImageStorageException {
+            // mockito
+            Mockito.when(imageRepository.findById(ID))
+                    .thenReturn(Optional.of(buildImageWithVariants()));
+
+            // when
+            imageService.deleteImage(ID);
+
+            // then
+            Mockito.verify(imageStorage).deleteImage(KEY);
+            for (int width : VARIANT_WIDTHS) {
+                Mockito.verify(imageStorage).deleteImage(ImageVariantGenerator.variantKey(KEY, width));
+            }
         }
 
         @Test
@@ -208,13 +651,93 @@ class ImageServiceImplTest {
 
     }
 
+    @Nested
+    class DeleteImagesOfPhoneTest {
+
+        @AfterEach
+        void tearDown() {
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+        }
+
+        @Test
+        void whenPhoneHasImages_thenDeleteThemAndTheirObjectsAfterCommit() throws ImageStorageException {
+            // given
+            List<Image> images = List.of(buildImageWithVariants());
+            TransactionSynchronizationManager.initSynchronization();
+
+            // mockito
+            Mockito.when(imageRepository.getImagesByPhone_Id(PHONE_ID))
+                    .thenReturn(images);
+
+            // when
+            imageService.deleteImagesOfPhone(PHONE_ID);
+
+            // then
+            Mockito.verify(imageRepository).deleteAll(images);
+            Mockito.verifyNoInteractions(imageStorage);
+
+            TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+            Mockito.verify(imageStorage).deleteImage(KEY);
+            for (int width : VARIANT_WIDTHS) {
+                Mockito.verify(imageStorage).deleteImage(ImageVariantGenerator.variantKey(KEY, width));
+            }
+            Mockito.verify(imageMemoryCache).invalidate(ID);
+        }
+
+        @Test
+        void whenStorageFails_thenDeleteRemainingObjects() throws ImageStorageException {
+            // mockito
+            Mockito.when(imageRepository.getImagesByPhone_Id(PHONE_ID))
+                    .thenReturn(List.of(buildImageWithVariants()));
+            Mockito.doThrow(new ImageStorageException("Storage is unavailable"))
+                    .when(imageStorage).deleteImage(KEY);
+
+            // when
+            imageService.deleteImagesOfPhone(PHONE_ID);
+
+            // then
+            for (int width : VARIANT_WIDTHS) {
+                Mockito.verify(imageStorage).deleteImage(ImageVariantGenerator.variantKey(KEY, width));
+            }
+        }
+
+        @Test
+        void whenPhoneHasNoImages_thenDeleteNothing() {
+            // mockito
+            Mockito.when(imageRepository.getImagesByPhone_Id(PHONE_ID))
+                    .thenReturn(List.of());
+
+            // when
+            imageService.deleteImagesOfPhone(PHONE_ID);
+
+            // then
+            Mockito.verify(imageRepository, Mockito.never()).deleteAll(any());
+            Mockito.verifyNoInteractions(imageStorage);
+        }
+
+        @Test
+        void whenParameterPhoneIdIsNull_thenThrowException() {
+            // when + then
+            assertThatThrownBy(() -> imageService.deleteImagesOfPhone(null)).isInstanceOf(NullPointerException.class);
+        }
+
+    }
+
     static class TestResources {
         static final long ID = 10L;
+        static final long PHONE_ID = 1L;
         static final String KEY = "image.jpg";
         static final String NAME = "image.jpg";
         static final MIMEType MIME_TYPE = buildMIMEType();
         static final long SIZE = buildBytes().length;
         static final byte[] BYTES = buildBytes();
+        static final String VERSION = DigestUtils.md5DigestAsHex(KEY.getBytes(StandardCharsets.UTF_8));
+        static final List<Integer> VARIANT_WIDTHS = List.of(160, 480);
+        static final String VARIANT_KEY = ImageVariantGenerator.variantKey(KEY, 160);
+        static final byte[] VARIANT_BYTES = "variant".getBytes();
+        static final String VARIANT_VERSION = DigestUtils.md5DigestAsHex(VARIANT_KEY.getBytes(StandardCharsets.UTF_8));
 
         static final String INVALID_MIME_TYPE = "image/invalid-image-type";
 
@@ -272,15 +795,23 @@ class ImageServiceImplTest {
             return true;
         }
 
-        static ImageDataDto buildImageDataDto() {
+        static ImageDataDto buildImageDataDto(InputStream imageStream) {
             return new ImageDataDto(
                     NAME,
-                    BYTES,
+                    imageStream,
                     MIME_TYPE.getType(),
                     SIZE
             );
         }
 
+        static CachedImage buildCachedImage() {
+            return new CachedImage(NAME, MIME_TYPE.getType(), KEY, null, ByteBuffer.wrap(BYTES));
+        }
+
+        static CachedImage buildCachedVariant() {
+            return new CachedImage(NAME, MIME_TYPE.getType(), VARIANT_KEY, null, ByteBuffer.wrap(VARIANT_BYTES));
+        }
+
         static Image buildImageWithoutId() {
             return Image.builder()
                     .name(NAME)
@@ -297,6 +828,13 @@ class ImageServiceImplTest {
             return image;
         }
 
+        static Image buildImageWithVariants() {
+            Image image = buildImage();
+            image.setVariantWidths(VARIANT_WIDTHS);
+
+            return image;
+        }
+
         private static byte[] buildBytes() {
             // it is enough for test
             return KEY.getBytes();
@@ -0,0 +1,261 @@
+package com.challengeteam.shop.service.impl;
+
+import com.challengeteam.shop.dto.image.ImageVariantBackfillResponseDto;
+import com.challengeteam.shop.entity.image.Image;
+import com.challengeteam.shop.entity.image.MIMEType;
+import com.challengeteam.shop.exceptionHandling.exception.ImageStorageException;
+import com.challengeteam.shop.exceptionHandling.exception.InvalidAPIRequestException;
+import com.challengeteam.shop.persistence.repository.ImageRepository;
+import com.challengeteam.shop.persistence.storage.ImageStorage;
+import com.challengeteam.shop.properties.ImageVariantProperties;
+import com.challengeteam.shop.service.impl.variant.ImageVariantGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static com.challengeteam.shop.service.impl.ImageVariantBackfillServiceImplTest.TestResources.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+
+@ExtendWith(MockitoExtension.class)
+class ImageVariantBackfillServiceImplTest {
+    @Mock
+    private ImageRepository imageRepository;
+    @Mock
+    private ImageStorage imageStorage;
+    @Mock
+    private ImageVariantGenerator imageVariantGenerator;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    private ImageVariantProperties properties;
+    private ImageVariantBackfillServiceImpl backfillService;
+    private Map<Long, Image> images;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ImageVariantProperties();
+        properties.setBackfillBatchSize(2);
+        properties.setBackfillThreads(2);
+        backfillService = new ImageVariantBackfillServiceImpl(
+                imageRepository,
+                imageStorage,
+                imageVariantGenerator,
+                transactionManager,
+                properties
+        );
+        images = new ConcurrentHashMap<>();
+    }
+
+    @AfterEach
+    void tearDown() {
+        backfillService.shutdown();
+    }
+
+    @Nested
+    class BackfillTest {
+
+        @Test
+        void whenImagesHaveNoVariants_thenGenerateAndSaveTheirWidthsPageByPage() throws Exception {
+            // given
+            givenImages(1L, 2L, 3L);
+
+            // mockito
+            Mockito.when(imageVariantGenerator.isEnabled())
+                    .thenReturn(true);
+            Mockito.when(imageRepository.findIdsWithoutVariants(0L, Limit.of(2)))
+                    .thenReturn(List.of(1L, 2L));
+            Mockito.when(imageRepository.findIdsWithoutVariants(2L, Limit.of(2)))
+                    .thenReturn(List.of(3L));
+            Mockito.when(imageRepository.findIdsWithoutVariants(3L, Limit.of(2)))
+                    .thenReturn(List.of());
+            Mockito.when(imageStorage.readImageByKey(any()))
+                    .thenReturn(Optional.of(BYTES));
+            Mockito.when(imageVariantGenerator.generate(any(), eq(MIME_TYPE), eq(BYTES)))
+                    .thenReturn(WIDTHS);
+
+            // when
+            ImageVariantBackfillResponseDto result = backfillService.backfill().get();
+
+            // then
+            assertThat(result).isEqualTo(new ImageVariantBackfillResponseDto(3, 0));
+            assertThat(images.values()).allSatisfy(image -> assertThat(image.getVariantWidths()).isEqualTo(WIDTHS));
+        }
+
+        @Test
+        void whenImageFails_thenSkipItAndContinue() throws Exception {
+            // given
+            givenImages(1L, 2L);
+
+            // mockito
+            Mockito.when(imageVariantGenerator.isEnabled())
+                    .thenReturn(true);
+            Mockito.when(imageRepository.findIdsWithoutVariants(0L, Limit.of(2)))
+                    .thenReturn(List.of(1L, 2L));
+            Mockito.when(imageRepository.findIdsWithoutVariants(2L, Limit.of(2)))
+                    .thenReturn(List.of());
+            Mockito.when(imageStorage.readImageByKey(key(1L)))
+                    .thenThrow(new ImageStorageException("Storage is unavailable"));
+            Mockito.when(imageStorage.readImageByKey(key(2L)))
+                    .thenReturn(Optional.of(BYTES));
+            Mockito.when(imageVariantGenerator.generate(key(2L), MIME_TYPE, BYTES))
+                    .thenReturn(WIDTHS);
+
+            // when
+            ImageVariantBackfillResponseDto result = backfillService.backfill().get();
+
+            // then
+            assertThat(result).isEqualTo(new ImageVariantBackfillResponseDto(1, 1));
+            assertThat(images.get(1L).getVariantWidths()).isNull();
+            assertThat(images.get(2L).getVariantWidths()).isEqualTo(WIDTHS);
+        }
+
+        @Test
+        void whenImageThrowsRuntimeException_thenCountFailedAndContinue() throws Exception {
+            // given
+            givenImages(1L, 2L, 3L);
+
+            // mockito
+            Mockito.when(imageVariantGenerator.isEnabled())
+                    .thenReturn(true);
+            Mockito.when(imageRepository.findIdsWithoutVariants(0L, Limit.of(2)))
+                    .thenReturn(List.of(1L, 2L));
+            Mockito.when(imageRepository.findIdsWithoutVariants(2L, Limit.of(2)))
+                    .thenReturn(List.of(3L));
+            Mockito.when(imageRepository.findIdsWithoutVariants(3L, Limit.of(2)))
+                    .thenReturn(List.of());
+            Mockito.when(imageStorage.readImageByKey(any()))
+                    .thenReturn(Optional.of(BYTES));
+            Mockito.when(imageVariantGenerator.generate(key(1L), MIME_TYPE, BYTES))
+                    .thenThrow(new IllegalArgumentException("Invalid ICC profile"));
+            Mockito.when(imageVariantGenerator.generate(key(2L), MIME_TYPE, BYTES))
+                    .thenThrow(new OutOfMemoryError("Java heap space"));
+            Mockito.when(imageVariantGenerator.generate(key(3L), MIME_TYPE, BYTES))
+                    .thenReturn(WIDTHS);
+
+            // when
+            ImageVariantBackfillResponseDto result = backfillService.backfill().get();
+
+            // then
+            assertThat(result).isEqualTo(new ImageVariantBackfillResponseDto(1, 2));
+            assertThat(images.get(3L).getVariantWidths()).isEqualTo(WIDTHS);
+        }
+
+        @Test
+        void whenBackfillIsRunning_thenThrowException() throws Exception {
+            // given
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+
+            // mockito
+            Mockito.when(imageVariantGenerator.isEnabled())
+                    .thenReturn(true);
+            Mockito.when(imageRepository.findIdsWithoutVariants(anyLong(), any()))
+                    .thenAnswer(invocation -> {
+                        started.countDown();
+                        release.await();
+                        return List.of();
+                    });
+
+            // when
+            CompletableFuture<ImageVariantBackfillResponseDto> running = backfillService.backfill();
+            started.await();
+
+            // then
+            assertThatThrownBy(() -> backfillService.backfill()).isInstanceOf(InvalidAPIRequestException.class);
+            release.countDown();
+            assertThat(running.get()).isEqualTo(new ImageVariantBackfillResponseDto(0, 0));
+        }
+
+        @Test
+        void whenOriginalDoesntExistInStorage_thenReportFailed() throws Exception {
+            // given
+            givenImages(1L);
+
+            // mockito
+            Mockito.when(imageVariantGenerator.isEnabled())
+                    .thenReturn(true);
+            Mockito.when(imageRepository.findIdsWithoutVariants(0L, Limit.of(2)))
+                    .thenReturn(List.of(1L));
+            Mockito.when(imageRepository.findIdsWithoutVariants(1L, Limit.of(2)))
+                    .thenReturn(List.of());
+            Mockito.when(imageStorage.readImageByKey(key(1L)))
+                    .thenReturn(Optional.empty());
+
+            // when
+            ImageVariantBackfillResponseDto result = backfillService.backfill().get();
+
+            // then
+            assertThat(result).isEqualTo(new ImageVariantBackfillResponseDto(0, 1));
+            Mockito.verifyNoMoreInteractions(imageVariantGenerator);
+        }
+
+        @Test
+        void whenNoImagesWithoutVariants_thenReportNothing() throws Exception {
+            // mockito
+            Mockito.when(imageVariantGenerator.isEnabled())
+                    .thenReturn(true);
+            Mockito.when(imageRepository.findIdsWithoutVariants(anyLong(), any()))
+                    .thenReturn(List.of());
+
+            // when
+            ImageVariantBackfillResponseDto result = backfillService.backfill().get();
+
+            // then
+            assertThat(result).isEqualTo(new ImageVariantBackfillResponseDto(0, 0));
+        }
+
+        @Test
+        void whenVariantsAreDisabled_thenThrowException() {
+            // when + then
+            assertThatThrownBy(() -> backfillService.backfill()).isInstanceOf(InvalidAPIRequestException.class);
+            Mockito.verifyNoInteractions(imageRepository);
+        }
+
+    }
+
+    private void givenImages(Long... ids) {
+        for (Long id : ids) {
+            images.put(id, buildImage(id));
+        }
+        Mockito.when(imageRepository.findById(any()))
+                .thenAnswer(invocation -> Optional.ofNullable(images.get(invocation.<Long>getArgument(0))));
+    }
+
+    static class TestResources {
+        static final String MIME_TYPE = "image/jpeg";
+        static final byte[] BYTES = "original".getBytes();
+        static final List<Integer> WIDTHS = List.of(160, 480);
+
+        static String key(Long id) {
+            return "image-" + id + ".jpg";
+        }
+
+        static Image buildImage(Long id) {
+            return Image.builder()
+                    .id(id)
+                    .name("image.jpg")
+                    .storageKey(key(id))
+                    .size((long) BYTES.length)
+                    .mimeType(MIMEType.builder().extension("jpg").type(MIME_TYPE).build())
+                    .build();
+        }
+    }
+
+}
@@ -0,0 +1,307 @@
+package com.challengeteam.shop.service.impl;
+
+import com.challengeteam.shop.dto.pagination.PhoneFilterDto;
+import com.challengeteam.shop.entity.phone.Phone;
+import com.challengeteam.shop.persistence.repository.PhoneRepository;
+import com.challengeteam.shop.properties.PhoneCountProperties;
+import com.challengeteam.shop.service.event.PhoneChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static com.challengeteam.shop.service.impl.PhoneCountServiceImplTest.TestResources.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+
+@ExtendWith(MockitoExtension.class)
+class PhoneCountServiceImplTest {
+    @Mock
+    private PhoneRepository phoneRepository;
+    private PhoneCountProperties phoneCountProperties;
+    private PhoneCountServiceImpl phoneCountService;
+
+    @BeforeEach
+    void setUp() {
+        phoneCountProperties = new PhoneCountProperties();
+        phoneCountService = new PhoneCountServiceImpl(phoneRepository, phoneCountProperties);
+    }
+
+    @Nested
+    class CountPhonesTest {
+
+        @Test
+        void whenSameFilterRequestedTwice_thenCountOnlyOnce() {
+            // mockito
+            Mockito.when(phoneRepository.count(anySpecification()))
+                    .thenReturn(COUNT);
+
+            // when
+            long first = phoneCountService.countPhones(buildFilter("Apple", "100", null));
+            long second = phoneCountService.countPhones(buildFilter("Apple", "100", null));
+
+            // then
+            assertThat(first).isEqualTo(COUNT);
+            assertThat(second).isEqualTo(COUNT);
+            Mockito.verify(phoneRepository, Mockito.times(1)).count(anySpecification());
+        }
+
+        @Test
+        void whenFiltersDifferOnlyInBrandCaseAndPriceScale_thenShareCachedCount() {
+            // mockito
+            Mockito.when(phoneRepository.count(anySpecification()))
+                    .thenReturn(COUNT);
+
+            // when
+            phoneCountService.countPhones(buildFilter("apple", "100", "999.90"));
+            long result = phoneCountService.countPhones(buildFilter("APPLE", "100.00", "999.9"));
+
+            // then
+            assertThat(result).isEqualTo(COUNT);
+            Mockito.verify(phoneRepository, Mockito.times(1)).count(anySpecification());
+        }
+
+        @Test
+        void whenOnlySortDiffers_thenShareCachedCount() {
+            // mockito
+            Mockito.when(phoneRepository.count(anySpecification()))
+                    .thenReturn(COUNT);
+
+            // when
+            phoneCountService.countPhones(PhoneFilterDto.builder().sort("name_asc").build());
+            phoneCountService.countPhones(PhoneFilterDto.builder().sort("price_desc").build());
+
+            // then
+            Mockito.verify(phoneRepository, Mockito.times(1)).count(anySpecification());
+        }
+
+        @Test
+        void whenSearchQueriesDifferOnlyInCaseAndWhitespace_thenShareCachedCount() {
+            // mockito
+            Mockito.when(phoneRepository.count(anySpecification()))
+                    .thenReturn(COUNT);
+
+            // when
+            phoneCountService.countPhones(PhoneFilterDto.builder().q("Galaxy  Phone").build());
+            phoneCountService.countPhones(PhoneFilterDto.builder().q(" galaxy phone ").build());
+
+            // then
+            Mockito.verify(phoneRepository, Mockito.times(1)).count(anySpecification());
+        }
+
+        @Test
+        void whenEstimateEnabledAndSearching_thenCountExactly() {
+            // given
+            phoneCountProperties.setEstimateUnfiltered(true);
+
+            // mockito
+            Mockito.when(phoneRepository.count(anySpecification()))
+                    .thenReturn(COUNT);
+
+            // when
+            long result = phoneCountService.countPhones(PhoneFilterDto.builder().q("galaxy").build());
+
+            // then
+            assertThat(result).isEqualTo(COUNT);
+            Mockito.verify(phoneRepository, Mockito.never()).estimateCount();
+        }
+
+        @Test
+        void whenDifferentFilters_thenCountEach() {
+            // mockito
+            Mockito.when(phoneRepository.count(anySpecification()))
+                    .thenReturn(COUNT);
+
+            // when
+            phoneCountService.countPhones(buildFilter("Apple", null, null));
+            phoneCountService.countPhones(buildFilter("Samsung", null, null));
+
+            // then
+            Mockito.verify(phoneRepository, Mockito.times(2)).count(anySpecification());
+        }
+
+        @Test
+        void whenCharacteristicRangesDiffer_thenCountEach() {
+            // mockito
+            Mockito.when(phoneRepository.count(anySpecification()))
+                    .thenReturn(COUNT);
+
+            // when
+            phoneCountService.countPhones(PhoneFilterDto.builder().minBatteryMah(4000).build());
+            phoneCountService.countPhones(PhoneFilterDto.builder().minBatteryMah(5000).build());
+            phoneCountService.countPhones(PhoneFilterDto.builder().minScreenInches(new BigDecimal("6.5")).build());
+            phoneCountService.countPhones(PhoneFilterDto.builder().minScreenInches(new BigDecimal("6.50")).build());
+
+            // then
+            Mockito.verify(phoneRepository, Mockito.times(3)).count(anySpecification());
+        }
+
+        @Test
+        void whenMultiValueFiltersDifferOnlyInOrderAndCase_thenShareCachedCount() {
+            // mockito
+            Mockito.when(phoneRepository.count(anySpecification()))
+                    .thenReturn(COUNT);
+
+            // when
+            phoneCountService.countPhones(PhoneFilterDto.builder().brands(List.of("Apple", "Google")).releaseYears(List.of(2023, 2024)).build());
+            phoneCountService.countPhones(PhoneFilterDto.builder().brands(List.of("google", "APPLE")).releaseYears(List.of(2024, 2023)).build());
+            phoneCountService.countPhones(PhoneFilterDto.builder().brands(List.of("Apple")).releaseYears(List.of(2023, 2024)).build());
+
+            // then
+            Mockito.verify(phoneRepository, Mockito.times(2)).count(anySpecification());
+        }
+
+        @Test
+        void whenPhoneChanged_thenCountAgain() {
+            // mockito
+            Mockito.when(phoneRepository.count(anySpecification()))
+                    .thenReturn(COUNT, COUNT + 1);
+
+            // when
+            phoneCountService.countPhones(buildFilter("Apple", null, null));
+            phoneCountService.onPhoneChanged(new PhoneChangedEvent(1L, PhoneChangedEvent.ChangeType.CREATED));
+            long result = phoneCountService.countPhones(buildFilter("Apple", null, null));
+
+            // then
+            assertThat(result).isEqualTo(COUNT + 1);
+            Mockito.verify(phoneRepository, Mockito.times(2)).count(anySpecification());
+        }
+
+        @Test
+        void whenPhoneChangedWhileCounting_thenDontCacheCount() {
+            // mockito
+            Mockito.when(phoneRepository.count(anySpecification()))
+                    .then(invocation -> {
+                        // committed after the count read the table
+                        phoneCountService.onPhoneChanged(new PhoneChangedEvent(1L, PhoneChangedEvent.ChangeType.DELETED));
+                        return COUNT;
+                    })
+                    .thenReturn(COUNT - 1);
+
+            // when
+            long first = phoneCountService.countPhones(buildFilter("Apple", null, null));
+            long second = phoneCountService.countPhones(buildFilter("Apple", null, null));
+
+            // then
+            assertThat(first).isEqualTo(COUNT);
+            assertThat(second).isEqualTo(COUNT - 1);
+            Mockito.verify(phoneRepository, Mockito.times(2)).count(anySpecification());
+        }
+
+        @Test
+        void whenEstimateEnabledAndUnfiltered_thenUseEstimate() {
+            // given
+            phoneCountProperties.setEstimateUnfiltered(true);
+
+            // mockito
+            Mockito.when(phoneRepository.estimateCount())
+                    .thenReturn(ESTIMATE);
+
+            // when
+            long result = phoneCountService.countPhones(buildFilter(" ", null, null));
+
+            // then
+            assertThat(result).isEqualTo(ESTIMATE);
+            Mockito.verify(phoneRepository, Mockito.never()).count(anySpecification());
+        }
+
+        @Test
+        void whenEstimateEnabledAndTableNeverAnalyzed_thenCountExactly() {
+            // given
+            phoneCountProperties.setEstimateUnfiltered(true);
+
+            // mockito
+            Mockito.when(phoneRepository.estimateCount())
+                    .thenReturn(-1L);
+            Mockito.when(phoneRepository.count(anySpecification()))
+                    .thenReturn(COUNT);
+
+            // when
+            long result = phoneCountService.countPhones(buildFilter(null, null, null));
+
+            // then
+            assertThat(result).isEqualTo(COUNT);
+        }
+
+        @Test
+        void whenEstimateEnabledAndFiltered_thenCountExactly() {
+            // given
+            phoneCountProperties.setEstimateUnfiltered(true);
+
+            // mockito
+            Mockito.when(phoneRepository.count(anySpecification()))
+                    .thenReturn(COUNT);
+
+            // when
+            long result = phoneCountService.countPhones(buildFilter("Apple", null, null));
+
+            // then
+            assertThat(result).isEqualTo(COUNT);
+            Mockito.verify(phoneRepository, Mockito.never()).estimateCount();
+        }
+
+        @Test
+        void whenEstimateEnabledAndFilteredByCharacteristic_thenCountExactly() {
+            // given
+            phoneCountProperties.setEstimateUnfiltered(true);
+
+            // mockito
+            Mockito.when(phoneRepository.count(anySpecification()))
+                    .thenReturn(COUNT);
+
+            // when
+            long result = phoneCountService.countPhones(PhoneFilterDto.builder().maxCoresNumber(4).build());
+
+            // then
+            assertThat(result).isEqualTo(COUNT);
+            Mockito.verify(phoneRepository, Mockito.never()).estimateCount();
+        }
+
+        @Test
+        void whenEstimateDisabled_thenNeverUseEstimate() {
+            // mockito
+            Mockito.when(phoneRepository.count(anySpecification()))
+                    .thenReturn(COUNT);
+
+            // when
+            phoneCountService.countPhones(buildFilter(null, null, null));
+
+            // then
+            Mockito.verify(phoneRepository, Mockito.never()).estimateCount();
+        }
+
+        @Test
+        void whenFilterIsNull_thenThrowNullPointerException() {
+            // when + then
+            assertThatThrownBy(() -> phoneCountService.countPhones(null))
+                    .isInstanceOf(NullPointerException.class);
+        }
+
+    }
+
+    private static Specification<Phone> anySpecification() {
+        return any();
+    }
+
+    static class TestResources {
+        static final long COUNT = 42L;
+        static final long ESTIMATE = 40L;
+
+        static PhoneFilterDto buildFilter(String brand, String minPrice, String maxPrice) {
+            return PhoneFilterDto.builder()
+                    .brand(brand)
+                    .minPrice(minPrice == null ? null : new BigDecimal(minPrice))
+                    .maxPrice(maxPrice == null ? null : new BigDecimal(maxPrice))
+                    .build();
+        }
+    }
+
+}
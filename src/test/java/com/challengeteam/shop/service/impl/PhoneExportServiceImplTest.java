@@ -0,0 +1,143 @@
+package com.challengeteam.shop.service.impl;
+
+import com.challengeteam.shop.dto.phone.PhoneView;
+import com.challengeteam.shop.persistence.repository.ImageRepository;
+import com.challengeteam.shop.persistence.repository.PhoneRepository;
+import com.challengeteam.shop.persistence.repository.projection.ImageMetadataRow;
+import com.challengeteam.shop.persistence.repository.projection.PhoneDetailsRow;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static com.challengeteam.shop.service.impl.PhoneExportServiceImplTest.TestResources.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+
+@ExtendWith(MockitoExtension.class)
+class PhoneExportServiceImplTest {
+    @Mock
+    private PhoneRepository phoneRepository;
+    @Mock
+    private ImageRepository imageRepository;
+    @InjectMocks
+    private PhoneExportServiceImpl phoneExportService;
+
+    @Nested
+    class ExportPhonesTest {
+
+        @Test
+        void whenCatalogHasPhones_thenPassEachPhoneWithItsImagesInOrder() {
+            // given
+            List<PhoneView> exported = new ArrayList<>();
+            Stream<PhoneDetailsRow> phones = Stream.of(buildPhone(1L), buildPhone(2L));
+            ImageMetadataRow image = buildImage(10L, 2L);
+
+            // mockito
+            Mockito.when(phoneRepository.streamDetailsRows())
+                    .thenReturn(phones);
+            Mockito.when(imageRepository.findMetadataRowsByPhoneIdIn(List.of(1L, 2L)))
+                    .thenReturn(List.of(image));
+
+            // when
+            long result = phoneExportService.exportPhones(exported::add);
+
+            // then
+            assertThat(result).isEqualTo(2);
+            assertThat(exported).extracting(view -> view.phone().getId()).containsExactly(1L, 2L);
+            assertThat(exported.get(0).images()).isEmpty();
+            assertThat(exported.get(1).images()).containsExactly(image);
+        }
+
+        @Test
+        void whenCatalogIsLargerThanBatch_thenReadImagesPerBatch() {
+            // given
+            int count = BATCH_SIZE * 2 + 1;
+            List<PhoneDetailsRow> phones = LongStream.rangeClosed(1, count).mapToObj(TestResources::buildPhone).toList();
+            List<PhoneView> exported = new ArrayList<>();
+
+            // mockito
+            Mockito.when(phoneRepository.streamDetailsRows())
+                    .thenReturn(phones.stream());
+            Mockito.when(imageRepository.findMetadataRowsByPhoneIdIn(anyCollection()))
+                    .thenReturn(List.of());
+
+            // when
+            long result = phoneExportService.exportPhones(exported::add);
+
+            // then
+            assertThat(result).isEqualTo(count);
+            assertThat(exported).hasSize(count);
+            Mockito.verify(imageRepository, Mockito.times(3)).findMetadataRowsByPhoneIdIn(anyCollection());
+        }
+
+        @Test
+        void whenCatalogIsEmpty_thenExportNothing() {
+            // mockito
+            Mockito.when(phoneRepository.streamDetailsRows())
+                    .thenReturn(Stream.empty());
+
+            // when
+            long result = phoneExportService.exportPhones(view -> {
+                throw new AssertionError("nothing to export");
+            });
+
+            // then
+            assertThat(result).isZero();
+            Mockito.verifyNoInteractions(imageRepository);
+        }
+
+        @Test
+        void whenConsumerThrows_thenCloseStreamAndThrow() {
+            // given
+            AtomicBoolean closed = new AtomicBoolean();
+            Stream<PhoneDetailsRow> phones = Stream.of(buildPhone(1L)).onClose(() -> closed.set(true));
+
+            // mockito
+            Mockito.when(phoneRepository.streamDetailsRows())
+                    .thenReturn(phones);
+
+            // when + then
+            assertThatThrownBy(() -> phoneExportService.exportPhones(view -> {
+                throw new IllegalStateException("client gone");
+            })).isInstanceOf(IllegalStateException.class);
+            assertThat(closed).isTrue();
+        }
+
+        @Test
+        void whenConsumerIsNull_thenThrowNullPointerException() {
+            // when + then
+            assertThatThrownBy(() -> phoneExportService.exportPhones(null))
+                    .isInstanceOf(NullPointerException.class);
+        }
+
+    }
+
+    static class TestResources {
+        static final int BATCH_SIZE = PhoneRepository.EXPORT_FETCH_SIZE;
+
+        static PhoneDetailsRow buildPhone(long id) {
+            PhoneDetailsRow phone = Mockito.mock(PhoneDetailsRow.class);
+            Mockito.lenient().when(phone.getId()).thenReturn(id);
+            return phone;
+        }
+
+        static ImageMetadataRow buildImage(long id, long phoneId) {
+            ImageMetadataRow image = Mockito.mock(ImageMetadataRow.class);
+            Mockito.lenient().when(image.getId()).thenReturn(id);
+            Mockito.lenient().when(image.getPhoneId()).thenReturn(phoneId);
+            return image;
+        }
+    }
+
+}
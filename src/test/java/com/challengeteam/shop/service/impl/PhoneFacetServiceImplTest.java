@@ -0,0 +1,394 @@
+package com.challengeteam.shop.service.impl;
+
+import com.challengeteam.shop.dto.pagination.PhoneFilterDto;
+import com.challengeteam.shop.dto.phone.facet.BrandFacetDto;
+import com.challengeteam.shop.dto.phone.facet.PhoneFacetsResponseDto;
+import com.challengeteam.shop.dto.phone.facet.PriceBucketFacetDto;
+import com.challengeteam.shop.dto.phone.facet.ReleaseYearFacetDto;
+import com.challengeteam.shop.entity.phone.Phone;
+import com.challengeteam.shop.persistence.repository.PhoneRepository;
+import com.challengeteam.shop.persistence.repository.projection.PhoneFacetRow;
+import com.challengeteam.shop.properties.PhoneFacetProperties;
+import com.challengeteam.shop.service.event.PhoneChangedEvent;
+import com.challengeteam.shop.service.event.PhoneChangedEvent.ChangeType;
+import com.challengeteam.shop.service.impl.filter.PhoneFilterIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static com.challengeteam.shop.service.impl.PhoneFacetServiceImplTest.TestResources.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+
+@ExtendWith(MockitoExtension.class)
+class PhoneFacetServiceImplTest {
+    @Mock
+    private PhoneRepository phoneRepository;
+    @Mock
+    private PhoneFilterIndex phoneFilterIndex;
+    private PhoneFacetServiceImpl phoneFacetService;
+
+    @BeforeEach
+    void setUp() {
+        PhoneFacetProperties properties = new PhoneFacetProperties();
+        properties.setPriceBucketBounds(List.of(new BigDecimal("1000"), new BigDecimal("500")));
+        phoneFacetService = new PhoneFacetServiceImpl(phoneRepository, phoneFilterIndex, properties);
+    }
+
+    @Nested
+    class GetFacetsTest {
+
+        @Test
+        void whenNoFilters_thenCountWholeCatalog() {
+            // mockito
+            Mockito.when(phoneRepository.findFacetRows())
+                    .thenReturn(buildCatalog());
+
+            // when
+            PhoneFacetsResponseDto result = phoneFacetService.getFacets(filter(null, null, null));
+
+            // then
+            assertThat(result.total()).isEqualTo(4);
+            assertThat(result.brands()).containsExactly(
+                    new BrandFacetDto("Apple", 2),
+                    new BrandFacetDto("Google", 1),
+                    new BrandFacetDto("Samsung", 1)
+            );
+            assertThat(result.priceBuckets()).containsExactly(
+                    new PriceBucketFacetDto(null, new BigDecimal("500"), 1),
+                    new PriceBucketFacetDto(new BigDecimal("500"), new BigDecimal("1000"), 2),
+                    new PriceBucketFacetDto(new BigDecimal("1000"), null, 1)
+            );
+            assertThat(result.releaseYears()).containsExactly(
+                    new ReleaseYearFacetDto(2022, 1),
+                    new ReleaseYearFacetDto(2023, 2),
+                    new ReleaseYearFacetDto(2024, 1)
+            );
+        }
+
+        @Test
+        void whenFacetsRequestedTwice_thenLoadCatalogOnlyOnce() {
+            // mockito
+            Mockito.when(phoneRepository.findFacetRows())
+                    .thenReturn(buildCatalog());
+
+            // when
+            phoneFacetService.getFacets(filter(null, null, null));
+            phoneFacetService.getFacets(filter("apple", null, null));
+
+            // then
+            Mockito.verify(phoneRepository, Mockito.times(1)).findFacetRows();
+        }
+
+        @Test
+        void whenFilterByBrandInAnyCase_thenCountOnlyThisBrand() {
+            // mockito
+            Mockito.when(phoneRepository.findFacetRows())
+                    .thenReturn(buildCatalog());
+
+            // when
+            PhoneFacetsResponseDto result = phoneFacetService.getFacets(filter("APPLE", null, null));
+
+            // then
+            assertThat(result.total()).isEqualTo(2);
+            assertThat(result.brands()).containsExactly(new BrandFacetDto("Apple", 2));
+            assertThat(result.priceBuckets()).extracting(PriceBucketFacetDto::count).containsExactly(0L, 1L, 1L);
+        }
+
+        @Test
+        void whenBrandSpelledInDifferentCases_thenCountOneFacetNamedByMostPhones() {
+            // mockito
+            Mockito.when(phoneRepository.findFacetRows())
+                    .thenReturn(List.of(
+                            row(1L, "Apple", "999.00", 2023),
+                            row(2L, "apple", "500", 2023),
+                            row(3L, "Apple", "1000", 2024)
+                    ));
+
+            // when
+            PhoneFacetsResponseDto withoutPrice = phoneFacetService.getFacets(filter(null, null, null));
+            PhoneFacetsResponseDto withPrice = phoneFacetService.getFacets(filter("aPPLE", "500", null));
+
+            // then
+            assertThat(withoutPrice.brands()).containsExactly(new BrandFacetDto("Apple", 3));
+            assertThat(withPrice.brands()).containsExactly(new BrandFacetDto("Apple", 3));
+        }
+
+        @Test
+        void whenFilterByPriceRange_thenBoundsAreInclusive() {
+            // mockito
+            Mockito.when(phoneRepository.findFacetRows())
+                    .thenReturn(buildCatalog());
+
+            // when
+            PhoneFacetsResponseDto result = phoneFacetService.getFacets(filter(null, "500", "999.99"));
+
+            // then
+            assertThat(result.total()).isEqualTo(2);
+            assertThat(result.brands()).containsExactly(
+                    new BrandFacetDto("Apple", 1),
+                    new BrandFacetDto("Samsung", 1)
+            );
+            assertThat(result.releaseYears()).containsExactly(new ReleaseYearFacetDto(2023, 2));
+        }
+
+        @Test
+        void whenSearchRequested_thenCountPhonesFoundByDatabase() {
+            // given
+            PhoneFilterDto filterDto = PhoneFilterDto.builder().q("galaxy").build();
+
+            // mockito
+            Mockito.when(phoneRepository.findFacetRows())
+                    .thenReturn(buildCatalog());
+            Mockito.when(phoneRepository.findIds(anySpecification(), eq(Sort.unsorted()), anyInt()))
+                    .thenReturn(List.of(2L, 99L));
+
+            // when
+            PhoneFacetsResponseDto result = phoneFacetService.getFacets(filterDto);
+
+            // then
+            assertThat(result.total()).isEqualTo(1);
+            assertThat(result.brands()).containsExactly(new BrandFacetDto("Samsung", 1));
+        }
+
+        @Test
+        void whenCharacteristicRangeRequested_thenCountPhonesFoundByDatabase() {
+            // given
+            PhoneFilterDto filterDto = PhoneFilterDto.builder().minScreenInches(new BigDecimal("6.5")).build();
+
+            // mockito
+            Mockito.when(phoneRepository.findFacetRows())
+                    .thenReturn(buildCatalog());
+            Mockito.when(phoneRepository.findIds(anySpecification(), eq(Sort.unsorted()), anyInt()))
+                    .thenReturn(List.of(1L, 3L));
+
+            // when
+            PhoneFacetsResponseDto result = phoneFacetService.getFacets(filterDto);
+
+            // then
+            assertThat(result.total()).isEqualTo(2);
+            assertThat(result.brands()).containsExactly(new BrandFacetDto("Apple", 2));
+        }
+
+        @Test
+        void whenMultiValueFilterRequested_thenCountPhonesFoundByFilterIndex() {
+            // given
+            PhoneFilterDto filterDto = PhoneFilterDto.builder().brands(List.of("Apple", "Google")).build();
+
+            // mockito
+            Mockito.when(phoneRepository.findFacetRows())
+                    .thenReturn(buildCatalog());
+            Mockito.when(phoneFilterIndex.findIds(filterDto))
+                    .thenReturn(Optional.of(Roaring64Bitmap.bitmapOf(1L, 4L)));
+
+            // when
+            PhoneFacetsResponseDto result = phoneFacetService.getFacets(filterDto);
+
+            // then
+            assertThat(result.total()).isEqualTo(2);
+            assertThat(result.brands()).containsExactlyInAnyOrder(new BrandFacetDto("Apple", 1), new BrandFacetDto("Google", 1));
+            Mockito.verify(phoneRepository, Mockito.never()).findIds(anySpecification(), any(Sort.class), anyInt());
+        }
+
+        @Test
+        void whenFilterIndexCantAnswer_thenCountPhonesFoundByDatabase() {
+            // given
+            PhoneFilterDto filterDto = PhoneFilterDto.builder().releaseYears(List.of(2024)).build();
+
+            // mockito
+            Mockito.when(phoneRepository.findFacetRows())
+                    .thenReturn(buildCatalog());
+            Mockito.when(phoneFilterIndex.findIds(filterDto))
+                    .thenReturn(Optional.empty());
+            Mockito.when(phoneRepository.findIds(anySpecification(), eq(Sort.unsorted()), anyInt()))
+                    .thenReturn(List.of(3L));
+
+            // when
+            PhoneFacetsResponseDto result = phoneFacetService.getFacets(filterDto);
+
+            // then
+            assertThat(result.total()).isEqualTo(1);
+            assertThat(result.releaseYears()).containsExactly(new ReleaseYearFacetDto(2024, 1));
+        }
+
+        @Test
+        void whenFilterIsNull_thenThrowNullPointerException() {
+            // when + then
+            assertThatThrownBy(() -> phoneFacetService.getFacets(null))
+                    .isInstanceOf(NullPointerException.class);
+        }
+
+    }
+
+    @Nested
+    class OnPhoneChangedTest {
+
+        @Test
+        void whenPhoneCreated_thenAddOnlyThisPhone() {
+            // mockito
+            Mockito.when(phoneRepository.findFacetRows())
+                    .thenReturn(buildCatalog());
+            Mockito.when(phoneRepository.findFacetRowById(5L))
+                    .thenReturn(Optional.of(row(5L, "Google", "300", 2024)));
+
+            // when
+            phoneFacetService.reload();
+            phoneFacetService.onPhoneChanged(new PhoneChangedEvent(5L, ChangeType.CREATED));
+            PhoneFacetsResponseDto result = phoneFacetService.getFacets(filter(null, null, null));
+
+            // then
+            assertThat(result.total()).isEqualTo(5);
+            assertThat(result.brands()).contains(new BrandFacetDto("Google", 2));
+            assertThat(result.releaseYears()).contains(new ReleaseYearFacetDto(2024, 2));
+            Mockito.verify(phoneRepository, Mockito.times(1)).findFacetRows();
+        }
+
+        @Test
+        void whenPhonesImported_thenReloadWholeCatalog() {
+            // mockito
+            Mockito.when(phoneRepository.findFacetRows())
+                    .thenReturn(buildCatalog())
+                    .thenReturn(List.of(row(1L, "Apple", "999.00", 2023), row(5L, "Google", "300", 2024)));
+
+            // when
+            phoneFacetService.reload();
+            phoneFacetService.onPhoneChanged(new PhoneChangedEvent(null, ChangeType.IMPORTED));
+            PhoneFacetsResponseDto result = phoneFacetService.getFacets(filter(null, null, null));
+
+            // then
+            assertThat(result.total()).isEqualTo(2);
+            assertThat(result.brands()).contains(new BrandFacetDto("Google", 1));
+            Mockito.verify(phoneRepository, Mockito.times(2)).findFacetRows();
+            Mockito.verify(phoneRepository, Mockito.never()).findFacetRowById(any());
+        }
+
+        @Test
+        void whenPhoneUpdated_thenMoveItBetweenCounts() {
+            // mockito
+            Mockito.when(phoneRepository.findFacetRows())
+                    .thenReturn(buildCatalog());
+            Mockito.when(phoneRepository.findFacetRowById(1L))
+                    .thenReturn(Optional.of(row(1L, "Nokia", "100", 2020)));
+
+            // when
+            phoneFacetService.reload();
+            phoneFacetService.onPhoneChanged(new PhoneChangedEvent(1L, ChangeType.UPDATED));
+            PhoneFacetsResponseDto result = phoneFacetService.getFacets(filter(null, null, null));
+
+            // then
+            assertThat(result.total()).isEqualTo(4);
+            assertThat(result.brands()).contains(new BrandFacetDto("Apple", 1), new BrandFacetDto("Nokia", 1));
+            assertThat(result.priceBuckets()).extracting(PriceBucketFacetDto::count).containsExactly(2L, 1L, 1L);
+            assertThat(result.releaseYears()).contains(new ReleaseYearFacetDto(2020, 1), new ReleaseYearFacetDto(2023, 1));
+        }
+
+        @Test
+        void whenLastPhoneOfBrandDeleted_thenRemoveBrandAndYear() {
+            // mockito
+            Mockito.when(phoneRepository.findFacetRows())
+                    .thenReturn(buildCatalog());
+
+            // when
+            phoneFacetService.reload();
+            phoneFacetService.onPhoneChanged(new PhoneChangedEvent(4L, ChangeType.DELETED));
+            PhoneFacetsResponseDto result = phoneFacetService.getFacets(filter(null, null, null));
+
+            // then
+            assertThat(result.total()).isEqualTo(3);
+            assertThat(result.brands()).extracting(BrandFacetDto::brand).doesNotContain("Google");
+            assertThat(result.releaseYears()).extracting(ReleaseYearFacetDto::releaseYear).doesNotContain(2022);
+            Mockito.verify(phoneRepository, Mockito.never()).findFacetRowById(any());
+        }
+
+        @Test
+        void whenNotLoaded_thenIgnoreChange() {
+            // when
+            phoneFacetService.onPhoneChanged(new PhoneChangedEvent(1L, ChangeType.UPDATED));
+
+            // then
+            Mockito.verifyNoInteractions(phoneRepository);
+        }
+
+        @Test
+        void whenUpdateFails_thenReloadByNextRequest() {
+            // mockito
+            Mockito.when(phoneRepository.findFacetRows())
+                    .thenReturn(buildCatalog());
+            Mockito.when(phoneRepository.findFacetRowById(1L))
+                    .thenThrow(new IllegalStateException("database is down"));
+
+            // when
+            phoneFacetService.reload();
+            phoneFacetService.onPhoneChanged(new PhoneChangedEvent(1L, ChangeType.UPDATED));
+            PhoneFacetsResponseDto result = phoneFacetService.getFacets(filter(null, null, null));
+
+            // then
+            assertThat(result.total()).isEqualTo(4);
+            Mockito.verify(phoneRepository, Mockito.times(2)).findFacetRows();
+        }
+
+    }
+
+    private static Specification<Phone> anySpecification() {
+        return any();
+    }
+
+    static class TestResources {
+
+        static List<PhoneFacetRow> buildCatalog() {
+            return List.of(
+                    row(1L, "Apple", "999.00", 2023),
+                    row(2L, "Samsung", "500", 2023),
+                    row(3L, "Apple", "1000", 2024),
+                    row(4L, "Google", "499.99", 2022)
+            );
+        }
+
+        static PhoneFilterDto filter(String brand, String minPrice, String maxPrice) {
+            return PhoneFilterDto.builder()
+                    .brand(brand)
+                    .minPrice(minPrice == null ? null : new BigDecimal(minPrice))
+                    .maxPrice(maxPrice == null ? null : new BigDecimal(maxPrice))
+                    .build();
+        }
+
+        static PhoneFacetRow row(Long id, String brand, String price, int releaseYear) {
+            return new PhoneFacetRow() {
+                @Override
+                public Long getId() {
+                    return id;
+                }
+
+                @Override
+                public String getBrand() {
+                    return brand;
+                }
+
+                @Override
+                public BigDecimal getPrice() {
+                    return new BigDecimal(price);
+                }
+
+                @Override
+                public Integer getReleaseYear() {
+                    return releaseYear;
+                }
+            };
+        }
+    }
+
+}
@@ -0,0 +1,308 @@
+package com.challengeteam.shop.service.impl;
+
+import com.challengeteam.shop.dto.phone.bulk.PhoneImportErrorDto;
+import com.challengeteam.shop.dto.phone.bulk.PhoneImportResponseDto;
+import com.challengeteam.shop.entity.phone.Phone;
+import com.challengeteam.shop.persistence.repository.PhoneBatchRepository;
+import com.challengeteam.shop.properties.PhoneImportProperties;
+import com.challengeteam.shop.service.PhoneImportService.Format;
+import com.challengeteam.shop.service.event.PhoneChangedEvent;
+import com.challengeteam.shop.service.event.PhoneChangedEvent.ChangeType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static com.challengeteam.shop.service.impl.PhoneImportServiceImplTest.TestResources.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+
+@ExtendWith(MockitoExtension.class)
+class PhoneImportServiceImplTest {
+    private static final Validator VALIDATOR = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Mock
+    private PhoneBatchRepository phoneBatchRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Captor
+    private ArgumentCaptor<List<Phone>> phonesCaptor;
+    private PhoneImportProperties properties;
+    private PhoneImportServiceImpl phoneImportService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new PhoneImportProperties();
+        properties.setBatchSize(2);
+        createService();
+    }
+
+    @Nested
+    class NdjsonTest {
+
+        @Test
+        void whenRowsAreValid_thenInsertAllAndReportNoErrors() {
+            // given
+            String input = phoneJson(" Pixel 9 ") + "\n\n" + phoneJson("Pixel 9 Pro") + "\n";
+
+            // when
+            PhoneImportResponseDto result = importPhones(input, Format.NDJSON);
+
+            // then
+            assertThat(result).isEqualTo(new PhoneImportResponseDto(2, 0, List.of()));
+            Mockito.verify(phoneBatchRepository).insertAll(phonesCaptor.capture());
+            assertThat(phonesCaptor.getValue()).extracting(Phone::getName).containsExactly("Pixel 9", "Pixel 9 Pro");
+            assertThat(phonesCaptor.getValue().get(0).getPhoneCharacteristics().getBatteryMah()).isEqualTo(4700);
+        }
+
+        @Test
+        void whenRowsAreInvalid_thenSkipThemAndReportByRowNumber() {
+            // given
+            String input = String.join("\n",
+                    phoneJson("Pixel 9"),
+                    "{\"name\": ",
+                    phoneJson("Pixel 9").replace("\"price\":799.99", "\"price\":\"cheap\""),
+                    phoneJson("P"),
+                    "null",
+                    phoneJson("Pixel 9 Pro")
+            );
+
+            // when
+            PhoneImportResponseDto result = importPhones(input, Format.NDJSON);
+
+            // then
+            assertThat(result.imported()).isEqualTo(2);
+            assertThat(result.failed()).isEqualTo(4);
+            assertThat(result.errors()).extracting(PhoneImportErrorDto::row).containsExactly(2L, 3L, 4L, 5L);
+            assertThat(result.errors().get(0).messages().get(0)).startsWith("Malformed row");
+            assertThat(result.errors().get(1).messages()).containsExactly("price: Invalid value");
+            assertThat(result.errors().get(2).messages()).containsExactly("name: Name must be between 3 and 255 characters");
+            assertThat(result.errors().get(3).messages()).containsExactly("Row is empty");
+        }
+
+    }
+
+    @Nested
+    class CsvTest {
+
+        @Test
+        void whenColumnsInAnyOrder_thenInsertPhones() {
+            // given
+            String input = """
+                    brand,name,price,releaseYear,cpu,coresNumber,screenSize,frontCamera,mainCamera,batteryCapacity,description
+                    Google,Pixel 9,799.99,2024,Tensor G4,8,"6.3""\",10 MP,50 MP,4700 mAh,
+                    Google,"Pixel 9, Pro",999.99,2024,Tensor G4,8,"6.3""\",42 MP,50-48-48 MP,4700 mAh,"Pro, with a telephoto"
+                    """;
+
+            // when
+            PhoneImportResponseDto result = importPhones(input, Format.CSV);
+
+            // then
+            assertThat(result).isEqualTo(new PhoneImportResponseDto(2, 0, List.of()));
+            Mockito.verify(phoneBatchRepository).insertAll(phonesCaptor.capture());
+            List<Phone> phones = phonesCaptor.getValue();
+            assertThat(phones).extracting(Phone::getName).containsExactly("Pixel 9", "Pixel 9, Pro");
+            assertThat(phones).extracting(Phone::getDescription).containsExactly(null, "Pro, with a telephoto");
+            assertThat(phones.get(1).getPrice()).isEqualByComparingTo(new BigDecimal("999.99"));
+            assertThat(phones.get(1).getPhoneCharacteristics().getScreenInches()).isEqualByComparingTo("6.3");
+        }
+
+        @Test
+        void whenRequiredCellIsEmpty_thenReportRow() {
+            // given
+            String input = """
+                    name,price,brand,releaseYear,cpu,coresNumber,screenSize,frontCamera,mainCamera,batteryCapacity
+                    Pixel 9,,Google,2024,Tensor G4,8,"6.3""\",10 MP,50 MP,4700 mAh
+                    """;
+
+            // when
+            PhoneImportResponseDto result = importPhones(input, Format.CSV);
+
+            // then
+            assertThat(result.imported()).isZero();
+            assertThat(result.errors()).containsExactly(new PhoneImportErrorDto(1, List.of("price: Price must not be null")));
+            Mockito.verifyNoInteractions(phoneBatchRepository, eventPublisher);
+        }
+
+        @Test
+        void whenQuotingIsBroken_thenKeepImportedRowsAndSkipTheRest() {
+            // given
+            String input = """
+                    name,price,brand,releaseYear,cpu,coresNumber,screenSize,frontCamera,mainCamera,batteryCapacity
+                    Pixel 9,799.99,Google,2024,Tensor G4,8,"6.3""\",10 MP,50 MP,4700 mAh
+                    "Pixel 9 Pro"x,999.99,Google,2024,Tensor G4,8,"6.3""\",42 MP,50 MP,4700 mAh
+                    Pixel 9a,499.99,Google,2025,Tensor G4,8,"6.3""\",13 MP,48 MP,5100 mAh
+                    """;
+
+            // when
+            PhoneImportResponseDto result = importPhones(input, Format.CSV);
+
+            // then
+            assertThat(result.imported()).isEqualTo(1);
+            assertThat(result.failed()).isEqualTo(1);
+            assertThat(result.errors().get(0).row()).isEqualTo(2);
+            assertThat(result.errors().get(0).messages().get(0)).startsWith("Malformed CSV, the rest of the input is skipped");
+        }
+
+    }
+
+    @Nested
+    class BatchTest {
+
+        @Test
+        void whenMoreRowsThanBatchSize_thenInsertInBatchesAndNotifyOnce() {
+            // given
+            String input = ndjson(5);
+
+            // when
+            PhoneImportResponseDto result = importPhones(input, Format.NDJSON);
+
+            // then
+            assertThat(result.imported()).isEqualTo(5);
+            Mockito.verify(phoneBatchRepository, Mockito.times(2)).insertAll(argThat(phones -> phones.size() == 2));
+            Mockito.verify(phoneBatchRepository).insertAll(argThat(phones -> phones.size() == 1));
+            Mockito.verify(transactionManager, Mockito.times(3)).commit(any());
+            Mockito.verify(eventPublisher).publishEvent(new PhoneChangedEvent(null, ChangeType.IMPORTED));
+        }
+
+        @Test
+        void whenBatchFails_thenInsertItsRowsOneByOneAndReportFailingRow() {
+            // given
+            String input = ndjson(2);
+
+            // mockito
+            Mockito.doAnswer(invocation -> {
+                List<Phone> phones = invocation.getArgument(0);
+                if (phones.size() > 1) {
+                    throw new DataIntegrityViolationException("batch failed");
+                }
+                if (phones.get(0).getName().equals("Phone 2")) {
+                    throw new DataIntegrityViolationException("ERROR: value too long\n  Where: phones");
+                }
+                return null;
+            }).when(phoneBatchRepository).insertAll(anyList());
+
+            // when
+            PhoneImportResponseDto result = importPhones(input, Format.NDJSON);
+
+            // then
+            assertThat(result.imported()).isEqualTo(1);
+            assertThat(result.errors()).containsExactly(
+                    new PhoneImportErrorDto(2, List.of("Row couldn't be saved: ERROR: value too long"))
+            );
+            Mockito.verify(eventPublisher).publishEvent(new PhoneChangedEvent(null, ChangeType.IMPORTED));
+        }
+
+        @Test
+        void whenRowFailsWithoutMessage_thenReportExceptionName() {
+            // given
+            String input = ndjson(1);
+
+            // mockito
+            Mockito.doThrow(new DataIntegrityViolationException("row failed", new IllegalStateException()))
+                    .when(phoneBatchRepository).insertAll(anyList());
+
+            // when
+            PhoneImportResponseDto result = importPhones(input, Format.NDJSON);
+
+            // then
+            assertThat(result.errors()).containsExactly(
+                    new PhoneImportErrorDto(1, List.of("Row couldn't be saved: IllegalStateException"))
+            );
+        }
+
+        @Test
+        void whenMoreErrorsThanReported_thenCountAllAndListFirst() {
+            // given
+            properties.setMaxReportedErrors(2);
+            createService();
+            String input = "null\nnull\nnull\n";
+
+            // when
+            PhoneImportResponseDto result = importPhones(input, Format.NDJSON);
+
+            // then
+            assertThat(result.failed()).isEqualTo(3);
+            assertThat(result.errors()).extracting(PhoneImportErrorDto::row).containsExactly(1L, 2L);
+        }
+
+        @Test
+        void whenNothingImported_thenDontNotify() {
+            // when
+            PhoneImportResponseDto result = importPhones("", Format.NDJSON);
+
+            // then
+            assertThat(result).isEqualTo(new PhoneImportResponseDto(0, 0, List.of()));
+            Mockito.verify(phoneBatchRepository, Mockito.never()).insertAll(anyList());
+            Mockito.verifyNoInteractions(eventPublisher);
+        }
+
+        @Test
+        void whenFormatIsNull_thenThrowNullPointerException() {
+            // when + then
+            assertThatThrownBy(() -> phoneImportService.importPhones(
+                    new ByteArrayInputStream(new byte[0]), StandardCharsets.UTF_8, null
+            )).isInstanceOf(NullPointerException.class);
+        }
+
+    }
+
+    private void createService() {
+        phoneImportService = new PhoneImportServiceImpl(
+                phoneBatchRepository,
+                VALIDATOR,
+                new ObjectMapper(),
+                eventPublisher,
+                transactionManager,
+                properties
+        );
+    }
+
+    private PhoneImportResponseDto importPhones(String input, Format format) {
+        return phoneImportService.importPhones(
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)),
+                StandardCharsets.UTF_8,
+                format
+        );
+    }
+
+    static class TestResources {
+
+        static String phoneJson(String name) {
+            return """
+                    {"name":"%s","price":799.99,"brand":"Google","releaseYear":2024,"cpu":"Tensor G4","coresNumber":8,\
+                    "screenSize":"6.3\\"","frontCamera":"10 MP","mainCamera":"50 MP","batteryCapacity":"4700 mAh"}\
+                    """.formatted(name);
+        }
+
+        static String ndjson(int phones) {
+            StringBuilder input = new StringBuilder();
+            for (int i = 1; i <= phones; i++) {
+                input.append(phoneJson("Phone " + i)).append('\n');
+            }
+            return input.toString();
+        }
+    }
+
+}
@@ -1,18 +1,32 @@
 package com.challengeteam.shop.service.impl;
 
+import com.challengeteam.shop.dto.pagination.CursorPage;
+import com.challengeteam.shop.dto.pagination.PhoneCursor;
 import com.challengeteam.shop.dto.pagination.PhoneFilterDto;
 import com.challengeteam.shop.dto.phone.PhoneCreateRequestDto;
 import com.challengeteam.shop.dto.phone.PhoneUpdateRequestDto;
+import com.challengeteam.shop.dto.phone.PhoneView;
 import com.challengeteam.shop.entity.image.Image;
 import com.challengeteam.shop.entity.image.MIMEType;
 import com.challengeteam.shop.entity.phone.Phone;
 import com.challengeteam.shop.entity.phone.PhoneCharacteristics;
 import com.challengeteam.shop.exceptionHandling.exception.CriticalSystemException;
+import com.challengeteam.shop.exceptionHandling.exception.InvalidAPIRequestException;
 import com.challengeteam.shop.exceptionHandling.exception.ResourceNotFoundException;
+import com.challengeteam.shop.exceptionHandling.exception.VersionConflictException;
 import com.challengeteam.shop.persistence.repository.ImageRepository;
 import com.challengeteam.shop.persistence.repository.PhoneRepository;
+import com.challengeteam.shop.persistence.repository.PhoneUpdateRepository;
+import com.challengeteam.shop.persistence.repository.projection.ImageMetadataRow;
+import com.challengeteam.shop.persistence.repository.projection.PhoneDetailsRow;
+import com.challengeteam.shop.persistence.specification.PhoneSort;
 import com.challengeteam.shop.service.ImageService;
+import com.challengeteam.shop.service.PhoneCountService;
+import com.challengeteam.shop.service.event.PhoneChangedEvent;
+import com.challengeteam.shop.service.impl.index.PhoneCatalogIndex;
+import com.challengeteam.shop.service.impl.index.PhoneIdPage;
 import com.challengeteam.shop.service.impl.merger.PhoneMerger;
+import com.challengeteam.shop.utility.CursorUtility;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -21,6 +35,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.*;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.mock.web.MockMultipartFile;
@@ -30,22 +45,44 @@ import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.LongStream;
 
 import static com.challengeteam.shop.service.impl.PhoneServiceImplTest.TestResources.*;
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 
 @ExtendWith(MockitoExtension.class)
 class PhoneServiceImplTest {
     @Mock private PhoneRepository phoneRepository;
+    @Mock private PhoneUpdateRepository phoneUpdateRepository;
     @Mock private PhoneMerger phoneMerger;
     @Mock private ImageService imageService;
     @Mock private ImageRepository imageRepository;
+    @Mock private PhoneCountService phoneCountService;
+    @Mock private PhoneCatalogIndex phoneCatalogIndex;
+    @Mock private ApplicationEventPublisher eventPublisher;
     @InjectMocks private PhoneServiceImpl phoneService;
 
+    private void mockPageOfPhones(Page<Phone> page) {
+        List<Long> ids = page.getContent().stream()
+                .map(Phone::getId)
+                .toList();
+
+        Mockito.when(phoneRepository.findIds(any(Specification.class), any(Pageable.class)))
+                .thenReturn(ids);
+        Mockito.lenient().when(phoneRepository.findAllByIdInWithImages(anyCollection()))
+                .thenReturn(page.getContent());
+        Mockito.lenient().when(phoneCountService.countPhones(any(PhoneFilterDto.class)))
+                .thenReturn(page.getTotalElements());
+    }
+
     @Nested
     class GetAllPhonesTest {
 
@@ -55,14 +92,13 @@ class PhoneServiceImplTest {
             int page = 0;
             int size = 10;
             PhoneFilterDto filterDto = buildDefaultPhoneFilterDto();
-            Sort expectedSort = Sort.by("name").ascending();
+            Sort expectedSort = Sort.by(Sort.Direction.ASC, "name", "id");
             Pageable pageable = PageRequest.of(page, size, expectedSort);
             List<Phone> phones = buildPhonesFromTo(1, 11);
             Page<Phone> expected = new PageImpl<>(phones, pageable, 20);
 
             // mockito
-            Mockito.when(phoneRepository.findAll(any(Specification.class), any(Pageable.class)))
-                    .thenReturn(expected);
+            mockPageOfPhones(expected);
 
             // when
             Page<Phone> result = phoneService.getPhones(page, size, filterDto);
@@ -78,7 +114,7 @@ class PhoneServiceImplTest {
             // capture
             ArgumentCaptor<Specification<Phone>> specCaptor = ArgumentCaptor.forClass(Specification.class);
             ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
-            Mockito.verify(phoneRepository).findAll(specCaptor.capture(), pageableCaptor.capture());
+            Mockito.verify(phoneRepository).findIds(specCaptor.capture(), pageableCaptor.capture());
 
             assertThat(specCaptor.getValue()).isNotNull();
             assertThat(pageableCaptor.getValue()).isNotNull();
@@ -90,13 +126,12 @@ class PhoneServiceImplTest {
             int page = 0;
             int size = 10;
             PhoneFilterDto filterDto = buildDefaultPhoneFilterDto();
-            Sort expectedSort = Sort.by("name").ascending();
+            Sort expectedSort = Sort.by(Sort.Direction.ASC, "name", "id");
             Pageable pageable = PageRequest.of(page, size, expectedSort);
             Page<Phone> expected = new PageImpl<>(List.of(), pageable, 0);
 
             // mockito
-            Mockito.when(phoneRepository.findAll(any(Specification.class), any(Pageable.class)))
-                    .thenReturn(expected);
+            mockPageOfPhones(expected);
 
             // when
             Page<Phone> result = phoneService.getPhones(page, size, filterDto);
@@ -111,7 +146,7 @@ class PhoneServiceImplTest {
             // capture
             ArgumentCaptor<Specification<Phone>> specCaptor = ArgumentCaptor.forClass(Specification.class);
             ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
-            Mockito.verify(phoneRepository).findAll(specCaptor.capture(), pageableCaptor.capture());
+            Mockito.verify(phoneRepository).findIds(specCaptor.capture(), pageableCaptor.capture());
 
             assertThat(specCaptor.getValue()).isNotNull();
             assertThat(pageableCaptor.getValue()).isNotNull();
@@ -123,14 +158,13 @@ class PhoneServiceImplTest {
             int page = 1;
             int size = 10;
             PhoneFilterDto filterDto = buildDefaultPhoneFilterDto();
-            Sort expectedSort = Sort.by("name").ascending();
+            Sort expectedSort = Sort.by(Sort.Direction.ASC, "name", "id");
             Pageable pageable = PageRequest.of(page, size, expectedSort);
             List<Phone> phones = buildPhonesFromTo(11, 15);
             Page<Phone> expected = new PageImpl<>(phones, pageable, 14);
 
             // mockito
-            Mockito.when(phoneRepository.findAll(any(Specification.class), any(Pageable.class)))
-                    .thenReturn(expected);
+            mockPageOfPhones(expected);
 
             // when
             Page<Phone> result = phoneService.getPhones(page, size, filterDto);
@@ -144,7 +178,7 @@ class PhoneServiceImplTest {
             // capture
             ArgumentCaptor<Specification<Phone>> specCaptor = ArgumentCaptor.forClass(Specification.class);
             ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
-            Mockito.verify(phoneRepository).findAll(specCaptor.capture(), pageableCaptor.capture());
+            Mockito.verify(phoneRepository).findIds(specCaptor.capture(), pageableCaptor.capture());
 
             assertThat(specCaptor.getValue()).isNotNull();
             assertThat(pageableCaptor.getValue()).isNotNull();
@@ -156,14 +190,13 @@ class PhoneServiceImplTest {
             int page = 0;
             int size = 5;
             PhoneFilterDto filterDto = buildDefaultPhoneFilterDto();
-            Sort expectedSort = Sort.by("name").ascending();
+            Sort expectedSort = Sort.by(Sort.Direction.ASC, "name", "id");
             Pageable pageable = PageRequest.of(page, size, expectedSort);
             List<Phone> phones = buildPhonesFromTo(1, 6);
             Page<Phone> expected = new PageImpl<>(phones, pageable, 25);
 
             // mockito
-            Mockito.when(phoneRepository.findAll(any(Specification.class), any(Pageable.class)))
-                    .thenReturn(expected);
+            mockPageOfPhones(expected);
 
             // when
             Page<Phone> result = phoneService.getPhones(page, size, filterDto);
@@ -177,7 +210,7 @@ class PhoneServiceImplTest {
             // capture
             ArgumentCaptor<Specification<Phone>> specCaptor = ArgumentCaptor.forClass(Specification.class);
             ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
-            Mockito.verify(phoneRepository).findAll(specCaptor.capture(), pageableCaptor.capture());
+            Mockito.verify(phoneRepository).findIds(specCaptor.capture(), pageableCaptor.capture());
 
             assertThat(specCaptor.getValue()).isNotNull();
             assertThat(pageableCaptor.getValue()).isNotNull();
@@ -189,14 +222,13 @@ class PhoneServiceImplTest {
             int page = 2;
             int size = 15;
             PhoneFilterDto filterDto = buildDefaultPhoneFilterDto();
-            Sort expectedSort = Sort.by("name").ascending();
+            Sort expectedSort = Sort.by(Sort.Direction.ASC, "name", "id");
             Pageable pageable = PageRequest.of(page, size, expectedSort);
             List<Phone> phones = buildPhonesFromTo(1, 5);
             Page<Phone> expected = new PageImpl<>(phones, pageable, 50);
 
             // mockito
-            Mockito.when(phoneRepository.findAll(any(Specification.class), any(Pageable.class)))
-                    .thenReturn(expected);
+            mockPageOfPhones(expected);
 
             // when
             phoneService.getPhones(page, size, filterDto);
@@ -204,7 +236,7 @@ class PhoneServiceImplTest {
             // then
             ArgumentCaptor<Specification<Phone>> specCaptor = ArgumentCaptor.forClass(Specification.class);
             ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
-            Mockito.verify(phoneRepository).findAll(specCaptor.capture(), pageableCaptor.capture());
+            Mockito.verify(phoneRepository).findIds(specCaptor.capture(), pageableCaptor.capture());
 
             Pageable capturedPageable = pageableCaptor.getValue();
             assertThat(capturedPageable.getPageNumber()).isEqualTo(page);
@@ -217,14 +249,13 @@ class PhoneServiceImplTest {
             int page = 0;
             int size = 10;
             PhoneFilterDto filterDto = buildDefaultPhoneFilterDto();
-            Sort expectedSort = Sort.by("name").ascending();
+            Sort expectedSort = Sort.by(Sort.Direction.ASC, "name", "id");
             Pageable pageable = PageRequest.of(page, size, expectedSort);
             List<Phone> phones = buildPhonesFromTo(1, 6);
             Page<Phone> expected = new PageImpl<>(phones, pageable, 5);
 
             // mockito
-            Mockito.when(phoneRepository.findAll(any(Specification.class), any(Pageable.class)))
-                    .thenReturn(expected);
+            mockPageOfPhones(expected);
 
             // when
             Page<Phone> result = phoneService.getPhones(page, size, filterDto);
@@ -234,7 +265,7 @@ class PhoneServiceImplTest {
             assertThat(result.getContent()).hasSize(5);
 
             ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
-            Mockito.verify(phoneRepository).findAll(any(Specification.class), pageableCaptor.capture());
+            Mockito.verify(phoneRepository).findIds(any(Specification.class), pageableCaptor.capture());
             Pageable capturedPageable = pageableCaptor.getValue();
 
             assertThat(capturedPageable.getSort()).isEqualTo(expectedSort);
@@ -246,14 +277,13 @@ class PhoneServiceImplTest {
             int page = 0;
             int size = 10;
             PhoneFilterDto filterDto = buildPhoneFilterDtoWithSortByNameDesc();
-            Sort expectedSort = Sort.by("name").descending();
+            Sort expectedSort = Sort.by(Sort.Direction.DESC, "name", "id");
             Pageable pageable = PageRequest.of(page, size, expectedSort);
             List<Phone> phones = buildPhonesFromTo(1, 6);
             Page<Phone> expected = new PageImpl<>(phones, pageable, 5);
 
             // mockito
-            Mockito.when(phoneRepository.findAll(any(Specification.class), any(Pageable.class)))
-                    .thenReturn(expected);
+            mockPageOfPhones(expected);
 
             // when
             Page<Phone> result = phoneService.getPhones(page, size, filterDto);
@@ -262,7 +292,7 @@ class PhoneServiceImplTest {
             assertThat(result).isNotNull();
 
             ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
-            Mockito.verify(phoneRepository).findAll(any(Specification.class), pageableCaptor.capture());
+            Mockito.verify(phoneRepository).findIds(any(Specification.class), pageableCaptor.capture());
             Pageable capturedPageable = pageableCaptor.getValue();
 
             assertThat(capturedPageable.getSort()).isEqualTo(expectedSort);
@@ -274,14 +304,13 @@ class PhoneServiceImplTest {
             int page = 0;
             int size = 10;
             PhoneFilterDto filterDto = buildPhoneFilterDtoWithSortByPriceAsc();
-            Sort expectedSort = Sort.by("price").ascending();
+            Sort expectedSort = Sort.by(Sort.Direction.ASC, "price", "id");
             Pageable pageable = PageRequest.of(page, size, expectedSort);
             List<Phone> phones = buildPhonesFromTo(1, 6);
             Page<Phone> expected = new PageImpl<>(phones, pageable, 5);
 
             // mockito
-            Mockito.when(phoneRepository.findAll(any(Specification.class), any(Pageable.class)))
-                    .thenReturn(expected);
+            mockPageOfPhones(expected);
 
             // when
             Page<Phone> result = phoneService.getPhones(page, size, filterDto);
@@ -290,7 +319,7 @@ class PhoneServiceImplTest {
             assertThat(result).isNotNull();
 
             ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
-            Mockito.verify(phoneRepository).findAll(any(Specification.class), pageableCaptor.capture());
+            Mockito.verify(phoneRepository).findIds(any(Specification.class), pageableCaptor.capture());
             Pageable capturedPageable = pageableCaptor.getValue();
 
             assertThat(capturedPageable.getSort()).isEqualTo(expectedSort);
@@ -302,14 +331,13 @@ class PhoneServiceImplTest {
             int page = 0;
             int size = 10;
             PhoneFilterDto filterDto = buildPhoneFilterDtoWithSortByPriceDesc();
-            Sort expectedSort = Sort.by("price").descending();
+            Sort expectedSort = Sort.by(Sort.Direction.DESC, "price", "id");
             Pageable pageable = PageRequest.of(page, size, expectedSort);
             List<Phone> phones = buildPhonesFromTo(1, 6);
             Page<Phone> expected = new PageImpl<>(phones, pageable, 5);
 
             // mockito
-            Mockito.when(phoneRepository.findAll(any(Specification.class), any(Pageable.class)))
-                    .thenReturn(expected);
+            mockPageOfPhones(expected);
 
             // when
             Page<Phone> result = phoneService.getPhones(page, size, filterDto);
@@ -318,26 +346,110 @@ class PhoneServiceImplTest {
             assertThat(result).isNotNull();
 
             ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
-            Mockito.verify(phoneRepository).findAll(any(Specification.class), pageableCaptor.capture());
+            Mockito.verify(phoneRepository).findIds(any(Specification.class), pageableCaptor.capture());
             Pageable capturedPageable = pageableCaptor.getValue();
 
             assertThat(capturedPageable.getSort()).isEqualTo(expectedSort);
         }
 
+        @Test
+        void whenCatalogIndexAnswers_thenLoadOnlyPhonesOfPageAndSkipDatabaseQueries() {
+            // given
+            int page = 1;
+            int size = 2;
+            PhoneFilterDto filterDto = buildDefaultPhoneFilterDto();
+            List<Phone> phones = buildPhonesFromTo(3, 5);
+
+            // mockito
+            Mockito.when(phoneCatalogIndex.findPage(filterDto, PhoneSort.NAME_ASC, page, size))
+                    .thenReturn(Optional.of(new PhoneIdPage(List.of(3L, 4L), 7)));
+            Mockito.when(phoneRepository.findAllByIdInWithImages(List.of(3L, 4L)))
+                    .thenReturn(phones);
+
+            // when
+            Page<Phone> result = phoneService.getPhones(page, size, filterDto);
+
+            // then
+            assertThat(result.getContent()).containsExactlyElementsOf(phones);
+            assertThat(result.getTotalElements()).isEqualTo(7);
+            assertThat(result.getTotalPages()).isEqualTo(4);
+            assertThat(result.getPageable().getSort()).isEqualTo(Sort.by(Sort.Direction.ASC, "name", "id"));
+            Mockito.verify(phoneRepository, Mockito.never()).findIds(any(Specification.class), any(Pageable.class));
+            Mockito.verifyNoInteractions(phoneCountService);
+        }
+
+        @Test
+        void whenSearchWithoutSort_thenSortByRelevanceWithIdTieBreaker() {
+            // given
+            int page = 0;
+            int size = 10;
+            PhoneFilterDto filterDto = buildPhoneFilterDtoWithSearch(null);
+            Sort expectedSort = Sort.by("id").ascending();
+            Pageable pageable = PageRequest.of(page, size, expectedSort);
+            List<Phone> phones = buildPhonesFromTo(1, 6);
+            Page<Phone> expected = new PageImpl<>(phones, pageable, 5);
+
+            // mockito
+            mockPageOfPhones(expected);
+
+            // when
+            Page<Phone> result = phoneService.getPhones(page, size, filterDto);
+
+            // then
+            assertThat(filterDto.sortOrDefault()).isEqualTo("relevance");
+            assertThat(result.getContent()).containsExactlyElementsOf(phones);
+
+            ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
+            Mockito.verify(phoneRepository).findIds(any(Specification.class), pageableCaptor.capture());
+            assertThat(pageableCaptor.getValue().getSort()).isEqualTo(expectedSort);
+        }
+
+        @Test
+        void whenSearchWithExplicitSort_thenUseRequestedSort() {
+            // given
+            int page = 0;
+            int size = 10;
+            PhoneFilterDto filterDto = buildPhoneFilterDtoWithSearch("price_asc");
+            Sort expectedSort = Sort.by(Sort.Direction.ASC, "price", "id");
+            Pageable pageable = PageRequest.of(page, size, expectedSort);
+            Page<Phone> expected = new PageImpl<>(buildPhonesFromTo(1, 6), pageable, 5);
+
+            // mockito
+            mockPageOfPhones(expected);
+
+            // when
+            phoneService.getPhones(page, size, filterDto);
+
+            // then
+            ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
+            Mockito.verify(phoneRepository).findIds(any(Specification.class), pageableCaptor.capture());
+            assertThat(pageableCaptor.getValue().getSort()).isEqualTo(expectedSort);
+        }
+
+        @Test
+        void whenSortByRelevanceWithoutSearch_thenThrowInvalidAPIRequestException() {
+            // given
+            PhoneFilterDto filterDto = PhoneFilterDto.builder().sort("relevance").q(" ").build();
+
+            // when + then
+            assertThatThrownBy(() -> phoneService.getPhones(0, 10, filterDto))
+                    .isInstanceOf(InvalidAPIRequestException.class);
+            Mockito.verifyNoInteractions(phoneRepository);
+        }
+
         @Test
         void whenSortIsInvalid_thenDefaultToNameAsc() {
             // given
             int page = 0;
             int size = 10;
             PhoneFilterDto filterDto = buildPhoneFilterDtoWithInvalidSort();
-            Sort expectedSort = Sort.by("name").ascending();
+            Sort expectedSort = Sort.by(Sort.Direction.ASC, "name", "id");
             Pageable pageable = PageRequest.of(page, size, expectedSort);
             List<Phone> phones = buildPhonesFromTo(1, 6);
             Page<Phone> expected = new PageImpl<>(phones, pageable, 5);
 
             // mockito
-            Mockito.when(phoneRepository.findAll(any(Specification.class), any(Pageable.class)))
-                    .thenReturn(expected);
+            mockPageOfPhones(expected);
 
             // when
             Page<Phone> result = phoneService.getPhones(page, size, filterDto);
@@ -346,7 +458,7 @@ class PhoneServiceImplTest {
             assertThat(result).isNotNull();
 
             ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
-            Mockito.verify(phoneRepository).findAll(any(Specification.class), pageableCaptor.capture());
+            Mockito.verify(phoneRepository).findIds(any(Specification.class), pageableCaptor.capture());
             Pageable capturedPageable = pageableCaptor.getValue();
 
             assertThat(capturedPageable.getSort()).isEqualTo(expectedSort);
@@ -358,14 +470,13 @@ class PhoneServiceImplTest {
             int page = 0;
             int size = 10;
             PhoneFilterDto filterDto = buildPhoneFilterDtoWithFilterByBrand();
-            Sort expectedSort = Sort.by("name").ascending();
+            Sort expectedSort = Sort.by(Sort.Direction.ASC, "name", "id");
             Pageable pageable = PageRequest.of(page, size, expectedSort);
             List<Phone> phones = buildPhonesFromTo(1, 4);
             Page<Phone> expected = new PageImpl<>(phones, pageable, 3);
 
             // mockito
-            Mockito.when(phoneRepository.findAll(any(Specification.class), any(Pageable.class)))
-                    .thenReturn(expected);
+            mockPageOfPhones(expected);
 
             // when
             Page<Phone> result = phoneService.getPhones(page, size, filterDto);
@@ -373,7 +484,7 @@ class PhoneServiceImplTest {
             // then
             assertThat(result).isNotNull();
             assertThat(result.getContent()).hasSize(3);
-            Mockito.verify(phoneRepository).findAll(any(Specification.class), any(Pageable.class));
+            Mockito.verify(phoneRepository).findIds(any(Specification.class), any(Pageable.class));
         }
 
         @Test
@@ -382,14 +493,13 @@ class PhoneServiceImplTest {
             int page = 0;
             int size = 10;
             PhoneFilterDto filterDto = buildPhoneFilterDtoWithFilterByPriceRange();
-            Sort expectedSort = Sort.by("name").ascending();
+            Sort expectedSort = Sort.by(Sort.Direction.ASC, "name", "id");
             Pageable pageable = PageRequest.of(page, size, expectedSort);
             List<Phone> phones = buildPhonesFromTo(1, 6);
             Page<Phone> expected = new PageImpl<>(phones, pageable, 5);
 
             // mockito
-            Mockito.when(phoneRepository.findAll(any(Specification.class), any(Pageable.class)))
-                    .thenReturn(expected);
+            mockPageOfPhones(expected);
 
             // when
             Page<Phone> result = phoneService.getPhones(page, size, filterDto);
@@ -397,7 +507,7 @@ class PhoneServiceImplTest {
             // then
             assertThat(result).isNotNull();
             assertThat(result.getContent()).hasSize(5);
-            Mockito.verify(phoneRepository).findAll(any(Specification.class), any(Pageable.class));
+            Mockito.verify(phoneRepository).findIds(any(Specification.class), any(Pageable.class));
         }
 
         @Test
@@ -406,21 +516,20 @@ class PhoneServiceImplTest {
             int page = 0;
             int size = 10;
             PhoneFilterDto filterDto = buildPhoneFilterDtoWithFilterByMinPrice();
-            Sort expectedSort = Sort.by("name").ascending();
+            Sort expectedSort = Sort.by(Sort.Direction.ASC, "name", "id");
             Pageable pageable = PageRequest.of(page, size, expectedSort);
             List<Phone> phones = buildPhonesFromTo(1, 4);
             Page<Phone> expected = new PageImpl<>(phones, pageable, 3);
 
             // mockito
-            Mockito.when(phoneRepository.findAll(any(Specification.class), any(Pageable.class)))
-                    .thenReturn(expected);
+            mockPageOfPhones(expected);
 
             // when
             Page<Phone> result = phoneService.getPhones(page, size, filterDto);
 
             // then
             assertThat(result).isNotNull();
-            Mockito.verify(phoneRepository).findAll(any(Specification.class), any(Pageable.class));
+            Mockito.verify(phoneRepository).findIds(any(Specification.class), any(Pageable.class));
         }
 
         @Test
@@ -429,21 +538,20 @@ class PhoneServiceImplTest {
             int page = 0;
             int size = 10;
             PhoneFilterDto filterDto = buildPhoneFilterDtoWithFilterByMaxPrice();
-            Sort expectedSort = Sort.by("name").ascending();
+            Sort expectedSort = Sort.by(Sort.Direction.ASC, "name", "id");
             Pageable pageable = PageRequest.of(page, size, expectedSort);
             List<Phone> phones = buildPhonesFromTo(1, 8);
             Page<Phone> expected = new PageImpl<>(phones, pageable, 7);
 
             // mockito
-            Mockito.when(phoneRepository.findAll(any(Specification.class), any(Pageable.class)))
-                    .thenReturn(expected);
+            mockPageOfPhones(expected);
 
             // when
             Page<Phone> result = phoneService.getPhones(page, size, filterDto);
 
             // then
             assertThat(result).isNotNull();
-            Mockito.verify(phoneRepository).findAll(any(Specification.class), any(Pageable.class));
+            Mockito.verify(phoneRepository).findIds(any(Specification.class), any(Pageable.class));
         }
 
         @Test
@@ -452,14 +560,13 @@ class PhoneServiceImplTest {
             int page = 0;
             int size = 10;
             PhoneFilterDto filterDto = buildPhoneFilterDtoWithSortAndFilterByPriceRangAndByBrand();
-            Sort expectedSort = Sort.by("price").descending();
+            Sort expectedSort = Sort.by(Sort.Direction.DESC, "price", "id");
             Pageable pageable = PageRequest.of(page, size, expectedSort);
             List<Phone> phones = buildPhonesFromTo(1, 4);
             Page<Phone> expected = new PageImpl<>(phones, pageable, 3);
 
             // mockito
-            Mockito.when(phoneRepository.findAll(any(Specification.class), any(Pageable.class)))
-                    .thenReturn(expected);
+            mockPageOfPhones(expected);
 
             // when
             Page<Phone> result = phoneService.getPhones(page, size, filterDto);
@@ -469,7 +576,7 @@ class PhoneServiceImplTest {
             assertThat(result.getContent()).hasSize(3);
 
             ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
-            Mockito.verify(phoneRepository).findAll(any(Specification.class), pageableCaptor.capture());
+            Mockito.verify(phoneRepository).findIds(any(Specification.class), pageableCaptor.capture());
             Pageable capturedPageable = pageableCaptor.getValue();
 
             assertThat(capturedPageable.getSort()).isEqualTo(expectedSort);
@@ -479,6 +586,313 @@ class PhoneServiceImplTest {
 
     }
 
+    @Nested
+    class GetViewsByIdsTest {
+
+        @Test
+        void whenIdsGiven_thenReturnFoundPhonesInOrderOfIds() {
+            // given
+            PhoneDetailsRow phone3 = buildPhoneDetailsRow(3L);
+            PhoneDetailsRow phone4 = buildPhoneDetailsRow(4L);
+            ImageMetadataRow image = buildImageMetadataRow(IMAGE_ID, 3L);
+
+            // mockito
+            Mockito.when(phoneRepository.findDetailsRowsByIdIn(List.of(4L, 9L, 3L)))
+                    .thenReturn(List.of(phone3, phone4));
+            Mockito.when(imageRepository.findMetadataRowsByPhoneIdIn(anyCollection()))
+                    .thenReturn(List.of(image));
+
+            // when
+            List<PhoneView> result = phoneService.getViewsByIds(List.of(4L, 9L, 3L, 4L));
+
+            // then
+            assertThat(result).containsExactly(
+                    new PhoneView(phone4, List.of()),
+                    new PhoneView(phone3, List.of(image))
+            );
+            Mockito.verify(phoneRepository).findDetailsRowsByIdIn(anyCollection());
+            Mockito.verify(imageRepository).findMetadataRowsByPhoneIdIn(anyCollection());
+        }
+
+        @Test
+        void whenIdsAreEmpty_thenReturnEmptyListWithoutQueries() {
+            // when
+            List<PhoneView> result = phoneService.getViewsByIds(List.of());
+
+            // then
+            assertThat(result).isEmpty();
+            Mockito.verifyNoInteractions(phoneRepository, imageRepository);
+        }
+
+        @Test
+        void whenIdsAreNull_thenThrowNullPointerException() {
+            // when + then
+            assertThatThrownBy(() -> phoneService.getViewsByIds(null))
+                    .isInstanceOf(NullPointerException.class);
+        }
+
+    }
+
+    @Nested
+    class GetPhoneViewsTest {
+
+        @Test
+        void whenCatalogIndexAnswers_thenReadOnlyRowsOfPageInTwoQueries() {
+            // given
+            int page = 1;
+            int size = 2;
+            PhoneFilterDto filterDto = buildDefaultPhoneFilterDto();
+            PhoneDetailsRow phone3 = buildPhoneDetailsRow(3L);
+            PhoneDetailsRow phone4 = buildPhoneDetailsRow(4L);
+            ImageMetadataRow image = buildImageMetadataRow(IMAGE_ID, 4L);
+
+            // mockito
+            Mockito.when(phoneCatalogIndex.findPage(filterDto, PhoneSort.NAME_ASC, page, size))
+                    .thenReturn(Optional.of(new PhoneIdPage(List.of(3L, 4L), 7)));
+            Mockito.when(phoneRepository.findDetailsRowsByIdIn(List.of(3L, 4L)))
+                    .thenReturn(List.of(phone4, phone3));
+            Mockito.when(imageRepository.findMetadataRowsByPhoneIdIn(anyCollection()))
+                    .thenReturn(List.of(image));
+
+            // when
+            Page<PhoneView> result = phoneService.getPhoneViews(page, size, filterDto);
+
+            // then
+            assertThat(result.getContent()).containsExactly(
+                    new PhoneView(phone3, List.of()),
+                    new PhoneView(phone4, List.of(image))
+            );
+            assertThat(result.getTotalElements()).isEqualTo(7);
+            assertThat(result.getPageable()).isEqualTo(PageRequest.of(page, size, Sort.by(Sort.Direction.ASC, "name", "id")));
+            Mockito.verify(phoneRepository, Mockito.never()).findAllByIdInWithImages(anyCollection());
+            Mockito.verifyNoInteractions(phoneCountService);
+        }
+
+        @Test
+        void whenCatalogIndexCantAnswer_thenReadPageOfIdsAndCountFromDatabase() {
+            // given
+            int page = 0;
+            int size = 10;
+            PhoneFilterDto filterDto = buildDefaultPhoneFilterDto();
+            PhoneDetailsRow phone = buildPhoneDetailsRow(PHONE_ID);
+
+            // mockito
+            Mockito.when(phoneRepository.findIds(any(Specification.class), any(Pageable.class)))
+                    .thenReturn(List.of(PHONE_ID));
+            Mockito.when(phoneRepository.findDetailsRowsByIdIn(List.of(PHONE_ID)))
+                    .thenReturn(List.of(phone));
+            Mockito.when(imageRepository.findMetadataRowsByPhoneIdIn(anyCollection()))
+                    .thenReturn(List.of());
+
+            // when
+            Page<PhoneView> result = phoneService.getPhoneViews(page, size, filterDto);
+
+            // then
+            assertThat(result.getContent()).containsExactly(new PhoneView(phone, List.of()));
+            assertThat(result.getTotalElements()).isEqualTo(1);
+        }
+
+        @Test
+        void whenNoPhonesFound_thenReturnEmptyPageWithoutReadingRows() {
+            // given
+            PhoneFilterDto filterDto = buildDefaultPhoneFilterDto();
+
+            // mockito
+            Mockito.when(phoneRepository.findIds(any(Specification.class), any(Pageable.class)))
+                    .thenReturn(List.of());
+
+            // when
+            Page<PhoneView> result = phoneService.getPhoneViews(0, 10, filterDto);
+
+            // then
+            assertThat(result.getContent()).isEmpty();
+            assertThat(result.getTotalElements()).isZero();
+            Mockito.verify(phoneRepository, Mockito.never()).findDetailsRowsByIdIn(anyCollection());
+            Mockito.verifyNoInteractions(imageRepository);
+        }
+
+    }
+
+    @Nested
+    class GetPhonesByCursorTest {
+
+        @Test
+        void whenSortByRelevance_thenThrowInvalidAPIRequestException() {
+            // given
+            PhoneFilterDto filterDto = buildPhoneFilterDtoWithSearch("relevance");
+
+            // when + then
+            assertThatThrownBy(() -> phoneService.getPhonesByCursor(null, 10, filterDto))
+                    .isInstanceOf(InvalidAPIRequestException.class);
+            Mockito.verifyNoInteractions(phoneRepository);
+        }
+
+        @Test
+        void whenSearchWithoutSort_thenSortByName() {
+            // given
+            PhoneFilterDto filterDto = buildPhoneFilterDtoWithSearch(null);
+
+            // mockito
+            Mockito.when(phoneRepository.findIds(any(Specification.class), any(Sort.class), anyInt()))
+                    .thenReturn(List.of());
+
+            // when
+            CursorPage<Phone> result = phoneService.getPhonesByCursor(null, 10, filterDto);
+
+            // then
+            assertThat(result.content()).isEmpty();
+
+            ArgumentCaptor<Sort> sortCaptor = ArgumentCaptor.forClass(Sort.class);
+            Mockito.verify(phoneRepository).findIds(any(Specification.class), sortCaptor.capture(), eq(11));
+            assertThat(sortCaptor.getValue()).isEqualTo(Sort.by(Sort.Direction.ASC, "name", "id"));
+        }
+
+        @Test
+        void whenFirstPageRequested_thenReturnPhonesAndNextCursor() {
+            // given
+            int size = 3;
+            PhoneFilterDto filterDto = buildDefaultPhoneFilterDto();
+            List<Phone> phones = buildPhonesFromTo(1, 4);
+
+            // mockito
+            Mockito.when(phoneRepository.findIds(any(Specification.class), any(Sort.class), anyInt()))
+                    .thenReturn(List.of(1L, 2L, 3L, 4L));
+            Mockito.when(phoneRepository.findAllByIdInWithImages(anyCollection()))
+                    .thenReturn(phones);
+
+            // when
+            CursorPage<Phone> result = phoneService.getPhonesByCursor(null, size, filterDto);
+
+            // then
+            assertThat(result.content()).containsExactlyElementsOf(phones);
+            assertThat(result.isLast()).isFalse();
+            assertThat(result.next()).isEqualTo(CursorUtility.encode(
+                    new PhoneCursor("name_asc", PHONE_NAME + 3, 3L)
+            ));
+
+            ArgumentCaptor<Sort> sortCaptor = ArgumentCaptor.forClass(Sort.class);
+            Mockito.verify(phoneRepository).findIds(any(Specification.class), sortCaptor.capture(), eq(size + 1));
+            assertThat(sortCaptor.getValue()).isEqualTo(Sort.by(Sort.Direction.ASC, "name", "id"));
+            Mockito.verify(phoneRepository, Mockito.never()).count(any(Specification.class));
+        }
+
+        @Test
+        void whenLastPageRequested_thenReturnPhonesWithoutNextCursor() {
+            // given
+            int size = 5;
+            PhoneFilterDto filterDto = buildDefaultPhoneFilterDto();
+            List<Phone> phones = buildPhonesFromTo(1, 3);
+
+            // mockito
+            Mockito.when(phoneRepository.findIds(any(Specification.class), any(Sort.class), anyInt()))
+                    .thenReturn(List.of(1L, 2L));
+            Mockito.when(phoneRepository.findAllByIdInWithImages(anyCollection()))
+                    .thenReturn(phones);
+
+            // when
+            CursorPage<Phone> result = phoneService.getPhonesByCursor(null, size, filterDto);
+
+            // then
+            assertThat(result.content()).hasSize(2);
+            assertThat(result.next()).isNull();
+            assertThat(result.isLast()).isTrue();
+        }
+
+        @Test
+        void whenPhonesLoadedInOtherOrder_thenKeepOrderOfIds() {
+            // given
+            PhoneFilterDto filterDto = buildPhoneFilterDtoWithSortByPriceDesc();
+            List<Phone> phones = buildPhonesFromTo(1, 4);
+
+            // mockito
+            Mockito.when(phoneRepository.findIds(any(Specification.class), any(Sort.class), anyInt()))
+                    .thenReturn(List.of(3L, 2L, 1L));
+            Mockito.when(phoneRepository.findAllByIdInWithImages(anyCollection()))
+                    .thenReturn(phones);
+
+            // when
+            CursorPage<Phone> result = phoneService.getPhonesByCursor(null, 10, filterDto);
+
+            // then
+            assertThat(result.content())
+                    .extracting(Phone::getId)
+                    .containsExactly(3L, 2L, 1L);
+        }
+
+        @Test
+        void whenNoPhonesFound_thenReturnEmptyPageWithoutLoadingPhones() {
+            // mockito
+            Mockito.when(phoneRepository.findIds(any(Specification.class), any(Sort.class), anyInt()))
+                    .thenReturn(List.of());
+
+            // when
+            CursorPage<Phone> result = phoneService.getPhonesByCursor(null, 10, buildDefaultPhoneFilterDto());
+
+            // then
+            assertThat(result.content()).isEmpty();
+            assertThat(result.isLast()).isTrue();
+            Mockito.verify(phoneRepository, Mockito.never()).findAllByIdInWithImages(anyCollection());
+        }
+
+        @Test
+        void whenCursorIsValid_thenContinueAfterCursor() {
+            // given
+            String cursor = CursorUtility.encode(new PhoneCursor("price_desc", "1003", 3L));
+
+            // mockito
+            Mockito.when(phoneRepository.findIds(any(Specification.class), any(Sort.class), anyInt()))
+                    .thenReturn(List.of(2L));
+            Mockito.when(phoneRepository.findAllByIdInWithImages(anyCollection()))
+                    .thenReturn(List.of(buildPhone(2L)));
+
+            // when
+            CursorPage<Phone> result = phoneService.getPhonesByCursor(cursor, 10, buildPhoneFilterDtoWithSortByPriceDesc());
+
+            // then
+            assertThat(result.content()).extracting(Phone::getId).containsExactly(2L);
+            ArgumentCaptor<Sort> sortCaptor = ArgumentCaptor.forClass(Sort.class);
+            Mockito.verify(phoneRepository).findIds(any(Specification.class), sortCaptor.capture(), anyInt());
+            assertThat(sortCaptor.getValue()).isEqualTo(Sort.by(Sort.Direction.DESC, "price", "id"));
+        }
+
+        @Test
+        void whenCursorIsNotDecodable_thenThrowInvalidAPIRequestException() {
+            // when + then
+            assertThatThrownBy(() -> phoneService.getPhonesByCursor("%%%", 10, buildDefaultPhoneFilterDto()))
+                    .isInstanceOf(InvalidAPIRequestException.class);
+            Mockito.verifyNoInteractions(phoneRepository);
+        }
+
+        @Test
+        void whenCursorIssuedForAnotherSort_thenThrowInvalidAPIRequestException() {
+            // given
+            String cursor = CursorUtility.encode(new PhoneCursor("price_asc", "1003", 3L));
+
+            // when + then
+            assertThatThrownBy(() -> phoneService.getPhonesByCursor(cursor, 10, buildDefaultPhoneFilterDto()))
+                    .isInstanceOf(InvalidAPIRequestException.class);
+            Mockito.verifyNoInteractions(phoneRepository);
+        }
+
+        @Test
+        void whenCursorHasInvalidPriceKey_thenThrowInvalidAPIRequestException() {
+            // given
+            String cursor = CursorUtility.encode(new PhoneCursor("price_asc", "not_a_price", 3L));
+
+            // when + then
+            assertThatThrownBy(() -> phoneService.getPhonesByCursor(cursor, 10, buildPhoneFilterDtoWithSortByPriceAsc()))
+                    .isInstanceOf(InvalidAPIRequestException.class);
+        }
+
+        @Test
+        void whenParameterFilterDtoIsNull_thenThrowNullPointerException() {
+            // when + then
+            assertThatThrownBy(() -> phoneService.getPhonesByCursor(null, 10, null))
+                    .isInstanceOf(NullPointerException.class);
+        }
+
+    }
+
     @Nested
     class GetByIdTest {
 
@@ -546,6 +960,91 @@ class PhoneServiceImplTest {
 
     }
 
+    @Nested
+    class GetByIdWithoutImagesTest {
+
+        @Test
+        void whenPhoneExists_thenReadItById() {
+            // given
+            Phone phone = buildPhone(PHONE_ID);
+
+            // mockito
+            Mockito.when(phoneRepository.findById(PHONE_ID)).thenReturn(Optional.of(phone));
+
+            // when
+            Optional<Phone> result = phoneService.getByIdWithoutImages(PHONE_ID);
+
+            // then
+            assertThat(result).contains(phone);
+            Mockito.verify(phoneRepository, Mockito.never()).findByIdWithImages(PHONE_ID);
+        }
+
+        @Test
+        void whenPhoneDoesNotExist_thenReturnEmptyOptional() {
+            // mockito
+            Mockito.when(phoneRepository.findById(PHONE_ID)).thenReturn(Optional.empty());
+
+            // when
+            Optional<Phone> result = phoneService.getByIdWithoutImages(PHONE_ID);
+
+            // then
+            assertThat(result).isNotPresent();
+        }
+
+        @Test
+        void whenParameterIdIsNull_thenThrowNullPointerException() {
+            // when + then
+            assertThatThrownBy(() -> phoneService.getByIdWithoutImages(null))
+                    .isInstanceOf(NullPointerException.class);
+        }
+
+    }
+
+    @Nested
+    class GetViewByIdTest {
+
+        @Test
+        void whenPhoneExists_thenReturnItWithItsImages() {
+            // given
+            PhoneDetailsRow phone = buildPhoneDetailsRow(PHONE_ID);
+            ImageMetadataRow image = buildImageMetadataRow(IMAGE_ID, PHONE_ID);
+
+            // mockito
+            Mockito.when(phoneRepository.findDetailsRowsByIdIn(List.of(PHONE_ID)))
+                    .thenReturn(List.of(phone));
+            Mockito.when(imageRepository.findMetadataRowsByPhoneIdIn(Set.of(PHONE_ID)))
+                    .thenReturn(List.of(image));
+
+            // when
+            Optional<PhoneView> result = phoneService.getViewById(PHONE_ID);
+
+            // then
+            assertThat(result).contains(new PhoneView(phone, List.of(image)));
+            Mockito.verify(phoneRepository, Mockito.never()).findByIdWithImages(any());
+        }
+
+        @Test
+        void whenPhoneDoesNotExist_thenReturnEmptyOptional() {
+            // mockito
+            Mockito.when(phoneRepository.findDetailsRowsByIdIn(List.of(PHONE_ID)))
+                    .thenReturn(List.of());
+
+            // when
+            Optional<PhoneView> result = phoneService.getViewById(PHONE_ID);
+
+            // then
+            assertThat(result).isEmpty();
+        }
+
+        @Test
+        void whenParameterIdIsNull_thenThrowNullPointerException() {
+            // when + then
+            assertThatThrownBy(() -> phoneService.getViewById(null))
+                    .isInstanceOf(NullPointerException.class);
+        }
+
+    }
+
     @Nested
     class CreateTest {
 
@@ -588,6 +1087,8 @@ class PhoneServiceImplTest {
             for (Image imageBeforeSave : imagesBeforeSave) {
                 assertThat(imageBeforeSave.getPhone()).isEqualTo(phone);
             }
+            Mockito.verify(eventPublisher)
+                    .publishEvent(new PhoneChangedEvent(PHONE_ID, PhoneChangedEvent.ChangeType.CREATED));
         }
 
         @Test
@@ -638,33 +1139,89 @@ class PhoneServiceImplTest {
     class UpdateTest {
 
         @Test
-        void whenPhoneExists_thenUpdatePhone() {
+        void whenPhoneExists_thenUpdateChangedAttributesWithoutReadingPhone() {
             // given
-            Phone phone = buildPhone(PHONE_ID);
             PhoneUpdateRequestDto dto = buildPhoneUpdateRequestDto();
 
             // mockito
-            Mockito.when(phoneRepository.findById(PHONE_ID))
-                    .thenReturn(Optional.of(phone));
+            Mockito.when(phoneMerger.getChangedAttributes(dto))
+                    .thenReturn(CHANGED_ATTRIBUTES);
+            Mockito.when(phoneUpdateRepository.updateIfVersionMatches(PHONE_ID, PHONE_VERSION, CHANGED_ATTRIBUTES))
+                    .thenReturn(1);
 
             // when
             phoneService.update(PHONE_ID, dto);
 
             // then
-            Mockito.verify(phoneRepository).findById(PHONE_ID);
-            Mockito.verify(phoneMerger).mergePhone(phone, dto);
-            Mockito.verify(phoneRepository).save(phone);
+            Mockito.verify(phoneUpdateRepository).updateIfVersionMatches(PHONE_ID, PHONE_VERSION, CHANGED_ATTRIBUTES);
+            Mockito.verify(phoneRepository, Mockito.never()).findById(any());
+            Mockito.verify(eventPublisher)
+                    .publishEvent(new PhoneChangedEvent(PHONE_ID, PhoneChangedEvent.ChangeType.UPDATED));
+        }
+
+        @Test
+        void whenVersionIsStale_thenThrowVersionConflictException() {
+            // given
+            PhoneUpdateRequestDto dto = buildPhoneUpdateRequestDto(PHONE_VERSION);
+
+            // mockito
+            Mockito.when(phoneMerger.getChangedAttributes(dto))
+                    .thenReturn(CHANGED_ATTRIBUTES);
+            Mockito.when(phoneUpdateRepository.updateIfVersionMatches(PHONE_ID, PHONE_VERSION, CHANGED_ATTRIBUTES))
+                    .thenReturn(0);
+            Mockito.when(phoneRepository.findVersionById(PHONE_ID))
+                    .thenReturn(Optional.of(PHONE_VERSION + 1));
+
+            // when + then
+            assertThatThrownBy(() -> phoneService.update(PHONE_ID, dto))
+                    .isInstanceOf(VersionConflictException.class);
+            Mockito.verifyNoInteractions(eventPublisher);
         }
 
         @Test
         void whenPhoneDoesNotExist_thenThrowResourceNotFoundException() {
+            // given
+            PhoneUpdateRequestDto dto = buildPhoneUpdateRequestDto();
+
             // mockito
-            Mockito.when(phoneRepository.findById(PHONE_ID))
+            Mockito.when(phoneMerger.getChangedAttributes(dto))
+                    .thenReturn(CHANGED_ATTRIBUTES);
+            Mockito.when(phoneUpdateRepository.updateIfVersionMatches(PHONE_ID, PHONE_VERSION, CHANGED_ATTRIBUTES))
+                    .thenReturn(0);
+            Mockito.when(phoneRepository.findVersionById(PHONE_ID))
                     .thenReturn(Optional.empty());
 
             // when + then
-            assertThatThrownBy(() -> phoneService.update(PHONE_ID, buildPhoneUpdateRequestDto()))
+            assertThatThrownBy(() -> phoneService.update(PHONE_ID, dto))
                     .isInstanceOf(ResourceNotFoundException.class);
+            Mockito.verifyNoInteractions(eventPublisher);
+        }
+
+        @Test
+        void whenNothingChanged_thenDontUpdatePhone() {
+            // given
+            PhoneUpdateRequestDto dto = buildPhoneUpdateRequestDto(PHONE_VERSION);
+
+            // mockito
+            Mockito.when(phoneMerger.getChangedAttributes(dto))
+                    .thenReturn(Map.of());
+            Mockito.when(phoneRepository.findVersionById(PHONE_ID))
+                    .thenReturn(Optional.of(PHONE_VERSION));
+
+            // when
+            phoneService.update(PHONE_ID, dto);
+
+            // then
+            Mockito.verify(phoneUpdateRepository, Mockito.never()).updateIfVersionMatches(any(), any(), any());
+            Mockito.verifyNoInteractions(eventPublisher);
+        }
+
+        @Test
+        void whenVersionIsNull_thenThrowNullPointerException() {
+            // when + then
+            assertThatThrownBy(() -> phoneService.update(PHONE_ID, buildPhoneUpdateRequestDto(null)))
+                    .isInstanceOf(NullPointerException.class);
+            Mockito.verifyNoInteractions(phoneUpdateRepository);
         }
 
         @Test
@@ -695,7 +1252,10 @@ class PhoneServiceImplTest {
             phoneService.delete(PHONE_ID);
 
             // then
+            Mockito.verify(imageService).deleteImagesOfPhone(PHONE_ID);
             Mockito.verify(phoneRepository).deleteById(PHONE_ID);
+            Mockito.verify(eventPublisher)
+                    .publishEvent(new PhoneChangedEvent(PHONE_ID, PhoneChangedEvent.ChangeType.DELETED));
         }
 
         @Test
@@ -734,6 +1294,25 @@ class PhoneServiceImplTest {
             assertThat(beforeSave.getSize()).isEqualTo(CONTENT.length);
         }
 
+        @Test
+        void whenImageAdded_thenMarkPhoneUpdatedAndPublishEvent() {
+            // given
+            Phone phone = buildPhone(PHONE_ID);
+
+            // mockito
+            Mockito.when(phoneRepository.findById(PHONE_ID))
+                    .thenReturn(Optional.of(phone));
+            Mockito.when(imageService.uploadImage(any(MultipartFile.class)))
+                    .thenReturn(buildImage());
+
+            // when
+            phoneService.addImageToPhone(PHONE_ID, buildMultipartFile());
+
+            // then
+            assertThat(phone.getUpdatedAt()).isNotNull();
+            Mockito.verify(eventPublisher).publishEvent(new PhoneChangedEvent(PHONE_ID, PhoneChangedEvent.ChangeType.IMAGES_CHANGED));
+        }
+
         @Test
         void whenPhoneDoesntExists_thenThrowException() {
             // mockito
@@ -805,15 +1384,22 @@ class PhoneServiceImplTest {
 
         @Test
         void whenPhoneExistsAndContainsImage_thenDeleteImage() {
+            // given
+            Phone phone = buildPhone(PHONE_ID);
+
             // mockito
             Mockito.when(phoneRepository.existsPhoneByIdWithImage(PHONE_ID, IMAGE_ID))
                     .thenReturn(true);
+            Mockito.when(phoneRepository.findById(PHONE_ID))
+                    .thenReturn(Optional.of(phone));
 
             // when
             phoneService.deletePhonesImageById(PHONE_ID, IMAGE_ID);
 
             // then
             Mockito.verify(imageService).deleteImage(IMAGE_ID);
+            assertThat(phone.getUpdatedAt()).isNotNull();
+            Mockito.verify(eventPublisher).publishEvent(new PhoneChangedEvent(PHONE_ID, PhoneChangedEvent.ChangeType.IMAGES_CHANGED));
         }
 
         @Test
@@ -877,10 +1463,12 @@ class PhoneServiceImplTest {
         public static final byte[] CONTENT = ORIGINAL_FILENAME.getBytes();
 
         public static final Long PHONE_ID = 100L;
+        public static final Long PHONE_VERSION = 3L;
         public static final String PHONE_NAME = "phone_name";
         public static final String PHONE_DESCRIPTION = "Phone description.";
         public static final BigDecimal PHONE_PRICE = new BigDecimal("1000.0");
         public static final String PHONE_BRAND = "phone_brand";
+        public static final String SEARCH_QUERY = "phone description";
         public static final int PHONE_RELEASE_YEAR = 2020;
         public static final String PHONE_CPU = "Snapdragon 8 Gen 2";
         public static final Integer PHONE_CORES_NUMBER = 8;
@@ -900,6 +1488,7 @@ class PhoneServiceImplTest {
         public static final String NEW_PHONE_FRONT_CAMERA = "16 MP";
         public static final String NEW_PHONE_MAIN_CAMERA = "50-50-12 MP";
         public static final String NEW_PHONE_BATTERY_CAPACITY = "5000 mAh";
+        public static final Map<String, Object> CHANGED_ATTRIBUTES = Map.of("name", NEW_PHONE_NAME);
 
 
         static List<Phone> buildPhonesFromTo(long from, long to) {
@@ -908,6 +1497,19 @@ class PhoneServiceImplTest {
                     .toList();
         }
 
+        static PhoneDetailsRow buildPhoneDetailsRow(Long id) {
+            PhoneDetailsRow row = Mockito.mock(PhoneDetailsRow.class);
+            Mockito.lenient().when(row.getId()).thenReturn(id);
+            return row;
+        }
+
+        static ImageMetadataRow buildImageMetadataRow(Long id, Long phoneId) {
+            ImageMetadataRow row = Mockito.mock(ImageMetadataRow.class);
+            Mockito.lenient().when(row.getId()).thenReturn(id);
+            Mockito.lenient().when(row.getPhoneId()).thenReturn(phoneId);
+            return row;
+        }
+
         static Phone buildPhone(Long id) {
             Phone phone = Phone.builder()
                     .name(PHONE_NAME + id)
@@ -965,6 +1567,10 @@ class PhoneServiceImplTest {
         }
 
         static PhoneUpdateRequestDto buildPhoneUpdateRequestDto() {
+            return buildPhoneUpdateRequestDto(PHONE_VERSION);
+        }
+
+        static PhoneUpdateRequestDto buildPhoneUpdateRequestDto(Long version) {
             return new PhoneUpdateRequestDto(
                     NEW_PHONE_NAME,
                     NEW_PHONE_DESCRIPTION,
@@ -976,98 +1582,83 @@ class PhoneServiceImplTest {
                     NEW_PHONE_SCREEN_SIZE,
                     NEW_PHONE_FRONT_CAMERA,
                     NEW_PHONE_MAIN_CAMERA,
-                    NEW_PHONE_BATTERY_CAPACITY
+                    NEW_PHONE_BATTERY_CAPACITY,
+                    version
             );
         }
 
         static PhoneFilterDto buildDefaultPhoneFilterDto() {
-            return new PhoneFilterDto(
-                    null,
-                    null,
-                    null,
-                    null
-            );
+            return PhoneFilterDto.builder()
+                    .build();
+        }
+
+        static PhoneFilterDto buildPhoneFilterDtoWithSearch(String sort) {
+            return PhoneFilterDto.builder()
+                    .sort(sort)
+                    .q(SEARCH_QUERY)
+                    .build();
         }
 
         static PhoneFilterDto buildPhoneFilterDtoWithSortByNameDesc() {
-            return new PhoneFilterDto(
-                    null,
-                    null,
-                    null,
-                    "name_desc"
-            );
+            return PhoneFilterDto.builder()
+                    .sort("name_desc")
+                    .build();
         }
 
         static PhoneFilterDto buildPhoneFilterDtoWithSortByPriceAsc() {
-            return new PhoneFilterDto(
-                    null,
-                    null,
-                    null,
-                    "price_asc"
-            );
+            return PhoneFilterDto.builder()
+                    .sort("price_asc")
+                    .build();
         }
 
         static PhoneFilterDto buildPhoneFilterDtoWithSortByPriceDesc() {
-            return new PhoneFilterDto(
-                    null,
-                    null,
-                    null,
-                    "price_desc"
-            );
+            return PhoneFilterDto.builder()
+                    .sort("price_desc")
+                    .build();
         }
 
         static PhoneFilterDto buildPhoneFilterDtoWithInvalidSort() {
-            return new PhoneFilterDto(
-                    null,
-                    null,
-                    null,
-                    "invalid_sort"
-            );
+            return PhoneFilterDto.builder()
+                    .sort("invalid_sort")
+                    .build();
         }
 
         static PhoneFilterDto buildPhoneFilterDtoWithFilterByBrand() {
-            return new PhoneFilterDto(
-                    "Apple",
-                    null,
-                    null,
-                    "name_asc"
-            );
+            return PhoneFilterDto.builder()
+                    .brand("Apple")
+                    .sort("name_asc")
+                    .build();
         }
 
         static PhoneFilterDto buildPhoneFilterDtoWithFilterByPriceRange() {
-            return new PhoneFilterDto(
-                    null,
-                    new BigDecimal("10000.0"),
-                    new BigDecimal("30000.0"),
-                    "name_asc"
-            );
+            return PhoneFilterDto.builder()
+                    .minPrice(new BigDecimal("10000.0"))
+                    .maxPrice(new BigDecimal("30000.0"))
+                    .sort("name_asc")
+                    .build();
         }
 
         static PhoneFilterDto buildPhoneFilterDtoWithFilterByMinPrice() {
-            return new PhoneFilterDto(
-                    null,
-                    new BigDecimal("10000.0"),
-                    null,
-                    "name_asc"
-            );
+            return PhoneFilterDto.builder()
+                    .minPrice(new BigDecimal("10000.0"))
+                    .sort("name_asc")
+                    .build();
         }
 
         static PhoneFilterDto buildPhoneFilterDtoWithFilterByMaxPrice() {
-            return new PhoneFilterDto(
-                    null,
-                    null,
-                    new BigDecimal("30000.0"),
-                    "name_asc"
-            );
+            return PhoneFilterDto.builder()
+                    .maxPrice(new BigDecimal("30000.0"))
+                    .sort("name_asc")
+                    .build();
         }
 
         static PhoneFilterDto buildPhoneFilterDtoWithSortAndFilterByPriceRangAndByBrand() {
-            return new PhoneFilterDto(
-                    "Apple",
-                    new BigDecimal("10000.0"),
-                    new BigDecimal("30000.0"),
-                    "price_desc"
-            );
+            return PhoneFilterDto.builder()
+                    .brand("Apple")
+                    .minPrice(new BigDecimal("10000.0"))
+                    .maxPrice(new BigDecimal("30000.0"))
+                    .sort("price_desc")
+                    .build();
         }
 
         static MultipartFile buildMultipartFile() {
@@ -0,0 +1,152 @@
+package com.challengeteam.shop.service.impl;
+
+import com.challengeteam.shop.persistence.repository.PhoneRepository;
+import com.challengeteam.shop.service.event.PhoneChangedEvent;
+import com.challengeteam.shop.service.event.PhoneChangedEvent.ChangeType;
+import com.challengeteam.shop.service.event.PhonePopularityChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.challengeteam.shop.service.impl.PhoneVersionServiceImplTest.TestResources.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(MockitoExtension.class)
+class PhoneVersionServiceImplTest {
+    @Mock
+    private PhoneRepository phoneRepository;
+    private PhoneVersionServiceImpl phoneVersionService;
+
+    @BeforeEach
+    void setUp() {
+        phoneVersionService = new PhoneVersionServiceImpl(phoneRepository);
+    }
+
+    @Nested
+    class GetPhoneVersionTest {
+
+        @Test
+        void whenPhoneModifiedAgain_thenVersionChanges() {
+            // mockito
+            Mockito.when(phoneRepository.findLastModifiedById(PHONE_ID))
+                    .thenReturn(Optional.of(MODIFIED_AT), Optional.of(MODIFIED_AT), Optional.of(MODIFIED_AT.plusNanos(1_000)));
+
+            // when
+            Optional<String> first = phoneVersionService.getPhoneVersion(PHONE_ID);
+            Optional<String> same = phoneVersionService.getPhoneVersion(PHONE_ID);
+            Optional<String> modified = phoneVersionService.getPhoneVersion(PHONE_ID);
+
+            // then
+            assertThat(first).isPresent().isEqualTo(same);
+            assertThat(modified).isPresent().isNotEqualTo(first);
+        }
+
+        @Test
+        void whenSameTimeOfOtherPhone_thenVersionsDiffer() {
+            // mockito
+            Mockito.when(phoneRepository.findLastModifiedById(PHONE_ID))
+                    .thenReturn(Optional.of(MODIFIED_AT));
+            Mockito.when(phoneRepository.findLastModifiedById(OTHER_PHONE_ID))
+                    .thenReturn(Optional.of(MODIFIED_AT));
+
+            // when
+            Optional<String> phone = phoneVersionService.getPhoneVersion(PHONE_ID);
+            Optional<String> otherPhone = phoneVersionService.getPhoneVersion(OTHER_PHONE_ID);
+
+            // then
+            assertThat(phone).isNotEqualTo(otherPhone);
+        }
+
+        @Test
+        void whenPhoneDoesNotExist_thenReturnEmpty() {
+            // mockito
+            Mockito.when(phoneRepository.findLastModifiedById(PHONE_ID))
+                    .thenReturn(Optional.empty());
+
+            // when
+            Optional<String> result = phoneVersionService.getPhoneVersion(PHONE_ID);
+
+            // then
+            assertThat(result).isEmpty();
+        }
+
+        @Test
+        void whenIdIsNull_thenThrowNullPointerException() {
+            // when + then
+            assertThatThrownBy(() -> phoneVersionService.getPhoneVersion(null))
+                    .isInstanceOf(NullPointerException.class);
+        }
+
+    }
+
+    @Nested
+    class GetCatalogVersionTest {
+
+        @Test
+        void whenNothingChanged_thenVersionStaysTheSame() {
+            // when
+            String first = phoneVersionService.getCatalogVersion();
+            String second = phoneVersionService.getCatalogVersion();
+
+            // then
+            assertThat(first).isEqualTo(second);
+            Mockito.verifyNoInteractions(phoneRepository);
+        }
+
+        @Test
+        void whenPhoneChanged_thenVersionChanges() {
+            // given
+            String before = phoneVersionService.getCatalogVersion();
+
+            // when
+            phoneVersionService.onPhoneChanged(new PhoneChangedEvent(PHONE_ID, ChangeType.UPDATED));
+            String after = phoneVersionService.getCatalogVersion();
+
+            // then
+            assertThat(after).isNotEqualTo(before);
+        }
+
+        @Test
+        void whenPopularityChanged_thenVersionChanges() {
+            // given
+            String before = phoneVersionService.getCatalogVersion();
+
+            // when
+            phoneVersionService.onPhonePopularityChanged(new PhonePopularityChangedEvent(Set.of(PHONE_ID)));
+            String after = phoneVersionService.getCatalogVersion();
+
+            // then
+            assertThat(after).isNotEqualTo(before);
+        }
+
+        @Test
+        void whenOtherInstanceStarted_thenVersionsDiffer() {
+            // given
+            PhoneVersionServiceImpl otherInstance = new PhoneVersionServiceImpl(phoneRepository);
+
+            // when
+            String version = phoneVersionService.getCatalogVersion();
+            String otherVersion = otherInstance.getCatalogVersion();
+
+            // then
+            assertThat(version).isNotEqualTo(otherVersion);
+        }
+
+    }
+
+    static class TestResources {
+        static final Long PHONE_ID = 10L;
+        static final Long OTHER_PHONE_ID = 11L;
+        static final Instant MODIFIED_AT = Instant.parse("2025-01-01T10:00:00.123456Z");
+    }
+
+}
@@ -0,0 +1,279 @@
+package com.challengeteam.shop.service.impl.cache;
+
+import com.challengeteam.shop.entity.image.Image;
+import com.challengeteam.shop.entity.image.MIMEType;
+import com.challengeteam.shop.entity.phone.Phone;
+import com.challengeteam.shop.properties.ImageMemoryCacheProperties;
+import com.challengeteam.shop.service.event.PhoneChangedEvent;
+import com.challengeteam.shop.service.event.PhoneChangedEvent.ChangeType;
+import com.challengeteam.shop.service.impl.cache.ImageMemoryCache.CachedImage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static com.challengeteam.shop.service.impl.cache.ImageMemoryCacheTest.TestResources.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class ImageMemoryCacheTest {
+    private ImageMemoryCacheProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private ImageMemoryCache imageMemoryCache;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ImageMemoryCacheProperties();
+        createCache();
+    }
+
+    @Nested
+    class PutTest {
+
+        @Test
+        void whenPut_thenGetReturnsImage() throws Exception {
+            // when
+            imageMemoryCache.put(buildImage(ID, null), BYTES);
+            Optional<CachedImage> result = imageMemoryCache.get(ID);
+
+            // then
+            assertThat(result).isPresent();
+            assertThat(result.get().name()).isEqualTo(NAME);
+            assertThat(result.get().mimeType()).isEqualTo(MIME_TYPE);
+            assertThat(result.get().storageKey()).isEqualTo(KEY);
+            assertThat(result.get().size()).isEqualTo(BYTES.length);
+            assertThat(read(result.get().open(0, BYTES.length))).isEqualTo(BYTES);
+        }
+
+        @Test
+        void whenRangeOpened_thenReadOnlyRange() throws Exception {
+            // given
+            CachedImage image = imageMemoryCache.put(buildImage(ID, null), BYTES);
+
+            // when
+            byte[] result = read(image.open(3, 4));
+
+            // then
+            assertThat(result).isEqualTo(Arrays.copyOfRange(BYTES, 3, 7));
+        }
+
+        @Test
+        void whenVariantPut_thenGetReturnsItByWidth() throws Exception {
+            // when
+            imageMemoryCache.put(buildImage(ID, null), 160, VARIANT_KEY, VARIANT_BYTES);
+
+            // then
+            assertThat(imageMemoryCache.get(ID)).isNotPresent();
+            assertThat(imageMemoryCache.get(ID, 160)).map(CachedImage::storageKey).contains(VARIANT_KEY);
+            assertThat(read(imageMemoryCache.get(ID, 160).orElseThrow().open(0, VARIANT_BYTES.length)))
+                    .isEqualTo(VARIANT_BYTES);
+        }
+
+        @Test
+        void whenImageIsLargerThanMaxImageSize_thenReturnItButDontKeep() throws Exception {
+            // given
+            properties.setMaxImageSize(DataSize.ofBytes(BYTES.length - 1));
+
+            // when
+            CachedImage result = imageMemoryCache.put(buildImage(ID, null), BYTES);
+
+            // then
+            assertThat(read(result.open(0, BYTES.length))).isEqualTo(BYTES);
+            assertThat(imageMemoryCache.accepts(BYTES.length)).isFalse();
+            assertThat(imageMemoryCache.get(ID)).isNotPresent();
+        }
+
+        @Test
+        void whenOffHeap_thenKeepBytesInDirectBuffer() throws Exception {
+            // given
+            properties.setOffHeap(true);
+
+            // when
+            CachedImage result = imageMemoryCache.put(buildImage(ID, null), BYTES);
+
+            // then
+            assertThat(result.bytes().isDirect()).isTrue();
+            assertThat(read(result.open(0, BYTES.length))).isEqualTo(BYTES);
+        }
+
+        @Test
+        void whenDisabled_thenDontKeep() {
+            // given
+            properties.setEnabled(false);
+
+            // when
+            imageMemoryCache.put(buildImage(ID, null), BYTES);
+
+            // then
+            assertThat(imageMemoryCache.accepts(BYTES.length)).isFalse();
+            assertThat(imageMemoryCache.get(ID)).isNotPresent();
+        }
+
+        @Test
+        void whenHotImageAndManyOneOffImages_thenKeepHotImage() {
+            // given
+            properties.setMaxSize(DataSize.ofBytes(BYTES.length * 10L));
+            createCache();
+            // the frequencies are only counted once the cache is half full
+            for (long id = 100; id < 106; id++) {
+                imageMemoryCache.put(buildImage(id, null), BYTES);
+            }
+            imageMemoryCache.put(buildImage(ID, null), BYTES);
+            for (int i = 0; i < 20; i++) {
+                imageMemoryCache.get(ID);
+            }
+
+            // when
+            for (long id = 1_000; id < 1_100; id++) {
+                imageMemoryCache.put(buildImage(id, null), BYTES);
+            }
+
+            // then (evictions are done in the background)
+            await().untilAsserted(() ->
+                    assertThat(meterRegistry.get("cache.evictions").tag("cache", CACHE_NAME).functionCounter().count())
+                            .isGreaterThanOrEqualTo(97)
+            );
+            assertThat(imageMemoryCache.peek(ID)).isPresent();
+        }
+
+    }
+
+    @Nested
+    class GetTest {
+
+        @Test
+        void whenRequestedTwice_thenReportMissAndHit() {
+            // when
+            imageMemoryCache.get(ID);
+            imageMemoryCache.put(buildImage(ID, null), BYTES);
+            imageMemoryCache.get(ID);
+
+            // then
+            assertThat(gets("miss")).isEqualTo(1);
+            assertThat(gets("hit")).isEqualTo(1);
+            assertThat(meterRegistry.get("cache.hit.ratio").tag("cache", CACHE_NAME).gauge().value()).isEqualTo(0.5);
+        }
+
+        @Test
+        void whenPeeked_thenDontReport() {
+            // given
+            imageMemoryCache.put(buildImage(ID, null), BYTES);
+
+            // when
+            Optional<CachedImage> result = imageMemoryCache.peek(ID);
+
+            // then
+            assertThat(result).isPresent();
+            assertThat(gets("hit")).isZero();
+        }
+
+    }
+
+    @Nested
+    class InvalidateTest {
+
+        @Test
+        void whenInvalidated_thenImageIsNotFound() {
+            // given
+            imageMemoryCache.put(buildImage(ID, null), BYTES);
+
+            // when
+            imageMemoryCache.invalidate(ID);
+
+            // then
+            assertThat(imageMemoryCache.get(ID)).isNotPresent();
+        }
+
+        @Test
+        void whenInvalidated_thenVariantsAreNotFound() {
+            // given
+            imageMemoryCache.put(buildImage(ID, null), BYTES);
+            imageMemoryCache.put(buildImage(ID, null), 160, VARIANT_KEY, VARIANT_BYTES);
+            imageMemoryCache.put(buildImage(OTHER_ID, null), 160, VARIANT_KEY, VARIANT_BYTES);
+
+            // when
+            imageMemoryCache.invalidate(ID);
+
+            // then
+            assertThat(imageMemoryCache.get(ID, 160)).isNotPresent();
+            assertThat(imageMemoryCache.get(OTHER_ID, 160)).isPresent();
+        }
+
+        @Test
+        void whenPhoneDeleted_thenDropOnlyItsImages() {
+            // given
+            imageMemoryCache.put(buildImage(ID, PHONE_ID), BYTES);
+            imageMemoryCache.put(buildImage(OTHER_ID, OTHER_PHONE_ID), BYTES);
+
+            // when
+            imageMemoryCache.onPhoneChanged(new PhoneChangedEvent(PHONE_ID, ChangeType.DELETED));
+
+            // then
+            assertThat(imageMemoryCache.get(ID)).isNotPresent();
+            assertThat(imageMemoryCache.get(OTHER_ID)).isPresent();
+        }
+
+        @Test
+        void whenPhoneUpdated_thenKeepItsImages() {
+            // given
+            imageMemoryCache.put(buildImage(ID, PHONE_ID), BYTES);
+
+            // when
+            imageMemoryCache.onPhoneChanged(new PhoneChangedEvent(PHONE_ID, ChangeType.UPDATED));
+
+            // then
+            assertThat(imageMemoryCache.get(ID)).isPresent();
+        }
+
+    }
+
+    private void createCache() {
+        meterRegistry = new SimpleMeterRegistry();
+        imageMemoryCache = new ImageMemoryCache(properties, meterRegistry);
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets")
+                .tag("cache", CACHE_NAME)
+                .tag("result", result)
+                .functionCounter()
+                .count();
+    }
+
+    static class TestResources {
+        static final String CACHE_NAME = ImageMemoryCache.CACHE_NAME;
+        static final long ID = 1L;
+        static final long OTHER_ID = 2L;
+        static final long PHONE_ID = 10L;
+        static final long OTHER_PHONE_ID = 20L;
+        static final String NAME = "image.jpg";
+        static final String KEY = "unique-image.jpg";
+        static final String MIME_TYPE = "image/jpeg";
+        static final byte[] BYTES = "bytes of the hot image".getBytes();
+        static final String VARIANT_KEY = "variants/160/unique-image.jpg";
+        static final byte[] VARIANT_BYTES = "thumbnail".getBytes();
+
+        static Image buildImage(Long id, Long phoneId) {
+            return Image.builder()
+                    .id(id)
+                    .name(NAME)
+                    .storageKey(KEY)
+                    .size((long) BYTES.length)
+                    .mimeType(MIMEType.builder().extension("jpg").type(MIME_TYPE).build())
+                    .phone(phoneId == null ? null : Phone.builder().id(phoneId).build())
+                    .build();
+        }
+
+        static byte[] read(InputStream stream) throws Exception {
+            try (stream) {
+                return stream.readAllBytes();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,356 @@
+package com.challengeteam.shop.service.impl.filter;
+
+import com.challengeteam.shop.dto.pagination.PhoneFilterDto;
+import com.challengeteam.shop.persistence.repository.PhoneRepository;
+import com.challengeteam.shop.persistence.repository.projection.PhoneFilterRow;
+import com.challengeteam.shop.service.event.PhoneChangedEvent;
+import com.challengeteam.shop.service.event.PhoneChangedEvent.ChangeType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static com.challengeteam.shop.service.impl.filter.PhoneFilterIndexTest.TestResources.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(MockitoExtension.class)
+class PhoneFilterIndexTest {
+    @Mock
+    private PhoneRepository phoneRepository;
+    private PhoneFilterIndex phoneFilterIndex;
+
+    @BeforeEach
+    void setUp() {
+        phoneFilterIndex = new PhoneFilterIndex(phoneRepository);
+    }
+
+    @Nested
+    class FindIdsTest {
+
+        @Test
+        void whenValuesOfOneFilterGiven_thenFindPhonesHavingAnyOfThem() {
+            // mockito
+            Mockito.when(phoneRepository.findFilterRows())
+                    .thenReturn(buildCatalog());
+
+            // when
+            Optional<Roaring64Bitmap> result = phoneFilterIndex.findIds(
+                    PhoneFilterDto.builder().brands(List.of("APPLE", "Google")).build()
+            );
+
+            // then
+            assertThat(result).map(TestResources::ids).contains(List.of(1L, 3L, 4L));
+        }
+
+        @Test
+        void whenDifferentFiltersGiven_thenFindPhonesMatchingAllOfThem() {
+            // mockito
+            Mockito.when(phoneRepository.findFilterRows())
+                    .thenReturn(buildCatalog());
+
+            // when
+            Optional<Roaring64Bitmap> result = phoneFilterIndex.findIds(PhoneFilterDto.builder()
+                    .brands(List.of("Apple", "Samsung"))
+                    .releaseYears(List.of(2023))
+                    .cpus(List.of("a16 bionic", "Exynos 2400"))
+                    .build()
+            );
+
+            // then
+            assertThat(result).map(TestResources::ids).contains(List.of(1L, 2L));
+        }
+
+        @Test
+        void whenSingleBrandAndBrandsGiven_thenFindPhonesMatchingBoth() {
+            // mockito
+            Mockito.when(phoneRepository.findFilterRows())
+                    .thenReturn(buildCatalog());
+
+            // when
+            Optional<Roaring64Bitmap> result = phoneFilterIndex.findIds(PhoneFilterDto.builder()
+                    .brand("Apple")
+                    .brands(List.of("Google"))
+                    .build()
+            );
+
+            // then
+            assertThat(result).map(TestResources::ids).contains(List.of());
+        }
+
+        @Test
+        void whenPriceRangeGiven_thenBoundsAreInclusive() {
+            // mockito
+            Mockito.when(phoneRepository.findFilterRows())
+                    .thenReturn(buildCatalog());
+
+            // when
+            Optional<Roaring64Bitmap> result = phoneFilterIndex.findIds(PhoneFilterDto.builder()
+                    .minPrice(new BigDecimal("500"))
+                    .maxPrice(new BigDecimal("999.00"))
+                    .coresNumbers(List.of(6, 8))
+                    .build()
+            );
+
+            // then
+            assertThat(result).map(TestResources::ids).contains(List.of(1L, 2L));
+        }
+
+        @Test
+        void whenUnknownValueGiven_thenFindNothing() {
+            // mockito
+            Mockito.when(phoneRepository.findFilterRows())
+                    .thenReturn(buildCatalog());
+
+            // when
+            Optional<Roaring64Bitmap> result = phoneFilterIndex.findIds(
+                    PhoneFilterDto.builder().cpus(List.of("unknown")).build()
+            );
+
+            // then
+            assertThat(result).map(TestResources::ids).contains(List.of());
+        }
+
+        @Test
+        void whenFoundIdsChanged_thenIndexIsNotChanged() {
+            // mockito
+            Mockito.when(phoneRepository.findFilterRows())
+                    .thenReturn(buildCatalog());
+            PhoneFilterDto filterDto = PhoneFilterDto.builder().brands(List.of("Apple")).build();
+
+            // when
+            phoneFilterIndex.findIds(filterDto).orElseThrow().clear();
+            Optional<Roaring64Bitmap> result = phoneFilterIndex.findIds(filterDto);
+
+            // then
+            assertThat(result).map(TestResources::ids).contains(List.of(1L, 4L));
+        }
+
+        @Test
+        void whenSearchOrCharacteristicRangeGiven_thenReturnEmpty() {
+            // when
+            Optional<Roaring64Bitmap> searched = phoneFilterIndex.findIds(
+                    PhoneFilterDto.builder().q("galaxy").brands(List.of("Samsung")).build()
+            );
+            Optional<Roaring64Bitmap> ranged = phoneFilterIndex.findIds(
+                    PhoneFilterDto.builder().minBatteryMah(4000).brands(List.of("Samsung")).build()
+            );
+
+            // then
+            assertThat(searched).isEmpty();
+            assertThat(ranged).isEmpty();
+            Mockito.verifyNoInteractions(phoneRepository);
+        }
+
+        @Test
+        void whenCatalogCantBeLoaded_thenReturnEmpty() {
+            // mockito
+            Mockito.when(phoneRepository.findFilterRows())
+                    .thenThrow(new RuntimeException("Database is down"));
+
+            // when
+            Optional<Roaring64Bitmap> result = phoneFilterIndex.findIds(
+                    PhoneFilterDto.builder().brands(List.of("Apple")).build()
+            );
+
+            // then
+            assertThat(result).isEmpty();
+        }
+
+        @Test
+        void whenFoundTwice_thenLoadCatalogOnlyOnce() {
+            // mockito
+            Mockito.when(phoneRepository.findFilterRows())
+                    .thenReturn(buildCatalog());
+
+            // when
+            phoneFilterIndex.findIds(PhoneFilterDto.builder().brands(List.of("Apple")).build());
+            phoneFilterIndex.findIds(PhoneFilterDto.builder().releaseYears(List.of(2024)).build());
+
+            // then
+            Mockito.verify(phoneRepository, Mockito.times(1)).findFilterRows();
+        }
+
+        @Test
+        void whenFilterIsNull_thenThrowNullPointerException() {
+            // when + then
+            assertThatThrownBy(() -> phoneFilterIndex.findIds(null))
+                    .isInstanceOf(NullPointerException.class);
+        }
+
+    }
+
+    @Nested
+    class OnPhoneChangedTest {
+
+        @Test
+        void whenPhoneCreated_thenAddOnlyThisPhone() {
+            // mockito
+            Mockito.when(phoneRepository.findFilterRows())
+                    .thenReturn(buildCatalog());
+            Mockito.when(phoneRepository.findFilterRowById(5L))
+                    .thenReturn(Optional.of(row(5L, "google", "750", 8, 2024, "tensor g4")));
+
+            // when
+            phoneFilterIndex.reload();
+            phoneFilterIndex.onPhoneChanged(new PhoneChangedEvent(5L, ChangeType.CREATED));
+            Optional<Roaring64Bitmap> result = phoneFilterIndex.findIds(PhoneFilterDto.builder()
+                    .brands(List.of("Google"))
+                    .minPrice(new BigDecimal("700"))
+                    .build()
+            );
+
+            // then
+            assertThat(result).map(TestResources::ids).contains(List.of(5L));
+            Mockito.verify(phoneRepository, Mockito.times(1)).findFilterRows();
+        }
+
+        @Test
+        void whenPhonesImported_thenReloadWholeCatalog() {
+            // mockito
+            Mockito.when(phoneRepository.findFilterRows())
+                    .thenReturn(buildCatalog())
+                    .thenReturn(List.of(row(5L, "google", "750", 8, 2024, "tensor g4")));
+
+            // when
+            phoneFilterIndex.reload();
+            phoneFilterIndex.onPhoneChanged(new PhoneChangedEvent(null, ChangeType.IMPORTED));
+            Optional<Roaring64Bitmap> result = phoneFilterIndex.findIds(PhoneFilterDto.builder()
+                    .brands(List.of("Google"))
+                    .build()
+            );
+
+            // then
+            assertThat(result).map(TestResources::ids).contains(List.of(5L));
+            Mockito.verify(phoneRepository, Mockito.times(2)).findFilterRows();
+        }
+
+        @Test
+        void whenPhoneUpdated_thenMoveItBetweenValues() {
+            // mockito
+            Mockito.when(phoneRepository.findFilterRows())
+                    .thenReturn(buildCatalog());
+            Mockito.when(phoneRepository.findFilterRowById(2L))
+                    .thenReturn(Optional.of(row(2L, "samsung", "450", 8, 2024, "exynos 2400")));
+
+            // when
+            phoneFilterIndex.reload();
+            phoneFilterIndex.onPhoneChanged(new PhoneChangedEvent(2L, ChangeType.UPDATED));
+
+            // then
+            assertThat(phoneFilterIndex.findIds(PhoneFilterDto.builder().releaseYears(List.of(2023)).build()))
+                    .map(TestResources::ids).contains(List.of(1L));
+            assertThat(phoneFilterIndex.findIds(PhoneFilterDto.builder().releaseYears(List.of(2024)).maxPrice(new BigDecimal("500")).build()))
+                    .map(TestResources::ids).contains(List.of(2L, 3L));
+        }
+
+        @Test
+        void whenPhoneDeleted_thenRemoveItWithoutReading() {
+            // mockito
+            Mockito.when(phoneRepository.findFilterRows())
+                    .thenReturn(buildCatalog());
+
+            // when
+            phoneFilterIndex.reload();
+            phoneFilterIndex.onPhoneChanged(new PhoneChangedEvent(1L, ChangeType.DELETED));
+            Optional<Roaring64Bitmap> result = phoneFilterIndex.findIds(
+                    PhoneFilterDto.builder().brands(List.of("Apple")).maxPrice(new BigDecimal("1000")).build()
+            );
+
+            // then
+            assertThat(result).map(TestResources::ids).contains(List.of(4L));
+            Mockito.verify(phoneRepository, Mockito.never()).findFilterRowById(1L);
+        }
+
+        @Test
+        void whenNotLoaded_thenIgnoreChange() {
+            // when
+            phoneFilterIndex.onPhoneChanged(new PhoneChangedEvent(1L, ChangeType.UPDATED));
+
+            // then
+            Mockito.verifyNoInteractions(phoneRepository);
+        }
+
+        @Test
+        void whenUpdateFails_thenReloadByNextRequest() {
+            // mockito
+            Mockito.when(phoneRepository.findFilterRows())
+                    .thenReturn(buildCatalog());
+            Mockito.when(phoneRepository.findFilterRowById(2L))
+                    .thenThrow(new RuntimeException("Database is down"));
+
+            // when
+            phoneFilterIndex.reload();
+            phoneFilterIndex.onPhoneChanged(new PhoneChangedEvent(2L, ChangeType.UPDATED));
+            Optional<Roaring64Bitmap> result = phoneFilterIndex.findIds(
+                    PhoneFilterDto.builder().brands(List.of("Samsung")).build()
+            );
+
+            // then
+            assertThat(result).map(TestResources::ids).contains(List.of(2L));
+            Mockito.verify(phoneRepository, Mockito.times(2)).findFilterRows();
+        }
+
+    }
+
+    static class TestResources {
+
+        // brands and cpus come lower-cased from the database
+        static List<PhoneFilterRow> buildCatalog() {
+            return List.of(
+                    row(1L, "apple", "999.00", 6, 2023, "a16 bionic"),
+                    row(2L, "samsung", "500", 8, 2023, "exynos 2400"),
+                    row(3L, "google", "499.99", 8, 2024, "tensor g3"),
+                    row(4L, "apple", "1000", 6, 2024, "a17 pro")
+            );
+        }
+
+        static List<Long> ids(Roaring64Bitmap bitmap) {
+            return Arrays.stream(bitmap.toArray()).boxed().toList();
+        }
+
+        static PhoneFilterRow row(Long id, String brand, String price, Integer coresNumber, Integer releaseYear, String cpu) {
+            return new PhoneFilterRow() {
+                @Override
+                public Long getId() {
+                    return id;
+                }
+
+                @Override
+                public String getBrand() {
+                    return brand;
+                }
+
+                @Override
+                public BigDecimal getPrice() {
+                    return new BigDecimal(price);
+                }
+
+                @Override
+                public Integer getCoresNumber() {
+                    return coresNumber;
+                }
+
+                @Override
+                public Integer getReleaseYear() {
+                    return releaseYear;
+                }
+
+                @Override
+                public String getCpu() {
+                    return cpu;
+                }
+            };
+        }
+    }
+
+}
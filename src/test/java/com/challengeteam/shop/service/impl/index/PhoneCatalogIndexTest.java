@@ -0,0 +1,285 @@
+package com.challengeteam.shop.service.impl.index;
+
+import com.challengeteam.shop.dto.pagination.PhoneFilterDto;
+import com.challengeteam.shop.persistence.repository.PhoneRepository;
+import com.challengeteam.shop.persistence.repository.projection.PhoneIndexRow;
+import com.challengeteam.shop.persistence.specification.PhoneSort;
+import com.challengeteam.shop.properties.PhoneCatalogIndexProperties;
+import com.challengeteam.shop.service.event.PhoneChangedEvent;
+import com.challengeteam.shop.service.impl.filter.PhoneFilterIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+
+import static com.challengeteam.shop.service.impl.index.PhoneCatalogSnapshotTest.TestResources.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+@ExtendWith(MockitoExtension.class)
+class PhoneCatalogIndexTest {
+    @Mock
+    private PhoneRepository phoneRepository;
+    @Mock
+    private PhoneFilterIndex phoneFilterIndex;
+    private PhoneCatalogIndexProperties properties;
+    private PhoneCatalogIndex phoneCatalogIndex;
+
+    @BeforeEach
+    void setUp() {
+        properties = new PhoneCatalogIndexProperties();
+        phoneCatalogIndex = new PhoneCatalogIndex(phoneRepository, properties, phoneFilterIndex);
+    }
+
+    @AfterEach
+    void tearDown() {
+        phoneCatalogIndex.shutdown();
+    }
+
+    @Nested
+    class FindPageTest {
+
+        @Test
+        void whenNotBuilt_thenReturnEmpty() {
+            // when
+            Optional<PhoneIdPage> result = phoneCatalogIndex.findPage(filter(null, null, null), PhoneSort.NAME_ASC, 0, 10);
+
+            // then
+            assertThat(result).isEmpty();
+            assertThat(phoneCatalogIndex.isReady()).isFalse();
+        }
+
+        @Test
+        void whenBuilt_thenReturnPageWithoutQueryingDatabaseAgain() {
+            // mockito
+            Mockito.when(phoneRepository.findIndexRowsOrderByName())
+                    .thenReturn(buildRowsByName());
+
+            // when
+            phoneCatalogIndex.rebuild();
+            Optional<PhoneIdPage> result = phoneCatalogIndex.findPage(filter("apple", null, null), PhoneSort.NAME_ASC, 0, 10);
+
+            // then
+            assertThat(result).contains(new PhoneIdPage(List.of(10L, 30L), 2));
+            Mockito.verify(phoneRepository, Mockito.times(1)).findIndexRowsOrderByName();
+        }
+
+        @Test
+        void whenMultiValueFilterRequested_thenKeepPhonesFoundByFilterIndex() {
+            // given
+            PhoneFilterDto filterDto = PhoneFilterDto.builder().brands(List.of("apple", "google")).build();
+
+            // mockito
+            Mockito.when(phoneRepository.findIndexRowsOrderByName())
+                    .thenReturn(buildRowsByName());
+            Mockito.when(phoneFilterIndex.findIds(filterDto))
+                    .thenReturn(Optional.of(Roaring64Bitmap.bitmapOf(30L, 40L)));
+
+            // when
+            phoneCatalogIndex.rebuild();
+            Optional<PhoneIdPage> result = phoneCatalogIndex.findPage(filterDto, PhoneSort.PRICE_ASC, 0, 10);
+
+            // then
+            assertThat(result).contains(new PhoneIdPage(List.of(40L, 30L), 2));
+        }
+
+        @Test
+        void whenFilterIndexCantAnswer_thenReturnEmpty() {
+            // given
+            PhoneFilterDto filterDto = PhoneFilterDto.builder().coresNumbers(List.of(8)).build();
+
+            // mockito
+            Mockito.when(phoneRepository.findIndexRowsOrderByName())
+                    .thenReturn(buildRowsByName());
+            Mockito.when(phoneFilterIndex.findIds(filterDto))
+                    .thenReturn(Optional.empty());
+
+            // when
+            phoneCatalogIndex.rebuild();
+            Optional<PhoneIdPage> result = phoneCatalogIndex.findPage(filterDto, PhoneSort.NAME_ASC, 0, 10);
+
+            // then
+            assertThat(result).isEmpty();
+        }
+
+        @Test
+        void whenSearchRequested_thenReturnEmpty() {
+            // given
+            PhoneFilterDto filterDto = PhoneFilterDto.builder().q("galaxy").build();
+
+            // mockito
+            Mockito.when(phoneRepository.findIndexRowsOrderByName())
+                    .thenReturn(buildRowsByName());
+
+            // when
+            phoneCatalogIndex.rebuild();
+            Optional<PhoneIdPage> result = phoneCatalogIndex.findPage(filterDto, PhoneSort.RELEVANCE, 0, 10);
+
+            // then
+            assertThat(result).isEmpty();
+        }
+
+        @Test
+        void whenPhoneDeleted_thenReturnPagesWithoutItAndDontRebuild() {
+            // mockito
+            Mockito.when(phoneRepository.findIndexRowsOrderByName())
+                    .thenReturn(buildRowsByName());
+
+            // when
+            phoneCatalogIndex.rebuild();
+            phoneCatalogIndex.onPhoneChanged(new PhoneChangedEvent(10L, PhoneChangedEvent.ChangeType.DELETED));
+
+            // then
+            await().untilAsserted(() -> assertThat(
+                    phoneCatalogIndex.findPage(filter("apple", null, null), PhoneSort.NAME_ASC, 0, 10)
+            ).contains(new PhoneIdPage(List.of(30L), 1)));
+            Mockito.verify(phoneRepository, Mockito.times(1)).findIndexRowsOrderByName();
+        }
+
+        @Test
+        void whenPhoneUpdated_thenReturnPagesWithItsNewPlaceAndDontRebuild() {
+            // mockito
+            Mockito.when(phoneRepository.findIndexRowsOrderByName())
+                    .thenReturn(buildRowsByName());
+            Mockito.when(phoneRepository.findIndexRowById(10L))
+                    .thenReturn(Optional.of(row(10L, "100", "apple")));
+            Mockito.when(phoneRepository.findIdsBeforeInNameOrder(10L, Limit.of(1)))
+                    .thenReturn(List.of(50L));
+
+            // when
+            phoneCatalogIndex.rebuild();
+            phoneCatalogIndex.onPhoneChanged(new PhoneChangedEvent(10L, PhoneChangedEvent.ChangeType.UPDATED));
+
+            // then
+            await().untilAsserted(() -> assertThat(
+                    phoneCatalogIndex.findPage(filter(null, null, null), PhoneSort.NAME_ASC, 0, 10)
+            ).contains(new PhoneIdPage(List.of(20L, 30L, 40L, 50L, 10L), 5)));
+            assertThat(phoneCatalogIndex.findPage(filter(null, null, "150"), PhoneSort.PRICE_ASC, 0, 10))
+                    .contains(new PhoneIdPage(List.of(10L), 1));
+            Mockito.verify(phoneRepository, Mockito.times(1)).findIndexRowsOrderByName();
+        }
+
+        @Test
+        void whenPhoneCreatedAfterUnknownPhone_thenReturnEmptyUntilRebuilt() {
+            // given
+            properties.setEnabled(false);
+
+            // mockito
+            Mockito.when(phoneRepository.findIndexRowsOrderByName())
+                    .thenReturn(buildRowsByName());
+            Mockito.when(phoneRepository.findIndexRowById(60L))
+                    .thenReturn(Optional.of(row(60L, "100", "apple")));
+            Mockito.when(phoneRepository.findIdsBeforeInNameOrder(60L, Limit.of(1)))
+                    .thenReturn(List.of(99L));
+
+            // when
+            phoneCatalogIndex.rebuild();
+            phoneCatalogIndex.onPhoneChanged(new PhoneChangedEvent(60L, PhoneChangedEvent.ChangeType.CREATED));
+
+            // then
+            await().until(() -> !phoneCatalogIndex.isReady());
+            assertThat(phoneCatalogIndex.findPage(filter(null, null, null), PhoneSort.NAME_ASC, 0, 10)).isEmpty();
+        }
+
+        @Test
+        void whenChangeIsBeingApplied_thenReturnEmptyWithoutBlockingWriter() throws Exception {
+            // given
+            CountDownLatch applying = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+
+            // mockito
+            Mockito.when(phoneRepository.findIndexRowsOrderByName())
+                    .thenReturn(buildRowsByName());
+            Mockito.when(phoneRepository.findIndexRowById(10L))
+                    .then(invocation -> {
+                        applying.countDown();
+                        release.await();
+                        return Optional.of(row(10L, "100", "apple"));
+                    });
+            Mockito.when(phoneRepository.findIdsBeforeInNameOrder(10L, Limit.of(1)))
+                    .thenReturn(List.of(50L));
+
+            // when
+            phoneCatalogIndex.rebuild();
+            phoneCatalogIndex.onPhoneChanged(new PhoneChangedEvent(10L, PhoneChangedEvent.ChangeType.UPDATED));
+            applying.await();
+
+            // then
+            assertThat(phoneCatalogIndex.findPage(filter(null, null, null), PhoneSort.NAME_ASC, 0, 10)).isEmpty();
+            release.countDown();
+            await().untilAsserted(() -> assertThat(
+                    phoneCatalogIndex.findPage(filter(null, null, null), PhoneSort.NAME_ASC, 0, 10)
+            ).contains(new PhoneIdPage(List.of(20L, 30L, 40L, 50L, 10L), 5)));
+        }
+
+        @Test
+        void whenPhonesImported_thenReturnEmptyUntilRebuilt() {
+            // given
+            properties.setEnabled(false);
+
+            // mockito
+            Mockito.when(phoneRepository.findIndexRowsOrderByName())
+                    .thenReturn(buildRowsByName());
+
+            // when
+            phoneCatalogIndex.rebuild();
+            phoneCatalogIndex.onPhoneChanged(new PhoneChangedEvent(null, PhoneChangedEvent.ChangeType.IMPORTED));
+
+            // then
+            assertThat(phoneCatalogIndex.isReady()).isFalse();
+            assertThat(phoneCatalogIndex.findPage(filter(null, null, null), PhoneSort.NAME_ASC, 0, 10)).isEmpty();
+        }
+
+        @Test
+        void whenPhoneChangedDuringRebuild_thenDontInstallOutdatedSnapshot() {
+            // given
+            properties.setEnabled(false);
+
+            // mockito
+            Mockito.when(phoneRepository.findIndexRowsOrderByName())
+                    .then(invocation -> {
+                        phoneCatalogIndex.onPhoneChanged(new PhoneChangedEvent(60L, PhoneChangedEvent.ChangeType.CREATED));
+                        return buildRowsByName();
+                    });
+
+            // when
+            phoneCatalogIndex.rebuild();
+
+            // then
+            assertThat(phoneCatalogIndex.isReady()).isFalse();
+        }
+
+        @Test
+        void whenLoadingFails_thenStayNotReady() {
+            // mockito
+            Mockito.when(phoneRepository.findIndexRowsOrderByName())
+                    .thenThrow(new IllegalStateException("database is down"));
+
+            // when
+            phoneCatalogIndex.rebuild();
+
+            // then
+            assertThat(phoneCatalogIndex.isReady()).isFalse();
+        }
+
+        @Test
+        void whenFilterIsNull_thenThrowNullPointerException() {
+            // when + then
+            assertThatThrownBy(() -> phoneCatalogIndex.findPage(null, PhoneSort.NAME_ASC, 0, 10))
+                    .isInstanceOf(NullPointerException.class);
+        }
+
+    }
+
+}
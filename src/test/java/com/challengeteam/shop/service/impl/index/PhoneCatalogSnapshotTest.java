@@ -0,0 +1,390 @@
+package com.challengeteam.shop.service.impl.index;
+
+import com.challengeteam.shop.dto.pagination.PhoneFilterDto;
+import com.challengeteam.shop.persistence.repository.projection.PhoneIndexRow;
+import com.challengeteam.shop.persistence.specification.PhoneSort;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static com.challengeteam.shop.service.impl.index.PhoneCatalogSnapshotTest.TestResources.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PhoneCatalogSnapshotTest {
+
+    @Nested
+    class BuildTest {
+
+        @Test
+        void whenPricesFitScale_thenBuildSnapshot() {
+            // when
+            Optional<PhoneCatalogSnapshot> result = PhoneCatalogSnapshot.build(buildRowsByName(), MAX_PRICE_SCALE);
+
+            // then
+            assertThat(result).isPresent();
+            assertThat(result.get().size()).isEqualTo(5);
+        }
+
+        @Test
+        void whenPriceHasTooManyFractionDigits_thenReturnEmpty() {
+            // given
+            List<PhoneIndexRow> rows = List.of(row(1L, "10.1234567", "apple"));
+
+            // when
+            Optional<PhoneCatalogSnapshot> result = PhoneCatalogSnapshot.build(rows, MAX_PRICE_SCALE);
+
+            // then
+            assertThat(result).isEmpty();
+        }
+
+        @Test
+        void whenPriceOverflowsLong_thenReturnEmpty() {
+            // given
+            List<PhoneIndexRow> rows = List.of(row(1L, "92233720368547758.08", "apple"));
+
+            // when
+            Optional<PhoneCatalogSnapshot> result = PhoneCatalogSnapshot.build(rows, MAX_PRICE_SCALE);
+
+            // then
+            assertThat(result).isEmpty();
+        }
+
+        @Test
+        void whenCatalogIsEmpty_thenReturnEmptyPages() {
+            // given
+            PhoneCatalogSnapshot snapshot = PhoneCatalogSnapshot.build(List.of(), MAX_PRICE_SCALE).orElseThrow();
+
+            // when
+            PhoneIdPage result = snapshot.findPage(filter(null, null, null), PhoneSort.NAME_ASC, 0, 10, null);
+
+            // then
+            assertThat(result.ids()).isEmpty();
+            assertThat(result.total()).isZero();
+        }
+
+    }
+
+    @Nested
+    class FindPageTest {
+        private final PhoneCatalogSnapshot snapshot = PhoneCatalogSnapshot.build(buildRowsByName(), MAX_PRICE_SCALE)
+                .orElseThrow();
+
+        @Test
+        void whenSortByNameAsc_thenReturnRowsInLoadedOrder() {
+            // when
+            PhoneIdPage result = snapshot.findPage(filter(null, null, null), PhoneSort.NAME_ASC, 0, 10, null);
+
+            // then
+            assertThat(result.ids()).containsExactly(10L, 20L, 30L, 40L, 50L);
+            assertThat(result.total()).isEqualTo(5);
+        }
+
+        @Test
+        void whenSortByNameDesc_thenReturnRowsInReversedOrder() {
+            // when
+            PhoneIdPage result = snapshot.findPage(filter(null, null, null), PhoneSort.NAME_DESC, 0, 10, null);
+
+            // then
+            assertThat(result.ids()).containsExactly(50L, 40L, 30L, 20L, 10L);
+        }
+
+        @Test
+        void whenSortByPriceAsc_thenOrderByPriceAndIdForEqualPrices() {
+            // when
+            PhoneIdPage result = snapshot.findPage(filter(null, null, null), PhoneSort.PRICE_ASC, 0, 10, null);
+
+            // then
+            assertThat(result.ids()).containsExactly(40L, 20L, 50L, 10L, 30L);
+        }
+
+        @Test
+        void whenSortByPriceDesc_thenOrderByPriceAndIdDescending() {
+            // when
+            PhoneIdPage result = snapshot.findPage(filter(null, null, null), PhoneSort.PRICE_DESC, 0, 10, null);
+
+            // then
+            assertThat(result.ids()).containsExactly(30L, 10L, 50L, 20L, 40L);
+        }
+
+        @Test
+        void whenPageRequested_thenReturnIdsOfPageAndTotalOfAllMatches() {
+            // when
+            PhoneIdPage result = snapshot.findPage(filter(null, null, null), PhoneSort.NAME_ASC, 1, 2, null);
+
+            // then
+            assertThat(result.ids()).containsExactly(30L, 40L);
+            assertThat(result.total()).isEqualTo(5);
+        }
+
+        @Test
+        void whenPageIsOutOfRange_thenReturnNoIdsButTotal() {
+            // when
+            PhoneIdPage result = snapshot.findPage(filter(null, null, null), PhoneSort.NAME_ASC, 3, 2, null);
+
+            // then
+            assertThat(result.ids()).isEmpty();
+            assertThat(result.total()).isEqualTo(5);
+        }
+
+        @Test
+        void whenFilterByBrandInAnyCase_thenReturnOnlyThisBrand() {
+            // when
+            PhoneIdPage result = snapshot.findPage(filter("APPLE", null, null), PhoneSort.NAME_ASC, 0, 10, null);
+
+            // then
+            assertThat(result.ids()).containsExactly(10L, 30L);
+            assertThat(result.total()).isEqualTo(2);
+        }
+
+        @Test
+        void whenFilterByUnknownBrand_thenReturnEmptyPage() {
+            // when
+            PhoneIdPage result = snapshot.findPage(filter("nokia", null, null), PhoneSort.NAME_ASC, 0, 10, null);
+
+            // then
+            assertThat(result.ids()).isEmpty();
+            assertThat(result.total()).isZero();
+        }
+
+        @Test
+        void whenFilterByPriceRange_thenBoundsAreInclusive() {
+            // when
+            PhoneIdPage result = snapshot.findPage(filter(null, "499.99", "899.5"), PhoneSort.PRICE_ASC, 0, 10, null);
+
+            // then
+            assertThat(result.ids()).containsExactly(20L, 50L, 10L);
+        }
+
+        @Test
+        void whenPriceBoundsHaveMoreFractionDigitsThanPrices_thenCompareExactly() {
+            // when
+            PhoneIdPage above = snapshot.findPage(filter(null, "499.991", null), PhoneSort.PRICE_ASC, 0, 10, null);
+            PhoneIdPage below = snapshot.findPage(filter(null, null, "499.989"), PhoneSort.PRICE_ASC, 0, 10, null);
+
+            // then
+            assertThat(above.ids()).containsExactly(10L, 30L);
+            assertThat(below.ids()).containsExactly(40L);
+        }
+
+        @Test
+        void whenMinPriceIsGreaterThanMaxPrice_thenReturnEmptyPage() {
+            // when
+            PhoneIdPage result = snapshot.findPage(filter(null, "900", "100"), PhoneSort.NAME_ASC, 0, 10, null);
+
+            // then
+            assertThat(result.total()).isZero();
+        }
+
+        @Test
+        void whenFilterByBrandAndPrice_thenReturnPhonesMatchingBoth() {
+            // when
+            PhoneIdPage result = snapshot.findPage(filter("samsung", "400", null), PhoneSort.NAME_DESC, 0, 10, null);
+
+            // then
+            assertThat(result.ids()).containsExactly(50L, 20L);
+        }
+
+        @Test
+        void whenMatchingIdsGiven_thenKeepOnlyTheseAndCountThem() {
+            // when
+            PhoneIdPage result = snapshot.findPage(
+                    filter(null, "400", null),
+                    PhoneSort.PRICE_DESC,
+                    0,
+                    10,
+                    Roaring64Bitmap.bitmapOf(20L, 40L, 30L)
+            );
+
+            // then
+            assertThat(result).isEqualTo(new PhoneIdPage(List.of(30L, 20L), 2));
+        }
+
+    }
+
+    @Nested
+    class ChangeTest {
+        private final PhoneCatalogSnapshot snapshot = PhoneCatalogSnapshot.build(buildRowsByName(), MAX_PRICE_SCALE)
+                .orElseThrow();
+
+        @Test
+        void whenPhoneRemoved_thenItIsLeftOutOfBothOrders() {
+            // when
+            PhoneCatalogSnapshot result = snapshot.without(20L);
+
+            // then
+            assertThat(result.findPage(filter(null, null, null), PhoneSort.NAME_ASC, 0, 10, null).ids())
+                    .containsExactly(10L, 30L, 40L, 50L);
+            assertThat(result.findPage(filter(null, null, null), PhoneSort.PRICE_ASC, 0, 10, null).ids())
+                    .containsExactly(40L, 50L, 10L, 30L);
+            assertThat(snapshot.size()).isEqualTo(5);
+        }
+
+        @Test
+        void whenUnknownPhoneRemoved_thenReturnSameSnapshot() {
+            // when
+            PhoneCatalogSnapshot result = snapshot.without(99L);
+
+            // then
+            assertThat(result).isSameAs(snapshot);
+        }
+
+        @Test
+        void whenPhoneAdded_thenPlaceItAfterPreviousByNameAndByPrice() {
+            // when
+            Optional<PhoneCatalogSnapshot> result = snapshot.with(row(60L, "499.99", "google"), 30L);
+
+            // then
+            assertThat(result).isPresent();
+            assertThat(result.get().findPage(filter(null, null, null), PhoneSort.NAME_ASC, 0, 10, null).ids())
+                    .containsExactly(10L, 20L, 30L, 60L, 40L, 50L);
+            assertThat(result.get().findPage(filter(null, null, null), PhoneSort.PRICE_ASC, 0, 10, null).ids())
+                    .containsExactly(40L, 20L, 50L, 60L, 10L, 30L);
+            assertThat(result.get().findPage(filter("Google", null, null), PhoneSort.NAME_ASC, 0, 10, null).ids())
+                    .containsExactly(60L, 40L);
+        }
+
+        @Test
+        void whenPhoneWithoutPreviousAdded_thenPlaceItFirst() {
+            // when
+            Optional<PhoneCatalogSnapshot> result = snapshot.with(row(5L, "10", "nokia"), null);
+
+            // then
+            assertThat(result).isPresent();
+            assertThat(result.get().findPage(filter(null, null, null), PhoneSort.NAME_ASC, 0, 10, null).ids())
+                    .containsExactly(5L, 10L, 20L, 30L, 40L, 50L);
+            assertThat(result.get().findPage(filter("nokia", null, null), PhoneSort.PRICE_DESC, 0, 10, null).ids())
+                    .containsExactly(5L);
+        }
+
+        @Test
+        void whenPhoneMoved_thenFollowItsNewNameAndPrice() {
+            // when
+            Optional<PhoneCatalogSnapshot> result = snapshot.without(10L).with(row(10L, "100", "apple"), 50L);
+
+            // then
+            assertThat(result).isPresent();
+            assertThat(result.get().findPage(filter(null, null, null), PhoneSort.NAME_ASC, 0, 10, null).ids())
+                    .containsExactly(20L, 30L, 40L, 50L, 10L);
+            assertThat(result.get().findPage(filter(null, null, null), PhoneSort.PRICE_ASC, 0, 10, null).ids())
+                    .containsExactly(10L, 40L, 20L, 50L, 30L);
+        }
+
+        @Test
+        void whenPreviousPhoneIsUnknown_thenReturnEmpty() {
+            // when
+            Optional<PhoneCatalogSnapshot> result = snapshot.with(row(60L, "499.99", "google"), 99L);
+
+            // then
+            assertThat(result).isEmpty();
+        }
+
+        @Test
+        void whenPriceDoesntFitScale_thenReturnEmpty() {
+            // when
+            Optional<PhoneCatalogSnapshot> result = snapshot.with(row(60L, "499.999", "google"), null);
+
+            // then
+            assertThat(result).isEmpty();
+        }
+
+    }
+
+    @Nested
+    class SupportsTest {
+
+        @Test
+        void whenSearchQueryPresent_thenNotSupported() {
+            // given
+            PhoneFilterDto filterDto = PhoneFilterDto.builder().sort("name_asc").q("galaxy").build();
+
+            // when + then
+            assertThat(PhoneCatalogSnapshot.supports(filterDto, PhoneSort.NAME_ASC)).isFalse();
+        }
+
+        @Test
+        void whenCharacteristicRangePresent_thenNotSupported() {
+            // given
+            PhoneFilterDto filterDto = PhoneFilterDto.builder().sort("name_asc").minBatteryMah(5000).build();
+
+            // when + then
+            assertThat(PhoneCatalogSnapshot.supports(filterDto, PhoneSort.NAME_ASC)).isFalse();
+        }
+
+        @Test
+        void whenMultiValueFilterPresent_thenSupported() {
+            // given
+            PhoneFilterDto filterDto = PhoneFilterDto.builder().sort("name_asc").releaseYears(List.of(2024)).build();
+
+            // when + then
+            assertThat(PhoneCatalogSnapshot.supports(filterDto, PhoneSort.NAME_ASC)).isTrue();
+        }
+
+        @Test
+        void whenFiltersAndSortOnly_thenSupported() {
+            // given
+            PhoneFilterDto filterDto = filter("apple", "1", "2");
+
+            // when + then
+            assertThat(PhoneCatalogSnapshot.supports(filterDto, PhoneSort.PRICE_DESC)).isTrue();
+        }
+
+        @Test
+        void whenSortedByOtherAttribute_thenNotSupported() {
+            // given
+            PhoneFilterDto filterDto = PhoneFilterDto.builder().sort("popularity").build();
+
+            // when + then
+            assertThat(PhoneCatalogSnapshot.supports(filterDto, PhoneSort.POPULARITY)).isFalse();
+            assertThat(PhoneCatalogSnapshot.supports(filterDto, PhoneSort.RELEASE_YEAR_DESC)).isFalse();
+            assertThat(PhoneCatalogSnapshot.supports(filterDto, PhoneSort.NEWEST)).isFalse();
+        }
+
+    }
+
+    static class TestResources {
+        static final int MAX_PRICE_SCALE = 6;
+
+        // ordered by name as the database returns them
+        static List<PhoneIndexRow> buildRowsByName() {
+            return List.of(
+                    row(10L, "899.50", "apple"),
+                    row(20L, "499.99", "samsung"),
+                    row(30L, "999.00", "apple"),
+                    row(40L, "199", "google"),
+                    row(50L, "499.99", "samsung")
+            );
+        }
+
+        static PhoneFilterDto filter(String brand, String minPrice, String maxPrice) {
+            return PhoneFilterDto.builder()
+                    .brand(brand)
+                    .minPrice(minPrice == null ? null : new BigDecimal(minPrice))
+                    .maxPrice(maxPrice == null ? null : new BigDecimal(maxPrice))
+                    .build();
+        }
+
+        static PhoneIndexRow row(Long id, String price, String brand) {
+            return new PhoneIndexRow() {
+                @Override
+                public Long getId() {
+                    return id;
+                }
+
+                @Override
+                public BigDecimal getPrice() {
+                    return new BigDecimal(price);
+                }
+
+                @Override
+                public String getBrand() {
+                    return brand;
+                }
+            };
+        }
+    }
+
+}
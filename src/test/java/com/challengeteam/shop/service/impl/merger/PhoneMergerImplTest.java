@@ -7,6 +7,7 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
+import java.util.Map;
 
 import static com.challengeteam.shop.service.impl.merger.PhoneMergerImplTest.TestResources.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -34,6 +35,7 @@ class PhoneMergerImplTest {
                     null,
                     null,
                     null,
+                    null,
                     null
             );
 
@@ -73,7 +75,8 @@ class PhoneMergerImplTest {
                     "  " + SAMSUNG_SCREEN_SIZE + "  ",
                     "  " + SAMSUNG_FRONT_CAMERA + "  ",
                     "  " + SAMSUNG_MAIN_CAMERA + "  ",
-                    "  " + SAMSUNG_BATTERY_CAPACITY + "  "
+                    "  " + SAMSUNG_BATTERY_CAPACITY + "  ",
+                    null
             );
 
             // when
@@ -93,6 +96,35 @@ class PhoneMergerImplTest {
             assertEquals(SAMSUNG_BATTERY_CAPACITY, phone.getPhoneCharacteristics().getBatteryCapacity());
         }
 
+        @Test
+        void whenCharacteristicsChanged_thenUpdateNumericValues() {
+            // given
+            Phone phone = getIphone();
+            var dto = new PhoneUpdateRequestDto(
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    SAMSUNG_SCREEN_SIZE,
+                    XIAOMI_FRONT_CAMERA,
+                    "200-12-10 MP",
+                    SAMSUNG_BATTERY_CAPACITY,
+                    null
+            );
+
+            // when
+            phoneMerger.mergePhone(phone, dto);
+
+            // then
+            assertEquals(new BigDecimal("6.20"), phone.getPhoneCharacteristics().getScreenInches());
+            assertEquals(32, phone.getPhoneCharacteristics().getFrontCameraMp());
+            assertEquals(200, phone.getPhoneCharacteristics().getMainCameraMp());
+            assertEquals(4000, phone.getPhoneCharacteristics().getBatteryMah());
+        }
+
         @Test
         void whenParameterPhoneIsNull_thenThrowException() {
             // given
@@ -107,6 +139,7 @@ class PhoneMergerImplTest {
                     null,
                     null,
                     null,
+                    null,
                     null
             );
 
@@ -131,6 +164,84 @@ class PhoneMergerImplTest {
         }
     }
 
+    @Nested
+    class GetChangedAttributesTest {
+
+        @Test
+        void whenCalled_thenReturnOnlyPresentFields() {
+            // given
+            var dto = new PhoneUpdateRequestDto(
+                    "  " + SAMSUNG_NAME + "  ",
+                    null,
+                    SAMSUNG_PRICE,
+                    null,
+                    null,
+                    "  " + SAMSUNG_CPU + "  ",
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    1L
+            );
+
+            // when
+            Map<String, Object> attributes = phoneMerger.getChangedAttributes(dto);
+
+            // then
+            assertEquals(Map.of(
+                    "name", SAMSUNG_NAME,
+                    "price", SAMSUNG_PRICE,
+                    "phoneCharacteristics.cpu", SAMSUNG_CPU
+            ), attributes);
+        }
+
+        @Test
+        void whenCharacteristicsChanged_thenReturnTheirNumericValues() {
+            // given
+            var dto = new PhoneUpdateRequestDto(
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    "100.5\"",
+                    XIAOMI_FRONT_CAMERA,
+                    "200-12-10 MP",
+                    SAMSUNG_BATTERY_CAPACITY,
+                    null
+            );
+
+            // when
+            Map<String, Object> attributes = phoneMerger.getChangedAttributes(dto);
+
+            // then
+            assertEquals(32, attributes.get("phoneCharacteristics.frontCameraMp"));
+            assertEquals(200, attributes.get("phoneCharacteristics.mainCameraMp"));
+            assertEquals(4000, attributes.get("phoneCharacteristics.batteryMah"));
+            // too large to be stored, but still replaces the value of the old screen size
+            assertTrue(attributes.containsKey("phoneCharacteristics.screenInches"));
+            assertNull(attributes.get("phoneCharacteristics.screenInches"));
+        }
+
+        @Test
+        void whenNoFieldsPresent_thenReturnEmptyMap() {
+            // given
+            var dto = new PhoneUpdateRequestDto(null, null, null, null, null, null, null, null, null, null, null, 1L);
+
+            // when + then
+            assertTrue(phoneMerger.getChangedAttributes(dto).isEmpty());
+        }
+
+        @Test
+        void whenParameterPhoneUpdateRequestDtoIsNull_thenThrowException() {
+            // when + then
+            assertThrows(NullPointerException.class, () -> phoneMerger.getChangedAttributes(null));
+        }
+    }
+
     static class TestResources {
 
         public static final Long IPHONE_ID = 1L;
@@ -0,0 +1,141 @@
+package com.challengeteam.shop.service.impl.popularity;
+
+import com.challengeteam.shop.persistence.repository.PhonePopularityRepository;
+import com.challengeteam.shop.properties.PhonePopularityProperties;
+import com.challengeteam.shop.service.event.PhonePopularityChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.Map;
+import java.util.Set;
+
+import static com.challengeteam.shop.service.impl.popularity.PhonePopularityCounterTest.TestResources.*;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+
+@ExtendWith(MockitoExtension.class)
+class PhonePopularityCounterTest {
+    @Mock
+    private PhonePopularityRepository phonePopularityRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    private PhonePopularityCounter phonePopularityCounter;
+
+    @BeforeEach
+    void setUp() {
+        phonePopularityCounter = new PhonePopularityCounter(
+                phonePopularityRepository,
+                new PhonePopularityProperties(),
+                eventPublisher
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Nested
+    class FlushTest {
+
+        @Test
+        void whenPhonesCounted_thenWriteCountsAtOnceAndPublishEvent() {
+            // given
+            phonePopularityCounter.count(PHONE_ID);
+            phonePopularityCounter.count(PHONE_ID);
+            phonePopularityCounter.count(OTHER_PHONE_ID);
+
+            // when
+            phonePopularityCounter.flush();
+
+            // then
+            Mockito.verify(phonePopularityRepository).addPopularity(Map.of(PHONE_ID, 2L, OTHER_PHONE_ID, 1L));
+            Mockito.verify(eventPublisher).publishEvent(new PhonePopularityChangedEvent(Set.of(PHONE_ID, OTHER_PHONE_ID)));
+        }
+
+        @Test
+        void whenFlushedTwice_thenWriteCountsOnce() {
+            // given
+            phonePopularityCounter.count(PHONE_ID);
+
+            // when
+            phonePopularityCounter.flush();
+            phonePopularityCounter.flush();
+
+            // then
+            Mockito.verify(phonePopularityRepository).addPopularity(Map.of(PHONE_ID, 1L));
+            Mockito.verifyNoMoreInteractions(phonePopularityRepository);
+        }
+
+        @Test
+        void whenNothingCounted_thenDontWriteOrPublish() {
+            // when
+            phonePopularityCounter.flush();
+
+            // then
+            Mockito.verifyNoInteractions(phonePopularityRepository, eventPublisher);
+        }
+
+        @Test
+        void whenCountedInTransaction_thenCountOnlyAfterCommit() {
+            // given
+            TransactionSynchronizationManager.initSynchronization();
+            phonePopularityCounter.count(PHONE_ID);
+
+            // when
+            phonePopularityCounter.flush();
+            TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+            phonePopularityCounter.flush();
+
+            // then
+            Mockito.verify(phonePopularityRepository).addPopularity(Map.of(PHONE_ID, 1L));
+        }
+
+        @Test
+        void whenWriteFails_thenKeepCountsForNextFlush() {
+            // given
+            phonePopularityCounter.count(PHONE_ID);
+
+            // mockito
+            Mockito.doThrow(new DataAccessResourceFailureException("Database is unavailable"))
+                    .doNothing()
+                    .when(phonePopularityRepository).addPopularity(anyMap());
+
+            // when
+            phonePopularityCounter.flush();
+            phonePopularityCounter.count(PHONE_ID);
+            phonePopularityCounter.flush();
+
+            // then
+            Mockito.verify(phonePopularityRepository).addPopularity(Map.of(PHONE_ID, 2L));
+            Mockito.verify(eventPublisher).publishEvent(any(PhonePopularityChangedEvent.class));
+        }
+
+        @Test
+        void whenPhoneIdIsNull_thenThrowNullPointerException() {
+            // when + then
+            assertThatThrownBy(() -> phonePopularityCounter.count(null))
+                    .isInstanceOf(NullPointerException.class);
+        }
+
+    }
+
+    static class TestResources {
+        static final Long PHONE_ID = 1L;
+        static final Long OTHER_PHONE_ID = 2L;
+    }
+
+}
@@ -0,0 +1,114 @@
+package com.challengeteam.shop.service.impl.suggest;
+
+import com.challengeteam.shop.dto.phone.suggest.PhoneNameSuggestionDto;
+import com.challengeteam.shop.persistence.repository.PhoneRepository;
+import com.challengeteam.shop.service.event.PhoneChangedEvent;
+import com.challengeteam.shop.service.event.PhoneChangedEvent.ChangeType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static com.challengeteam.shop.service.impl.suggest.PhoneSuggestSnapshotTest.TestResources.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class PhoneSuggestIndexTest {
+    @Mock
+    private PhoneRepository phoneRepository;
+    private PhoneSuggestIndex phoneSuggestIndex;
+
+    @BeforeEach
+    void setUp() {
+        phoneSuggestIndex = new PhoneSuggestIndex(phoneRepository);
+    }
+
+    @Nested
+    class SuggestTest {
+
+        @Test
+        void whenSuggestedTwice_thenLoadCatalogOnlyOnce() {
+            // mockito
+            Mockito.when(phoneRepository.findSuggestRows())
+                    .thenReturn(buildCatalog());
+
+            // when
+            phoneSuggestIndex.suggest("sam", 10);
+            phoneSuggestIndex.suggest("pix", 10);
+
+            // then
+            Mockito.verify(phoneRepository, Mockito.times(1)).findSuggestRows();
+        }
+
+    }
+
+    @Nested
+    class OnPhoneChangedTest {
+
+        @Test
+        void whenPhoneUpdated_thenReadOnlyThisPhone() {
+            // mockito
+            Mockito.when(phoneRepository.findSuggestRows())
+                    .thenReturn(buildCatalog());
+            Mockito.when(phoneRepository.findSuggestRowById(3L))
+                    .thenReturn(Optional.of(row(3L, "Pixel 9", "Google")));
+
+            // when
+            phoneSuggestIndex.reload();
+            phoneSuggestIndex.onPhoneChanged(new PhoneChangedEvent(3L, ChangeType.UPDATED));
+
+            // then
+            assertThat(phoneSuggestIndex.suggest("pixel", 10).phones())
+                    .containsExactly(new PhoneNameSuggestionDto(3L, "Pixel 9", "Google"));
+            Mockito.verify(phoneRepository, Mockito.times(1)).findSuggestRows();
+        }
+
+        @Test
+        void whenPhoneDeleted_thenDontReadIt() {
+            // mockito
+            Mockito.when(phoneRepository.findSuggestRows())
+                    .thenReturn(buildCatalog());
+
+            // when
+            phoneSuggestIndex.reload();
+            phoneSuggestIndex.onPhoneChanged(new PhoneChangedEvent(1L, ChangeType.DELETED));
+
+            // then
+            assertThat(phoneSuggestIndex.suggest("iphone", 10).phones()).isEmpty();
+            Mockito.verify(phoneRepository, Mockito.never()).findSuggestRowById(Mockito.any());
+        }
+
+        @Test
+        void whenNotLoaded_thenIgnoreChange() {
+            // when
+            phoneSuggestIndex.onPhoneChanged(new PhoneChangedEvent(1L, ChangeType.UPDATED));
+
+            // then
+            Mockito.verifyNoInteractions(phoneRepository);
+        }
+
+        @Test
+        void whenUpdateFails_thenReloadByNextRequest() {
+            // mockito
+            Mockito.when(phoneRepository.findSuggestRows())
+                    .thenReturn(buildCatalog());
+            Mockito.when(phoneRepository.findSuggestRowById(1L))
+                    .thenThrow(new IllegalStateException("database is down"));
+
+            // when
+            phoneSuggestIndex.reload();
+            phoneSuggestIndex.onPhoneChanged(new PhoneChangedEvent(1L, ChangeType.UPDATED));
+            phoneSuggestIndex.suggest("iphone", 10);
+
+            // then
+            Mockito.verify(phoneRepository, Mockito.times(2)).findSuggestRows();
+        }
+
+    }
+
+}
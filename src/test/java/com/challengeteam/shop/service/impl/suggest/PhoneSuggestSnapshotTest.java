@@ -0,0 +1,185 @@
+package com.challengeteam.shop.service.impl.suggest;
+
+import com.challengeteam.shop.dto.phone.suggest.BrandSuggestionDto;
+import com.challengeteam.shop.dto.phone.suggest.PhoneNameSuggestionDto;
+import com.challengeteam.shop.dto.phone.suggest.PhoneSuggestResponseDto;
+import com.challengeteam.shop.persistence.repository.projection.PhoneSuggestRow;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.challengeteam.shop.service.impl.suggest.PhoneSuggestSnapshotTest.TestResources.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PhoneSuggestSnapshotTest {
+
+    @Nested
+    class SuggestTest {
+        private final PhoneSuggestSnapshot snapshot = PhoneSuggestSnapshot.build(buildCatalog());
+
+        @Test
+        void whenPrefixMatchesStartOfName_thenSuggestNewestPhonesFirst() {
+            // when
+            PhoneSuggestResponseDto result = snapshot.suggest("sam", 10);
+
+            // then
+            assertThat(result.phones()).extracting(PhoneNameSuggestionDto::id).containsExactly(4L, 2L);
+        }
+
+        @Test
+        void whenPrefixMatchesWordInsideName_thenSuggestPhone() {
+            // when
+            PhoneSuggestResponseDto result = snapshot.suggest("GALAXY s2", 10);
+
+            // then
+            assertThat(result.phones()).containsExactly(new PhoneNameSuggestionDto(2L, "Samsung Galaxy S24", "Samsung"));
+        }
+
+        @Test
+        void whenPhoneMatchesByManyWords_thenSuggestItOnce() {
+            // when
+            PhoneSuggestResponseDto result = snapshot.suggest("s", 10);
+
+            // then
+            assertThat(result.phones()).extracting(PhoneNameSuggestionDto::id).containsExactly(4L, 2L);
+        }
+
+        @Test
+        void whenMorePhonesMatchThanLimit_thenKeepNewest() {
+            // when
+            PhoneSuggestResponseDto result = snapshot.suggest("galaxy", 1);
+
+            // then
+            assertThat(result.phones()).extracting(PhoneNameSuggestionDto::id).containsExactly(4L);
+        }
+
+        @Test
+        void whenPrefixMatchesBrand_thenSuggestBrandsByNumberOfPhones() {
+            // given
+            PhoneSuggestSnapshot withPixels = snapshot
+                    .withPhone(5L, row(5L, "Pixel 9", "GOOGLE"))
+                    .withPhone(6L, row(6L, "Pixel 9 Pro", "Google"));
+
+            // when
+            PhoneSuggestResponseDto result = withPixels.suggest("g", 10);
+
+            // then
+            assertThat(result.brands()).containsExactly(new BrandSuggestionDto("Google", 3));
+        }
+
+        @Test
+        void whenBrandSpelledDifferently_thenNameItByMostCommonSpelling() {
+            // given
+            PhoneSuggestSnapshot withPixels = snapshot
+                    .withPhone(5L, row(5L, "Pixel 9", "GOOGLE"))
+                    .withPhone(6L, row(6L, "Pixel 9 Pro", "GOOGLE"));
+
+            // when
+            PhoneSuggestResponseDto result = withPixels.suggest("goo", 10);
+
+            // then
+            assertThat(result.brands()).containsExactly(new BrandSuggestionDto("GOOGLE", 3));
+        }
+
+        @Test
+        void whenPrefixHasExtraWhitespaces_thenIgnoreThem() {
+            // when
+            PhoneSuggestResponseDto result = snapshot.suggest("  galaxy    s24 ", 10);
+
+            // then
+            assertThat(result.phones()).extracting(PhoneNameSuggestionDto::id).containsExactly(2L);
+        }
+
+        @Test
+        void whenNothingMatches_thenReturnEmptyLists() {
+            // when
+            PhoneSuggestResponseDto result = snapshot.suggest("nokia", 10);
+
+            // then
+            assertThat(result.brands()).isEmpty();
+            assertThat(result.phones()).isEmpty();
+        }
+
+    }
+
+    @Nested
+    class WithPhoneTest {
+        private final PhoneSuggestSnapshot snapshot = PhoneSuggestSnapshot.build(buildCatalog());
+
+        @Test
+        void whenPhoneAdded_thenSuggestIt() {
+            // when
+            PhoneSuggestSnapshot result = snapshot.withPhone(5L, row(5L, "Nokia 3310", "Nokia"));
+
+            // then
+            assertThat(result.suggest("3310", 10).phones()).extracting(PhoneNameSuggestionDto::id).containsExactly(5L);
+            assertThat(result.suggest("nok", 10).brands()).containsExactly(new BrandSuggestionDto("Nokia", 1));
+            assertThat(snapshot.suggest("3310", 10).phones()).isEmpty();
+        }
+
+        @Test
+        void whenPhoneRenamed_thenSuggestOnlyByNewName() {
+            // when
+            PhoneSuggestSnapshot result = snapshot.withPhone(2L, row(2L, "Samsung Galaxy Z Fold", "Samsung"));
+
+            // then
+            assertThat(result.suggest("s24", 10).phones()).isEmpty();
+            assertThat(result.suggest("fold", 10).phones()).extracting(PhoneNameSuggestionDto::id).containsExactly(2L);
+            assertThat(result.size()).isEqualTo(4);
+        }
+
+        @Test
+        void whenLastPhoneOfBrandRemoved_thenDontSuggestBrand() {
+            // when
+            PhoneSuggestSnapshot result = snapshot.withPhone(1L, null);
+
+            // then
+            assertThat(result.suggest("iphone", 10).phones()).isEmpty();
+            assertThat(result.suggest("apple", 10).brands()).isEmpty();
+            assertThat(result.size()).isEqualTo(3);
+        }
+
+        @Test
+        void whenUnknownPhoneRemoved_thenKeepSuggestions() {
+            // when
+            PhoneSuggestSnapshot result = snapshot.withPhone(99L, null);
+
+            // then
+            assertThat(result.suggest("s", 10)).isEqualTo(snapshot.suggest("s", 10));
+        }
+
+    }
+
+    static class TestResources {
+
+        static List<PhoneSuggestRow> buildCatalog() {
+            return List.of(
+                    row(1L, "iPhone 15", "Apple"),
+                    row(2L, "Samsung Galaxy S24", "Samsung"),
+                    row(3L, "Pixel 8 Pro", "Google"),
+                    row(4L, "Samsung Galaxy A55", "Samsung")
+            );
+        }
+
+        static PhoneSuggestRow row(Long id, String name, String brand) {
+            return new PhoneSuggestRow() {
+                @Override
+                public Long getId() {
+                    return id;
+                }
+
+                @Override
+                public String getName() {
+                    return name;
+                }
+
+                @Override
+                public String getBrand() {
+                    return brand;
+                }
+            };
+        }
+    }
+
+}
@@ -0,0 +1,180 @@
+package com.challengeteam.shop.service.impl.variant;
+
+import com.challengeteam.shop.exceptionHandling.exception.ImageStorageException;
+import com.challengeteam.shop.persistence.storage.ImageStorage;
+import com.challengeteam.shop.properties.ImageVariantProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import static com.challengeteam.shop.service.impl.variant.ImageVariantGeneratorTest.TestResources.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+
+@ExtendWith(MockitoExtension.class)
+class ImageVariantGeneratorTest {
+    @Mock
+    private ImageStorage imageStorage;
+    private ImageVariantProperties properties;
+    private ImageVariantGenerator imageVariantGenerator;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ImageVariantProperties();
+        properties.setWidths(List.of(160, 480, 1080));
+        imageVariantGenerator = new ImageVariantGenerator(imageStorage, properties);
+    }
+
+    @Nested
+    class GenerateTest {
+
+        @Test
+        void whenJpegImage_thenPutNarrowerVariantsKeepingAspectRatio() throws Exception {
+            // given
+            byte[] image = buildImage(800, 400, "jpeg", BufferedImage.TYPE_INT_RGB);
+
+            // when
+            List<Integer> result = imageVariantGenerator.generate(KEY, "image/jpeg", image);
+
+            // then
+            assertThat(result).containsExactly(160, 480);
+            BufferedImage thumbnail = read(capturePut(160, "image/jpeg"));
+            assertThat(thumbnail.getWidth()).isEqualTo(160);
+            assertThat(thumbnail.getHeight()).isEqualTo(80);
+            BufferedImage medium = read(capturePut(480, "image/jpeg"));
+            assertThat(medium.getWidth()).isEqualTo(480);
+            assertThat(medium.getHeight()).isEqualTo(240);
+            Mockito.verify(imageStorage, Mockito.never()).putImage(eq(ImageVariantGenerator.variantKey(KEY, 1080)), any(), anyString());
+        }
+
+        @Test
+        void whenPngImage_thenPutPngVariantsKeepingTransparency() throws Exception {
+            // given
+            byte[] image = buildImage(400, 400, "png", BufferedImage.TYPE_INT_ARGB);
+
+            // when
+            List<Integer> result = imageVariantGenerator.generate(KEY, "image/png", image);
+
+            // then
+            assertThat(result).containsExactly(160);
+            BufferedImage thumbnail = read(capturePut(160, "image/png"));
+            assertThat(thumbnail.getWidth()).isEqualTo(160);
+            assertThat(thumbnail.getColorModel().hasAlpha()).isTrue();
+        }
+
+        @Test
+        void whenImageIsNarrowerThanVariants_thenPutNothing() throws Exception {
+            // given
+            byte[] image = buildImage(100, 50, "jpeg", BufferedImage.TYPE_INT_RGB);
+
+            // when
+            List<Integer> result = imageVariantGenerator.generate(KEY, "image/jpeg", image);
+
+            // then
+            assertThat(result).isEmpty();
+            Mockito.verifyNoInteractions(imageStorage);
+        }
+
+        @Test
+        void whenImageCantBeDecoded_thenReturnNoVariants() throws Exception {
+            // when
+            List<Integer> result = imageVariantGenerator.generate(KEY, "image/jpeg", "not an image".getBytes());
+
+            // then
+            assertThat(result).isEmpty();
+            Mockito.verifyNoInteractions(imageStorage);
+        }
+
+        @Test
+        void whenImageHasTooManyPixels_thenReturnNoVariants() throws Exception {
+            // given
+            properties.setMaxSourcePixels(1000);
+            byte[] image = buildImage(800, 400, "jpeg", BufferedImage.TYPE_INT_RGB);
+
+            // when
+            List<Integer> result = imageVariantGenerator.generate(KEY, "image/jpeg", image);
+
+            // then
+            assertThat(result).isEmpty();
+            Mockito.verifyNoInteractions(imageStorage);
+        }
+
+        @Test
+        void whenTypeIsNotSupported_thenReturnNoVariants() throws Exception {
+            // when
+            List<Integer> result = imageVariantGenerator.generate(KEY, "image/gif", new byte[0]);
+
+            // then
+            assertThat(result).isEmpty();
+        }
+
+        @Test
+        void whenStorageFails_thenThrowException() throws Exception {
+            // given
+            byte[] image = buildImage(800, 400, "jpeg", BufferedImage.TYPE_INT_RGB);
+
+            // mockito
+            Mockito.doThrow(new ImageStorageException("Storage is unavailable"))
+                    .when(imageStorage)
+                    .putImage(anyString(), any(byte[].class), anyString());
+
+            // when + then
+            assertThatThrownBy(() -> imageVariantGenerator.generate(KEY, "image/jpeg", image))
+                    .isInstanceOf(ImageStorageException.class);
+        }
+
+        @Test
+        void whenParameterImageIsNull_thenThrowException() {
+            // when + then
+            assertThatThrownBy(() -> imageVariantGenerator.generate(KEY, "image/jpeg", null))
+                    .isInstanceOf(NullPointerException.class);
+        }
+
+    }
+
+    private byte[] capturePut(int width, String mimeType) throws Exception {
+        ArgumentCaptor<byte[]> captor = ArgumentCaptor.forClass(byte[].class);
+        Mockito.verify(imageStorage).putImage(eq(ImageVariantGenerator.variantKey(KEY, width)), captor.capture(), eq(mimeType));
+        return captor.getValue();
+    }
+
+    static class TestResources {
+        static final String KEY = "unique_image.jpg";
+
+        static byte[] buildImage(int width, int height, String format, int type) throws Exception {
+            var image = new BufferedImage(width, height, type);
+            Graphics2D graphics = image.createGraphics();
+            try {
+                graphics.setColor(Color.BLUE);
+                graphics.fillRect(0, 0, width / 2, height);
+            } finally {
+                graphics.dispose();
+            }
+
+            var out = new ByteArrayOutputStream();
+            ImageIO.write(image, format, out);
+            return out.toByteArray();
+        }
+
+        static BufferedImage read(byte[] image) throws Exception {
+            return ImageIO.read(new ByteArrayInputStream(image));
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+package com.challengeteam.shop.utility;
+
+import com.challengeteam.shop.dto.pagination.PhoneCursor;
+import com.challengeteam.shop.exceptionHandling.exception.CursorUtilityException;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static com.challengeteam.shop.utility.CursorUtilityTest.TestResources.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CursorUtilityTest {
+
+    @Nested
+    class EncodeTest {
+
+        @Test
+        void whenGivenCursor_thenReturnUrlSafeStringWithoutPadding() {
+            // when
+            String result = CursorUtility.encode(buildCursor(KEY_WITH_SPECIAL_CHARACTERS));
+
+            // then
+            assertThat(result).doesNotContain("=", "+", "/", "\n");
+        }
+
+        @Test
+        void whenParameterCursorIsNull_thenThrowException() {
+            // when + then
+            assertThatThrownBy(() -> CursorUtility.encode(null)).isInstanceOf(NullPointerException.class);
+        }
+
+    }
+
+    @Nested
+    class DecodeTest {
+
+        @Test
+        void whenGivenEncodedCursor_thenReturnSameCursor() throws Exception {
+            // given
+            PhoneCursor cursor = buildCursor(KEY);
+
+            // when
+            PhoneCursor result = CursorUtility.decode(CursorUtility.encode(cursor));
+
+            // then
+            assertThat(result).isEqualTo(cursor);
+        }
+
+        @Test
+        void whenKeyContainsSeparator_thenReturnSameCursor() throws Exception {
+            // given
+            PhoneCursor cursor = buildCursor(KEY_WITH_SPECIAL_CHARACTERS);
+
+            // when
+            PhoneCursor result = CursorUtility.decode(CursorUtility.encode(cursor));
+
+            // then
+            assertThat(result).isEqualTo(cursor);
+        }
+
+        @Test
+        void whenGivenNotBase64String_thenThrowException() {
+            // when + then
+            assertThatThrownBy(() -> CursorUtility.decode("%%%")).isInstanceOf(CursorUtilityException.class);
+        }
+
+        @Test
+        void whenGivenStringWithWrongFormat_thenThrowException() {
+            // given
+            String cursor = encodeRaw(SORT + "\n" + ID);
+
+            // when + then
+            assertThatThrownBy(() -> CursorUtility.decode(cursor)).isInstanceOf(CursorUtilityException.class);
+        }
+
+        @Test
+        void whenGivenStringWithInvalidId_thenThrowException() {
+            // given
+            String cursor = encodeRaw(SORT + "\nnot_id\n" + KEY);
+
+            // when + then
+            assertThatThrownBy(() -> CursorUtility.decode(cursor)).isInstanceOf(CursorUtilityException.class);
+        }
+
+        @Test
+        void whenParameterCursorIsNull_thenThrowException() {
+            // when + then
+            assertThatThrownBy(() -> CursorUtility.decode(null)).isInstanceOf(NullPointerException.class);
+        }
+
+    }
+
+    static class TestResources {
+        static final String SORT = "name_asc";
+        static final String KEY = "iPhone 15";
+        static final String KEY_WITH_SPECIAL_CHARACTERS = "Galaxy\n\"S24\" / Ultra+";
+        static final long ID = 42L;
+
+        static PhoneCursor buildCursor(String key) {
+            return new PhoneCursor(SORT, key, ID);
+        }
+
+        static String encodeRaw(String raw) {
+            return Base64.getUrlEncoder()
+                    .withoutPadding()
+                    .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+}
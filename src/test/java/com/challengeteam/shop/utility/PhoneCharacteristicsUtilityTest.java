@@ -0,0 +1,137 @@
+package com.challengeteam.shop.utility;
+
+import com.challengeteam.shop.entity.phone.PhoneCharacteristics;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PhoneCharacteristicsUtilityTest {
+
+    @Nested
+    class ParseScreenInchesTest {
+
+        @Test
+        void whenScreenSizeWithInchMark_thenReturnInches() {
+            // when
+            BigDecimal result = PhoneCharacteristicsUtility.parseScreenInches("6.7\"");
+
+            // then
+            assertThat(result).isEqualTo(new BigDecimal("6.70"));
+        }
+
+        @Test
+        void whenScreenSizeHasMoreFractionDigits_thenRoundToHundredths() {
+            // when
+            BigDecimal result = PhoneCharacteristicsUtility.parseScreenInches("6.125\"");
+
+            // then
+            assertThat(result).isEqualTo(new BigDecimal("6.13"));
+        }
+
+        @Test
+        void whenScreenSizeTooBig_thenReturnNull() {
+            // when
+            BigDecimal result = PhoneCharacteristicsUtility.parseScreenInches("100\"");
+
+            // then
+            assertThat(result).isNull();
+        }
+
+        @Test
+        void whenScreenSizeHasNoNumber_thenReturnNull() {
+            // when + then
+            assertThat(PhoneCharacteristicsUtility.parseScreenInches("big")).isNull();
+            assertThat(PhoneCharacteristicsUtility.parseScreenInches(null)).isNull();
+        }
+
+    }
+
+    @Nested
+    class ParseBatteryMahTest {
+
+        @Test
+        void whenBatteryCapacityWithUnit_thenReturnMah() {
+            // when
+            Integer result = PhoneCharacteristicsUtility.parseBatteryMah("5000 mAh");
+
+            // then
+            assertThat(result).isEqualTo(5000);
+        }
+
+        @Test
+        void whenNumberDoesNotFitInteger_thenReturnNull() {
+            // when
+            Integer result = PhoneCharacteristicsUtility.parseBatteryMah("99999999999 mAh");
+
+            // then
+            assertThat(result).isNull();
+        }
+
+    }
+
+    @Nested
+    class ParseMegapixelsTest {
+
+        @Test
+        void whenSeveralSensors_thenReturnMainSensor() {
+            // when
+            Integer result = PhoneCharacteristicsUtility.parseMegapixels("50-200-12 MP");
+
+            // then
+            assertThat(result).isEqualTo(50);
+        }
+
+        @Test
+        void whenSingleSensor_thenReturnIt() {
+            // when
+            Integer result = PhoneCharacteristicsUtility.parseMegapixels("12MP");
+
+            // then
+            assertThat(result).isEqualTo(12);
+        }
+
+        @Test
+        void whenCameraHasNoNumber_thenReturnNull() {
+            // when + then
+            assertThat(PhoneCharacteristicsUtility.parseMegapixels("MP")).isNull();
+        }
+
+    }
+
+    @Nested
+    class UpdateNumericValuesTest {
+
+        @Test
+        void whenCalled_thenFillAllNumericValues() {
+            // given
+            PhoneCharacteristics characteristics = PhoneCharacteristics.builder()
+                    .screenSize("6.1\"")
+                    .batteryCapacity("3349 mAh")
+                    .mainCamera("48-12 MP")
+                    .frontCamera("12 MP")
+                    .build();
+
+            // when
+            PhoneCharacteristicsUtility.updateNumericValues(characteristics);
+
+            // then
+            assertThat(characteristics.getScreenInches()).isEqualTo(new BigDecimal("6.10"));
+            assertThat(characteristics.getBatteryMah()).isEqualTo(3349);
+            assertThat(characteristics.getMainCameraMp()).isEqualTo(48);
+            assertThat(characteristics.getFrontCameraMp()).isEqualTo(12);
+        }
+
+        @Test
+        void whenParameterCharacteristicsIsNull_thenThrowException() {
+            // when + then
+            assertThatThrownBy(() -> PhoneCharacteristicsUtility.updateNumericValues(null))
+                    .isInstanceOf(NullPointerException.class);
+        }
+
+    }
+
+}
@@ -0,0 +1,323 @@
+package com.challengeteam.shop.web.cache;
+
+import com.challengeteam.shop.dto.pagination.PhoneFilterDto;
+import com.challengeteam.shop.exceptionHandling.exception.ResourceNotFoundException;
+import com.challengeteam.shop.properties.PhoneResponseCacheProperties;
+import com.challengeteam.shop.service.event.PhoneChangedEvent;
+import com.challengeteam.shop.service.event.PhoneChangedEvent.ChangeType;
+import com.challengeteam.shop.service.event.PhonePopularityChangedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static com.challengeteam.shop.web.cache.PhoneResponseCacheTest.TestResources.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class PhoneResponseCacheTest {
+    private PhoneResponseCacheProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private PhoneResponseCache phoneResponseCache;
+
+    @BeforeEach
+    void setUp() {
+        properties = new PhoneResponseCacheProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        phoneResponseCache = new PhoneResponseCache(new ObjectMapper(), properties, meterRegistry);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Nested
+    class GetPageTest {
+
+        @Test
+        void whenRequestedTwice_thenLoadOnceAndReturnSameJson() {
+            // given
+            CountingLoader<List<Long>> loader = new CountingLoader<>(() -> List.of(1L, 2L));
+
+            // when
+            byte[] first = getPage(FILTER, loader);
+            byte[] second = getPage(FILTER, loader);
+
+            // then
+            assertThat(new String(first, StandardCharsets.UTF_8)).isEqualTo("[1,2]");
+            assertThat(second).isEqualTo(first);
+            assertThat(loader.loads()).isEqualTo(1);
+        }
+
+        @Test
+        void whenOtherFilterOrPageRequested_thenLoadAgain() {
+            // given
+            CountingLoader<List<Long>> loader = new CountingLoader<>(() -> List.of(1L, 2L));
+
+            // when
+            getPage(FILTER, loader);
+            getPage(OTHER_FILTER, loader);
+            phoneResponseCache.getPage(2, 20, FILTER, loader, TestResources::ids);
+
+            // then
+            assertThat(loader.loads()).isEqualTo(3);
+        }
+
+        @Test
+        void whenRequestedTwice_thenReportMissAndHit() {
+            // given
+            CountingLoader<List<Long>> loader = new CountingLoader<>(() -> List.of(1L, 2L));
+
+            // when
+            getPage(FILTER, loader);
+            getPage(FILTER, loader);
+
+            // then
+            assertThat(gets("miss")).isEqualTo(1);
+            assertThat(gets("hit")).isEqualTo(1);
+        }
+
+        @Test
+        void whenCatalogChangedDuringLoad_thenDontKeepLoadedPage() {
+            // given
+            CountingLoader<List<Long>> loader = new CountingLoader<>(() -> {
+                phoneResponseCache.onPhoneChanged(new PhoneChangedEvent(3L, ChangeType.CREATED));
+                return List.of(1L, 2L);
+            });
+
+            // when
+            getPage(FILTER, loader);
+            getPage(FILTER, loader);
+
+            // then
+            assertThat(loader.loads()).isEqualTo(2);
+        }
+
+        @Test
+        void whenDisabled_thenLoadEveryTime() {
+            // given
+            properties.setEnabled(false);
+            CountingLoader<List<Long>> loader = new CountingLoader<>(() -> List.of(1L, 2L));
+
+            // when
+            getPage(FILTER, loader);
+            getPage(FILTER, loader);
+
+            // then
+            assertThat(loader.loads()).isEqualTo(2);
+        }
+
+        @Test
+        void whenFilterIsNull_thenThrowNullPointerException() {
+            // when + then
+            assertThatThrownBy(() -> getPage(null, new CountingLoader<>(List::of)))
+                    .isInstanceOf(NullPointerException.class);
+        }
+
+    }
+
+    @Nested
+    class GetPhoneTest {
+
+        @Test
+        void whenRequestedTwice_thenLoadOnce() {
+            // given
+            CountingLoader<List<Long>> loader = new CountingLoader<>(() -> List.of(1L));
+
+            // when
+            phoneResponseCache.getPhone(1L, loader);
+            byte[] result = phoneResponseCache.getPhone(1L, loader);
+
+            // then
+            assertThat(new String(result, StandardCharsets.UTF_8)).isEqualTo("[1]");
+            assertThat(loader.loads()).isEqualTo(1);
+        }
+
+        @Test
+        void whenLoaderThrows_thenThrowAndCacheNothing() {
+            // given
+            CountingLoader<List<Long>> loader = new CountingLoader<>(() -> {
+                throw new ResourceNotFoundException("Not found phone with id: 1");
+            });
+
+            // when + then
+            assertThatThrownBy(() -> phoneResponseCache.getPhone(1L, loader))
+                    .isInstanceOf(ResourceNotFoundException.class);
+            assertThatThrownBy(() -> phoneResponseCache.getPhone(1L, loader))
+                    .isInstanceOf(ResourceNotFoundException.class);
+            assertThat(loader.loads()).isEqualTo(2);
+        }
+
+        @Test
+        void whenMaxSizeExceeded_thenEvictAndReportEviction() {
+            // given
+            properties.setMaxSize(DataSize.ofBytes(64));
+            meterRegistry = new SimpleMeterRegistry();
+            phoneResponseCache = new PhoneResponseCache(new ObjectMapper(), properties, meterRegistry);
+            CountingLoader<String> loader = new CountingLoader<>(() -> "x".repeat(40));
+
+            // when
+            phoneResponseCache.getPhone(1L, loader);
+            phoneResponseCache.getPhone(2L, loader);
+            phoneResponseCache.getPhone(3L, loader);
+
+            // then (evictions are done in the background)
+            await().untilAsserted(() ->
+                    assertThat(meterRegistry.get("cache.evictions").tag("cache", CACHE_NAME).functionCounter().count())
+                            .isPositive()
+            );
+        }
+
+    }
+
+    @Nested
+    class OnPhoneChangedTest {
+
+        @Test
+        void whenPhoneUpdated_thenDropAllPagesAndThisPhone() {
+            // given
+            CountingLoader<List<Long>> pageLoader = new CountingLoader<>(() -> List.of(1L, 2L));
+            CountingLoader<List<Long>> otherPageLoader = new CountingLoader<>(() -> List.of(5L));
+            CountingLoader<List<Long>> phoneLoader = new CountingLoader<>(() -> List.of(1L));
+            CountingLoader<List<Long>> otherPhoneLoader = new CountingLoader<>(() -> List.of(2L));
+            getPage(FILTER, pageLoader);
+            getPage(OTHER_FILTER, otherPageLoader);
+            phoneResponseCache.getPhone(1L, phoneLoader);
+            phoneResponseCache.getPhone(2L, otherPhoneLoader);
+
+            // when
+            phoneResponseCache.onPhoneChanged(new PhoneChangedEvent(1L, ChangeType.UPDATED));
+            getPage(FILTER, pageLoader);
+            getPage(OTHER_FILTER, otherPageLoader);
+            phoneResponseCache.getPhone(1L, phoneLoader);
+            phoneResponseCache.getPhone(2L, otherPhoneLoader);
+
+            // then
+            assertThat(pageLoader.loads()).isEqualTo(2);
+            assertThat(otherPageLoader.loads()).isEqualTo(2);
+            assertThat(phoneLoader.loads()).isEqualTo(2);
+            assertThat(otherPhoneLoader.loads()).isEqualTo(1);
+        }
+
+        @Test
+        void whenPhonesImported_thenDropAllPagesButKeepPhones() {
+            // given
+            CountingLoader<List<Long>> pageLoader = new CountingLoader<>(() -> List.of(1L, 2L));
+            CountingLoader<List<Long>> phoneLoader = new CountingLoader<>(() -> List.of(1L));
+            getPage(FILTER, pageLoader);
+            phoneResponseCache.getPhone(1L, phoneLoader);
+
+            // when
+            phoneResponseCache.onPhoneChanged(new PhoneChangedEvent(null, ChangeType.IMPORTED));
+            getPage(FILTER, pageLoader);
+            phoneResponseCache.getPhone(1L, phoneLoader);
+
+            // then
+            assertThat(pageLoader.loads()).isEqualTo(2);
+            assertThat(phoneLoader.loads()).isEqualTo(1);
+        }
+
+        @Test
+        void whenImagesChanged_thenDropOnlyPagesShowingThisPhone() {
+            // given
+            CountingLoader<List<Long>> pageLoader = new CountingLoader<>(() -> List.of(1L, 2L));
+            CountingLoader<List<Long>> otherPageLoader = new CountingLoader<>(() -> List.of(5L));
+            CountingLoader<List<Long>> phoneLoader = new CountingLoader<>(() -> List.of(2L));
+            getPage(FILTER, pageLoader);
+            getPage(OTHER_FILTER, otherPageLoader);
+            phoneResponseCache.getPhone(2L, phoneLoader);
+
+            // when
+            phoneResponseCache.onPhoneChanged(new PhoneChangedEvent(2L, ChangeType.IMAGES_CHANGED));
+            getPage(FILTER, pageLoader);
+            getPage(OTHER_FILTER, otherPageLoader);
+            phoneResponseCache.getPhone(2L, phoneLoader);
+
+            // then
+            assertThat(pageLoader.loads()).isEqualTo(2);
+            assertThat(otherPageLoader.loads()).isEqualTo(1);
+            assertThat(phoneLoader.loads()).isEqualTo(2);
+        }
+
+        @Test
+        void whenPopularityChanged_thenDropOnlyPagesSortedByPopularity() {
+            // given
+            CountingLoader<List<Long>> pageLoader = new CountingLoader<>(() -> List.of(1L, 2L));
+            CountingLoader<List<Long>> popularPageLoader = new CountingLoader<>(() -> List.of(2L, 1L));
+            CountingLoader<List<Long>> phoneLoader = new CountingLoader<>(() -> List.of(1L));
+            getPage(FILTER, pageLoader);
+            getPage(POPULARITY_FILTER, popularPageLoader);
+            phoneResponseCache.getPhone(1L, phoneLoader);
+
+            // when
+            phoneResponseCache.onPhonePopularityChanged(new PhonePopularityChangedEvent(Set.of(1L)));
+            getPage(FILTER, pageLoader);
+            getPage(POPULARITY_FILTER, popularPageLoader);
+            phoneResponseCache.getPhone(1L, phoneLoader);
+
+            // then
+            assertThat(pageLoader.loads()).isEqualTo(1);
+            assertThat(popularPageLoader.loads()).isEqualTo(2);
+            assertThat(phoneLoader.loads()).isEqualTo(1);
+        }
+
+    }
+
+    private byte[] getPage(PhoneFilterDto filterDto, CountingLoader<List<Long>> loader) {
+        return phoneResponseCache.getPage(0, 20, filterDto, loader, TestResources::ids);
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets")
+                .tag("cache", CACHE_NAME)
+                .tag("result", result)
+                .functionCounter()
+                .count();
+    }
+
+    static class TestResources {
+        static final String CACHE_NAME = PhoneResponseCache.CACHE_NAME;
+        static final PhoneFilterDto FILTER = PhoneFilterDto.builder().build();
+        static final PhoneFilterDto OTHER_FILTER = PhoneFilterDto.builder().brands(List.of("Apple")).build();
+        static final PhoneFilterDto POPULARITY_FILTER = PhoneFilterDto.builder().sort("popularity").build();
+
+        static long[] ids(List<Long> ids) {
+            return ids.stream().mapToLong(Long::longValue).toArray();
+        }
+
+        static class CountingLoader<T> implements Supplier<T> {
+            private final Supplier<T> delegate;
+            private final AtomicInteger loads = new AtomicInteger();
+
+            CountingLoader(Supplier<T> delegate) {
+                this.delegate = delegate;
+            }
+
+            @Override
+            public T get() {
+                loads.incrementAndGet();
+                return delegate.get();
+            }
+
+            int loads() {
+                return loads.get();
+            }
+        }
+    }
+
+}
@@ -23,15 +23,28 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
 
 import static com.challengeteam.shop.web.controller.ImageControllerTest.TestResources.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.endsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
@@ -90,8 +103,12 @@ class ImageControllerTest {
 
         @Test
         void whenExists_thenStatus200AndReturnImageLikeBytes() throws Exception {
-            mockMvc.perform(get(URL, imageId)
+            MvcResult started = mockMvc.perform(get(URL, imageId)
                             .header(HttpHeaders.AUTHORIZATION, auth(accessToken)))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(started))
                     .andExpect(status().isOk())
                     .andExpect(header().exists(HttpHeaders.CONTENT_LENGTH))
                     .andExpect(header().exists(HttpHeaders.CONTENT_DISPOSITION))
@@ -99,6 +116,119 @@ class ImageControllerTest {
                     .andExpect(content().bytes(TestImage.IMAGE_1.content));
         }
 
+        @Test
+        void whenExists_thenAcceptRangesAndETag() throws Exception {
+            MvcResult started = mockMvc.perform(get(URL, imageId)
+                            .header(HttpHeaders.AUTHORIZATION, auth(accessToken)))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(started))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                    .andExpect(header().exists(HttpHeaders.ETAG))
+                    .andExpect(header().doesNotExist(HttpHeaders.CONTENT_RANGE));
+        }
+
+        @Test
+        void whenRangeRequested_thenStatus206AndReturnRangeOfImage() throws Exception {
+            byte[] content = TestImage.IMAGE_1.content;
+
+            MvcResult started = mockMvc.perform(get(URL, imageId)
+                            .header(HttpHeaders.RANGE, "bytes=10-109")
+                            .header(HttpHeaders.AUTHORIZATION, auth(accessToken)))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(started))
+                    .andExpect(status().isPartialContent())
+                    .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 10-109/" + content.length))
+                    .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 100))
+                    .andExpect(content().contentType(MediaType.IMAGE_JPEG))
+                    .andExpect(content().bytes(Arrays.copyOfRange(content, 10, 110)));
+        }
+
+        @Test
+        void whenSuffixRangeRequested_thenStatus206AndReturnEndOfImage() throws Exception {
+            byte[] content = TestImage.IMAGE_1.content;
+
+            MvcResult started = mockMvc.perform(get(URL, imageId)
+                            .header(HttpHeaders.RANGE, "bytes=-50")
+                            .header(HttpHeaders.AUTHORIZATION, auth(accessToken)))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(started))
+                    .andExpect(status().isPartialContent())
+                    .andExpect(header().string(HttpHeaders.CONTENT_RANGE,
+                            "bytes " + (content.length - 50) + "-" + (content.length - 1) + "/" + content.length))
+                    .andExpect(content().bytes(Arrays.copyOfRange(content, content.length - 50, content.length)));
+        }
+
+        @Test
+        void whenIfRangeMatchesETag_thenStatus206() throws Exception {
+            String eTag = getETag();
+
+            MvcResult started = mockMvc.perform(get(URL, imageId)
+                            .header(HttpHeaders.RANGE, "bytes=10-")
+                            .header(HttpHeaders.IF_RANGE, eTag)
+                            .header(HttpHeaders.AUTHORIZATION, auth(accessToken)))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(started))
+                    .andExpect(status().isPartialContent())
+                    .andExpect(header().string(HttpHeaders.ETAG, eTag));
+        }
+
+        @Test
+        void whenIfRangeDoesntMatchETag_thenStatus200AndReturnWholeImage() throws Exception {
+            MvcResult started = mockMvc.perform(get(URL, imageId)
+                            .header(HttpHeaders.RANGE, "bytes=10-")
+                            .header(HttpHeaders.IF_RANGE, "\"other\"")
+                            .header(HttpHeaders.AUTHORIZATION, auth(accessToken)))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(started))
+                    .andExpect(status().isOk())
+                    .andExpect(content().bytes(TestImage.IMAGE_1.content));
+        }
+
+        @Test
+        void whenSeveralOrInvalidRangesRequested_thenStatus200AndReturnWholeImage() throws Exception {
+            for (String range : List.of("bytes=0-9,20-29", "items=0-9", "bytes=9-0")) {
+                MvcResult started = mockMvc.perform(get(URL, imageId)
+                                .header(HttpHeaders.RANGE, range)
+                                .header(HttpHeaders.AUTHORIZATION, auth(accessToken)))
+                        .andExpect(request().asyncStarted())
+                        .andReturn();
+
+                mockMvc.perform(asyncDispatch(started))
+                        .andExpect(status().isOk())
+                        .andExpect(content().bytes(TestImage.IMAGE_1.content));
+            }
+        }
+
+        @Test
+        void whenRangeStartsAfterImage_thenStatus416() throws Exception {
+            int length = TestImage.IMAGE_1.content.length;
+
+            mockMvc.perform(get(URL, imageId)
+                            .header(HttpHeaders.RANGE, "bytes=" + length + "-")
+                            .header(HttpHeaders.AUTHORIZATION, auth(accessToken)))
+                    .andExpect(status().isRequestedRangeNotSatisfiable())
+                    .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + length));
+        }
+
+        @Test
+        void whenRangeRequestedOfMissingImage_thenStatus404() throws Exception {
+            mockMvc.perform(get(URL, NON_EXISTING_ID)
+                            .header(HttpHeaders.RANGE, "bytes=0-9")
+                            .header(HttpHeaders.AUTHORIZATION, auth(accessToken)))
+                    .andExpect(status().isNotFound());
+        }
+
         @Test
         void whenDoesntExist_thenStatus404() throws Exception {
             mockMvc.perform(get(URL, NON_EXISTING_ID)
@@ -126,6 +256,76 @@ class ImageControllerTest {
                     .andExpect(status().isBadRequest());
         }
 
+        @Test
+        void whenWidthRequested_thenStatus200AndReturnResizedVariant() throws Exception {
+            MvcResult started = mockMvc.perform(get(URL, imageId)
+                            .param("w", "160")
+                            .header(HttpHeaders.AUTHORIZATION, auth(accessToken)))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            byte[] variant = mockMvc.perform(asyncDispatch(started))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(MediaType.IMAGE_JPEG))
+                    .andExpect(header().exists(HttpHeaders.ETAG))
+                    .andReturn()
+                    .getResponse()
+                    .getContentAsByteArray();
+
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(variant));
+            assertThat(image.getWidth()).isEqualTo(160);
+            assertThat(image.getHeight()).isEqualTo(120);
+            assertThat(variant.length).isLessThan(TestImage.IMAGE_1.content.length / 10);
+        }
+
+        @Test
+        void whenWidthRequested_thenETagDiffersFromOriginal() throws Exception {
+            String original = getETag();
+
+            MvcResult started = mockMvc.perform(get(URL, imageId)
+                            .param("w", "480")
+                            .header(HttpHeaders.AUTHORIZATION, auth(accessToken)))
+                    .andReturn();
+            String variant = mockMvc.perform(asyncDispatch(started))
+                    .andReturn()
+                    .getResponse()
+                    .getHeader(HttpHeaders.ETAG);
+
+            assertThat(variant).isNotNull().isNotEqualTo(original);
+        }
+
+        @Test
+        void whenWidthIsWiderThanImage_thenStatus200AndReturnOriginal() throws Exception {
+            MvcResult started = mockMvc.perform(get(URL, imageId)
+                            .param("w", "5000")
+                            .header(HttpHeaders.AUTHORIZATION, auth(accessToken)))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(started))
+                    .andExpect(status().isOk())
+                    .andExpect(content().bytes(TestImage.IMAGE_1.content));
+        }
+
+        @Test
+        void whenWidthIsNotPositive_thenStatus400() throws Exception {
+            mockMvc.perform(get(URL, imageId)
+                            .param("w", "0")
+                            .header(HttpHeaders.AUTHORIZATION, auth(accessToken)))
+                    .andExpect(status().isBadRequest());
+        }
+
+        private String getETag() throws Exception {
+            MvcResult started = mockMvc.perform(get(URL, imageId)
+                            .header(HttpHeaders.AUTHORIZATION, auth(accessToken)))
+                    .andReturn();
+
+            return mockMvc.perform(asyncDispatch(started))
+                    .andReturn()
+                    .getResponse()
+                    .getHeader(HttpHeaders.ETAG);
+        }
+
     }
 
     @Nested
@@ -142,7 +342,9 @@ class ImageControllerTest {
                     .andExpect(jsonPath("$.name").exists())
                     .andExpect(jsonPath("$.url").exists())
                     .andExpect(jsonPath("$.size").exists())
-                    .andExpect(jsonPath("$.mimeType").exists());
+                    .andExpect(jsonPath("$.mimeType").exists())
+                    .andExpect(jsonPath("$.variants[*].width").value(contains(160, 480)))
+                    .andExpect(jsonPath("$.variants[0].url").value(endsWith("/api/v1/images/" + imageId + "?w=160")));
         }
 
         @Test
@@ -166,6 +368,35 @@ class ImageControllerTest {
         }
     }
 
+    @Nested
+    @DisplayName("POST /api/v1/images/variants/backfill")
+    class BackfillVariantsTest {
+        private static final String URL = "/api/v1/images/variants/backfill";
+
+        @Test
+        void whenImageHasNoVariants_thenStatus202AndGenerateThemInBackground() throws Exception {
+            Image image = imageRepository.findById(imageId).orElseThrow();
+            image.setVariantWidths(null);
+            imageRepository.save(image);
+
+            mockMvc.perform(post(URL)
+                            .header(HttpHeaders.AUTHORIZATION, auth(accessToken)))
+                    .andExpect(status().isAccepted())
+                    .andExpect(content().string(""));
+
+            await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> assertThat(
+                    imageRepository.findById(imageId).orElseThrow().getVariantWidths()
+            ).containsExactly(160, 480));
+        }
+
+        @Test
+        void whenRequestMissingToken_thenStatus403() throws Exception {
+            mockMvc.perform(post(URL))
+                    .andExpect(status().isForbidden());
+        }
+
+    }
+
     static class TestResources {
         static final long NON_EXISTING_ID = 99_999L;
 
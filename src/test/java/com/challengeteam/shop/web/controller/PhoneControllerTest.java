@@ -1,19 +1,29 @@
 package com.challengeteam.shop.web.controller;
 
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
 import com.challengeteam.shop.dto.phone.PhoneCreateRequestDto;
 import com.challengeteam.shop.dto.phone.PhoneUpdateRequestDto;
 import com.challengeteam.shop.entity.image.Image;
+import com.challengeteam.shop.persistence.repository.PhonePopularityRepository;
 import com.challengeteam.shop.persistence.repository.PhoneRepository;
 import com.challengeteam.shop.service.PhoneService;
+import com.challengeteam.shop.service.impl.PhoneFacetServiceImpl;
+import com.challengeteam.shop.service.impl.index.PhoneCatalogIndex;
+import com.challengeteam.shop.service.impl.popularity.PhonePopularityCounter;
+import com.challengeteam.shop.service.impl.suggest.PhoneSuggestIndex;
 import com.challengeteam.shop.testContainer.ContainerExtension;
 import com.challengeteam.shop.testContainer.TestContextConfigurator;
 import com.challengeteam.shop.web.TestAuthHelper;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -23,15 +33,22 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
 
 import static com.challengeteam.shop.web.controller.PhoneControllerTest.TestPhone.VALID_PHONE_BOUNDARY_MAX;
 import static com.challengeteam.shop.web.controller.PhoneControllerTest.TestPhone.VALID_PHONE_BOUNDARY_MIN;
 import static com.challengeteam.shop.web.controller.PhoneControllerTest.TestResources.*;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -47,6 +64,16 @@ class PhoneControllerTest {
     @Autowired
     private PhoneService phoneService;
     @Autowired
+    private PhonePopularityRepository phonePopularityRepository;
+    @Autowired
+    private PhonePopularityCounter phonePopularityCounter;
+    @Autowired
+    private PhoneCatalogIndex phoneCatalogIndex;
+    @Autowired
+    private PhoneFacetServiceImpl phoneFacetService;
+    @Autowired
+    private PhoneSuggestIndex phoneSuggestIndex;
+    @Autowired
     private MockMvc mockMvc;
     @Autowired
     private ObjectMapper objectMapper;
@@ -62,10 +89,11 @@ class PhoneControllerTest {
 
     @BeforeEach
     public void setup() {
-        // clear all
+        // clear all, phones are deleted by the repository around the phone service
         phoneRepository.deleteAll();
+        phoneCatalogIndex.rebuild();
 
-        // add 3 phones
+        // add 3 phones, the catalog index applies every one of them
         phone1 = phoneService.create(
                 buildPhoneCreateRequestDto(TestPhone.PHONE_1),
                 new ArrayList<>()
@@ -136,6 +164,37 @@ class PhoneControllerTest {
                     .andExpect(jsonPath("$.page").value(2));
         }
 
+        @Test
+        void whenRequestPageWithImages_thenPaginateInDatabase() throws Exception {
+            // HHH90003004: firstResult/maxResults specified with collection fetch; applying in memory
+            Logger hibernateLogger = (Logger) LoggerFactory.getLogger("org.hibernate");
+            ListAppender<ILoggingEvent> appender = new ListAppender<>();
+            appender.start();
+            hibernateLogger.addAppender(appender);
+
+            try {
+                mockMvc.perform(get(URL)
+                                .param("page", "2")
+                                .param("size", "2")
+                                .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.content", hasSize(1)))
+                        .andExpect(jsonPath("$.content[0].images").isArray());
+                mockMvc.perform(get(URL)
+                                .param("cursor", "")
+                                .param("size", "2")
+                                .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.content", hasSize(2)));
+            } finally {
+                hibernateLogger.detachAppender(appender);
+            }
+
+            assertThat(appender.list)
+                    .extracting(ILoggingEvent::getFormattedMessage)
+                    .noneMatch(message -> message.contains("HHH90003004"));
+        }
+
         @Test
         void whenRequestEmptyPage_thenReturnEmptyContent() throws Exception {
             mockMvc.perform(get(URL)
@@ -266,6 +325,35 @@ class PhoneControllerTest {
                     .andExpect(jsonPath("$.content[*].images").exists());
         }
 
+        @Test
+        void whenCatalogIndexIsReady_thenReturnSameResultsAsDatabase() throws Exception {
+            // wait until the index is rebuilt after the phones were created
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (!phoneCatalogIndex.isReady() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertThat(phoneCatalogIndex.isReady()).isTrue();
+
+            mockMvc.perform(get(URL)
+                            .param("minPrice", "700")
+                            .param("sort", "price_desc")
+                            .param("size", "1")
+                            .param("page", "2")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content", hasSize(1)))
+                    .andExpect(jsonPath("$.content[0].name").value("Samsung Galaxy S24"))
+                    .andExpect(jsonPath("$.content[0].images", hasSize(2)))
+                    .andExpect(jsonPath("$.totalElements").value(2))
+                    .andExpect(jsonPath("$.totalPages").value(2));
+            mockMvc.perform(get(URL)
+                            .param("brand", "sAmSuNg")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content", hasSize(1)))
+                    .andExpect(jsonPath("$.totalElements").value(1));
+        }
+
         @Test
         void whenFilterByCombination_thenReturnMatchingPhones() throws Exception {
             mockMvc.perform(get(URL)
@@ -281,6 +369,168 @@ class PhoneControllerTest {
                     .andExpect(jsonPath("$.content[*].images").exists());
         }
 
+        @Test
+        void whenFilterByBatteryCapacity_thenReturnPhonesWithBiggerBattery() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("minBatteryMah", "4000")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content", hasSize(2)))
+                    .andExpect(jsonPath("$.content[*].name", containsInAnyOrder("Samsung Galaxy S24", "Google Pixel 8")))
+                    .andExpect(jsonPath("$.totalElements").value(2));
+        }
+
+        @Test
+        void whenFilterByScreenSizeRange_thenReturnPhonesInRange() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("minScreenInches", "6.15")
+                            .param("maxScreenInches", "6.2")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content", hasSize(2)))
+                    .andExpect(jsonPath("$.content[*].screenSize", everyItem(is("6.2\""))));
+        }
+
+        @Test
+        void whenFilterByCamerasAndCores_thenReturnMatchingPhones() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("minMainCameraMp", "50")
+                            .param("maxFrontCameraMp", "10")
+                            .param("minCoresNumber", "8")
+                            .param("maxCoresNumber", "8")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content", hasSize(1)))
+                    .andExpect(jsonPath("$.content[0].name").value("Google Pixel 8"));
+        }
+
+        @Test
+        void whenFilterByManyBrands_thenReturnPhonesOfAnyOfThem() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("brands", "Apple,google")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content", hasSize(2)))
+                    .andExpect(jsonPath("$.content[*].name", containsInAnyOrder("iPhone 15", "Google Pixel 8")))
+                    .andExpect(jsonPath("$.totalElements").value(2));
+        }
+
+        @Test
+        void whenFilterByManyValuesOfDifferentFilters_thenReturnPhonesMatchingAllFilters() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("releaseYears", "2024")
+                            .param("coresNumbers", "6", "8")
+                            .param("cpus", "apple a16 bionic", "Google Tensor G3")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content", hasSize(1)))
+                    .andExpect(jsonPath("$.content[0].name").value("iPhone 15"))
+                    .andExpect(jsonPath("$.totalElements").value(1));
+        }
+
+        @Test
+        void whenCatalogIndexIsReadyAndFilterByManyValues_thenReturnSameResultsAsDatabase() throws Exception {
+            // wait until the index is rebuilt after the phones were created
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (!phoneCatalogIndex.isReady() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertThat(phoneCatalogIndex.isReady()).isTrue();
+
+            mockMvc.perform(get(URL)
+                            .param("brands", "Samsung", "Google")
+                            .param("maxPrice", "899.99")
+                            .param("sort", "price_desc")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content", hasSize(2)))
+                    .andExpect(jsonPath("$.content[0].name").value("Samsung Galaxy S24"))
+                    .andExpect(jsonPath("$.content[1].name").value("Google Pixel 8"))
+                    .andExpect(jsonPath("$.totalElements").value(2));
+        }
+
+        @Test
+        void whenTooManyBrandsSelected_thenStatus400() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("brands", IntStream.rangeClosed(1, 51).mapToObj(i -> "Brand" + i).toArray(String[]::new))
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        void whenPageRequested_thenReturnWeakETag() throws Exception {
+            mockMvc.perform(get(URL)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, startsWith("W/\"")))
+                    .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("no-cache")));
+        }
+
+        @Test
+        void whenETagMatches_thenStatus304WithoutBody() throws Exception {
+            String eTag = mockMvc.perform(get(URL)
+                            .param("brand", "Samsung")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+            mockMvc.perform(get(URL)
+                            .param("brand", "Samsung")
+                            .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isNotModified())
+                    .andExpect(content().string(""));
+        }
+
+        @Test
+        void whenCatalogChangedAfterETagIssued_thenStatus200WithNewETag() throws Exception {
+            String eTag = mockMvc.perform(get(URL)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+            phoneService.delete(phone1);
+
+            mockMvc.perform(get(URL)
+                            .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, not(eTag)))
+                    .andExpect(jsonPath("$.totalElements").value(2));
+        }
+
+        @Test
+        void whenPhoneUpdatedAfterPageServed_thenReturnUpdatedPage() throws Exception {
+            mockMvc.perform(get(URL)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk());
+            phoneService.update(phone1, buildPhoneUpdateRequestDto(TestPhone.VALID_PHONE));
+
+            mockMvc.perform(get(URL)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(jsonPath("$.content[?(@.id == %d)].name".formatted(phone1)).value("Valid Phone"));
+        }
+
+        @Test
+        void whenImageAddedAfterPageServed_thenReturnPageWithNewImage() throws Exception {
+            mockMvc.perform(get(URL)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk());
+            phoneService.addImageToPhone(phone1, buildMultipartFile("image"));
+
+            mockMvc.perform(get(URL)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content[?(@.id == %d)].images.length()".formatted(phone1)).value(1));
+        }
+
+        @Test
+        void whenMinBatteryCapacityIsNegative_thenStatus400() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("minBatteryMah", "-1")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isBadRequest());
+        }
+
         @Test
         void whenMinPriceIsNegative_thenStatus400() throws Exception {
             mockMvc.perform(get(URL)
@@ -358,6 +608,145 @@ class PhoneControllerTest {
                     .andExpect(jsonPath("$.content[*].images").exists());
         }
 
+        @Test
+        void whenSortByReleaseYearDesc_thenBreakTiesByIdDesc() throws Exception {
+            // iPhone and Galaxy are both released in 2024, Galaxy is created later
+            mockMvc.perform(get(URL)
+                            .param("sort", "release_year_desc")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content", hasSize(3)))
+                    .andExpect(jsonPath("$.content[0].name").value("Samsung Galaxy S24"))
+                    .andExpect(jsonPath("$.content[1].name").value("iPhone 15"))
+                    .andExpect(jsonPath("$.content[2].name").value("Google Pixel 8"));
+        }
+
+        @Test
+        void whenSortByNewest_thenReturnLastCreatedFirst() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("sort", "newest")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content", hasSize(3)))
+                    .andExpect(jsonPath("$.content[0].id").value(phone3))
+                    .andExpect(jsonPath("$.content[1].id").value(phone2))
+                    .andExpect(jsonPath("$.content[2].id").value(phone1));
+        }
+
+        @Test
+        void whenSortByPopularity_thenReturnMostPopularFirst() throws Exception {
+            phonePopularityRepository.addPopularity(Map.of(phone1, 2L, phone2, 1L));
+
+            mockMvc.perform(get(URL)
+                            .param("sort", "popularity")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content", hasSize(3)))
+                    .andExpect(jsonPath("$.content[0].id").value(phone1))
+                    .andExpect(jsonPath("$.content[1].id").value(phone2))
+                    .andExpect(jsonPath("$.content[2].id").value(phone3));
+        }
+
+        @Test
+        void whenPopularityFlushedAfterPageServed_thenReturnPageInNewOrder() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("sort", "popularity")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content[0].id").value(phone3));
+            phonePopularityCounter.count(phone1);
+            phonePopularityCounter.flush();
+
+            mockMvc.perform(get(URL)
+                            .param("sort", "popularity")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content[0].id").value(phone1));
+        }
+
+        @Test
+        void whenSearchByKeyword_thenReturnMatchingPhones() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("q", "samsung")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content", hasSize(1)))
+                    .andExpect(jsonPath("$.content[0].name").value("Samsung Galaxy S24"))
+                    .andExpect(jsonPath("$.totalElements").value(1));
+        }
+
+        @Test
+        void whenSearchByDescriptionWord_thenMatchStemmedForm() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("q", "experiences")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content", hasSize(1)))
+                    .andExpect(jsonPath("$.content[0].name").value("Google Pixel 8"));
+        }
+
+        @Test
+        void whenSearchWithoutSort_thenOrderByRelevance() throws Exception {
+            // "google" is in name, brand and cpu of Pixel, "exynos" only in cpu of Galaxy
+            mockMvc.perform(get(URL)
+                            .param("q", "google or exynos")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content", hasSize(2)))
+                    .andExpect(jsonPath("$.content[0].name").value("Google Pixel 8"))
+                    .andExpect(jsonPath("$.content[1].name").value("Samsung Galaxy S24"));
+        }
+
+        @Test
+        void whenSearchWithSort_thenOrderByRequestedSort() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("q", "google or exynos")
+                            .param("sort", "price_desc")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content", hasSize(2)))
+                    .andExpect(jsonPath("$.content[0].name").value("Samsung Galaxy S24"))
+                    .andExpect(jsonPath("$.content[1].name").value("Google Pixel 8"));
+        }
+
+        @Test
+        void whenSearchWithFilter_thenReturnPhonesMatchingBoth() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("q", "google or exynos")
+                            .param("brand", "Samsung")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content", hasSize(1)))
+                    .andExpect(jsonPath("$.content[0].name").value("Samsung Galaxy S24"))
+                    .andExpect(jsonPath("$.totalElements").value(1));
+        }
+
+        @Test
+        void whenSearchMatchesNothing_thenReturnEmptyContent() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("q", "nokia")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content", hasSize(0)))
+                    .andExpect(jsonPath("$.totalElements").value(0));
+        }
+
+        @Test
+        void whenSortByRelevanceWithoutSearch_thenStatus400() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("sort", "relevance")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        void whenSearchIsTooLong_thenStatus400() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("q", "a".repeat(201))
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isBadRequest());
+        }
+
         @Test
         void whenSortByPriceDesc_thenReturnSortedPhones() throws Exception {
             mockMvc.perform(get(URL)
@@ -376,121 +765,628 @@ class PhoneControllerTest {
         }
 
         @Test
-        void whenNoSortProvided_thenDefaultToNameAsc() throws Exception {
+        void whenNoSortProvided_thenDefaultToNameAsc() throws Exception {
+            mockMvc.perform(get(URL)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content").isArray())
+                    .andExpect(jsonPath("$.content", hasSize(3)))
+                    .andExpect(jsonPath("$.content[0].name").value("Google Pixel 8"))
+                    .andExpect(jsonPath("$.content[1].name").value("iPhone 15"))
+                    .andExpect(jsonPath("$.content[2].name").value("Samsung Galaxy S24"))
+                    .andExpect(jsonPath("$.content[*].images").exists());
+        }
+
+        @Test
+        void whenSortIsEmpty_thenDefaultToNameAsc() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("sort", "")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content").isArray())
+                    .andExpect(jsonPath("$.content", hasSize(3)))
+                    .andExpect(jsonPath("$.content[0].name").value("Google Pixel 8"))
+                    .andExpect(jsonPath("$.content[1].name").value("iPhone 15"))
+                    .andExpect(jsonPath("$.content[2].name").value("Samsung Galaxy S24"))
+                    .andExpect(jsonPath("$.content[*].images").exists());
+        }
+
+        @Test
+        void whenSortIsBlank_thenDefaultToNameAsc() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("sort", "   ")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content").isArray())
+                    .andExpect(jsonPath("$.content", hasSize(3)))
+                    .andExpect(jsonPath("$.content[0].name").value("Google Pixel 8"))
+                    .andExpect(jsonPath("$.content[1].name").value("iPhone 15"))
+                    .andExpect(jsonPath("$.content[2].name").value("Samsung Galaxy S24"))
+                    .andExpect(jsonPath("$.content[*].images").exists());
+        }
+
+        @Test
+        void whenSortIsInvalid_thenStatus400() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("sort", "invalid_sort")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        void whenSortWithWrongFormat_thenStatus400() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("sort", "name")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        void whenSortWithRandomText_thenStatus400() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("sort", "random_value")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        void whenCombinedFilterAndSort_thenReturnCorrectResults() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("brand", "Apple")
+                            .param("minPrice", "100.00")
+                            .param("maxPrice", "2000.00")
+                            .param("sort", "price_asc")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content").isArray())
+                    .andExpect(jsonPath("$.content", hasSize(1)))
+                    .andExpect(jsonPath("$.content[0].brand").value("Apple"))
+                    .andExpect(jsonPath("$.content[0].name").value("iPhone 15"))
+                    .andExpect(jsonPath("$.content[0].price").value(999.99))
+                    .andExpect(jsonPath("$.content[*].images").exists());
+        }
+
+        @Test
+        void whenCombinedFilterSortAndPagination_thenReturnCorrectResults() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("page", "1")
+                            .param("size", "2")
+                            .param("sort", "name_desc")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content").isArray())
+                    .andExpect(jsonPath("$.content", hasSize(2)))
+                    .andExpect(jsonPath("$.size").value(2))
+                    .andExpect(jsonPath("$.page").value(1))
+                    .andExpect(jsonPath("$.content[0].name").value("Samsung Galaxy S24"))
+                    .andExpect(jsonPath("$.content[1].name").value("iPhone 15"))
+                    .andExpect(jsonPath("$.content[*].images").exists());
+        }
+
+        @Test
+        void whenAllParametersCombined_thenReturnCorrectResults() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("page", "1")
+                            .param("size", "5")
+                            .param("minPrice", "800.00")
+                            .param("maxPrice", "1500.00")
+                            .param("sort", "price_desc")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content").isArray())
+                    .andExpect(jsonPath("$.content", hasSize(2)))
+                    .andExpect(jsonPath("$.content[0].name").value("iPhone 15"))
+                    .andExpect(jsonPath("$.content[0].price").value(999.99))
+                    .andExpect(jsonPath("$.content[1].name").value("Samsung Galaxy S24"))
+                    .andExpect(jsonPath("$.content[1].price").value(899.99))
+                    .andExpect(jsonPath("$.content[*].images").exists());
+        }
+    }
+
+    @Nested
+    @DisplayName("GET /api/v1/phones?cursor=")
+    class GetPhonesByCursorTest {
+        private final static String URL = "/api/v1/phones";
+
+        @Test
+        void whenEmptyCursor_thenStatus200AndReturnFirstPageWithNextCursor() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("cursor", "")
+                            .param("size", "2")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(jsonPath("$.content", hasSize(2)))
+                    .andExpect(jsonPath("$.content[0].name").value("Google Pixel 8"))
+                    .andExpect(jsonPath("$.content[1].name").value("iPhone 15"))
+                    .andExpect(jsonPath("$.content[*].images").exists())
+                    .andExpect(jsonPath("$.size").value(2))
+                    .andExpect(jsonPath("$.next").isNotEmpty())
+                    .andExpect(jsonPath("$.last").value(false))
+                    .andExpect(jsonPath("$.totalElements").doesNotExist());
+        }
+
+        @Test
+        void whenETagMatches_thenStatus304() throws Exception {
+            String eTag = mockMvc.perform(get(URL)
+                            .param("cursor", "")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(header().string(HttpHeaders.ETAG, startsWith("W/\"")))
+                    .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+            mockMvc.perform(get(URL)
+                            .param("cursor", "")
+                            .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isNotModified());
+        }
+
+        @Test
+        void whenSearchWithSort_thenReturnMatchingPhonesInSortOrder() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("cursor", "")
+                            .param("q", "google or exynos")
+                            .param("sort", "price_asc")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content", hasSize(2)))
+                    .andExpect(jsonPath("$.content[0].name").value("Google Pixel 8"))
+                    .andExpect(jsonPath("$.content[1].name").value("Samsung Galaxy S24"))
+                    .andExpect(jsonPath("$.last").value(true));
+        }
+
+        @Test
+        void whenSortByRelevance_thenStatus400() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("cursor", "")
+                            .param("q", "google")
+                            .param("sort", "relevance")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        void whenSearchWithoutSort_thenReturnPhonesSortedByName() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("cursor", "")
+                            .param("q", "google")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content", hasSize(1)))
+                    .andExpect(jsonPath("$.content[0].brand").value("Google"));
+        }
+
+        @Test
+        void whenNextCursorPassed_thenReturnFollowingPage() throws Exception {
+            String response = mockMvc.perform(get(URL)
+                            .param("cursor", "")
+                            .param("size", "2")
+                            .param("sort", "price_desc")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andReturn()
+                    .getResponse()
+                    .getContentAsString();
+            String next = objectMapper.readTree(response).get("next").asText();
+
+            mockMvc.perform(get(URL)
+                            .param("cursor", next)
+                            .param("size", "2")
+                            .param("sort", "price_desc")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content", hasSize(1)))
+                    .andExpect(jsonPath("$.content[0].name").value("Google Pixel 8"))
+                    .andExpect(jsonPath("$.next").doesNotExist())
+                    .andExpect(jsonPath("$.last").value(true));
+        }
+
+        @Test
+        void whenNextCursorPassedForNewest_thenReturnFollowingPage() throws Exception {
+            String response = mockMvc.perform(get(URL)
+                            .param("cursor", "")
+                            .param("size", "2")
+                            .param("sort", "newest")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andReturn()
+                    .getResponse()
+                    .getContentAsString();
+            String next = objectMapper.readTree(response).get("next").asText();
+
+            mockMvc.perform(get(URL)
+                            .param("cursor", next)
+                            .param("size", "2")
+                            .param("sort", "newest")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content", hasSize(1)))
+                    .andExpect(jsonPath("$.content[0].id").value(phone1))
+                    .andExpect(jsonPath("$.last").value(true));
+        }
+
+        @Test
+        void whenCursorWithFilter_thenReturnOnlyMatchingPhones() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("cursor", "")
+                            .param("brand", "Samsung")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content", hasSize(1)))
+                    .andExpect(jsonPath("$.content[0].brand").value("Samsung"))
+                    .andExpect(jsonPath("$.last").value(true));
+        }
+
+        @Test
+        void whenCursorIssuedForAnotherSort_thenStatus400() throws Exception {
+            String response = mockMvc.perform(get(URL)
+                            .param("cursor", "")
+                            .param("size", "1")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andReturn()
+                    .getResponse()
+                    .getContentAsString();
+            String next = objectMapper.readTree(response).get("next").asText();
+
+            mockMvc.perform(get(URL)
+                            .param("cursor", next)
+                            .param("sort", "price_asc")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        void whenCursorIsInvalid_thenStatus400() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("cursor", "invalid-cursor")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        void whenSizeIsTooHigh_thenStatus400() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("cursor", "")
+                            .param("size", "101")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        void whenRequestMissingToken_thenStatus403() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("cursor", ""))
+                    .andExpect(status().isForbidden());
+        }
+    }
+
+    @Nested
+    @DisplayName("GET /api/v1/phones?ids=")
+    class GetPhonesByIdsTest {
+        private final static String URL = "/api/v1/phones";
+
+        @Test
+        void whenIdsGiven_thenStatus200AndPhonesInOrderOfIds() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("ids", phone3 + "," + phone1 + "," + phone2)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.phones", hasSize(3)))
+                    .andExpect(jsonPath("$.phones[0].id").value(phone3))
+                    .andExpect(jsonPath("$.phones[1].id").value(phone1))
+                    .andExpect(jsonPath("$.phones[2].id").value(phone2))
+                    .andExpect(jsonPath("$.phones[2].images", hasSize(2)))
+                    .andExpect(jsonPath("$.missingIds", hasSize(0)));
+        }
+
+        @Test
+        void whenSomeIdsMissingOrRepeated_thenReturnFoundOnceAndReportMissing() throws Exception {
+            long missingId = phone3 + 1000;
+
+            mockMvc.perform(get(URL)
+                            .param("ids", phone2 + "," + missingId + "," + phone2)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.phones", hasSize(1)))
+                    .andExpect(jsonPath("$.phones[0].id").value(phone2))
+                    .andExpect(jsonPath("$.missingIds", contains((int) missingId)));
+        }
+
+        @Test
+        void whenTooManyIds_thenStatus400() throws Exception {
+            String ids = String.join(",", IntStream.rangeClosed(1, 101).mapToObj(String::valueOf).toList());
+
+            mockMvc.perform(get(URL)
+                            .param("ids", ids)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        void whenIdsAreEmpty_thenStatus400() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("ids", "")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        void whenIdIsNotNumber_thenStatus400() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("ids", "1,abc")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        void whenRequestMissingToken_thenStatus403() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("ids", "1"))
+                    .andExpect(status().isForbidden());
+        }
+    }
+
+    @Nested
+    @DisplayName("GET /api/v1/phones/facets")
+    class GetPhoneFacetsTest {
+        private final static String URL = "/api/v1/phones/facets";
+
+        @BeforeEach
+        void reloadFacets() {
+            // phones of previous tests were deleted by the repository, around the phone service
+            phoneFacetService.reload();
+        }
+
+        @Test
+        void whenNoFilters_thenReturnCountsOfWholeCatalog() throws Exception {
+            mockMvc.perform(get(URL)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(jsonPath("$.total").value(3))
+                    .andExpect(jsonPath("$.brands", hasSize(3)))
+                    .andExpect(jsonPath("$.brands[*].count", everyItem(is(1))))
+                    .andExpect(jsonPath("$.priceBuckets", hasSize(6)))
+                    .andExpect(jsonPath("$.priceBuckets[0].from").doesNotExist())
+                    .andExpect(jsonPath("$.priceBuckets[3].from").value(600))
+                    .andExpect(jsonPath("$.priceBuckets[3].count").value(1))
+                    .andExpect(jsonPath("$.priceBuckets[4].count").value(2))
+                    .andExpect(jsonPath("$.priceBuckets[5].to").doesNotExist())
+                    .andExpect(jsonPath("$.releaseYears[0].releaseYear").value(2023))
+                    .andExpect(jsonPath("$.releaseYears[0].count").value(1))
+                    .andExpect(jsonPath("$.releaseYears[1].releaseYear").value(2024))
+                    .andExpect(jsonPath("$.releaseYears[1].count").value(2));
+        }
+
+        @Test
+        void whenFilterByPriceRange_thenCountOnlyMatchingPhones() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("minPrice", "700")
+                            .param("maxPrice", "950")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.total").value(1))
+                    .andExpect(jsonPath("$.brands", hasSize(1)))
+                    .andExpect(jsonPath("$.brands[0].brand").value("Samsung"));
+        }
+
+        @Test
+        void whenSearchWithBrand_thenCountPhonesMatchingBoth() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("q", "flagship")
+                            .param("brand", "samsung")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.total").value(1))
+                    .andExpect(jsonPath("$.brands[0].brand").value("Samsung"))
+                    .andExpect(jsonPath("$.releaseYears[0].releaseYear").value(2024));
+        }
+
+        @Test
+        void whenFilterByManyReleaseYears_thenCountOnlyMatchingPhones() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("releaseYears", "2023,2024")
+                            .param("brands", "Google", "Apple")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.total").value(2))
+                    .andExpect(jsonPath("$.brands[*].brand", containsInAnyOrder("Apple", "Google")));
+        }
+
+        @Test
+        void whenPhonesChangedThroughService_thenUpdateCounts() throws Exception {
+            phoneService.create(buildPhoneCreateRequestDto(TestPhone.VALID_PHONE), new ArrayList<>());
+            phoneService.delete(phone1);
+
+            mockMvc.perform(get(URL)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.total").value(3))
+                    .andExpect(jsonPath("$.brands[*].brand", containsInAnyOrder("Samsung", "Google", "ValidBrand")))
+                    .andExpect(jsonPath("$.releaseYears[0].releaseYear").value(2020));
+        }
+
+        @Test
+        void whenMinPriceIsNegative_thenStatus400() throws Exception {
+            mockMvc.perform(get(URL)
+                            .param("minPrice", "-1")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        void whenRequestMissingToken_thenStatus403() throws Exception {
+            mockMvc.perform(get(URL))
+                    .andExpect(status().isForbidden());
+        }
+    }
+
+    @Nested
+    @DisplayName("GET /api/v1/phones/suggest")
+    class SuggestPhonesTest {
+        private final static String URL = "/api/v1/phones/suggest";
+
+        @BeforeEach
+        void reloadSuggestions() {
+            // phones of previous tests were deleted by the repository, around the phone service
+            phoneSuggestIndex.reload();
+        }
+
+        @Test
+        void whenPrefixMatchesWordOfName_thenReturnPhone() throws Exception {
             mockMvc.perform(get(URL)
+                            .param("prefix", "GALAXY")
                             .header(HttpHeaders.AUTHORIZATION, auth(token)))
                     .andExpect(status().isOk())
-                    .andExpect(jsonPath("$.content").isArray())
-                    .andExpect(jsonPath("$.content", hasSize(3)))
-                    .andExpect(jsonPath("$.content[0].name").value("Google Pixel 8"))
-                    .andExpect(jsonPath("$.content[1].name").value("iPhone 15"))
-                    .andExpect(jsonPath("$.content[2].name").value("Samsung Galaxy S24"))
-                    .andExpect(jsonPath("$.content[*].images").exists());
+                    .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(jsonPath("$.brands").isEmpty())
+                    .andExpect(jsonPath("$.phones", hasSize(1)))
+                    .andExpect(jsonPath("$.phones[0].id").value(phone2))
+                    .andExpect(jsonPath("$.phones[0].name").value("Samsung Galaxy S24"));
         }
 
         @Test
-        void whenSortIsEmpty_thenDefaultToNameAsc() throws Exception {
+        void whenPrefixMatchesBrand_thenReturnBrandWithPhonesCount() throws Exception {
             mockMvc.perform(get(URL)
-                            .param("sort", "")
+                            .param("prefix", "goo")
                             .header(HttpHeaders.AUTHORIZATION, auth(token)))
                     .andExpect(status().isOk())
-                    .andExpect(jsonPath("$.content").isArray())
-                    .andExpect(jsonPath("$.content", hasSize(3)))
-                    .andExpect(jsonPath("$.content[0].name").value("Google Pixel 8"))
-                    .andExpect(jsonPath("$.content[1].name").value("iPhone 15"))
-                    .andExpect(jsonPath("$.content[2].name").value("Samsung Galaxy S24"))
-                    .andExpect(jsonPath("$.content[*].images").exists());
+                    .andExpect(jsonPath("$.brands", hasSize(1)))
+                    .andExpect(jsonPath("$.brands[0].brand").value("Google"))
+                    .andExpect(jsonPath("$.brands[0].phonesCount").value(1))
+                    .andExpect(jsonPath("$.phones[0].id").value(phone3));
         }
 
         @Test
-        void whenSortIsBlank_thenDefaultToNameAsc() throws Exception {
+        void whenPhonesChangedThroughService_thenSuggestCurrentNames() throws Exception {
+            phoneService.delete(phone1);
+            phoneService.create(buildPhoneCreateRequestDto(TestPhone.VALID_PHONE), new ArrayList<>());
+
             mockMvc.perform(get(URL)
-                            .param("sort", "   ")
+                            .param("prefix", "iphone")
                             .header(HttpHeaders.AUTHORIZATION, auth(token)))
                     .andExpect(status().isOk())
-                    .andExpect(jsonPath("$.content").isArray())
-                    .andExpect(jsonPath("$.content", hasSize(3)))
-                    .andExpect(jsonPath("$.content[0].name").value("Google Pixel 8"))
-                    .andExpect(jsonPath("$.content[1].name").value("iPhone 15"))
-                    .andExpect(jsonPath("$.content[2].name").value("Samsung Galaxy S24"))
-                    .andExpect(jsonPath("$.content[*].images").exists());
+                    .andExpect(jsonPath("$.phones").isEmpty());
+            mockMvc.perform(get(URL)
+                            .param("prefix", "valid")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.brands[0].brand").value("ValidBrand"))
+                    .andExpect(jsonPath("$.phones[0].name").value("Valid Phone"));
         }
 
         @Test
-        void whenSortIsInvalid_thenStatus400() throws Exception {
+        void whenPrefixIsMissing_thenStatus400() throws Exception {
             mockMvc.perform(get(URL)
-                            .param("sort", "invalid_sort")
                             .header(HttpHeaders.AUTHORIZATION, auth(token)))
                     .andExpect(status().isBadRequest());
         }
 
         @Test
-        void whenSortWithWrongFormat_thenStatus400() throws Exception {
+        void whenLimitIsTooHigh_thenStatus400() throws Exception {
             mockMvc.perform(get(URL)
-                            .param("sort", "name")
+                            .param("prefix", "a")
+                            .param("limit", "21")
                             .header(HttpHeaders.AUTHORIZATION, auth(token)))
                     .andExpect(status().isBadRequest());
         }
 
         @Test
-        void whenSortWithRandomText_thenStatus400() throws Exception {
+        void whenRequestMissingToken_thenStatus403() throws Exception {
             mockMvc.perform(get(URL)
-                            .param("sort", "random_value")
+                            .param("prefix", "a"))
+                    .andExpect(status().isForbidden());
+        }
+    }
+
+    @Nested
+    @DisplayName("GET /api/v1/phones/export")
+    class ExportPhonesTest {
+        private final static String URL = "/api/v1/phones/export";
+
+        @Test
+        void whenValidRequest_thenStatus200AndStreamPhonesAsLines() throws Exception {
+            MvcResult started = mockMvc.perform(get(URL)
                             .header(HttpHeaders.AUTHORIZATION, auth(token)))
-                    .andExpect(status().isBadRequest());
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            MvcResult result = mockMvc.perform(asyncDispatch(started))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                    .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                    .andReturn();
+
+            List<JsonNode> lines = readLines(result.getResponse().getContentAsByteArray());
+            assertThat(lines).extracting(line -> line.get("id").asLong()).containsExactly(phone1, phone2, phone3);
+            assertThat(lines.get(0).get("name").asText()).isEqualTo(TestPhone.PHONE_1.name);
+            assertThat(lines).extracting(line -> line.get("images").size()).containsExactly(0, 2, 1);
         }
 
         @Test
-        void whenCombinedFilterAndSort_thenReturnCorrectResults() throws Exception {
-            mockMvc.perform(get(URL)
-                            .param("brand", "Apple")
-                            .param("minPrice", "100.00")
-                            .param("maxPrice", "2000.00")
-                            .param("sort", "price_asc")
+        void whenGzipAccepted_thenStatus200AndCompressedLines() throws Exception {
+            MvcResult started = mockMvc.perform(get(URL)
+                            .header(HttpHeaders.ACCEPT_ENCODING, "deflate, gzip;q=0.8")
                             .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            MvcResult result = mockMvc.perform(asyncDispatch(started))
                     .andExpect(status().isOk())
-                    .andExpect(jsonPath("$.content").isArray())
-                    .andExpect(jsonPath("$.content", hasSize(1)))
-                    .andExpect(jsonPath("$.content[0].brand").value("Apple"))
-                    .andExpect(jsonPath("$.content[0].name").value("iPhone 15"))
-                    .andExpect(jsonPath("$.content[0].price").value(999.99))
-                    .andExpect(jsonPath("$.content[*].images").exists());
+                    .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                    .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT_ENCODING)))
+                    .andReturn();
+
+            byte[] body;
+            try (GZIPInputStream in = new GZIPInputStream(
+                    new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+                body = in.readAllBytes();
+            }
+            assertThat(readLines(body)).extracting(line -> line.get("id").asLong()).containsExactly(phone1, phone2, phone3);
         }
 
         @Test
-        void whenCombinedFilterSortAndPagination_thenReturnCorrectResults() throws Exception {
-            mockMvc.perform(get(URL)
-                            .param("page", "1")
-                            .param("size", "2")
-                            .param("sort", "name_desc")
+        void whenGzipRefused_thenStatus200AndPlainLines() throws Exception {
+            MvcResult started = mockMvc.perform(get(URL)
+                            .header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0")
                             .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            MvcResult result = mockMvc.perform(asyncDispatch(started))
                     .andExpect(status().isOk())
-                    .andExpect(jsonPath("$.content").isArray())
-                    .andExpect(jsonPath("$.content", hasSize(2)))
-                    .andExpect(jsonPath("$.size").value(2))
-                    .andExpect(jsonPath("$.page").value(1))
-                    .andExpect(jsonPath("$.content[0].name").value("Samsung Galaxy S24"))
-                    .andExpect(jsonPath("$.content[1].name").value("iPhone 15"))
-                    .andExpect(jsonPath("$.content[*].images").exists());
+                    .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                    .andReturn();
+
+            assertThat(readLines(result.getResponse().getContentAsByteArray())).hasSize(3);
         }
 
         @Test
-        void whenAllParametersCombined_thenReturnCorrectResults() throws Exception {
-            mockMvc.perform(get(URL)
-                            .param("page", "1")
-                            .param("size", "5")
-                            .param("minPrice", "800.00")
-                            .param("maxPrice", "1500.00")
-                            .param("sort", "price_desc")
+        void whenCatalogIsEmpty_thenStatus200AndEmptyBody() throws Exception {
+            phoneRepository.deleteAll();
+
+            MvcResult started = mockMvc.perform(get(URL)
                             .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(started))
                     .andExpect(status().isOk())
-                    .andExpect(jsonPath("$.content").isArray())
-                    .andExpect(jsonPath("$.content", hasSize(2)))
-                    .andExpect(jsonPath("$.content[0].name").value("iPhone 15"))
-                    .andExpect(jsonPath("$.content[0].price").value(999.99))
-                    .andExpect(jsonPath("$.content[1].name").value("Samsung Galaxy S24"))
-                    .andExpect(jsonPath("$.content[1].price").value(899.99))
-                    .andExpect(jsonPath("$.content[*].images").exists());
+                    .andExpect(content().string(""));
+        }
+
+        @Test
+        void whenRequestMissingToken_thenStatus403() throws Exception {
+            mockMvc.perform(get(URL))
+                    .andExpect(status().isForbidden());
+        }
+
+        private List<JsonNode> readLines(byte[] body) throws Exception {
+            List<JsonNode> lines = new ArrayList<>();
+            for (String line : new String(body, StandardCharsets.UTF_8).split("\n")) {
+                lines.add(objectMapper.readTree(line));
+            }
+            return lines;
         }
     }
 
@@ -506,6 +1402,7 @@ class PhoneControllerTest {
                     .andExpect(status().isOk())
                     .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                     .andExpect(jsonPath("$.id").value(phone1))
+                    .andExpect(jsonPath("$.version").value(0))
                     .andExpect(jsonPath("$.name").value(TestPhone.PHONE_1.name))
                     .andExpect(jsonPath("$.description").value(TestPhone.PHONE_1.description))
                     .andExpect(jsonPath("$.price").value(TestPhone.PHONE_1.price))
@@ -532,7 +1429,86 @@ class PhoneControllerTest {
                     .andExpect(jsonPath("$.images[0].name").exists())
                     .andExpect(jsonPath("$.images[0].url").exists())
                     .andExpect(jsonPath("$.images[0].size").exists())
-                    .andExpect(jsonPath("$.images[0].mimeType").exists());
+                    .andExpect(jsonPath("$.images[0].mimeType").exists())
+                    // the test file isn't a decodable image, so it has no variants
+                    .andExpect(jsonPath("$.images[0].variants", hasSize(0)));
+        }
+
+        @Test
+        void whenExists_thenReturnStrongETagToRevalidate() throws Exception {
+            mockMvc.perform(get(URL, phone1)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, matchesPattern("\"[^\"]+\"")))
+                    .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("no-cache")));
+        }
+
+        @Test
+        void whenETagMatches_thenStatus304WithoutBody() throws Exception {
+            String eTag = mockMvc.perform(get(URL, phone1)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+            mockMvc.perform(get(URL, phone1)
+                            .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                    .andExpect(content().string(""));
+        }
+
+        @Test
+        void whenImageAddedAfterETagIssued_thenStatus200WithNewETag() throws Exception {
+            String eTag = mockMvc.perform(get(URL, phone1)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+            phoneService.addImageToPhone(phone1, buildMultipartFile("image"));
+
+            mockMvc.perform(get(URL, phone1)
+                            .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, not(eTag)))
+                    .andExpect(jsonPath("$.images", hasSize(1)));
+        }
+
+        @Test
+        void whenPhoneUpdatedAfterServed_thenReturnUpdatedPhone() throws Exception {
+            mockMvc.perform(get(URL, phone1)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk());
+            phoneService.update(phone1, buildPhoneUpdateRequestDto(TestPhone.VALID_PHONE));
+
+            mockMvc.perform(get(URL, phone1)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(jsonPath("$.name").value("Valid Phone"));
+        }
+
+        @Test
+        void whenPhoneDeletedAfterServed_thenStatus404() throws Exception {
+            mockMvc.perform(get(URL, phone1)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk());
+            phoneService.delete(phone1);
+
+            mockMvc.perform(get(URL, phone1)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isNotFound());
+        }
+
+        @Test
+        void whenETagOfOtherPhoneGiven_thenStatus200() throws Exception {
+            String eTag = mockMvc.perform(get(URL, phone2)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+            mockMvc.perform(get(URL, phone1)
+                            .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.id").value(phone1));
         }
 
         @Test
@@ -695,6 +1671,11 @@ class PhoneControllerTest {
             expect400WithInvalidBody(TestPhone.INVALID_PRICE_NEGATIVE);
         }
 
+        @Test
+        void whenPriceHasMoreThanTwoFractionDigits_thenStatus400() throws Exception {
+            expect400WithInvalidBody(TestPhone.INVALID_PRICE_TOO_PRECISE);
+        }
+
         @Test
         void whenBrandIsNull_thenStatus400() throws Exception {
             expect400WithInvalidBody(TestPhone.INVALID_BRAND_NULL);
@@ -904,6 +1885,87 @@ class PhoneControllerTest {
         }
     }
 
+    @Nested
+    @DisplayName("POST /api/v1/phones/import")
+    class ImportPhonesTest {
+        private final static String URL = "/api/v1/phones/import";
+
+        @Test
+        void whenValidCsv_thenStatus200AndPhonesListed() throws Exception {
+            String csv = """
+                    name,price,brand,releaseYear,cpu,coresNumber,screenSize,frontCamera,mainCamera,batteryCapacity
+                    Imported Phone One,199.99,Importer,2024,Importer X1,8,"6.1""\",12 MP,48 MP,4000 mAh
+                    Imported Phone Two,299.99,Importer,2025,Importer X2,8,"6.7""\",12 MP,50-12 MP,5000 mAh
+                    """;
+
+            mockMvc.perform(post(URL)
+                            .contentType("text/csv")
+                            .content(csv)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.imported").value(2))
+                    .andExpect(jsonPath("$.failed").value(0))
+                    .andExpect(jsonPath("$.errors", hasSize(0)));
+
+            mockMvc.perform(get("/api/v1/phones")
+                            .param("brands", "Importer")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.totalElements").value(2))
+                    .andExpect(jsonPath("$.content[*].name", containsInAnyOrder("Imported Phone One", "Imported Phone Two")));
+            assertThat(phoneRepository.count()).isEqualTo(5);
+        }
+
+        @Test
+        void whenNdjsonWithInvalidRows_thenStatus200AndReportThem() throws Exception {
+            String ndjson = String.join("\n",
+                    ndjsonLine("Imported Phone One", "6.1\""),
+                    ndjsonLine("", "6.1\""),
+                    // matches the pattern, but is longer than the column
+                    ndjsonLine("Imported Phone Three", "10.25\"")
+            );
+
+            mockMvc.perform(post(URL)
+                            .contentType(MediaType.APPLICATION_NDJSON)
+                            .content(ndjson)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.imported").value(1))
+                    .andExpect(jsonPath("$.failed").value(2))
+                    .andExpect(jsonPath("$.errors[0].row").value(2))
+                    .andExpect(jsonPath("$.errors[0].messages", hasItem("name: Name must not be empty")))
+                    .andExpect(jsonPath("$.errors[1].row").value(3))
+                    .andExpect(jsonPath("$.errors[1].messages[0]", startsWith("Row couldn't be saved")));
+
+            assertThat(phoneRepository.count()).isEqualTo(4);
+        }
+
+        @Test
+        void whenUnsupportedContentType_thenStatus400() throws Exception {
+            mockMvc.perform(post(URL)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("[]")
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        void whenRequestMissingToken_thenStatus403() throws Exception {
+            mockMvc.perform(post(URL)
+                            .contentType("text/csv")
+                            .content("name"))
+                    .andExpect(status().isForbidden());
+        }
+
+        private String ndjsonLine(String name, String screenSize) throws Exception {
+            PhoneCreateRequestDto phone = new PhoneCreateRequestDto(
+                    name, null, new BigDecimal("199.99"), "Importer", 2024,
+                    "Importer X1", 8, screenSize, "12 MP", "48 MP", "4000 mAh"
+            );
+            return objectMapper.writeValueAsString(phone);
+        }
+    }
+
     @Nested
     @DisplayName("PUT /api/v1/phones/{phoneId}")
     class UpdatePhoneTest {
@@ -984,6 +2046,85 @@ class PhoneControllerTest {
                     .andExpect(status().isNotFound());
         }
 
+        @Test
+        void whenPhoneDoesNotExist_thenStatus404() throws Exception {
+            PhoneUpdateRequestDto request = buildPhoneUpdateRequestDto(TestPhone.VALID_PHONE);
+
+            mockMvc.perform(put(URL, Long.MAX_VALUE)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token))
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isNotFound());
+        }
+
+        @Test
+        void whenVersionMatches_thenStatus204AndIncrementVersion() throws Exception {
+            PhoneUpdateRequestDto request = buildPhoneUpdateRequestDto(TestPhone.VALID_PHONE, 0L);
+
+            mockMvc.perform(put(URL, phone1)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token))
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isNoContent());
+
+            mockMvc.perform(get(URL, phone1)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.name").value(TestPhone.VALID_PHONE.name))
+                    .andExpect(jsonPath("$.version").value(1));
+        }
+
+        @Test
+        void whenVersionIsStale_thenStatus409AndKeepNewerUpdate() throws Exception {
+            PhoneUpdateRequestDto first = buildPhoneUpdateRequestDto(TestPhone.VALID_PHONE, 0L);
+            PhoneUpdateRequestDto second = buildPhoneUpdateRequestDto(TestPhone.VALID_PHONE_BOUNDARY_MAX, 0L);
+            mockMvc.perform(put(URL, phone1)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token))
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(first)))
+                    .andExpect(status().isNoContent());
+
+            mockMvc.perform(put(URL, phone1)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token))
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(second)))
+                    .andExpect(status().isConflict())
+                    .andExpect(jsonPath("$.title").value("Version Conflict"));
+
+            mockMvc.perform(get(URL, phone1)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.name").value(TestPhone.VALID_PHONE.name))
+                    .andExpect(jsonPath("$.version").value(1));
+        }
+
+        @Test
+        void whenVersionIsMissing_thenStatus400() throws Exception {
+            PhoneUpdateRequestDto request = buildPhoneUpdateRequestDto(TestPhone.VALID_PHONE, null);
+
+            mockMvc.perform(put(URL, phone1)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token))
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isBadRequest());
+
+            mockMvc.perform(get(URL, phone1)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.version").value(0));
+        }
+
+        @Test
+        void whenVersionIsNegative_thenStatus400() throws Exception {
+            PhoneUpdateRequestDto request = buildPhoneUpdateRequestDto(TestPhone.VALID_PHONE, -1L);
+
+            mockMvc.perform(put(URL, phone1)
+                            .header(HttpHeaders.AUTHORIZATION, auth(token))
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isBadRequest());
+        }
+
         // Validation tests
         @Test
         void whenNameIsNull_thenStatus204() throws Exception {
@@ -1032,6 +2173,11 @@ class PhoneControllerTest {
             expect400WithInvalidBody(TestPhone.INVALID_PRICE_NEGATIVE);
         }
 
+        @Test
+        void whenPriceHasMoreThanTwoFractionDigits_thenStatus400() throws Exception {
+            expect400WithInvalidBody(TestPhone.INVALID_PRICE_TOO_PRECISE);
+        }
+
         @Test
         void whenBrandIsNull_thenStatus204() throws Exception {
             PhoneUpdateRequestDto request = buildPhoneUpdateRequestDto(TestPhone.INVALID_BRAND_NULL);
@@ -1402,7 +2548,12 @@ class PhoneControllerTest {
         }
 
 
+        // a phone created by the test has its first version
         static PhoneUpdateRequestDto buildPhoneUpdateRequestDto(TestPhone testPhone) {
+            return buildPhoneUpdateRequestDto(testPhone, 0L);
+        }
+
+        static PhoneUpdateRequestDto buildPhoneUpdateRequestDto(TestPhone testPhone, Long version) {
             return new PhoneUpdateRequestDto(
                     testPhone.name,
                     testPhone.description,
@@ -1414,7 +2565,8 @@ class PhoneControllerTest {
                     testPhone.screenSize,
                     testPhone.frontCamera,
                     testPhone.mainCamera,
-                    testPhone.batteryCapacity
+                    testPhone.batteryCapacity,
+                    version
             );
         }
 
@@ -1512,6 +2664,10 @@ class PhoneControllerTest {
                 "Phone", "description", new BigDecimal("-0.01"), "Brand", 2020,
                 "Snapdragon 8 Gen 3", 8, "6.7\"", "12 MP", "50-12 MP", "5000 mAh"),
 
+        INVALID_PRICE_TOO_PRECISE(
+                "Phone", "description", new BigDecimal("0.001"), "Brand", 2020,
+                "Snapdragon 8 Gen 3", 8, "6.7\"", "12 MP", "50-12 MP", "5000 mAh"),
+
 
         // Invalid brand
         INVALID_BRAND_NULL(
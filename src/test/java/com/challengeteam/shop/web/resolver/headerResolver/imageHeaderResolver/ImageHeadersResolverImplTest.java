@@ -8,6 +8,8 @@ import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 
+import java.io.ByteArrayInputStream;
+
 import static com.challengeteam.shop.web.resolver.headerResolver.imageHeaderResolver.ImageHeadersResolverImplTest.TestResources.*;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -27,6 +29,17 @@ class ImageHeadersResolverImplTest {
             assertThat(result).isEqualTo(buildValidHeaders());
         }
 
+        @Test
+        void whenGivenRangeOfImage_thenReturnHeaderOfRange() {
+            // when
+            HttpHeaders result = imageHeadersResolver.resolveHeaders(buildPartialImageDataDto());
+
+            // then
+            assertThat(result.getContentLength()).isEqualTo(RANGE.length());
+            assertThat(result.getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 100-1099/" + SIZE);
+            assertThat(result.getFirst(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        }
+
         @Test
         void whenGivenUnsupportedImageType_thenThrowException() {
             // when
@@ -50,6 +63,7 @@ class ImageHeadersResolverImplTest {
         static final long SIZE = 2_500_000;
 
         static final String INVALID_MIME_TYPE = "image/gif";
+        static final ImageDataDto.Range RANGE = new ImageDataDto.Range(100, 1099);
 
         static final ContentDisposition CONTENT_DISPOSITION = buildContentDisposition();
 
@@ -64,16 +78,27 @@ class ImageHeadersResolverImplTest {
         static ImageDataDto buildImageDataDto() {
             return new ImageDataDto(
                     FILENAME,
-                    IMAGE_BYTES,
+                    new ByteArrayInputStream(IMAGE_BYTES),
                     MIME_TYPE,
                     SIZE
             );
         }
 
+        static ImageDataDto buildPartialImageDataDto() {
+            return new ImageDataDto(
+                    FILENAME,
+                    new ByteArrayInputStream(IMAGE_BYTES),
+                    MIME_TYPE,
+                    SIZE,
+                    RANGE
+            );
+        }
+
         static HttpHeaders buildValidHeaders() {
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.IMAGE_JPEG);
             headers.setContentLength(SIZE);
+            headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
             headers.setContentDisposition(CONTENT_DISPOSITION);
 
             return headers;
@@ -82,7 +107,7 @@ class ImageHeadersResolverImplTest {
         static ImageDataDto buildInvalidImageDataDto() {
             return new ImageDataDto(
                     FILENAME,
-                    IMAGE_BYTES,
+                    new ByteArrayInputStream(IMAGE_BYTES),
                     INVALID_MIME_TYPE,
                     SIZE
             );
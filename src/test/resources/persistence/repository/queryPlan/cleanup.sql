@@ -0,0 +1,4 @@
+-- images and cart items are removed by cascade
+DELETE FROM phones WHERE name LIKE 'Plan phone %';
+DELETE FROM users WHERE email LIKE 'plan-%@plan.test';
+DELETE FROM mime_types WHERE extension = 'plan';
@@ -0,0 +1,62 @@
+-- catalog large enough for the planner to prefer indexes over sequential scans
+INSERT INTO mime_types (extension, type)
+VALUES ('plan', 'image/plan');
+
+INSERT INTO phones (created_at, name, description, price, brand, release_year,
+                    cpu, cores_number, screen_size, front_camera, main_camera, battery_capacity,
+                    screen_inches, battery_mah, main_camera_mp, front_camera_mp, popularity)
+SELECT NOW() - g * INTERVAL '1 minute',
+       'Plan phone ' || g,
+       'Seeded phone number ' || g,
+       (g % 5000) + 0.99,
+       'Brand ' || (g % 100),
+       2015 + g % 10,
+       'Plan CPU',
+       8,
+       '6.1"',
+       '12 MP',
+       '48 MP',
+       (3000 + g % 3000) || ' mAh',
+       6.1,
+       3000 + g % 3000,
+       48,
+       12,
+       g % 1000
+FROM generate_series(1, 100000) AS g;
+
+INSERT INTO images (name, storage_key, size, fk_mime_type_id, created_at, fk_phone_id)
+SELECT 'plan_image_' || g || '.plan',
+       'plan/' || p.id || '/' || g,
+       1024,
+       (SELECT id FROM mime_types WHERE extension = 'plan'),
+       NOW(),
+       p.id
+FROM phones AS p
+         CROSS JOIN generate_series(1, 2) AS g
+WHERE p.name LIKE 'Plan phone %';
+
+INSERT INTO users (created_at, email, password, fk_role_id)
+SELECT NOW(),
+       'plan-' || g || '@plan.test',
+       'password',
+       (SELECT id FROM roles WHERE name = 'USER')
+FROM generate_series(1, 500) AS g;
+
+INSERT INTO carts (created_at, total_price, fk_user_id)
+SELECT NOW(), 0, u.id
+FROM users AS u
+WHERE u.email LIKE 'plan-%@plan.test';
+
+INSERT INTO carts_items (fk_cart_id, fk_phone_id, amount)
+SELECT c.id, p.id, 1
+FROM carts AS c
+         JOIN users AS u ON u.id = c.fk_user_id
+         JOIN phones AS p ON p.id % 5000 = c.id % 500
+WHERE u.email LIKE 'plan-%@plan.test'
+  AND p.name LIKE 'Plan phone %';
+
+ANALYZE phones;
+ANALYZE images;
+ANALYZE users;
+ANALYZE carts;
+ANALYZE carts_items;